@@ -0,0 +1,88 @@
+package alex.mojaki.boxes.benchmarks;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.DefaultPowerBox;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@code get} and {@code set} on boxes with a plain field, for boxes whose family has 0, 1 or several
+ * participants. The participants are split evenly between {@code GetMiddleware} and {@code ChangeObserver}s, so that
+ * with 1 participant only {@code set} goes through the pipeline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoxBenchmark {
+
+    @Param({"0", "1", "4"})
+    public int participants;
+
+    private Integer field = 0;
+    private CommonBox<Integer> commonBox;
+    private DefaultPowerBox<Integer> defaultBox;
+    private int counter;
+
+    private static final class DefaultBox extends DefaultPowerBox<Integer> {
+        private final BoxFamily family;
+
+        DefaultBox(BoxFamily family) {
+            this.family = family;
+        }
+
+        @Override
+        public BoxFamily getFamily() {
+            return family;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        // A fresh family for each parameter value, since participants can't be removed
+        BoxFamily commonFamily = BoxFamily.getInstance(BoxBenchmark.class, "common" + participants);
+        BoxFamily defaultFamily = BoxFamily.getInstance(BoxBenchmark.class, "default" + participants);
+        for (BoxFamily family : new BoxFamily[]{commonFamily, defaultFamily}) {
+            family.addChangeObserver(Participants.changeObservers((participants + 1) / 2));
+            family.addGetMiddleware(Participants.getMiddlewares(participants / 2));
+        }
+        commonBox = new CommonBox<Integer>(commonFamily);
+        commonBox.set(0);
+        defaultBox = new DefaultBox(defaultFamily);
+        defaultBox.set(0);
+    }
+
+    @Benchmark
+    public Integer fieldGet() {
+        return field;
+    }
+
+    @Benchmark
+    public void fieldSet() {
+        field = counter++;
+    }
+
+    @Benchmark
+    public Integer commonBoxGet() {
+        return commonBox.get();
+    }
+
+    @Benchmark
+    public void commonBoxSet() {
+        commonBox.set(counter++);
+    }
+
+    @Benchmark
+    public Integer defaultBoxGet() {
+        return defaultBox.get();
+    }
+
+    @Benchmark
+    public void defaultBoxSet() {
+        defaultBox.set(counter++);
+    }
+}
@@ -0,0 +1,92 @@
+package alex.mojaki.boxes.benchmarks;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.collections.BoxesMap;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.collections.MapBox;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static alex.mojaki.boxes.Boxes.box;
+
+/**
+ * Measures mutations of {@link ListBox} and {@link MapBox} with an observer, and {@link BoxesMap} access, each
+ * compared to the plain collection it's backed by.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollectionBenchmark {
+
+    private static final int KEYS = 64;
+
+    private List<Integer> plainList;
+    private ListBox<Integer> listBox;
+    private Map<Integer, Integer> plainMap;
+    private MapBox<Integer, Integer> mapBox;
+    private BoxesMap<Integer, Integer> boxesMap;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        plainList = new ArrayList<Integer>();
+        listBox = new ListBox<Integer>(BoxFamily.getInstance(CollectionBenchmark.class, "list")
+                .addChangeObserver(Participants.changeObservers(1))).init();
+        plainMap = new HashMap<Integer, Integer>();
+        mapBox = new MapBox<Integer, Integer>(BoxFamily.getInstance(CollectionBenchmark.class, "map")
+                .addChangeObserver(Participants.changeObservers(1))).init();
+        boxesMap = new BoxesMap<Integer, Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            boxesMap.putBox(i, box(i));
+        }
+    }
+
+    /**
+     * Keep the lists small so that the benchmarks measure the boxes, not the growth of the list.
+     */
+    @Setup(Level.Iteration)
+    public void clear() {
+        plainList.clear();
+        listBox.clear();
+    }
+
+    @Benchmark
+    public void plainListAddRemove() {
+        plainList.add(counter++);
+        plainList.remove(plainList.size() - 1);
+    }
+
+    @Benchmark
+    public void listBoxAddRemove() {
+        listBox.add(counter++);
+        listBox.remove(listBox.size() - 1);
+    }
+
+    @Benchmark
+    public Integer plainMapPut() {
+        return plainMap.put(counter++ & (KEYS - 1), counter);
+    }
+
+    @Benchmark
+    public Integer mapBoxPut() {
+        return mapBox.put(counter++ & (KEYS - 1), counter);
+    }
+
+    @Benchmark
+    public Integer boxesMapPut() {
+        return boxesMap.put(counter++ & (KEYS - 1), counter);
+    }
+
+    @Benchmark
+    public Integer boxesMapGet() {
+        return boxesMap.get(counter++ & (KEYS - 1));
+    }
+}
@@ -0,0 +1,66 @@
+package alex.mojaki.boxes.benchmarks;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.observers.change.TargetedChangeObserver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up a family, which {@code CommonBox} does on construction when given a class and name, and
+ * changing a box with a {@link TargetedChangeObserver} that has several targets registered for it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FamilyBenchmark {
+
+    @Param({"1", "16"})
+    public int targets;
+
+    private static final BoxFamily FAMILY = BoxFamily.getInstance(FamilyBenchmark.class, "lookedUp");
+
+    private PowerBox<Integer> targeted;
+    private long notified;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        TargetedChangeObserver<Integer, long[]> observer = new TargetedChangeObserver<Integer, long[]>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue,
+                                 Integer requestedValue, long[] target) {
+                target[0]++;
+            }
+        };
+        targeted = new CommonBox<Integer>(FamilyBenchmark.class, "targeted" + targets);
+        for (int i = 0; i < targets; i++) {
+            observer.register(targeted, new long[1]);
+        }
+    }
+
+    @Benchmark
+    public BoxFamily getInstance() {
+        return BoxFamily.getInstance(FamilyBenchmark.class, "lookedUp");
+    }
+
+    @Benchmark
+    public PowerBox<Integer> constructWithLookup() {
+        return new CommonBox<Integer>(FamilyBenchmark.class, "lookedUp");
+    }
+
+    @Benchmark
+    public PowerBox<Integer> constructWithFamily() {
+        return new CommonBox<Integer>(FAMILY);
+    }
+
+    @Benchmark
+    public void targetedFanOut() {
+        targeted.set(counter++);
+    }
+}
@@ -0,0 +1,50 @@
+package alex.mojaki.boxes.benchmarks;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+/**
+ * Cheap participants for the benchmarks, so that the results show the overhead of the boxes themselves.
+ */
+final class Participants {
+
+    private Participants() {
+    }
+
+    /**
+     * Return {@code n} distinct observers which each count the changes they see.
+     */
+    static ChangeObserver[] changeObservers(int n) {
+        ChangeObserver[] result = new ChangeObserver[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = new CountingObserver();
+        }
+        return result;
+    }
+
+    /**
+     * Return {@code n} distinct middlewares which each return the value unchanged.
+     */
+    static GetMiddleware[] getMiddlewares(int n) {
+        GetMiddleware[] result = new GetMiddleware[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = new GetMiddleware<Object>() {
+                @Override
+                public Object onGet(PowerBox<Object> box, Object originalValue, Object currentValue) {
+                    return currentValue;
+                }
+            };
+        }
+        return result;
+    }
+
+    static final class CountingObserver implements ChangeObserver<Object> {
+        long count;
+
+        @Override
+        public void onChange(PowerBox<Object> box, Object originalValue, Object finalValue, Object requestedValue) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package alex.mojaki.boxes.benchmarks;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of reading a {@link View} whose cache is valid against changing a box it depends on and then
+ * reading it, compared to doing the same calculation directly. This is the data behind the warning in the
+ * {@code View} documentation that views only pay off for expensive calculations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ViewBenchmark {
+
+    private PowerBox<Integer> a;
+    private PowerBox<Integer> b;
+    private View<Integer> sum;
+    private int plainA;
+    private int plainB;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        a = new CommonBox<Integer>(ViewBenchmark.class, "a").set(1);
+        b = new CommonBox<Integer>(ViewBenchmark.class, "b").set(2);
+        sum = new View<Integer>(ViewBenchmark.class, "sum", a, b) {
+            @Override
+            public Integer calculate() {
+                return a.get() + b.get();
+            }
+        };
+        sum.get();
+    }
+
+    @Benchmark
+    public int plainCalculation() {
+        return plainA + plainB;
+    }
+
+    @Benchmark
+    public Integer cacheHit() {
+        return sum.get();
+    }
+
+    @Benchmark
+    public Integer invalidateAndGet() {
+        a.set(counter++);
+        return sum.get();
+    }
+
+    @Benchmark
+    public int plainSetAndCalculate() {
+        plainA = counter++;
+        return plainA + plainB;
+    }
+}
@@ -0,0 +1,203 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.BooleanChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.BooleanGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.BooleanChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.BooleanGetObserver;
+
+/**
+ * The {@code boolean} version of {@link AbstractPowerBox}. This supplies the logic of applying middleware and observers
+ * to primitive values, without specifying how the value or family is stored.
+ * <p>
+ * Participants that implement the {@code boolean} interfaces (e.g. {@link BooleanChangeObserver}) are called with
+ * primitive
+ * values. Any other participants receive boxed values.
+ */
+public abstract class AbstractBooleanPowerBox extends AbstractPowerBox<Boolean> implements BooleanPowerBox {
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawGet()}.
+     */
+    protected abstract boolean rawGetBoolean();
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawSet(Object)}.
+     */
+    protected abstract void rawSetBoolean(boolean value);
+
+    @Override
+    protected Boolean rawGet() {
+        return rawGetBoolean();
+    }
+
+    @Override
+    protected void rawSet(Boolean value) {
+        rawSetBoolean(value);
+    }
+
+    @Override
+    public boolean getBoolean() {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesGet) {
+            return rawGetBoolean();
+        }
+        if (pipeline.tracksGets) {
+            DependencyTracker.record(this);
+        }
+        boolean originalValue = rawGetBoolean();
+        pipeline.recordGet();
+        boolean finalValue = applyBooleanGetMiddleware(pipeline.getMiddlewares, originalValue);
+        if (pipeline.samplesGet()) {
+            notifyBooleanGetObservers(pipeline.getObservers, originalValue, finalValue);
+        }
+        return finalValue;
+    }
+
+    @Override
+    public AbstractBooleanPowerBox setBoolean(boolean value) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesChange) {
+            rawSetBoolean(value);
+            return this;
+        }
+        pipeline.recordChange();
+        boolean oldValue = rawGetBoolean();
+        boolean finalValue = applyBooleanChangeMiddleware(pipeline.changeMiddlewares, oldValue, value);
+        rawSetBoolean(finalValue);
+        if (pipeline.changeObservers.length == 0) {
+            return this;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, value);
+            return this;
+        }
+        try {
+            notifyBooleanChangeObservers(pipeline.changeObservers, oldValue, finalValue, value);
+        } catch (BoxParticipantException e) {
+            rawSetBoolean(oldValue);
+            throw e;
+        }
+        return this;
+    }
+
+    @Override
+    public Boolean get() {
+        return getBoolean();
+    }
+
+    @Override
+    public AbstractBooleanPowerBox set(Boolean value) {
+        if (value == null) {
+            throw new NullPointerException(getFamily().description() + " holds a boolean and cannot be set to null.");
+        }
+        return setBoolean(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    boolean applyBooleanGetMiddleware(GetMiddleware[] middlewares, boolean originalValue) {
+        boolean currentValue = originalValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                GetMiddleware middleware = middlewares[i];
+                if (middleware instanceof BooleanGetMiddleware) {
+                    currentValue = ((BooleanGetMiddleware) middleware).onGet(this, originalValue, currentValue);
+                } else {
+                    currentValue = (Boolean) middleware.onGet(this, originalValue, currentValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, null);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    boolean applyBooleanChangeMiddleware(ChangeMiddleware[] middlewares, boolean originalValue, boolean requestedValue) {
+        boolean currentValue = requestedValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                ChangeMiddleware middleware = middlewares[i];
+                if (middleware instanceof BooleanChangeMiddleware) {
+                    currentValue = ((BooleanChangeMiddleware) middleware).onChange(this, originalValue, currentValue, requestedValue);
+                } else {
+                    currentValue = (Boolean) middleware.onChange(this, originalValue, currentValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, requestedValue);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyBooleanGetObservers(GetObserver[] observers, boolean originalValue, boolean finalValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                GetObserver observer = observers[i];
+                if (observer instanceof BooleanGetObserver) {
+                    ((BooleanGetObserver) observer).onGet(this, originalValue, finalValue);
+                } else {
+                    observer.onGet(this, originalValue, finalValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyBooleanChangeObservers(ChangeObserver[] observers, boolean originalValue, boolean finalValue, boolean requestedValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                ChangeObserver observer = observers[i];
+                if (observer instanceof BooleanChangeObserver) {
+                    ((BooleanChangeObserver) observer).onChange(this, originalValue, finalValue, requestedValue);
+                } else {
+                    observer.onChange(this, originalValue, finalValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, requestedValue);
+        }
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public AbstractBooleanPowerBox addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractBooleanPowerBox addGetMiddleware(GetMiddleware... middlewares) {
+        super.addGetMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractBooleanPowerBox addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+    @Override
+    public AbstractBooleanPowerBox addGetObserver(GetObserver... observers) {
+        super.addGetObserver(observers);
+        return this;
+    }
+}
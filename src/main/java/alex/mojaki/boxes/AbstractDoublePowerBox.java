@@ -0,0 +1,203 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.DoubleChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.DoubleGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.DoubleChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.DoubleGetObserver;
+
+/**
+ * The {@code double} version of {@link AbstractPowerBox}. This supplies the logic of applying middleware and observers
+ * to primitive values, without specifying how the value or family is stored.
+ * <p>
+ * Participants that implement the {@code double} interfaces (e.g. {@link DoubleChangeObserver}) are called with
+ * primitive
+ * values. Any other participants receive boxed values.
+ */
+public abstract class AbstractDoublePowerBox extends AbstractPowerBox<Double> implements DoublePowerBox {
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawGet()}.
+     */
+    protected abstract double rawGetDouble();
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawSet(Object)}.
+     */
+    protected abstract void rawSetDouble(double value);
+
+    @Override
+    protected Double rawGet() {
+        return rawGetDouble();
+    }
+
+    @Override
+    protected void rawSet(Double value) {
+        rawSetDouble(value);
+    }
+
+    @Override
+    public double getDouble() {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesGet) {
+            return rawGetDouble();
+        }
+        if (pipeline.tracksGets) {
+            DependencyTracker.record(this);
+        }
+        double originalValue = rawGetDouble();
+        pipeline.recordGet();
+        double finalValue = applyDoubleGetMiddleware(pipeline.getMiddlewares, originalValue);
+        if (pipeline.samplesGet()) {
+            notifyDoubleGetObservers(pipeline.getObservers, originalValue, finalValue);
+        }
+        return finalValue;
+    }
+
+    @Override
+    public AbstractDoublePowerBox setDouble(double value) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesChange) {
+            rawSetDouble(value);
+            return this;
+        }
+        pipeline.recordChange();
+        double oldValue = rawGetDouble();
+        double finalValue = applyDoubleChangeMiddleware(pipeline.changeMiddlewares, oldValue, value);
+        rawSetDouble(finalValue);
+        if (pipeline.changeObservers.length == 0) {
+            return this;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, value);
+            return this;
+        }
+        try {
+            notifyDoubleChangeObservers(pipeline.changeObservers, oldValue, finalValue, value);
+        } catch (BoxParticipantException e) {
+            rawSetDouble(oldValue);
+            throw e;
+        }
+        return this;
+    }
+
+    @Override
+    public Double get() {
+        return getDouble();
+    }
+
+    @Override
+    public AbstractDoublePowerBox set(Double value) {
+        if (value == null) {
+            throw new NullPointerException(getFamily().description() + " holds a double and cannot be set to null.");
+        }
+        return setDouble(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    double applyDoubleGetMiddleware(GetMiddleware[] middlewares, double originalValue) {
+        double currentValue = originalValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                GetMiddleware middleware = middlewares[i];
+                if (middleware instanceof DoubleGetMiddleware) {
+                    currentValue = ((DoubleGetMiddleware) middleware).onGet(this, originalValue, currentValue);
+                } else {
+                    currentValue = (Double) middleware.onGet(this, originalValue, currentValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, null);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    double applyDoubleChangeMiddleware(ChangeMiddleware[] middlewares, double originalValue, double requestedValue) {
+        double currentValue = requestedValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                ChangeMiddleware middleware = middlewares[i];
+                if (middleware instanceof DoubleChangeMiddleware) {
+                    currentValue = ((DoubleChangeMiddleware) middleware).onChange(this, originalValue, currentValue, requestedValue);
+                } else {
+                    currentValue = (Double) middleware.onChange(this, originalValue, currentValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, requestedValue);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyDoubleGetObservers(GetObserver[] observers, double originalValue, double finalValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                GetObserver observer = observers[i];
+                if (observer instanceof DoubleGetObserver) {
+                    ((DoubleGetObserver) observer).onGet(this, originalValue, finalValue);
+                } else {
+                    observer.onGet(this, originalValue, finalValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyDoubleChangeObservers(ChangeObserver[] observers, double originalValue, double finalValue, double requestedValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                ChangeObserver observer = observers[i];
+                if (observer instanceof DoubleChangeObserver) {
+                    ((DoubleChangeObserver) observer).onChange(this, originalValue, finalValue, requestedValue);
+                } else {
+                    observer.onChange(this, originalValue, finalValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, requestedValue);
+        }
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public AbstractDoublePowerBox addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractDoublePowerBox addGetMiddleware(GetMiddleware... middlewares) {
+        super.addGetMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractDoublePowerBox addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+    @Override
+    public AbstractDoublePowerBox addGetObserver(GetObserver... observers) {
+        super.addGetObserver(observers);
+        return this;
+    }
+}
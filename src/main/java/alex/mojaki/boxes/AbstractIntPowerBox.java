@@ -0,0 +1,202 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.IntChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.IntGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.IntChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.IntGetObserver;
+
+/**
+ * The {@code int} version of {@link AbstractPowerBox}. This supplies the logic of applying middleware and observers
+ * to primitive values, without specifying how the value or family is stored.
+ * <p>
+ * Participants that implement the {@code int} interfaces (e.g. {@link IntChangeObserver}) are called with primitive
+ * values. Any other participants receive boxed values.
+ */
+public abstract class AbstractIntPowerBox extends AbstractPowerBox<Integer> implements IntPowerBox {
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawGet()}.
+     */
+    protected abstract int rawGetInt();
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawSet(Object)}.
+     */
+    protected abstract void rawSetInt(int value);
+
+    @Override
+    protected Integer rawGet() {
+        return rawGetInt();
+    }
+
+    @Override
+    protected void rawSet(Integer value) {
+        rawSetInt(value);
+    }
+
+    @Override
+    public int getInt() {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesGet) {
+            return rawGetInt();
+        }
+        if (pipeline.tracksGets) {
+            DependencyTracker.record(this);
+        }
+        int originalValue = rawGetInt();
+        pipeline.recordGet();
+        int finalValue = applyIntGetMiddleware(pipeline.getMiddlewares, originalValue);
+        if (pipeline.samplesGet()) {
+            notifyIntGetObservers(pipeline.getObservers, originalValue, finalValue);
+        }
+        return finalValue;
+    }
+
+    @Override
+    public AbstractIntPowerBox setInt(int value) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesChange) {
+            rawSetInt(value);
+            return this;
+        }
+        pipeline.recordChange();
+        int oldValue = rawGetInt();
+        int finalValue = applyIntChangeMiddleware(pipeline.changeMiddlewares, oldValue, value);
+        rawSetInt(finalValue);
+        if (pipeline.changeObservers.length == 0) {
+            return this;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, value);
+            return this;
+        }
+        try {
+            notifyIntChangeObservers(pipeline.changeObservers, oldValue, finalValue, value);
+        } catch (BoxParticipantException e) {
+            rawSetInt(oldValue);
+            throw e;
+        }
+        return this;
+    }
+
+    @Override
+    public Integer get() {
+        return getInt();
+    }
+
+    @Override
+    public AbstractIntPowerBox set(Integer value) {
+        if (value == null) {
+            throw new NullPointerException(getFamily().description() + " holds an int and cannot be set to null.");
+        }
+        return setInt(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    int applyIntGetMiddleware(GetMiddleware[] middlewares, int originalValue) {
+        int currentValue = originalValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                GetMiddleware middleware = middlewares[i];
+                if (middleware instanceof IntGetMiddleware) {
+                    currentValue = ((IntGetMiddleware) middleware).onGet(this, originalValue, currentValue);
+                } else {
+                    currentValue = (Integer) middleware.onGet(this, originalValue, currentValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, null);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    int applyIntChangeMiddleware(ChangeMiddleware[] middlewares, int originalValue, int requestedValue) {
+        int currentValue = requestedValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                ChangeMiddleware middleware = middlewares[i];
+                if (middleware instanceof IntChangeMiddleware) {
+                    currentValue = ((IntChangeMiddleware) middleware).onChange(this, originalValue, currentValue, requestedValue);
+                } else {
+                    currentValue = (Integer) middleware.onChange(this, originalValue, currentValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, requestedValue);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyIntGetObservers(GetObserver[] observers, int originalValue, int finalValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                GetObserver observer = observers[i];
+                if (observer instanceof IntGetObserver) {
+                    ((IntGetObserver) observer).onGet(this, originalValue, finalValue);
+                } else {
+                    observer.onGet(this, originalValue, finalValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyIntChangeObservers(ChangeObserver[] observers, int originalValue, int finalValue, int requestedValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                ChangeObserver observer = observers[i];
+                if (observer instanceof IntChangeObserver) {
+                    ((IntChangeObserver) observer).onChange(this, originalValue, finalValue, requestedValue);
+                } else {
+                    observer.onChange(this, originalValue, finalValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, requestedValue);
+        }
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public AbstractIntPowerBox addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractIntPowerBox addGetMiddleware(GetMiddleware... middlewares) {
+        super.addGetMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractIntPowerBox addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+    @Override
+    public AbstractIntPowerBox addGetObserver(GetObserver... observers) {
+        super.addGetObserver(observers);
+        return this;
+    }
+}
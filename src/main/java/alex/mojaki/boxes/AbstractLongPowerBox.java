@@ -0,0 +1,202 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.LongChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.LongGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.LongChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.LongGetObserver;
+
+/**
+ * The {@code long} version of {@link AbstractPowerBox}. This supplies the logic of applying middleware and observers
+ * to primitive values, without specifying how the value or family is stored.
+ * <p>
+ * Participants that implement the {@code long} interfaces (e.g. {@link LongChangeObserver}) are called with primitive
+ * values. Any other participants receive boxed values.
+ */
+public abstract class AbstractLongPowerBox extends AbstractPowerBox<Long> implements LongPowerBox {
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawGet()}.
+     */
+    protected abstract long rawGetLong();
+
+    /**
+     * The primitive version of {@link AbstractPowerBox#rawSet(Object)}.
+     */
+    protected abstract void rawSetLong(long value);
+
+    @Override
+    protected Long rawGet() {
+        return rawGetLong();
+    }
+
+    @Override
+    protected void rawSet(Long value) {
+        rawSetLong(value);
+    }
+
+    @Override
+    public long getLong() {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesGet) {
+            return rawGetLong();
+        }
+        if (pipeline.tracksGets) {
+            DependencyTracker.record(this);
+        }
+        long originalValue = rawGetLong();
+        pipeline.recordGet();
+        long finalValue = applyLongGetMiddleware(pipeline.getMiddlewares, originalValue);
+        if (pipeline.samplesGet()) {
+            notifyLongGetObservers(pipeline.getObservers, originalValue, finalValue);
+        }
+        return finalValue;
+    }
+
+    @Override
+    public AbstractLongPowerBox setLong(long value) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesChange) {
+            rawSetLong(value);
+            return this;
+        }
+        pipeline.recordChange();
+        long oldValue = rawGetLong();
+        long finalValue = applyLongChangeMiddleware(pipeline.changeMiddlewares, oldValue, value);
+        rawSetLong(finalValue);
+        if (pipeline.changeObservers.length == 0) {
+            return this;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, value);
+            return this;
+        }
+        try {
+            notifyLongChangeObservers(pipeline.changeObservers, oldValue, finalValue, value);
+        } catch (BoxParticipantException e) {
+            rawSetLong(oldValue);
+            throw e;
+        }
+        return this;
+    }
+
+    @Override
+    public Long get() {
+        return getLong();
+    }
+
+    @Override
+    public AbstractLongPowerBox set(Long value) {
+        if (value == null) {
+            throw new NullPointerException(getFamily().description() + " holds a long and cannot be set to null.");
+        }
+        return setLong(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    long applyLongGetMiddleware(GetMiddleware[] middlewares, long originalValue) {
+        long currentValue = originalValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                GetMiddleware middleware = middlewares[i];
+                if (middleware instanceof LongGetMiddleware) {
+                    currentValue = ((LongGetMiddleware) middleware).onGet(this, originalValue, currentValue);
+                } else {
+                    currentValue = (Long) middleware.onGet(this, originalValue, currentValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, null);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    long applyLongChangeMiddleware(ChangeMiddleware[] middlewares, long originalValue, long requestedValue) {
+        long currentValue = requestedValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                ChangeMiddleware middleware = middlewares[i];
+                if (middleware instanceof LongChangeMiddleware) {
+                    currentValue = ((LongChangeMiddleware) middleware).onChange(this, originalValue, currentValue, requestedValue);
+                } else {
+                    currentValue = (Long) middleware.onChange(this, originalValue, currentValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, requestedValue);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyLongGetObservers(GetObserver[] observers, long originalValue, long finalValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                GetObserver observer = observers[i];
+                if (observer instanceof LongGetObserver) {
+                    ((LongGetObserver) observer).onGet(this, originalValue, finalValue);
+                } else {
+                    observer.onGet(this, originalValue, finalValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(GetObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyLongChangeObservers(ChangeObserver[] observers, long originalValue, long finalValue, long requestedValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                ChangeObserver observer = observers[i];
+                if (observer instanceof LongChangeObserver) {
+                    ((LongChangeObserver) observer).onChange(this, originalValue, finalValue, requestedValue);
+                } else {
+                    observer.onChange(this, originalValue, finalValue, requestedValue);
+                }
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, requestedValue);
+        }
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public AbstractLongPowerBox addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractLongPowerBox addGetMiddleware(GetMiddleware... middlewares) {
+        super.addGetMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public AbstractLongPowerBox addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+    @Override
+    public AbstractLongPowerBox addGetObserver(GetObserver... observers) {
+        super.addGetObserver(observers);
+        return this;
+    }
+}
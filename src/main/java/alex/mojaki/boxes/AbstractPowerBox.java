@@ -8,6 +8,8 @@ import alex.mojaki.boxes.middleware.get.GetMiddleware;
 import alex.mojaki.boxes.observers.change.ChangeObserver;
 import alex.mojaki.boxes.observers.get.GetObserver;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -64,76 +66,149 @@ public abstract class AbstractPowerBox<T> implements PowerBox<T> {
         return this;
     }
 
-    /**
-     * Where it all happens!
-     *
-     * @param clazz (Get|Change)(Middleware|Observer).class, specifying the behaviour
-     * @param list  list of instances of clazz to apply
-     * @return transformed value (only relevant for middleware)
+    /*
+     * The participants are applied by a separate, specialised loop for each kind so that every call site is
+     * monomorphic and there are no checks of the participant type inside the loops. The arrays come from the
+     * family's current ParticipantPipeline, which is read once per get or set.
      */
+
     @SuppressWarnings("unchecked")
-    private T applyParticipants(Class<?> clazz, List list, T originalValue, T requestedValue, T finalValue) {
-        T currentValue = null;
-        if (clazz == GetMiddleware.class) {
-            currentValue = originalValue;
-        } else if (clazz == ChangeMiddleware.class) {
-            currentValue = requestedValue;
-        }
-        int size = list.size();
+    T applyGetMiddleware(GetMiddleware[] middlewares, T originalValue) {
+        T currentValue = originalValue;
         int i = 0;
         try {
-            for (; i < size; i++) {
-                Object participant = list.get(i);
-                if (clazz == GetMiddleware.class) {
-                    currentValue = ((GetMiddleware<T>) participant).onGet(this, originalValue, currentValue);
-                } else if (clazz == ChangeMiddleware.class) {
-                    currentValue = ((ChangeMiddleware<T>) participant).onChange(this, originalValue, currentValue, requestedValue);
-                } else if (clazz == GetObserver.class) {
-                    ((GetObserver<T>) participant).onGet(this, originalValue, finalValue);
-                } else {
-                    ((ChangeObserver<T>) participant).onChange(this, originalValue, finalValue, requestedValue);
-                }
+            for (; i < middlewares.length; i++) {
+                currentValue = ((GetMiddleware<T>) middlewares[i]).onGet(this, originalValue, currentValue);
             }
         } catch (Throwable throwable) {
-            String message = "Error in " + clazz.getSimpleName() + " " + (i + 1) + " out of " + size +
-                    " of " + getFamily().description() + ". ";
-
-            if (!getFamily().showsValueStrings()) {
-                message += "Values hidden.";
-            } else if (this instanceof WrapperBox && this == originalValue && this == finalValue && this == requestedValue) {
-                message += "Value = " + ((WrapperBox) this).revealedToString();
-            } else {
-                message += "Original value = " + originalValue + ". " +
-                        (clazz == GetMiddleware.class || clazz == ChangeMiddleware.class ?
-                                "Current value = " + currentValue :
-                                "Final value = " + finalValue) + "." +
-                        (clazz == ChangeObserver.class || clazz == GetObserver.class ?
-                                " Requested value = " + requestedValue + "." : "");
+            throw participantFailure(GetMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, null);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    T applyChangeMiddleware(ChangeMiddleware[] middlewares, T originalValue, T requestedValue) {
+        T currentValue = requestedValue;
+        int i = 0;
+        try {
+            for (; i < middlewares.length; i++) {
+                currentValue = ((ChangeMiddleware<T>) middlewares[i]).onChange(this, originalValue, currentValue, requestedValue);
             }
-            ParticipationDetails details = new ParticipationDetails(this, i, list, clazz);
-            if (throwable instanceof Error) {
-                throw new BoxParticipantError(message, (Error) throwable).withDetails(details);
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeMiddleware.class, middlewares, i, throwable,
+                    originalValue, currentValue, null, requestedValue);
+        }
+        return currentValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyGetObservers(GetObserver[] observers, T originalValue, T finalValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                ((GetObserver<T>) observers[i]).onGet(this, originalValue, finalValue);
             }
-            throw new BoxParticipantException(message, (Exception) throwable).withDetails(details);
+        } catch (Throwable throwable) {
+            throw participantFailure(GetObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, null);
         }
+    }
 
-        return currentValue;
+    @SuppressWarnings("unchecked")
+    void notifyChangeObservers(ChangeObserver[] observers, T originalValue, T finalValue, T requestedValue) {
+        int i = 0;
+        try {
+            for (; i < observers.length; i++) {
+                ((ChangeObserver<T>) observers[i]).onChange(this, originalValue, finalValue, requestedValue);
+            }
+        } catch (Throwable throwable) {
+            throw participantFailure(ChangeObserver.class, observers, i, throwable,
+                    originalValue, null, finalValue, requestedValue);
+        }
     }
 
-    protected T applyGetMiddleware(T originalValue) {
-        return applyParticipants(GetMiddleware.class, getFamily().getGetMiddlewares(), originalValue, null, null);
+    /**
+     * Wrap the {@code throwable} thrown by participant {@code i} in {@code participants} with a detailed message.
+     * A {@link BoxParticipantError} is thrown directly, while a {@link BoxParticipantException} is returned for
+     * the caller to throw so that the compiler knows the calling method doesn't continue.
+     *
+     * @param clazz (Get|Change)(Middleware|Observer).class, specifying the kind of participant that failed
+     */
+    RuntimeException participantFailure(Class<?> clazz, Object[] participants, int i, Throwable throwable,
+                                        T originalValue, T currentValue, T finalValue, T requestedValue) {
+        String message = "Error in " + clazz.getSimpleName() + " " + (i + 1) + " out of " + participants.length +
+                " of " + getFamily().description() + ". ";
+
+        if (!getFamily().showsValueStrings()) {
+            message += "Values hidden.";
+        } else if (this instanceof WrapperBox && this == originalValue && this == finalValue && this == requestedValue) {
+            message += "Value = " + ((WrapperBox) this).revealedToString();
+        } else {
+            message += "Original value = " + originalValue + ". " +
+                    (clazz == GetMiddleware.class || clazz == ChangeMiddleware.class ?
+                            "Current value = " + currentValue :
+                            "Final value = " + finalValue) + "." +
+                    (clazz == ChangeObserver.class || clazz == GetObserver.class ?
+                            " Requested value = " + requestedValue + "." : "");
+        }
+        List<Object> list = Collections.unmodifiableList(Arrays.asList(TimedParticipant.unwrap(participants)));
+        ParticipationDetails details = new ParticipationDetails(this, i, list, clazz);
+        if (throwable instanceof Error) {
+            throw new BoxParticipantError(message, (Error) throwable).withDetails(details);
+        }
+        return new BoxParticipantException(message, (Exception) throwable).withDetails(details);
     }
 
-    protected T applyChangeMiddleware(T originalValue, T requestedValue) {
-        return applyParticipants(ChangeMiddleware.class, getFamily().getChangeMiddlewares(), originalValue, requestedValue, null);
+    /*
+     * The methods below apply the family's participants for subclasses that get or set their values in other ways.
+     * get and set don't call them, but apply the arrays of the pipeline they've already read, so the methods are
+     * final: an override would silently stop taking effect in get and set. To change what boxes do, add participants
+     * to the family or override get, set, rawGet or rawSet instead.
+     */
+
+    protected final T applyGetMiddleware(T originalValue) {
+        return applyGetMiddleware(getFamily().pipeline().getMiddlewares, originalValue);
+    }
+
+    protected final T applyChangeMiddleware(T originalValue, T requestedValue) {
+        return applyChangeMiddleware(getFamily().pipeline().changeMiddlewares, originalValue, requestedValue);
+    }
+
+    protected final void notifyGetObservers(T originalValue, T finalValue) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.samplesGet()) {
+            notifyGetObservers(pipeline.getObservers, originalValue, finalValue);
+        }
     }
 
-    protected void notifyGetObservers(T originalValue, T finalValue) {
-        applyParticipants(GetObserver.class, getFamily().getGetObservers(), originalValue, null, finalValue);
+    /**
+     * Notify the family's {@link ChangeObserver}s of a change, or record the change to be notified later if a
+     * {@link Boxes#batch(Runnable)} is active on this thread.
+     */
+    protected final void notifyChangeObservers(T originalValue, T finalValue, T requestedValue) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        pipeline.recordChange();
+        ChangeObserver[] observers = pipeline.changeObservers;
+        if (observers.length == 0) {
+            return;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, originalValue, finalValue, requestedValue);
+            return;
+        }
+        notifyChangeObservers(observers, originalValue, finalValue, requestedValue);
     }
 
-    protected void notifyChangeObservers(T originalValue, T finalValue, T requestedValue) {
-        applyParticipants(ChangeObserver.class, getFamily().getChangeObservers(), originalValue, requestedValue, finalValue);
+    /**
+     * Notify the family's current {@link ChangeObserver}s of a change recorded by a {@link ChangeBatch}, except for
+     * the observer that updates views, which the batch has already called.
+     */
+    @SuppressWarnings("unchecked")
+    void deliverChange(Object originalValue, Object finalValue, Object requestedValue) {
+        notifyChangeObservers(getFamily().pipeline().batchedChangeObservers,
+                (T) originalValue, (T) finalValue, (T) requestedValue);
     }
 
     /**
@@ -151,19 +226,43 @@ public abstract class AbstractPowerBox<T> implements PowerBox<T> {
 
     @Override
     public T get() {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesGet) {
+            return rawGet();
+        }
+        if (pipeline.tracksGets) {
+            DependencyTracker.record(this);
+        }
         T originalValue = rawGet();
-        T finalValue = applyGetMiddleware(originalValue);
-        notifyGetObservers(originalValue, finalValue);
+        pipeline.recordGet();
+        T finalValue = applyGetMiddleware(pipeline.getMiddlewares, originalValue);
+        if (pipeline.samplesGet()) {
+            notifyGetObservers(pipeline.getObservers, originalValue, finalValue);
+        }
         return finalValue;
     }
 
     @Override
     public AbstractPowerBox<T> set(T value) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesChange) {
+            rawSet(value);
+            return this;
+        }
+        pipeline.recordChange();
         T oldValue = rawGet();
-        T finalValue = applyChangeMiddleware(oldValue, value);
+        T finalValue = applyChangeMiddleware(pipeline.changeMiddlewares, oldValue, value);
         rawSet(finalValue);
+        if (pipeline.changeObservers.length == 0) {
+            return this;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, value);
+            return this;
+        }
         try {
-            notifyChangeObservers(oldValue, finalValue, value);
+            notifyChangeObservers(pipeline.changeObservers, oldValue, finalValue, value);
         } catch (BoxParticipantException e) {
             rawSet(oldValue);
             throw e;
@@ -0,0 +1,217 @@
+package alex.mojaki.boxes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses how the {@link View}s of a family cache their values based on measurements of how they're used, for views
+ * that opt in with {@link View#adaptive()}. Every {@value #WINDOW} reads and invalidations, the policy looks at how
+ * long {@link View#calculate()} took on average and how often the views were read and invalidated since the last
+ * decision, and picks one of the {@link Mode}s:
+ * <ul>
+ *     <li>If calculating takes less than the {@link AdaptiveViewPolicy#setCheapNanos(long) cheap threshold},
+ *     {@value #DEFAULT_CHEAP_NANOS} nanoseconds by default, and at least half of the reads follow an
+ *     invalidation, caching costs about as much as it saves, so the views {@link Mode#RECOMPUTE recompute} on every
+ *     read.</li>
+ *     <li>Otherwise, if the views are invalidated more often than they're read, or nothing is observing their changes,
+ *     they calculate {@link Mode#LAZY lazily} when read, as in {@link View#lazy()}.</li>
+ *     <li>Otherwise they calculate {@link Mode#EAGER eagerly} when a box changes, so that their observers hear about
+ *     it straight away.</li>
+ * </ul>
+ * Views start in eager mode, which is the usual behaviour of views. Since the other modes notify
+ * {@code ChangeObserver}s when the value is next read rather than when a box changes, observers of adaptive views
+ * must not rely on being able to veto changes.
+ * <p>
+ * The measurements and the current mode can be read from the getters and {@link AdaptiveViewPolicy#toString()}.
+ * There is one policy per family, shared by its adaptive views, available from {@link View#getPolicy()}.
+ */
+public final class AdaptiveViewPolicy {
+
+    /**
+     * How the views of a family cache their values.
+     */
+    public enum Mode {
+
+        /**
+         * Calculate the value on every read, without using the cache.
+         */
+        RECOMPUTE,
+
+        /**
+         * Cache the value and calculate it when read after a change.
+         */
+        LAZY,
+
+        /**
+         * Cache the value and calculate it as soon as a box changes if the view has {@code ChangeObserver}s.
+         */
+        EAGER
+    }
+
+    /**
+     * The number of reads and invalidations between decisions.
+     */
+    static final int WINDOW = 256;
+
+    static final long DEFAULT_CHEAP_NANOS = 500;
+
+    private final BoxFamily family;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder calculations = new LongAdder();
+    private final LongAdder calculationNanos = new LongAdder();
+
+    private final AtomicInteger untilDecision = new AtomicInteger(WINDOW);
+
+    private volatile Mode mode = Mode.EAGER;
+
+    private volatile long cheapNanos = DEFAULT_CHEAP_NANOS;
+
+    // The totals at the last decision, guarded by this policy
+
+    private long decidedReads;
+    private long decidedInvalidations;
+    private long decidedCalculations;
+    private long decidedCalculationNanos;
+    private long decisions;
+
+    /**
+     * Only called by {@link BoxFamily#viewPolicy()}, which stores the policy in the family so that it lives exactly as
+     * long as the family.
+     */
+    AdaptiveViewPolicy(BoxFamily family) {
+        this.family = family;
+    }
+
+    void recordRead() {
+        reads.increment();
+        countEvent();
+    }
+
+    void recordInvalidation() {
+        invalidations.increment();
+        countEvent();
+    }
+
+    void recordCalculation(long nanos) {
+        calculations.increment();
+        calculationNanos.add(nanos);
+    }
+
+    private void countEvent() {
+        if (untilDecision.decrementAndGet() == 0) {
+            untilDecision.set(WINDOW);
+            decide();
+        }
+    }
+
+    private synchronized void decide() {
+        long reads = this.reads.sum();
+        long invalidations = this.invalidations.sum();
+        long calculations = this.calculations.sum();
+        long calculationNanos = this.calculationNanos.sum();
+        long windowReads = reads - decidedReads;
+        long windowInvalidations = invalidations - decidedInvalidations;
+        long windowCalculations = calculations - decidedCalculations;
+        long windowNanos = calculationNanos - decidedCalculationNanos;
+
+        // Keep the current mode if nothing was calculated to measure, e.g. lazy views that weren't read
+        if (windowCalculations > 0) {
+            if (windowNanos / windowCalculations < cheapNanos && windowInvalidations * 2 >= windowReads) {
+                mode = Mode.RECOMPUTE;
+            } else if (windowInvalidations > windowReads || family.pipeline().batchedChangeObservers.length == 0) {
+                mode = Mode.LAZY;
+            } else {
+                mode = Mode.EAGER;
+            }
+        }
+        decidedReads = reads;
+        decidedInvalidations = invalidations;
+        decidedCalculations = calculations;
+        decidedCalculationNanos = calculationNanos;
+        decisions++;
+    }
+
+    /**
+     * Return whether views should only be invalidated when a box changes, rather than calculated eagerly.
+     */
+    boolean defersCalculation() {
+        return mode != Mode.EAGER;
+    }
+
+    /**
+     * Return the family whose views follow this policy.
+     */
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+    /**
+     * Return the mode chosen at the last decision.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Return the number of times the values of the family's adaptive views have been read.
+     */
+    public long getReads() {
+        return reads.sum();
+    }
+
+    /**
+     * Return the number of times the family's adaptive views have been invalidated by a change to one of their boxes.
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Return the number of times the family's adaptive views have been calculated.
+     */
+    public long getCalculations() {
+        return calculations.sum();
+    }
+
+    /**
+     * Return the mean time taken to calculate the family's adaptive views in nanoseconds, or 0 if they have never
+     * been calculated.
+     */
+    public double getMeanCalculationNanos() {
+        long calculations = this.calculations.sum();
+        return calculations == 0 ? 0 : (double) calculationNanos.sum() / calculations;
+    }
+
+    /**
+     * Return the mean calculation time in nanoseconds below which caching isn't worth it.
+     */
+    public long getCheapNanos() {
+        return cheapNanos;
+    }
+
+    /**
+     * Set the mean calculation time in nanoseconds below which caching isn't worth it, e.g. after measuring the
+     * overhead of caching on your hardware. Takes effect at the next decision.
+     */
+    public void setCheapNanos(long cheapNanos) {
+        this.cheapNanos = cheapNanos;
+    }
+
+    /**
+     * Return the number of decisions made so far.
+     */
+    public synchronized long getDecisions() {
+        return decisions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Policy for %s: %s after %d decisions, %d reads, %d invalidations, %d calculations " +
+                        "taking %.0f ns on average",
+                family.description(), mode, getDecisions(), getReads(), getInvalidations(), getCalculations(),
+                getMeanCalculationNanos());
+    }
+
+}
@@ -0,0 +1,256 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A {@link View} which calculates its value on an {@link Executor} and, once it has a value, never makes readers wait
+ * for a new one. When a box it depends on changes, {@link PowerBox#get()} keeps returning the last calculated value
+ * while a new one is calculated in the background, in the manner of stale-while-revalidate caching. This suits views
+ * whose {@link View#calculate()} is slow enough that latency-sensitive readers shouldn't pay for it, and which can
+ * tolerate briefly stale values. Use {@link AsyncView#refresh()} to wait for an up to date value instead.
+ * <p>
+ * At most one calculation runs at a time. Changes that arrive while one is running are coalesced into a single
+ * follow-up calculation that starts when it finishes, however many there are.
+ * <p>
+ * If the view has {@link ChangeObserver}s, including views depending on this one, a change starts a calculation
+ * straight away and the observers are notified on the executor's thread when it finishes. Otherwise the calculation
+ * starts the next time the value is read. Only the first read ever waits, since there's no value to return before the
+ * first calculation finishes, so it shouldn't happen on the executor's own thread if that's the only one.
+ * <p>
+ * Asynchronous views don't support {@link View#lazy() lazy} mode, which they already improve on,
+ * {@link View#trackDependencies() dependency tracking}, since the boxes read on another thread can't be tracked,
+ * {@link View#memoize(int) memoization} or {@link View#adaptive() adaptive} caching.
+ *
+ * @param <T> the type of the calculated value
+ */
+public abstract class AsyncView<T> extends View<T> {
+
+    private static final AtomicLongFieldUpdater<AsyncView> VERSION_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(AsyncView.class, "version");
+
+    private final Executor executor;
+
+    /**
+     * Incremented every time a box this view depends on changes.
+     */
+    private volatile long version;
+
+    /**
+     * The value of the last successful calculation, or null if there hasn't been one.
+     */
+    private volatile Result<T> latest;
+
+    // The remaining fields are guarded by this view
+
+    /**
+     * Completed by the calculation that is scheduled or running, or null if there isn't one.
+     */
+    private CompletableFuture<T> current;
+
+    /**
+     * The version read by the running calculation, or -1 if it hasn't started.
+     */
+    private long currentVersion;
+
+    /**
+     * Completed by the calculation to run after the current one because a box changed after it started, or null.
+     */
+    private CompletableFuture<T> followUp;
+
+    private static final class Result<T> {
+        final long version;
+        final T value;
+
+        Result(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Construct a view with the given family, calculated using {@code executor}, whose value depends on the given
+     * boxes.
+     */
+    public AsyncView(BoxFamily family, Executor executor, PowerBox... boxes) {
+        super(family, boxes);
+        this.executor = checkExecutor(executor);
+    }
+
+    /**
+     * Construct a view by looking up a family with the given class and name, calculated using {@code executor},
+     * whose value depends on the given boxes.
+     */
+    public AsyncView(Class<?> clazz, String name, Executor executor, PowerBox... boxes) {
+        super(clazz, name, boxes);
+        this.executor = checkExecutor(executor);
+    }
+
+    private static Executor checkExecutor(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("An executor is required");
+        }
+        return executor;
+    }
+
+    /**
+     * Return a future that completes with a value calculated after the last change to the boxes this view depends
+     * on, starting a calculation if needed. If the value is already up to date the future is already complete. If
+     * the calculation throws, or the {@code ChangeObserver}s throw when notified of the new value, the future
+     * completes exceptionally, although in the latter case the value is still used by the view.
+     */
+    public CompletableFuture<T> refresh() {
+        Result<T> result = latest;
+        if (result != null && result.version == version) {
+            return CompletableFuture.completedFuture(result.value);
+        }
+        return schedule();
+    }
+
+    /**
+     * Return the last calculated value, even if it's stale, in which case a new one is calculated in the background.
+     * The first call waits for the first calculation.
+     */
+    @Override
+    protected T rawGet() {
+        Result<T> result = latest;
+        if (result == null) {
+            try {
+                return refresh().join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+        if (result.version != version) {
+            schedule();
+        }
+        return result.value;
+    }
+
+    /**
+     * Called when a box this view depends on changes, instead of invalidating a cache and joining a
+     * {@link ViewPropagation}. Views depending on this one are updated when the new value has been calculated.
+     */
+    @Override
+    void update() {
+        VERSION_UPDATER.incrementAndGet(this);
+        if (!getFamily().getChangeObservers().isEmpty()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Return the future of a calculation that will read the current version, scheduling one if needed.
+     */
+    private synchronized CompletableFuture<T> schedule() {
+        if (current == null) {
+            CompletableFuture<T> future = new CompletableFuture<T>();
+            current = future;
+            currentVersion = -1;
+            submit();
+            // Not current, which may already have been replaced if the executor ran the calculation directly
+            return future;
+        }
+        if (currentVersion == -1 || currentVersion == version) {
+            return current;
+        }
+        if (followUp == null) {
+            followUp = new CompletableFuture<T>();
+        }
+        return followUp;
+    }
+
+    /**
+     * Hand the current calculation to the executor. If it refuses, the calculation is abandoned and its future
+     * completed exceptionally, so that the next read or change tries again.
+     */
+    private void submit() {
+        CompletableFuture<T> future = current;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    calculateInBackground();
+                }
+            });
+        } catch (RuntimeException e) {
+            if (current == future) {
+                current = null;
+            }
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void calculateInBackground() {
+        CompletableFuture<T> future;
+        long calculationVersion;
+        synchronized (this) {
+            future = current;
+            calculationVersion = version;
+            currentVersion = calculationVersion;
+        }
+        Result<T> previous = latest;
+        T value = null;
+        Throwable failure = null;
+        // In case the executor runs this directly inside the calculation of a view tracking its dependencies
+        DependencyTracker tracker = DependencyTracker.suspend();
+        try {
+            value = calculate();
+            latest = new Result<T>(calculationVersion, value);
+            if (previous != null) {
+                notifyChangeObservers(previous.value, value, value);
+            }
+        } catch (Throwable throwable) {
+            failure = throwable;
+        } finally {
+            if (tracker != null) {
+                tracker.end();
+            }
+        }
+        synchronized (this) {
+            current = followUp;
+            followUp = null;
+            if (current != null) {
+                currentVersion = -1;
+                submit();
+            }
+        }
+        if (failure == null) {
+            future.complete(value);
+        } else {
+            future.completeExceptionally(failure);
+        }
+    }
+
+    @Override
+    public View<T> lazy() {
+        throw new UnsupportedOperationException("Asynchronous views can't be lazy");
+    }
+
+    @Override
+    public View<T> adaptive() {
+        throw new UnsupportedOperationException("Asynchronous views can't be adaptive");
+    }
+
+    @Override
+    public View<T> memoize(int maximumSize) {
+        throw new UnsupportedOperationException("Asynchronous views can't be memoized");
+    }
+
+    @Override
+    public View<T> trackDependencies() {
+        throw new UnsupportedOperationException("Asynchronous views can't track their dependencies");
+    }
+
+}
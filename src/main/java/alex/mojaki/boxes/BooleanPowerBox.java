@@ -0,0 +1,53 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.BooleanChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.BooleanGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.BooleanChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.BooleanGetObserver;
+
+/**
+ * A {@link PowerBox} holding a {@code boolean}. {@link BooleanPowerBox#getBoolean()} and {@link
+ * BooleanPowerBox#setBoolean(boolean)} work
+ * without boxing the value, passing it straight to any {@link BooleanGetMiddleware}, {@link BooleanChangeObserver},
+ * etc.
+ * in the family. Other participants can still be used, but the value will be boxed for them.
+ * <p>
+ * Since this is also a {@code PowerBox<Boolean>} it can be used anywhere a normal box can, e.g. in a {@link View}.
+ * The generic {@link PowerBox#get()} and {@link PowerBox#set(Object)} behave exactly like their primitive versions,
+ * except that {@code set(null)} throws a {@code NullPointerException}.
+ */
+public interface BooleanPowerBox extends PowerBox<Boolean> {
+
+    /**
+     * The primitive version of {@link PowerBox#get()}.
+     */
+    boolean getBoolean();
+
+    /**
+     * The primitive version of {@link PowerBox#set(Object)}.
+     *
+     * @return this object for chaining
+     */
+    BooleanPowerBox setBoolean(boolean value);
+
+    // Specifying the return type for chaining
+
+    @Override
+    BooleanPowerBox set(Boolean value);
+
+    @Override
+    BooleanPowerBox addChangeMiddleware(ChangeMiddleware... middlewares);
+
+    @Override
+    BooleanPowerBox addGetMiddleware(GetMiddleware... middlewares);
+
+    @Override
+    BooleanPowerBox addChangeObserver(ChangeObserver... observers);
+
+    @Override
+    BooleanPowerBox addGetObserver(GetObserver... observers);
+}
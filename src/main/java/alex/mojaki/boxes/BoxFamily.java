@@ -1,16 +1,19 @@
 package alex.mojaki.boxes;
 
+import alex.mojaki.boxes.metrics.FamilyMetrics;
 import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
 import alex.mojaki.boxes.middleware.get.GetMiddleware;
 import alex.mojaki.boxes.observers.change.ChangeObserver;
 import alex.mojaki.boxes.observers.change.ThrowOnNull;
 import alex.mojaki.boxes.observers.get.GetObserver;
-import alex.mojaki.boxes.utils.InstanceStore;
 import com.google.common.collect.ForwardingIterator;
 import com.google.common.collect.ForwardingList;
 import com.google.common.collect.ForwardingListIterator;
+import com.google.common.collect.MapMaker;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -37,20 +40,52 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class BoxFamily {
 
-    private static final InstanceStore<BoxFamily> INSTANCE_STORE = new InstanceStore<BoxFamily>() {
-        @Override
-        public BoxFamily getNew(Object... args) {
-            return new BoxFamily((Class<?>) args[0], (String) args[1]);
-        }
-    };
+    /**
+     * The families declared in each class, by name. Looking up an existing family is just a {@code ClassValue} lookup
+     * and a map lookup with the (usually constant) name, neither of which allocates.
+     */
+    private static final ClassValue<ConcurrentMap<String, BoxFamily>> FAMILIES =
+            new ClassValue<ConcurrentMap<String, BoxFamily>>() {
+                @Override
+                protected ConcurrentMap<String, BoxFamily> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<String, BoxFamily>();
+                }
+            };
+
+    /**
+     * Every family, held weakly. The table above is stored in each class by the JVM, so a family lives exactly as
+     * long as its declaring class and doesn't stop a class loader from being unloaded.
+     */
+    private static final Set<BoxFamily> ALL_FAMILIES =
+            Collections.newSetFromMap(new MapMaker().weakKeys().<BoxFamily, Boolean>makeMap());
+
+    /**
+     * The observers that keep views and wrapper boxes up to date, which are still applied while a family bypasses its
+     * participants.
+     */
+    private static final Set<ChangeObserver> INTERNAL_OBSERVERS =
+            Collections.newSetFromMap(new ConcurrentHashMap<ChangeObserver, Boolean>());
 
     private final String name;
     private final Class<?> clazz;
 
-    private ParticipantList<ChangeMiddleware> changeMiddlewares = new ParticipantList<ChangeMiddleware>();
-    private ParticipantList<ChangeObserver> changeObservers = new ParticipantList<ChangeObserver>();
-    private ParticipantList<GetMiddleware> getMiddlewares = new ParticipantList<GetMiddleware>();
-    private ParticipantList<GetObserver> getObservers = new ParticipantList<GetObserver>();
+    private ParticipantList<ChangeMiddleware> changeMiddlewares = new ParticipantList<ChangeMiddleware>(this);
+    private ParticipantList<ChangeObserver> changeObservers = new ParticipantList<ChangeObserver>(this);
+    private ParticipantList<GetMiddleware> getMiddlewares = new ParticipantList<GetMiddleware>(this);
+    private ParticipantList<GetObserver> getObservers = new ParticipantList<GetObserver>(this);
+
+    private volatile ParticipantPipeline pipeline = ParticipantPipeline.EMPTY;
+
+    private GetSampler getSampler;
+
+    private FamilyMetrics metrics;
+    private boolean metricsEnabled;
+
+    private AdaptiveViewPolicy viewPolicy;
+
+    private boolean tracksDependencies;
+
+    private boolean bypassesParticipants;
 
     private boolean showsValueStrings = true;
 
@@ -65,12 +100,30 @@ public class BoxFamily {
      * @return the unique instance with this class and name.
      */
     public static BoxFamily getInstance(Class<?> clazz, String name) {
-        return INSTANCE_STORE.get(clazz, name);
+        Objects.requireNonNull(clazz, "Class must not be null");
+        Objects.requireNonNull(name, "Name must not be null");
+        ConcurrentMap<String, BoxFamily> families = FAMILIES.get(clazz);
+        BoxFamily result = families.get(name);
+        if (result == null) {
+            BoxFamily newFamily = new BoxFamily(clazz, name);
+            result = families.putIfAbsent(name, newFamily);
+            if (result == null) {
+                ALL_FAMILIES.add(newFamily);
+                result = newFamily;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return an unmodifiable, live view of all the families created so far by {@link BoxFamily#getInstance} whose
+     * declaring classes haven't been unloaded.
+     */
+    public static Collection<BoxFamily> getAllFamilies() {
+        return Collections.unmodifiableCollection(ALL_FAMILIES);
     }
 
     private BoxFamily(Class<?> clazz, String name) {
-        Objects.requireNonNull(clazz, "Class must not be null");
-        Objects.requireNonNull(name, "Name must not be null");
         this.clazz = clazz;
         this.name = name;
     }
@@ -166,6 +219,44 @@ public class BoxFamily {
         return getObservers;
     }
 
+    /**
+     * Mark {@code observer} as internal, so that {@link BoxFamily#bypassParticipants()} doesn't stop it.
+     *
+     * @return the same observer
+     */
+    static <O extends ChangeObserver> O internalObserver(O observer) {
+        INTERNAL_OBSERVERS.add(observer);
+        return observer;
+    }
+
+    /**
+     * Return the current snapshot of this family's participants, which is what boxes actually apply.
+     */
+    ParticipantPipeline pipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Rebuild the pipeline from the participant lists. This is synchronized so that concurrent changes to different
+     * lists can't overwrite each other's pipeline with a stale one.
+     */
+    private synchronized void rebuildPipeline() {
+        if (bypassesParticipants) {
+            List<ChangeObserver> internalObservers = new ArrayList<ChangeObserver>();
+            for (ChangeObserver observer : changeObservers) {
+                if (INTERNAL_OBSERVERS.contains(observer)) {
+                    internalObservers.add(observer);
+                }
+            }
+            pipeline = ParticipantPipeline.of(Collections.<ChangeMiddleware>emptyList(), internalObservers,
+                    Collections.<GetMiddleware>emptyList(), Collections.<GetObserver>emptyList(), null,
+                    metricsEnabled ? metrics : null, tracksDependencies);
+            return;
+        }
+        pipeline = ParticipantPipeline.of(changeMiddlewares, changeObservers, getMiddlewares, getObservers, getSampler,
+                metricsEnabled ? metrics : null, tracksDependencies);
+    }
+
     /**
      * A simple human readable description of the boxes belonging to this family, equal to:
      * <p>
@@ -213,6 +304,148 @@ public class BoxFamily {
         return addChangeObserver(ThrowOnNull.I);
     }
 
+    /**
+     * Notify the {@link GetObserver}s of this family for only about 1 in every {@code period} calls to
+     * {@link PowerBox#get()} on each thread, so that observers such as access profilers are cheap enough to leave on
+     * permanently. Get middleware is still applied on every call. The decision to skip a call is made with a
+     * counter local to the calling thread. Passing 1 turns sampling off again.
+     *
+     * @return this object for chaining
+     */
+    public BoxFamily sampleGetObservers(int period) {
+        return setGetSampler(period == 1 ? null : GetSampler.oneIn(period));
+    }
+
+    /**
+     * Notify the {@link GetObserver}s of this family for at most {@code perSecond} calls to {@link PowerBox#get()}
+     * per second on each thread. Get middleware is still applied on every call.
+     *
+     * @return this object for chaining
+     * @see BoxFamily#sampleGetObservers(int)
+     */
+    public BoxFamily sampleGetObserversPerSecond(double perSecond) {
+        return setGetSampler(GetSampler.perSecond(perSecond));
+    }
+
+    private synchronized BoxFamily setGetSampler(GetSampler getSampler) {
+        this.getSampler = getSampler;
+        rebuildPipeline();
+        return this;
+    }
+
+    /**
+     * Stop applying this family's observers and middleware, without removing them, so that boxes behave as if the
+     * family had none. This is meant for mitigating problems at runtime, e.g. an expensive observer slowing down a
+     * production system, and can be undone with {@link BoxFamily#restoreParticipants()}. Note that this also
+     * switches off validation such as {@link ThrowOnNull}. The internal observers that keep {@link View}s and
+     * {@link WrapperBox}es up to date, including the collections in the {@code alex.mojaki.boxes.collections} package,
+     * are still applied. Participants added while bypassing are applied once the participants are restored.
+     *
+     * @return this object for chaining
+     */
+    public synchronized BoxFamily bypassParticipants() {
+        bypassesParticipants = true;
+        rebuildPipeline();
+        return this;
+    }
+
+    /**
+     * Apply this family's observers and middleware again after {@link BoxFamily#bypassParticipants()}.
+     *
+     * @return this object for chaining
+     */
+    public synchronized BoxFamily restoreParticipants() {
+        bypassesParticipants = false;
+        rebuildPipeline();
+        return this;
+    }
+
+    /**
+     * Return whether this family's participants are currently being bypassed.
+     *
+     * @see BoxFamily#bypassParticipants()
+     */
+    public synchronized boolean bypassesParticipants() {
+        return bypassesParticipants;
+    }
+
+    /**
+     * Start recording {@link FamilyMetrics} for the boxes in this family: the number of gets and changes and the
+     * time taken by each participant. This can be done at any time, e.g. while investigating a problem in production.
+     * While metrics are enabled, every {@code get} and {@code set} takes the slower path through the participants
+     * even if there are none, so it's best to leave them off for families where performance really matters.
+     * Participants of primitive values such as {@code IntChangeObserver} are still called without boxing.
+     * Enabling metrics again after disabling them continues with the same counts.
+     *
+     * @return this object for chaining
+     * @see BoxFamily#getMetrics()
+     */
+    public synchronized BoxFamily enableMetrics() {
+        if (metrics == null) {
+            metrics = new FamilyMetrics(this);
+        }
+        metricsEnabled = true;
+        rebuildPipeline();
+        return this;
+    }
+
+    /**
+     * Stop recording metrics, so that boxes in this family are as fast as if metrics had never been enabled.
+     * The values recorded so far can still be read from {@link BoxFamily#getMetrics()}.
+     *
+     * @return this object for chaining
+     */
+    public synchronized BoxFamily disableMetrics() {
+        metricsEnabled = false;
+        rebuildPipeline();
+        return this;
+    }
+
+    /**
+     * Return whether metrics are currently being recorded for this family.
+     */
+    public synchronized boolean metricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Return the metrics of this family, or null if {@link BoxFamily#enableMetrics()} has never been called.
+     */
+    public synchronized FamilyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Let {@link View}s that {@link View#trackDependencies() track their dependencies} see when boxes in this family
+     * are read, so that they can depend on them. Reads of boxes in other families aren't tracked. Like other
+     * participants, this takes boxes in this family off the fast path of {@code get}, so families that aren't read
+     * by tracking views pay nothing for tracking.
+     *
+     * @return this object for chaining
+     */
+    public synchronized BoxFamily enableDependencyTracking() {
+        tracksDependencies = true;
+        rebuildPipeline();
+        return this;
+    }
+
+    /**
+     * Return whether {@link BoxFamily#enableDependencyTracking()} has been called on this family.
+     */
+    public synchronized boolean dependencyTrackingEnabled() {
+        return tracksDependencies;
+    }
+
+    /**
+     * Return the policy shared by the adaptive views of this family, creating it if needed.
+     */
+    synchronized AdaptiveViewPolicy viewPolicy() {
+        if (viewPolicy == null) {
+            viewPolicy = new AdaptiveViewPolicy(this);
+        }
+        return viewPolicy;
+    }
+
     /**
      * A thread-safe, append-only list of observers/middleware. All modifications other than {@code add()}
      * are forbidden.
@@ -221,7 +454,10 @@ public class BoxFamily {
      */
     public static class ParticipantList<E> extends ForwardingList<E> {
 
-        private ParticipantList() {
+        private final BoxFamily family;
+
+        private ParticipantList(BoxFamily family) {
+            this.family = family;
         }
 
         private volatile List<E> inner = new CopyOnWriteArrayList<E>();
@@ -231,7 +467,11 @@ public class BoxFamily {
             if (inner == Collections.emptyList()) {
                 throw new UnsupportedOperationException("This kind of observer/middleware is disabled for this BoxFamily.");
             }
-            return ((CopyOnWriteArrayList<E>) inner).addIfAbsent(e);
+            boolean added = ((CopyOnWriteArrayList<E>) inner).addIfAbsent(e);
+            if (added) {
+                family.rebuildPipeline();
+            }
+            return added;
         }
 
         /**
@@ -243,6 +483,7 @@ public class BoxFamily {
          */
         public void disable() {
             inner = Collections.emptyList();
+            family.rebuildPipeline();
         }
 
         @Override
@@ -48,6 +48,62 @@ public enum Boxes {
         return new CommonBox<T>(family);
     }
 
+    /**
+     * Return a new {@link CommonIntBox} belonging to the family identified by the given class and name.
+     */
+    public static IntPowerBox intBox(Class<?> clazz, String name) {
+        return new CommonIntBox(clazz, name);
+    }
+
+    /**
+     * Return a new {@link CommonIntBox} belonging to the given family.
+     */
+    public static IntPowerBox intBox(BoxFamily family) {
+        return new CommonIntBox(family);
+    }
+
+    /**
+     * Return a new {@link CommonLongBox} belonging to the family identified by the given class and name.
+     */
+    public static LongPowerBox longBox(Class<?> clazz, String name) {
+        return new CommonLongBox(clazz, name);
+    }
+
+    /**
+     * Return a new {@link CommonLongBox} belonging to the given family.
+     */
+    public static LongPowerBox longBox(BoxFamily family) {
+        return new CommonLongBox(family);
+    }
+
+    /**
+     * Return a new {@link CommonDoubleBox} belonging to the family identified by the given class and name.
+     */
+    public static DoublePowerBox doubleBox(Class<?> clazz, String name) {
+        return new CommonDoubleBox(clazz, name);
+    }
+
+    /**
+     * Return a new {@link CommonDoubleBox} belonging to the given family.
+     */
+    public static DoublePowerBox doubleBox(BoxFamily family) {
+        return new CommonDoubleBox(family);
+    }
+
+    /**
+     * Return a new {@link CommonBooleanBox} belonging to the family identified by the given class and name.
+     */
+    public static BooleanPowerBox booleanBox(Class<?> clazz, String name) {
+        return new CommonBooleanBox(clazz, name);
+    }
+
+    /**
+     * Return a new {@link CommonBooleanBox} belonging to the given family.
+     */
+    public static BooleanPowerBox booleanBox(BoxFamily family) {
+        return new CommonBooleanBox(family);
+    }
+
     /**
      * Return a {@code Box} that forwards most methods to the argument but throws an exception
      * in the {@code set} method.
@@ -93,4 +149,22 @@ public enum Boxes {
     public static <T> PowerBox<T> upgrade(Class<?> clazz, String name, Box<T> box) {
         return new CommonUpgradedBox<T>(clazz, name, box);
     }
+
+    /**
+     * Run the given code with {@link alex.mojaki.boxes.observers.change.ChangeObserver}s held back until it finishes,
+     * so that each box changed inside it notifies its observers only once, no matter how many times it was set.
+     * The notification has the value from before the first change as {@code originalValue} and the final and
+     * requested values of the last change. A {@link View} with observers that depends on several of the changed boxes
+     * is calculated once at the end rather than once per change.
+     * <p>
+     * The batch only affects the current thread. Calling this method inside a batch simply runs the code as part of
+     * the outer batch. Middleware is still applied and values are still stored immediately, so {@code get} returns
+     * the latest value inside the batch. Because the values are already stored when observers are notified, a
+     * failing observer does not roll back any change. Instead all notifications are still delivered and the first
+     * exception is thrown at the end, with any others added as suppressed exceptions. If {@code runnable} itself
+     * throws, the notifications for the changes it made are still delivered before the exception is rethrown.
+     */
+    public static void batch(Runnable runnable) {
+        ChangeBatch.run(runnable);
+    }
 }
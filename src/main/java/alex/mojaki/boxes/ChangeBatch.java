@@ -0,0 +1,180 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state of a {@link Boxes#batch(Runnable)} call on the current thread. While a batch is active, boxes record
+ * their changes here instead of notifying {@link ChangeObserver}s, and views with observers are marked as needing
+ * an update instead of recalculating. When the batch ends, each changed box is notified once, with the value it had
+ * before its first change and the value after its last change.
+ * <p>
+ * Delivering notifications happens in rounds while the batch is still active, so changes caused by observers are
+ * coalesced in the same way and delivered in the next round. Views are an exception: they are invalidated as soon as
+ * a box they depend on changes, so that reading them inside the batch gives the right value, but they are only
+ * recalculated and notify their own observers once there are no more box changes to deliver. This way a view that
+ * depends on many of the changed boxes is calculated once.
+ * <p>
+ * Boxes only look for a batch when their family has {@code ChangeObserver}s, and only once some thread has ever
+ * started a batch, so threads that don't batch pay for a thread-local lookup per observed change at most. Starting
+ * and ending a batch doesn't write any state shared between threads.
+ */
+final class ChangeBatch {
+
+    private static final ThreadLocal<ChangeBatch> CURRENT = new ThreadLocal<ChangeBatch>();
+
+    /**
+     * Whether a batch has ever been started, so that boxes can skip looking up the thread local when it hasn't.
+     * Only written once, so reading it doesn't contend.
+     */
+    private static volatile boolean used;
+
+    private static final class PendingChange {
+        final AbstractPowerBox box;
+        final Object originalValue;
+        Object finalValue;
+        Object requestedValue;
+
+        PendingChange(AbstractPowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+            this.box = box;
+            this.originalValue = originalValue;
+            this.finalValue = finalValue;
+            this.requestedValue = requestedValue;
+        }
+    }
+
+    private Map<AbstractPowerBox, PendingChange> changes = new IdentityHashMap<AbstractPowerBox, PendingChange>();
+    private List<PendingChange> changeOrder = new ArrayList<PendingChange>();
+    private Map<View, Object> views = new IdentityHashMap<View, Object>();
+    private List<View> viewOrder = new ArrayList<View>();
+
+    private ChangeBatch() {
+    }
+
+    /**
+     * Return the batch active on this thread, or null if there is none.
+     */
+    static ChangeBatch current() {
+        if (!used) {
+            return null;
+        }
+        return CURRENT.get();
+    }
+
+    static void run(Runnable runnable) {
+        if (CURRENT.get() != null) {
+            runnable.run();
+            return;
+        }
+        ChangeBatch batch = new ChangeBatch();
+        CURRENT.set(batch);
+        if (!used) {
+            used = true;
+        }
+        Throwable thrown = null;
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            thrown = e;
+        } catch (Error e) {
+            thrown = e;
+        }
+        try {
+            thrown = batch.flush(thrown);
+        } finally {
+            CURRENT.remove();
+        }
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        }
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+    }
+
+    /**
+     * Record that {@code box} changed. If it already changed in this round, keep the original value of the first
+     * change and replace the final and requested values.
+     * <p>
+     * Views depending on the box are told about the change straight away, so that they invalidate their caches and
+     * add themselves to the batch. This isn't needed when the box is itself a view, because a view only changes
+     * after it has been invalidated, and that invalidated the views depending on it as well.
+     */
+    @SuppressWarnings("unchecked")
+    void addChange(AbstractPowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+        if (!(box instanceof View) && box.getFamily().pipeline().hasViews) {
+            View.TARGETED_CHANGE_OBSERVER.onChange(box, originalValue, finalValue, requestedValue);
+        }
+        PendingChange change = changes.get(box);
+        if (change == null) {
+            change = new PendingChange(box, originalValue, finalValue, requestedValue);
+            changes.put(box, change);
+            changeOrder.add(change);
+        } else {
+            change.finalValue = finalValue;
+            change.requestedValue = requestedValue;
+        }
+    }
+
+    /**
+     * Record that {@code view} needs to be recalculated and its observers notified, remembering the value
+     * before its first invalidation in this batch.
+     */
+    void addView(View view, Object oldValue) {
+        if (!views.containsKey(view)) {
+            views.put(view, oldValue);
+            viewOrder.add(view);
+        }
+    }
+
+    /**
+     * Deliver all pending notifications. Exceptions don't stop delivery to other boxes: the first one is returned
+     * (or {@code thrown} if that's not null) and the others are added to it as suppressed exceptions.
+     */
+    private Throwable flush(Throwable thrown) {
+        while (!changeOrder.isEmpty() || !viewOrder.isEmpty()) {
+            if (!changeOrder.isEmpty()) {
+                List<PendingChange> round = changeOrder;
+                changes = new IdentityHashMap<AbstractPowerBox, PendingChange>();
+                changeOrder = new ArrayList<PendingChange>();
+                for (PendingChange change : round) {
+                    try {
+                        change.box.deliverChange(change.originalValue, change.finalValue, change.requestedValue);
+                    } catch (RuntimeException e) {
+                        thrown = suppress(thrown, e);
+                    } catch (Error e) {
+                        thrown = suppress(thrown, e);
+                    }
+                }
+            } else {
+                Map<View, Object> oldValues = views;
+                List<View> round = viewOrder;
+                views = new IdentityHashMap<View, Object>();
+                viewOrder = new ArrayList<View>();
+                for (View view : round) {
+                    try {
+                        view.updateAfterBatch(oldValues.get(view));
+                    } catch (RuntimeException e) {
+                        thrown = suppress(thrown, e);
+                    } catch (Error e) {
+                        thrown = suppress(thrown, e);
+                    }
+                }
+            }
+        }
+        return thrown;
+    }
+
+    private static Throwable suppress(Throwable first, Throwable next) {
+        if (first == null) {
+            return next;
+        }
+        first.addSuppressed(next);
+        return first;
+    }
+
+}
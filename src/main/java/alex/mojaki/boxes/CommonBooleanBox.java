@@ -0,0 +1,27 @@
+package alex.mojaki.boxes;
+
+/**
+ * The simplest concrete implementation of {@link BooleanPowerBox}, the {@code boolean} version of {@link CommonBox}.
+ * The initial value is false. You can also create one using {@link Boxes#booleanBox(BoxFamily)} or
+ * {@link Boxes#booleanBox(Class, String)}.
+ * <p>
+ * If you're willing to add some boilerplate to your code to save memory, see the parent {@link DefaultBooleanPowerBox}.
+ */
+public class CommonBooleanBox extends DefaultBooleanPowerBox {
+
+    private final BoxFamily family;
+
+    public CommonBooleanBox(BoxFamily family) {
+        this.family = family;
+    }
+
+    public CommonBooleanBox(Class<?> clazz, String name) {
+        this(BoxFamily.getInstance(clazz, name));
+    }
+
+    @Override
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+}
@@ -0,0 +1,27 @@
+package alex.mojaki.boxes;
+
+/**
+ * The simplest concrete implementation of {@link DoublePowerBox}, the {@code double} version of {@link CommonBox}.
+ * The initial value is 0.0. You can also create one using {@link Boxes#doubleBox(BoxFamily)} or
+ * {@link Boxes#doubleBox(Class, String)}.
+ * <p>
+ * If you're willing to add some boilerplate to your code to save memory, see the parent {@link DefaultDoublePowerBox}.
+ */
+public class CommonDoubleBox extends DefaultDoublePowerBox {
+
+    private final BoxFamily family;
+
+    public CommonDoubleBox(BoxFamily family) {
+        this.family = family;
+    }
+
+    public CommonDoubleBox(Class<?> clazz, String name) {
+        this(BoxFamily.getInstance(clazz, name));
+    }
+
+    @Override
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+}
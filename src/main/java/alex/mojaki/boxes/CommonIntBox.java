@@ -0,0 +1,27 @@
+package alex.mojaki.boxes;
+
+/**
+ * The simplest concrete implementation of {@link IntPowerBox}, the {@code int} version of {@link CommonBox}.
+ * The initial value is 0. You can also create one using {@link Boxes#intBox(BoxFamily)} or
+ * {@link Boxes#intBox(Class, String)}.
+ * <p>
+ * If you're willing to add some boilerplate to your code to save memory, see the parent {@link DefaultIntPowerBox}.
+ */
+public class CommonIntBox extends DefaultIntPowerBox {
+
+    private final BoxFamily family;
+
+    public CommonIntBox(BoxFamily family) {
+        this.family = family;
+    }
+
+    public CommonIntBox(Class<?> clazz, String name) {
+        this(BoxFamily.getInstance(clazz, name));
+    }
+
+    @Override
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+}
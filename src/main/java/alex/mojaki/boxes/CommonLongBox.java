@@ -0,0 +1,27 @@
+package alex.mojaki.boxes;
+
+/**
+ * The simplest concrete implementation of {@link LongPowerBox}, the {@code long} version of {@link CommonBox}.
+ * The initial value is 0. You can also create one using {@link Boxes#longBox(BoxFamily)} or
+ * {@link Boxes#longBox(Class, String)}.
+ * <p>
+ * If you're willing to add some boilerplate to your code to save memory, see the parent {@link DefaultLongPowerBox}.
+ */
+public class CommonLongBox extends DefaultLongPowerBox {
+
+    private final BoxFamily family;
+
+    public CommonLongBox(BoxFamily family) {
+        this.family = family;
+    }
+
+    public CommonLongBox(Class<?> clazz, String name) {
+        this(BoxFamily.getInstance(clazz, name));
+    }
+
+    @Override
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+}
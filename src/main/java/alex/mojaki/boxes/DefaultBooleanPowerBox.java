@@ -0,0 +1,21 @@
+package alex.mojaki.boxes;
+
+/**
+ * The {@code boolean} version of {@link DefaultPowerBox}: a {@link BooleanPowerBox} that stores a value but not a
+ * family to save memory. Subclass it and implement {@link PowerBox#getFamily()} in the same way.
+ */
+public abstract class DefaultBooleanPowerBox extends AbstractBooleanPowerBox {
+
+    protected volatile boolean value;
+
+    @Override
+    protected boolean rawGetBoolean() {
+        return value;
+    }
+
+    @Override
+    protected void rawSetBoolean(boolean value) {
+        this.value = value;
+    }
+
+}
@@ -0,0 +1,21 @@
+package alex.mojaki.boxes;
+
+/**
+ * The {@code double} version of {@link DefaultPowerBox}: a {@link DoublePowerBox} that stores a value but not a family
+ * to save memory. Subclass it and implement {@link PowerBox#getFamily()} in the same way.
+ */
+public abstract class DefaultDoublePowerBox extends AbstractDoublePowerBox {
+
+    protected volatile double value;
+
+    @Override
+    protected double rawGetDouble() {
+        return value;
+    }
+
+    @Override
+    protected void rawSetDouble(double value) {
+        this.value = value;
+    }
+
+}
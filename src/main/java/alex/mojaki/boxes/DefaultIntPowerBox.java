@@ -0,0 +1,170 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The {@code int} version of {@link DefaultPowerBox}: an {@link IntPowerBox} that stores a value but not a family
+ * to save memory. Subclass it and implement {@link PowerBox#getFamily()} in the same way.
+ * <p>
+ * This class also has the same atomic operations as {@code DefaultPowerBox}, plus
+ * {@link DefaultIntPowerBox#addAndGet(int)} and {@link DefaultIntPowerBox#getAndAdd(int)} for counters, with the
+ * same behaviour regarding middleware and observers. When the family has no change middleware or observers, these are
+ * just single atomic instructions.
+ */
+public abstract class DefaultIntPowerBox extends AbstractIntPowerBox {
+
+    private static final AtomicIntegerFieldUpdater<DefaultIntPowerBox> VALUE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(DefaultIntPowerBox.class, "value");
+
+    private static final IntBinaryOperator SUM = new IntBinaryOperator() {
+        @Override
+        public int applyAsInt(int left, int right) {
+            return left + right;
+        }
+    };
+
+    protected volatile int value;
+
+    @Override
+    protected int rawGetInt() {
+        return value;
+    }
+
+    @Override
+    protected void rawSetInt(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Atomically set the value to {@code newValue}, after applying middleware, if the stored value is
+     * {@code expectedValue}.
+     *
+     * @return true if the value was set, false if the stored value was different.
+     */
+    public boolean compareAndSet(int expectedValue, int newValue) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesChange) {
+            return VALUE_UPDATER.compareAndSet(this, expectedValue, newValue);
+        }
+        int finalValue = applyIntChangeMiddleware(pipeline.changeMiddlewares, expectedValue, newValue);
+        if (VALUE_UPDATER.compareAndSet(this, expectedValue, finalValue)) {
+            notifyAfterUpdate(pipeline, expectedValue, finalValue, newValue);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Atomically set the value to {@code newValue}, after applying middleware.
+     *
+     * @return the previous value.
+     */
+    public int getAndSet(int newValue) {
+        return update(null, null, newValue, true);
+    }
+
+    /**
+     * Atomically add {@code delta} to the value, then apply middleware.
+     *
+     * @return the new stored value.
+     */
+    public int addAndGet(int delta) {
+        if (getFamily().pipeline().bypassesChange) {
+            return VALUE_UPDATER.addAndGet(this, delta);
+        }
+        return update(null, SUM, delta, false);
+    }
+
+    /**
+     * Like {@link DefaultIntPowerBox#addAndGet(int)}, but returns the previous value.
+     */
+    public int getAndAdd(int delta) {
+        if (getFamily().pipeline().bypassesChange) {
+            return VALUE_UPDATER.getAndAdd(this, delta);
+        }
+        return update(null, SUM, delta, true);
+    }
+
+    /**
+     * Atomically set the value to the result of applying {@code function} to the stored value, then middleware.
+     * The function may be applied several times if other threads change the value at the same time, so it should
+     * have no side effects.
+     *
+     * @return the new stored value.
+     */
+    public int updateAndGet(IntUnaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(function, null, 0, false);
+    }
+
+    /**
+     * Like {@link DefaultIntPowerBox#updateAndGet(IntUnaryOperator)}, but returns the previous value.
+     */
+    public int getAndUpdate(IntUnaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(function, null, 0, true);
+    }
+
+    /**
+     * Atomically set the value to the result of {@code function.applyAsInt(storedValue, x)}, then middleware.
+     * The function may be applied several times if other threads change the value at the same time, so it should
+     * have no side effects.
+     *
+     * @return the new stored value.
+     */
+    public int accumulateAndGet(int x, IntBinaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(null, function, x, false);
+    }
+
+    /**
+     * Like {@link DefaultIntPowerBox#accumulateAndGet(int, IntBinaryOperator)}, but returns the previous value.
+     */
+    public int getAndAccumulate(int x, IntBinaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(null, function, x, true);
+    }
+
+    /**
+     * The retry loop behind the public atomic operations, as in {@link DefaultPowerBox}.
+     */
+    private int update(IntUnaryOperator unary, IntBinaryOperator binary, int x, boolean returnPrevious) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        while (true) {
+            int oldValue = value;
+            int requestedValue = unary != null ? unary.applyAsInt(oldValue) :
+                    binary != null ? binary.applyAsInt(oldValue, x) :
+                            x;
+            int finalValue = pipeline.bypassesChange ? requestedValue :
+                    applyIntChangeMiddleware(pipeline.changeMiddlewares, oldValue, requestedValue);
+            if (VALUE_UPDATER.compareAndSet(this, oldValue, finalValue)) {
+                notifyAfterUpdate(pipeline, oldValue, finalValue, requestedValue);
+                return returnPrevious ? oldValue : finalValue;
+            }
+        }
+    }
+
+    private void notifyAfterUpdate(ParticipantPipeline pipeline, int oldValue, int finalValue, int requestedValue) {
+        pipeline.recordChange();
+        if (pipeline.changeObservers.length == 0) {
+            return;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, requestedValue);
+            return;
+        }
+        try {
+            notifyIntChangeObservers(pipeline.changeObservers, oldValue, finalValue, requestedValue);
+        } catch (BoxParticipantException e) {
+            VALUE_UPDATER.compareAndSet(this, finalValue, oldValue);
+            throw e;
+        }
+    }
+
+}
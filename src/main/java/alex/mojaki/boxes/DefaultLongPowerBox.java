@@ -0,0 +1,170 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * The {@code long} version of {@link DefaultPowerBox}: a {@link LongPowerBox} that stores a value but not a family
+ * to save memory. Subclass it and implement {@link PowerBox#getFamily()} in the same way.
+ * <p>
+ * This class also has the same atomic operations as {@code DefaultPowerBox}, plus
+ * {@link DefaultLongPowerBox#addAndGet(long)} and {@link DefaultLongPowerBox#getAndAdd(long)} for counters, with the
+ * same behaviour regarding middleware and observers. When the family has no change middleware or observers, these are
+ * just single atomic instructions.
+ */
+public abstract class DefaultLongPowerBox extends AbstractLongPowerBox {
+
+    private static final AtomicLongFieldUpdater<DefaultLongPowerBox> VALUE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(DefaultLongPowerBox.class, "value");
+
+    private static final LongBinaryOperator SUM = new LongBinaryOperator() {
+        @Override
+        public long applyAsLong(long left, long right) {
+            return left + right;
+        }
+    };
+
+    protected volatile long value;
+
+    @Override
+    protected long rawGetLong() {
+        return value;
+    }
+
+    @Override
+    protected void rawSetLong(long value) {
+        this.value = value;
+    }
+
+    /**
+     * Atomically set the value to {@code newValue}, after applying middleware, if the stored value is
+     * {@code expectedValue}.
+     *
+     * @return true if the value was set, false if the stored value was different.
+     */
+    public boolean compareAndSet(long expectedValue, long newValue) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        if (pipeline.bypassesChange) {
+            return VALUE_UPDATER.compareAndSet(this, expectedValue, newValue);
+        }
+        long finalValue = applyLongChangeMiddleware(pipeline.changeMiddlewares, expectedValue, newValue);
+        if (VALUE_UPDATER.compareAndSet(this, expectedValue, finalValue)) {
+            notifyAfterUpdate(pipeline, expectedValue, finalValue, newValue);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Atomically set the value to {@code newValue}, after applying middleware.
+     *
+     * @return the previous value.
+     */
+    public long getAndSet(long newValue) {
+        return update(null, null, newValue, true);
+    }
+
+    /**
+     * Atomically add {@code delta} to the value, then apply middleware.
+     *
+     * @return the new stored value.
+     */
+    public long addAndGet(long delta) {
+        if (getFamily().pipeline().bypassesChange) {
+            return VALUE_UPDATER.addAndGet(this, delta);
+        }
+        return update(null, SUM, delta, false);
+    }
+
+    /**
+     * Like {@link DefaultLongPowerBox#addAndGet(long)}, but returns the previous value.
+     */
+    public long getAndAdd(long delta) {
+        if (getFamily().pipeline().bypassesChange) {
+            return VALUE_UPDATER.getAndAdd(this, delta);
+        }
+        return update(null, SUM, delta, true);
+    }
+
+    /**
+     * Atomically set the value to the result of applying {@code function} to the stored value, then middleware.
+     * The function may be applied several times if other threads change the value at the same time, so it should
+     * have no side effects.
+     *
+     * @return the new stored value.
+     */
+    public long updateAndGet(LongUnaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(function, null, 0L, false);
+    }
+
+    /**
+     * Like {@link DefaultLongPowerBox#updateAndGet(LongUnaryOperator)}, but returns the previous value.
+     */
+    public long getAndUpdate(LongUnaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(function, null, 0L, true);
+    }
+
+    /**
+     * Atomically set the value to the result of {@code function.applyAsLong(storedValue, x)}, then middleware.
+     * The function may be applied several times if other threads change the value at the same time, so it should
+     * have no side effects.
+     *
+     * @return the new stored value.
+     */
+    public long accumulateAndGet(long x, LongBinaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(null, function, x, false);
+    }
+
+    /**
+     * Like {@link DefaultLongPowerBox#accumulateAndGet(long, LongBinaryOperator)}, but returns the previous value.
+     */
+    public long getAndAccumulate(long x, LongBinaryOperator function) {
+        Objects.requireNonNull(function);
+        return update(null, function, x, true);
+    }
+
+    /**
+     * The retry loop behind the public atomic operations, as in {@link DefaultPowerBox}.
+     */
+    private long update(LongUnaryOperator unary, LongBinaryOperator binary, long x, boolean returnPrevious) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        while (true) {
+            long oldValue = value;
+            long requestedValue = unary != null ? unary.applyAsLong(oldValue) :
+                    binary != null ? binary.applyAsLong(oldValue, x) :
+                            x;
+            long finalValue = pipeline.bypassesChange ? requestedValue :
+                    applyLongChangeMiddleware(pipeline.changeMiddlewares, oldValue, requestedValue);
+            if (VALUE_UPDATER.compareAndSet(this, oldValue, finalValue)) {
+                notifyAfterUpdate(pipeline, oldValue, finalValue, requestedValue);
+                return returnPrevious ? oldValue : finalValue;
+            }
+        }
+    }
+
+    private void notifyAfterUpdate(ParticipantPipeline pipeline, long oldValue, long finalValue, long requestedValue) {
+        pipeline.recordChange();
+        if (pipeline.changeObservers.length == 0) {
+            return;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, requestedValue);
+            return;
+        }
+        try {
+            notifyLongChangeObservers(pipeline.changeObservers, oldValue, finalValue, requestedValue);
+        } catch (BoxParticipantException e) {
+            VALUE_UPDATER.compareAndSet(this, finalValue, oldValue);
+            throw e;
+        }
+    }
+
+}
@@ -1,5 +1,14 @@
 package alex.mojaki.boxes;
 
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
 /**
  * An implementation of {@link PowerBox} that stores a value but not a family to save memory.
  * Instead you must implement {@link PowerBox#getFamily()}, something like this:
@@ -12,9 +21,21 @@ package alex.mojaki.boxes;
  *  }
  *  public PowerBox<String> someField = new SomeField();
  * }</pre>
+ * <p>
+ * Besides {@code get} and {@code set}, this class has atomic read-modify-write operations similar to those of
+ * {@link java.util.concurrent.atomic.AtomicReference}, such as {@link DefaultPowerBox#updateAndGet(UnaryOperator)}.
+ * These retry a compare-and-set of the stored value until no other thread has changed it in the meantime.
+ * {@link ChangeMiddleware} is applied inside the retry loop, so it may be applied several times for one call and
+ * should have no side effects. {@link ChangeObserver}s are notified exactly once, after the winning update, with the
+ * value it replaced as {@code originalValue}. If an observer throws an exception, the box reverts to that value
+ * unless another thread has already changed it again.
  */
 public abstract class DefaultPowerBox<T> extends AbstractPowerBox<T> {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DefaultPowerBox, Object> VALUE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultPowerBox.class, Object.class, "value");
+
     protected volatile T value;
 
     @Override
@@ -27,4 +48,114 @@ public abstract class DefaultPowerBox<T> extends AbstractPowerBox<T> {
         this.value = value;
     }
 
+    /**
+     * Atomically set the value to {@code newValue}, after applying middleware, if the stored value is equal
+     * (according to {@code equals}) to {@code expectedValue}.
+     *
+     * @return true if the value was set, false if the stored value was not equal to {@code expectedValue}.
+     */
+    public boolean compareAndSet(T expectedValue, T newValue) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        while (true) {
+            T oldValue = value;
+            if (!Objects.equals(oldValue, expectedValue)) {
+                return false;
+            }
+            T finalValue = pipeline.bypassesChange ? newValue :
+                    applyChangeMiddleware(pipeline.changeMiddlewares, oldValue, newValue);
+            if (VALUE_UPDATER.compareAndSet(this, oldValue, finalValue)) {
+                notifyAfterUpdate(pipeline, oldValue, finalValue, newValue);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically set the value to {@code newValue}, after applying middleware.
+     *
+     * @return the previous value.
+     */
+    public T getAndSet(T newValue) {
+        return update(null, null, newValue, true);
+    }
+
+    /**
+     * Atomically set the value to the result of applying {@code function} to the stored value, then middleware.
+     * The function may be applied several times if other threads change the value at the same time, so it should
+     * have no side effects.
+     *
+     * @return the new stored value.
+     */
+    public T updateAndGet(UnaryOperator<T> function) {
+        Objects.requireNonNull(function);
+        return update(function, null, null, false);
+    }
+
+    /**
+     * Like {@link DefaultPowerBox#updateAndGet(UnaryOperator)}, but returns the previous value.
+     */
+    public T getAndUpdate(UnaryOperator<T> function) {
+        Objects.requireNonNull(function);
+        return update(function, null, null, true);
+    }
+
+    /**
+     * Atomically set the value to the result of {@code function.apply(storedValue, x)}, then middleware.
+     * The function may be applied several times if other threads change the value at the same time, so it should
+     * have no side effects.
+     *
+     * @return the new stored value.
+     */
+    public T accumulateAndGet(T x, BinaryOperator<T> function) {
+        Objects.requireNonNull(function);
+        return update(null, function, x, false);
+    }
+
+    /**
+     * Like {@link DefaultPowerBox#accumulateAndGet(Object, BinaryOperator)}, but returns the previous value.
+     */
+    public T getAndAccumulate(T x, BinaryOperator<T> function) {
+        Objects.requireNonNull(function);
+        return update(null, function, x, true);
+    }
+
+    /**
+     * The retry loop behind the public atomic operations. The requested value is computed by {@code unary} if it's
+     * not null, otherwise by {@code binary} with {@code x}, otherwise it's just {@code x}. Taking the arguments
+     * separately like this means the public methods don't need to allocate an adapting function.
+     */
+    private T update(UnaryOperator<T> unary, BinaryOperator<T> binary, T x, boolean returnPrevious) {
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        while (true) {
+            T oldValue = value;
+            T requestedValue = unary != null ? unary.apply(oldValue) :
+                    binary != null ? binary.apply(oldValue, x) :
+                            x;
+            T finalValue = pipeline.bypassesChange ? requestedValue :
+                    applyChangeMiddleware(pipeline.changeMiddlewares, oldValue, requestedValue);
+            if (VALUE_UPDATER.compareAndSet(this, oldValue, finalValue)) {
+                notifyAfterUpdate(pipeline, oldValue, finalValue, requestedValue);
+                return returnPrevious ? oldValue : finalValue;
+            }
+        }
+    }
+
+    private void notifyAfterUpdate(ParticipantPipeline pipeline, T oldValue, T finalValue, T requestedValue) {
+        pipeline.recordChange();
+        if (pipeline.changeObservers.length == 0) {
+            return;
+        }
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addChange(this, oldValue, finalValue, requestedValue);
+            return;
+        }
+        try {
+            notifyChangeObservers(pipeline.changeObservers, oldValue, finalValue, requestedValue);
+        } catch (BoxParticipantException e) {
+            VALUE_UPDATER.compareAndSet(this, finalValue, oldValue);
+            throw e;
+        }
+    }
+
 }
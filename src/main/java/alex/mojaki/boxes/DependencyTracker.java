@@ -0,0 +1,89 @@
+package alex.mojaki.boxes;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Records the boxes read while a {@link View} that {@link View#trackDependencies() tracks its dependencies} is
+ * calculating, so that it can subscribe to exactly those boxes.
+ * <p>
+ * Trackers form a stack on each thread, one for every view currently calculating inside another's calculation. A
+ * box read only belongs to the innermost view: a view that reads another view depends on that view, not on the boxes
+ * that view reads. Views that don't track their dependencies push a tracker that ignores everything so that their
+ * reads aren't attributed to a view further out, but only once some view has tracked, so that applications not
+ * using tracking never touch the thread-local. {@link PowerBox#get()} only looks up the current tracker for boxes
+ * whose family has {@link BoxFamily#enableDependencyTracking() enabled tracking}, after checking the pipeline, so
+ * other boxes keep their fast path.
+ */
+final class DependencyTracker {
+
+    private static final ThreadLocal<DependencyTracker> CURRENT = new ThreadLocal<DependencyTracker>();
+
+    /**
+     * Whether any view has ever tracked its dependencies. Only written once, so reading it doesn't contend.
+     */
+    private static volatile boolean used;
+
+    /**
+     * The view being calculated, or null if reads are being ignored.
+     */
+    private final View<?> view;
+
+    private final DependencyTracker outer;
+
+    private final Set<PowerBox> read = Collections.newSetFromMap(new IdentityHashMap<PowerBox, Boolean>());
+
+    private DependencyTracker(View<?> view, DependencyTracker outer) {
+        this.view = view;
+        this.outer = outer;
+    }
+
+    /**
+     * Start recording the boxes read on this thread on behalf of {@code view}.
+     */
+    static DependencyTracker begin(View<?> view) {
+        if (view != null && !used) {
+            used = true;
+        }
+        DependencyTracker tracker = new DependencyTracker(view, CURRENT.get());
+        CURRENT.set(tracker);
+        return tracker;
+    }
+
+    /**
+     * Stop attributing reads on this thread to any view until the returned tracker ends, or return null if no view
+     * is tracking on this thread so there's nothing to hide from.
+     */
+    static DependencyTracker suspend() {
+        if (!used) {
+            return null;
+        }
+        DependencyTracker current = CURRENT.get();
+        return current == null || current.view == null ? null : begin(null);
+    }
+
+    /**
+     * Called by {@link PowerBox#get()} for boxes in families that enabled tracking, before reading a value, so that
+     * the view is subscribed to {@code box} before the value it sees can change.
+     */
+    static void record(PowerBox box) {
+        DependencyTracker current = CURRENT.get();
+        if (current != null && current.view != null && current.view != box && current.read.add(box)) {
+            current.view.track(box);
+        }
+    }
+
+    /**
+     * Stop recording and return the boxes that were read.
+     */
+    Set<PowerBox> end() {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+        return read;
+    }
+
+}
@@ -0,0 +1,52 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.DoubleChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.DoubleGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.DoubleChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.DoubleGetObserver;
+
+/**
+ * A {@link PowerBox} holding a {@code double}. {@link DoublePowerBox#getDouble()} and {@link
+ * DoublePowerBox#setDouble(double)} work
+ * without boxing the value, passing it straight to any {@link DoubleGetMiddleware}, {@link DoubleChangeObserver}, etc.
+ * in the family. Other participants can still be used, but the value will be boxed for them.
+ * <p>
+ * Since this is also a {@code PowerBox<Double>} it can be used anywhere a normal box can, e.g. in a {@link View}.
+ * The generic {@link PowerBox#get()} and {@link PowerBox#set(Object)} behave exactly like their primitive versions,
+ * except that {@code set(null)} throws a {@code NullPointerException}.
+ */
+public interface DoublePowerBox extends PowerBox<Double> {
+
+    /**
+     * The primitive version of {@link PowerBox#get()}.
+     */
+    double getDouble();
+
+    /**
+     * The primitive version of {@link PowerBox#set(Object)}.
+     *
+     * @return this object for chaining
+     */
+    DoublePowerBox setDouble(double value);
+
+    // Specifying the return type for chaining
+
+    @Override
+    DoublePowerBox set(Double value);
+
+    @Override
+    DoublePowerBox addChangeMiddleware(ChangeMiddleware... middlewares);
+
+    @Override
+    DoublePowerBox addGetMiddleware(GetMiddleware... middlewares);
+
+    @Override
+    DoublePowerBox addChangeObserver(ChangeObserver... observers);
+
+    @Override
+    DoublePowerBox addGetObserver(GetObserver... observers);
+}
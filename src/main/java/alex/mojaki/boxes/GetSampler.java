@@ -0,0 +1,89 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.observers.get.GetObserver;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a {@code get} should notify the {@link GetObserver}s of a family, when the family has been told to
+ * sample them with {@link BoxFamily#sampleGetObservers(int)} or {@link BoxFamily#sampleGetObserversPerSecond(double)}.
+ * <p>
+ * The decision is made with state local to the calling thread, so it needs no synchronization and doesn't allocate
+ * after the first call on each thread.
+ */
+abstract class GetSampler {
+
+    /**
+     * Return true if the current {@code get} should notify the observers.
+     */
+    abstract boolean sample();
+
+    /**
+     * Return a sampler that accepts 1 in every {@code period} calls on each thread. Each thread starts at a random
+     * point in the cycle so that threads doing the same work don't all sample the same calls.
+     */
+    static GetSampler oneIn(final int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("The sampling period must be positive, not " + period);
+        }
+        return new GetSampler() {
+            private final ThreadLocal<int[]> countdown = new ThreadLocal<int[]>() {
+                @Override
+                protected int[] initialValue() {
+                    return new int[]{ThreadLocalRandom.current().nextInt(period) + 1};
+                }
+            };
+
+            @Override
+            boolean sample() {
+                int[] remaining = countdown.get();
+                if (--remaining[0] > 0) {
+                    return false;
+                }
+                remaining[0] = period;
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return "1 in " + period + " gets";
+            }
+        };
+    }
+
+    /**
+     * Return a sampler that accepts at most {@code perSecond} calls per second on each thread, spread evenly.
+     */
+    static GetSampler perSecond(final double perSecond) {
+        if (!(perSecond > 0)) {
+            throw new IllegalArgumentException("The sampling rate must be positive, not " + perSecond);
+        }
+        final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        return new GetSampler() {
+            private final ThreadLocal<long[]> lastSample = new ThreadLocal<long[]>() {
+                @Override
+                protected long[] initialValue() {
+                    return new long[]{System.nanoTime() - intervalNanos};
+                }
+            };
+
+            @Override
+            boolean sample() {
+                long[] last = lastSample.get();
+                long now = System.nanoTime();
+                if (now - last[0] < intervalNanos) {
+                    return false;
+                }
+                last[0] = now;
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return perSecond + " gets per second per thread";
+            }
+        };
+    }
+
+}
@@ -0,0 +1,51 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.IntChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.IntGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.IntChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.IntGetObserver;
+
+/**
+ * A {@link PowerBox} holding an {@code int}. {@link IntPowerBox#getInt()} and {@link IntPowerBox#setInt(int)} work
+ * without boxing the value, passing it straight to any {@link IntGetMiddleware}, {@link IntChangeObserver}, etc.
+ * in the family. Other participants can still be used, but the value will be boxed for them.
+ * <p>
+ * Since this is also a {@code PowerBox<Integer>} it can be used anywhere a normal box can, e.g. in a {@link View}.
+ * The generic {@link PowerBox#get()} and {@link PowerBox#set(Object)} behave exactly like their primitive versions,
+ * except that {@code set(null)} throws a {@code NullPointerException}.
+ */
+public interface IntPowerBox extends PowerBox<Integer> {
+
+    /**
+     * The primitive version of {@link PowerBox#get()}.
+     */
+    int getInt();
+
+    /**
+     * The primitive version of {@link PowerBox#set(Object)}.
+     *
+     * @return this object for chaining
+     */
+    IntPowerBox setInt(int value);
+
+    // Specifying the return type for chaining
+
+    @Override
+    IntPowerBox set(Integer value);
+
+    @Override
+    IntPowerBox addChangeMiddleware(ChangeMiddleware... middlewares);
+
+    @Override
+    IntPowerBox addGetMiddleware(GetMiddleware... middlewares);
+
+    @Override
+    IntPowerBox addChangeObserver(ChangeObserver... observers);
+
+    @Override
+    IntPowerBox addGetObserver(GetObserver... observers);
+}
@@ -0,0 +1,51 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.LongChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.LongGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.LongChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.LongGetObserver;
+
+/**
+ * A {@link PowerBox} holding a {@code long}. {@link LongPowerBox#getLong()} and {@link LongPowerBox#setLong(long)} work
+ * without boxing the value, passing it straight to any {@link LongGetMiddleware}, {@link LongChangeObserver}, etc.
+ * in the family. Other participants can still be used, but the value will be boxed for them.
+ * <p>
+ * Since this is also a {@code PowerBox<Long>} it can be used anywhere a normal box can, e.g. in a {@link View}.
+ * The generic {@link PowerBox#get()} and {@link PowerBox#set(Object)} behave exactly like their primitive versions,
+ * except that {@code set(null)} throws a {@code NullPointerException}.
+ */
+public interface LongPowerBox extends PowerBox<Long> {
+
+    /**
+     * The primitive version of {@link PowerBox#get()}.
+     */
+    long getLong();
+
+    /**
+     * The primitive version of {@link PowerBox#set(Object)}.
+     *
+     * @return this object for chaining
+     */
+    LongPowerBox setLong(long value);
+
+    // Specifying the return type for chaining
+
+    @Override
+    LongPowerBox set(Long value);
+
+    @Override
+    LongPowerBox addChangeMiddleware(ChangeMiddleware... middlewares);
+
+    @Override
+    LongPowerBox addGetMiddleware(GetMiddleware... middlewares);
+
+    @Override
+    LongPowerBox addChangeObserver(ChangeObserver... observers);
+
+    @Override
+    LongPowerBox addGetObserver(GetObserver... observers);
+}
@@ -0,0 +1,141 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.metrics.FamilyMetrics;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the participants of a {@link BoxFamily}, stored as plain arrays so that boxes can apply
+ * them without going through the thread-safe {@link BoxFamily.ParticipantList}s.
+ * <p>
+ * The family builds a new pipeline every time a participant is added or a list is disabled, and boxes read the
+ * current one at the start of each {@code get} or {@code set}. The {@code bypasses*} flags let a box skip everything
+ * except the raw access when the family has nothing to apply.
+ * <p>
+ * When the family has metrics enabled, the participant arrays contain {@link TimedParticipant}s wrapping the real
+ * participants, and the {@code bypasses*} flags are always false so that every call can be counted.
+ */
+final class ParticipantPipeline {
+
+    static final ParticipantPipeline EMPTY = new ParticipantPipeline(
+            new ChangeMiddleware[0], new ChangeObserver[0], new GetMiddleware[0], new GetObserver[0], null, null, false);
+
+    final ChangeMiddleware[] changeMiddlewares;
+    final ChangeObserver[] changeObservers;
+    final GetMiddleware[] getMiddlewares;
+    final GetObserver[] getObservers;
+
+    /**
+     * True if there are no {@code GetMiddleware}s and no {@code GetObserver}s, so {@code get} can simply
+     * return the raw value.
+     */
+    final boolean bypassesGet;
+
+    /**
+     * True if the family has {@link BoxFamily#enableDependencyTracking() enabled dependency tracking}, so {@code get}
+     * must tell the {@link DependencyTracker} about the read.
+     */
+    final boolean tracksGets;
+
+    /**
+     * True if there are no {@code ChangeMiddleware}s and no {@code ChangeObserver}s, so {@code set} can simply
+     * store the requested value.
+     */
+    final boolean bypassesChange;
+
+    /**
+     * True if {@code changeObservers} contains the observer that keeps dependent {@link View}s up to date.
+     */
+    final boolean hasViews;
+
+    /**
+     * {@code changeObservers} without the observer that updates views, for a {@link ChangeBatch} which calls that
+     * observer as soon as the change happens.
+     */
+    final ChangeObserver[] batchedChangeObservers;
+
+    /**
+     * Decides which calls to {@code get} notify the {@code GetObserver}s, or null if they all do.
+     */
+    private final GetSampler getSampler;
+
+    /**
+     * The metrics of the family, or null if they are disabled.
+     */
+    private final FamilyMetrics metrics;
+
+    private ParticipantPipeline(ChangeMiddleware[] changeMiddlewares, ChangeObserver[] changeObservers,
+                                GetMiddleware[] getMiddlewares, GetObserver[] getObservers, GetSampler getSampler,
+                                FamilyMetrics metrics, boolean tracksGets) {
+        List<ChangeObserver> batched = new ArrayList<ChangeObserver>(Arrays.asList(changeObservers));
+        hasViews = batched.remove(View.TARGETED_CHANGE_OBSERVER);
+        ChangeObserver[] batchedObservers = hasViews ? batched.toArray(new ChangeObserver[0]) : changeObservers;
+        if (metrics != null) {
+            changeMiddlewares = TimedParticipant.wrapChangeMiddlewares(changeMiddlewares, metrics);
+            changeObservers = TimedParticipant.wrapChangeObservers(changeObservers, metrics);
+            getMiddlewares = TimedParticipant.wrapGetMiddlewares(getMiddlewares, metrics);
+            getObservers = TimedParticipant.wrapGetObservers(getObservers, metrics);
+            batchedObservers = TimedParticipant.wrapChangeObservers(batchedObservers, metrics);
+        }
+        this.changeMiddlewares = changeMiddlewares;
+        this.changeObservers = changeObservers;
+        this.getMiddlewares = getMiddlewares;
+        this.getObservers = getObservers;
+        batchedChangeObservers = batchedObservers;
+        bypassesGet = getMiddlewares.length == 0 && getObservers.length == 0 && metrics == null && !tracksGets;
+        this.tracksGets = tracksGets;
+        bypassesChange = changeMiddlewares.length == 0 && changeObservers.length == 0 && metrics == null;
+        this.getSampler = getObservers.length == 0 ? null : getSampler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Count a {@code get} that didn't bypass the pipeline, if metrics are enabled.
+     */
+    void recordGet() {
+        if (metrics != null) {
+            metrics.recordGet();
+        }
+    }
+
+    /**
+     * Count a change that didn't bypass the pipeline, if metrics are enabled.
+     */
+    void recordChange() {
+        if (metrics != null) {
+            metrics.recordChange();
+        }
+    }
+
+    /**
+     * Return true if the current {@code get} should notify the {@code GetObserver}s, taking any sampling set on the
+     * family into account.
+     */
+    boolean samplesGet() {
+        return getSampler == null || getSampler.sample();
+    }
+
+    static ParticipantPipeline of(List<ChangeMiddleware> changeMiddlewares, List<ChangeObserver> changeObservers,
+                                  List<GetMiddleware> getMiddlewares, List<GetObserver> getObservers,
+                                  GetSampler getSampler, FamilyMetrics metrics, boolean tracksGets) {
+        if (metrics == null && !tracksGets && changeMiddlewares.isEmpty() && changeObservers.isEmpty() &&
+                getMiddlewares.isEmpty() && getObservers.isEmpty()) {
+            return EMPTY;
+        }
+        return new ParticipantPipeline(
+                changeMiddlewares.toArray(new ChangeMiddleware[0]),
+                changeObservers.toArray(new ChangeObserver[0]),
+                getMiddlewares.toArray(new GetMiddleware[0]),
+                getObservers.toArray(new GetObserver[0]),
+                getSampler,
+                metrics,
+                tracksGets);
+    }
+
+}
@@ -0,0 +1,607 @@
+package alex.mojaki.boxes;
+
+import alex.mojaki.boxes.metrics.FamilyMetrics;
+import alex.mojaki.boxes.metrics.LatencyHistogram;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.BooleanChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.IntChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.LongChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.DoubleChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.BooleanGetMiddleware;
+import alex.mojaki.boxes.middleware.get.IntGetMiddleware;
+import alex.mojaki.boxes.middleware.get.LongGetMiddleware;
+import alex.mojaki.boxes.middleware.get.DoubleGetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.BooleanChangeObserver;
+import alex.mojaki.boxes.observers.change.IntChangeObserver;
+import alex.mojaki.boxes.observers.change.LongChangeObserver;
+import alex.mojaki.boxes.observers.change.DoubleChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.BooleanGetObserver;
+import alex.mojaki.boxes.observers.get.IntGetObserver;
+import alex.mojaki.boxes.observers.get.LongGetObserver;
+import alex.mojaki.boxes.observers.get.DoubleGetObserver;
+
+/**
+ * Wraps a participant of a family with metrics enabled so that the time each call takes is recorded in the
+ * participant's {@link LatencyHistogram}. The wrappers only ever appear in a {@link ParticipantPipeline},
+ * never in the family's participant lists.
+ * <p>
+ * Participants of primitive values such as {@link IntChangeMiddleware} get wrappers implementing the same primitive
+ * interfaces, so that primitive boxes still call them without boxing and the times recorded are those of the
+ * primitive path.
+ */
+abstract class TimedParticipant {
+
+    final Object delegate;
+    final LatencyHistogram histogram;
+
+    private TimedParticipant(Object delegate, LatencyHistogram histogram) {
+        this.delegate = delegate;
+        this.histogram = histogram;
+    }
+
+    static ChangeMiddleware[] wrapChangeMiddlewares(ChangeMiddleware[] middlewares, FamilyMetrics metrics) {
+        ChangeMiddleware[] result = new ChangeMiddleware[middlewares.length];
+        for (int i = 0; i < middlewares.length; i++) {
+            result[i] = timedChangeMiddleware(middlewares[i], metrics.histogram(ChangeMiddleware.class, middlewares[i]));
+        }
+        return result;
+    }
+
+    static GetMiddleware[] wrapGetMiddlewares(GetMiddleware[] middlewares, FamilyMetrics metrics) {
+        GetMiddleware[] result = new GetMiddleware[middlewares.length];
+        for (int i = 0; i < middlewares.length; i++) {
+            result[i] = timedGetMiddleware(middlewares[i], metrics.histogram(GetMiddleware.class, middlewares[i]));
+        }
+        return result;
+    }
+
+    static ChangeObserver[] wrapChangeObservers(ChangeObserver[] observers, FamilyMetrics metrics) {
+        ChangeObserver[] result = new ChangeObserver[observers.length];
+        for (int i = 0; i < observers.length; i++) {
+            result[i] = timedChangeObserver(observers[i], metrics.histogram(ChangeObserver.class, observers[i]));
+        }
+        return result;
+    }
+
+    static GetObserver[] wrapGetObservers(GetObserver[] observers, FamilyMetrics metrics) {
+        GetObserver[] result = new GetObserver[observers.length];
+        for (int i = 0; i < observers.length; i++) {
+            result[i] = timedGetObserver(observers[i], metrics.histogram(GetObserver.class, observers[i]));
+        }
+        return result;
+    }
+
+    private static ChangeMiddleware timedChangeMiddleware(ChangeMiddleware participant, LatencyHistogram histogram) {
+        if (participant instanceof BooleanChangeMiddleware) {
+            return new TimedBooleanMiddleware(participant, histogram);
+        }
+        if (participant instanceof IntChangeMiddleware) {
+            return new TimedIntMiddleware(participant, histogram);
+        }
+        if (participant instanceof LongChangeMiddleware) {
+            return new TimedLongMiddleware(participant, histogram);
+        }
+        if (participant instanceof DoubleChangeMiddleware) {
+            return new TimedDoubleMiddleware(participant, histogram);
+        }
+        return new TimedMiddleware(participant, histogram);
+    }
+
+    private static GetMiddleware timedGetMiddleware(GetMiddleware participant, LatencyHistogram histogram) {
+        if (participant instanceof BooleanGetMiddleware) {
+            return new TimedBooleanMiddleware(participant, histogram);
+        }
+        if (participant instanceof IntGetMiddleware) {
+            return new TimedIntMiddleware(participant, histogram);
+        }
+        if (participant instanceof LongGetMiddleware) {
+            return new TimedLongMiddleware(participant, histogram);
+        }
+        if (participant instanceof DoubleGetMiddleware) {
+            return new TimedDoubleMiddleware(participant, histogram);
+        }
+        return new TimedMiddleware(participant, histogram);
+    }
+
+    private static ChangeObserver timedChangeObserver(ChangeObserver participant, LatencyHistogram histogram) {
+        if (participant instanceof BooleanChangeObserver) {
+            return new TimedBooleanObserver(participant, histogram);
+        }
+        if (participant instanceof IntChangeObserver) {
+            return new TimedIntObserver(participant, histogram);
+        }
+        if (participant instanceof LongChangeObserver) {
+            return new TimedLongObserver(participant, histogram);
+        }
+        if (participant instanceof DoubleChangeObserver) {
+            return new TimedDoubleObserver(participant, histogram);
+        }
+        return new TimedObserver(participant, histogram);
+    }
+
+    private static GetObserver timedGetObserver(GetObserver participant, LatencyHistogram histogram) {
+        if (participant instanceof BooleanGetObserver) {
+            return new TimedBooleanObserver(participant, histogram);
+        }
+        if (participant instanceof IntGetObserver) {
+            return new TimedIntObserver(participant, histogram);
+        }
+        if (participant instanceof LongGetObserver) {
+            return new TimedLongObserver(participant, histogram);
+        }
+        if (participant instanceof DoubleGetObserver) {
+            return new TimedDoubleObserver(participant, histogram);
+        }
+        return new TimedObserver(participant, histogram);
+    }
+
+    /**
+     * Return a copy of {@code participants} with any timing wrappers replaced by the participants they wrap,
+     * so that exceptions describe the participants the user actually added.
+     */
+    static Object[] unwrap(Object[] participants) {
+        Object[] result = new Object[participants.length];
+        for (int i = 0; i < participants.length; i++) {
+            Object participant = participants[i];
+            result[i] = participant instanceof TimedParticipant ? ((TimedParticipant) participant).delegate : participant;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Timed " + delegate;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedMiddleware extends TimedParticipant implements ChangeMiddleware, GetMiddleware {
+
+        TimedMiddleware(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public Object onChange(PowerBox box, Object originalValue, Object currentValue, Object requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((ChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Object onGet(PowerBox box, Object originalValue, Object currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((GetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedObserver extends TimedParticipant implements ChangeObserver, GetObserver {
+
+        TimedObserver(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((ChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox box, Object originalValue, Object finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((GetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedBooleanMiddleware extends TimedParticipant
+            implements BooleanChangeMiddleware, BooleanGetMiddleware {
+
+        TimedBooleanMiddleware(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public boolean onChange(PowerBox<Boolean> box, boolean originalValue, boolean currentValue, boolean requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((BooleanChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Boolean onChange(PowerBox<Boolean> box, Boolean originalValue, Boolean currentValue, Boolean requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((BooleanChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean onGet(PowerBox<Boolean> box, boolean originalValue, boolean currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((BooleanGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Boolean onGet(PowerBox<Boolean> box, Boolean originalValue, Boolean currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((BooleanGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedBooleanObserver extends TimedParticipant
+            implements BooleanChangeObserver, BooleanGetObserver {
+
+        TimedBooleanObserver(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public void onChange(PowerBox<Boolean> box, boolean originalValue, boolean finalValue, boolean requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((BooleanChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onChange(PowerBox<Boolean> box, Boolean originalValue, Boolean finalValue, Boolean requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((BooleanChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Boolean> box, boolean originalValue, boolean finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((BooleanGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Boolean> box, Boolean originalValue, Boolean finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((BooleanGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedIntMiddleware extends TimedParticipant
+            implements IntChangeMiddleware, IntGetMiddleware {
+
+        TimedIntMiddleware(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public int onChange(PowerBox<Integer> box, int originalValue, int currentValue, int requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((IntChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Integer onChange(PowerBox<Integer> box, Integer originalValue, Integer currentValue, Integer requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((IntChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int onGet(PowerBox<Integer> box, int originalValue, int currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((IntGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Integer onGet(PowerBox<Integer> box, Integer originalValue, Integer currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((IntGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedIntObserver extends TimedParticipant
+            implements IntChangeObserver, IntGetObserver {
+
+        TimedIntObserver(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public void onChange(PowerBox<Integer> box, int originalValue, int finalValue, int requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((IntChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((IntChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Integer> box, int originalValue, int finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((IntGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Integer> box, Integer originalValue, Integer finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((IntGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedLongMiddleware extends TimedParticipant
+            implements LongChangeMiddleware, LongGetMiddleware {
+
+        TimedLongMiddleware(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public long onChange(PowerBox<Long> box, long originalValue, long currentValue, long requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((LongChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Long onChange(PowerBox<Long> box, Long originalValue, Long currentValue, Long requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((LongChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public long onGet(PowerBox<Long> box, long originalValue, long currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((LongGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Long onGet(PowerBox<Long> box, Long originalValue, Long currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((LongGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedLongObserver extends TimedParticipant
+            implements LongChangeObserver, LongGetObserver {
+
+        TimedLongObserver(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public void onChange(PowerBox<Long> box, long originalValue, long finalValue, long requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((LongChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onChange(PowerBox<Long> box, Long originalValue, Long finalValue, Long requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((LongChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Long> box, long originalValue, long finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((LongGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Long> box, Long originalValue, Long finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((LongGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedDoubleMiddleware extends TimedParticipant
+            implements DoubleChangeMiddleware, DoubleGetMiddleware {
+
+        TimedDoubleMiddleware(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public double onChange(PowerBox<Double> box, double originalValue, double currentValue, double requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((DoubleChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Double onChange(PowerBox<Double> box, Double originalValue, Double currentValue, Double requestedValue) {
+            long start = System.nanoTime();
+            try {
+                return ((DoubleChangeMiddleware) delegate).onChange(box, originalValue, currentValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public double onGet(PowerBox<Double> box, double originalValue, double currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((DoubleGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public Double onGet(PowerBox<Double> box, Double originalValue, Double currentValue) {
+            long start = System.nanoTime();
+            try {
+                return ((DoubleGetMiddleware) delegate).onGet(box, originalValue, currentValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final class TimedDoubleObserver extends TimedParticipant
+            implements DoubleChangeObserver, DoubleGetObserver {
+
+        TimedDoubleObserver(Object delegate, LatencyHistogram histogram) {
+            super(delegate, histogram);
+        }
+
+        @Override
+        public void onChange(PowerBox<Double> box, double originalValue, double finalValue, double requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((DoubleChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onChange(PowerBox<Double> box, Double originalValue, Double finalValue, Double requestedValue) {
+            long start = System.nanoTime();
+            try {
+                ((DoubleChangeObserver) delegate).onChange(box, originalValue, finalValue, requestedValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Double> box, double originalValue, double finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((DoubleGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onGet(PowerBox<Double> box, Double originalValue, Double finalValue) {
+            long start = System.nanoTime();
+            try {
+                ((DoubleGetObserver) delegate).onGet(box, originalValue, finalValue);
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+}
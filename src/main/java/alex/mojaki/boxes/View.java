@@ -1,11 +1,28 @@
 package alex.mojaki.boxes;
 
-import alex.mojaki.boxes.exceptions.BoxParticipantException;
 import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
 import alex.mojaki.boxes.middleware.get.GetMiddleware;
 import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.InvalidationObserver;
 import alex.mojaki.boxes.observers.change.TargetedChangeObserver;
 import alex.mojaki.boxes.observers.get.GetObserver;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
 
 /**
  * A {@link PowerBox} whose value is calculated based on the values of other {@code PowerBox}es and knows when those
@@ -16,20 +33,178 @@ import alex.mojaki.boxes.observers.get.GetObserver;
  * possible will not necessarily speed up your program - it may even slow it down. You should use views for caching
  * only when the computation is slow or expensive.
  * <p>
+ * Views can be read from many threads at once. Each change to a box the view depends on increments a stamp, and a
+ * calculated value is only cached along with the stamp at which its calculation began, so a reader never sees a
+ * value older than the last change it could have seen. Threads that find the cache invalid at the same time share a
+ * single call to {@link View#calculate()}.
+ * <p>
+ * A view with {@code ChangeObserver}s normally calculates its new value as soon as a box it depends on changes. A
+ * view in {@link View#lazy() lazy} mode only invalidates its cache and notifies its {@link InvalidationObserver}s,
+ * and the {@code ChangeObserver}s are told about the change when the value is next calculated.
+ * <p>
+ * Instead of listing the boxes a view depends on, a view can {@link View#trackDependencies() track} which boxes
+ * its calculation reads and depend on exactly those, for families that allow it.
+ * <p>
+ * A view whose boxes keep returning to the same few combinations of values can {@link View#memoize(int) memoize}
+ * its results to avoid calculating them again. To have a family of views choose between caching eagerly, lazily or
+ * not at all based on how they're actually used, make them {@link View#adaptive() adaptive}.
+ * <p>
  * The {@link PowerBox#set(Object)} method and the use of {@link ChangeMiddleware} are unsupported.
  *
  * @param <T> the type of the calculated value
  */
 public abstract class View<T> extends CommonBox<T> {
 
-    private static final TargetedChangeObserver<Object, View> TARGETED_CHANGE_OBSERVER = new TargetedChangeObserver<Object, View>() {
-        @Override
-        public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue, View target) {
-            target.update();
+    /**
+     * Added to every box a view depends on. {@link ChangeBatch} calls it as soon as a box changes, rather than along
+     * with the other observers at the end of the batch, so that views never return stale values inside a batch.
+     */
+    static final TargetedChangeObserver<Object, View> TARGETED_CHANGE_OBSERVER = BoxFamily.internalObserver(
+            new TargetedChangeObserver<Object, View>() {
+
+                /**
+                 * Start a {@link ViewPropagation} for the views depending on {@code box}, unless one is already running
+                 * on this thread or a batch is active, in which case the views join those instead.
+                 */
+                @Override
+                public void onChange(PowerBox<Object> box, Object originalValue,
+                                     Object finalValue, Object requestedValue) {
+                    if (ChangeBatch.current() != null || ViewPropagation.active() != null) {
+                        super.onChange(box, originalValue, finalValue, requestedValue);
+                        return;
+                    }
+                    ViewPropagation propagation = ViewPropagation.begin();
+                    try {
+                        super.onChange(box, originalValue, finalValue, requestedValue);
+                        propagation.run();
+                    } finally {
+                        propagation.end();
+                    }
+                }
+
+                @Override
+                public void onChange(PowerBox box, Object originalValue,
+                                     Object finalValue, Object requestedValue, View target) {
+                    target.update();
+                }
+            });
+
+    private static final AtomicLongFieldUpdater<View> STAMP_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(View.class, "stamp");
+
+    private static final AtomicReferenceFieldUpdater<View, Computation> IN_FLIGHT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(View.class, Computation.class, "inFlight");
+
+    private static final AtomicReferenceFieldUpdater<View, Object> UNNOTIFIED_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(View.class, Object.class, "unnotified");
+
+    /**
+     * The value of {@code unnotified} while a lazy view's {@code ChangeObserver}s are up to date.
+     */
+    private static final Object NOTIFIED = new Object();
+
+    /**
+     * Greater than the rank of every view this view depends on, so that a {@link ViewPropagation} can update views
+     * in topological order. Views depending only on boxes that aren't views have rank 0.
+     */
+    volatile int rank;
+
+    /**
+     * Incremented every time a box this view depends on changes.
+     */
+    private volatile long stamp;
+
+    /**
+     * The most recently calculated value, which is valid if it was calculated at the current stamp.
+     */
+    private volatile Cached<T> cache;
+
+    /**
+     * The calculation currently running, if any, which other threads wait for instead of calculating themselves.
+     */
+    private volatile Computation<T> inFlight;
+
+    private volatile boolean lazy;
+
+    /**
+     * In lazy mode, the value the {@code ChangeObserver}s last saw if the view has been invalidated since, otherwise
+     * {@link View#NOTIFIED}.
+     */
+    private volatile Object unnotified = NOTIFIED;
+
+    private final List<InvalidationObserver<T>> invalidationObservers =
+            new CopyOnWriteArrayList<InvalidationObserver<T>>();
+
+    /**
+     * The boxes this view was subscribed to because its last calculations read them, or null if it doesn't
+     * {@link View#trackDependencies() track its dependencies}. The contents are guarded by this view.
+     */
+    private volatile Set<PowerBox> trackedBoxes;
+
+    /**
+     * The boxes given to the constructor or {@link View#addBoxes(PowerBox[])}, which key the memo table.
+     * Replaced rather than modified, under the lock of this view.
+     */
+    private volatile PowerBox[] boxes = new PowerBox[0];
+
+    /**
+     * Results by the values of {@code boxes} they were calculated from, or null if this view isn't
+     * {@link View#memoize(int) memoized}. Null results are stored as absent.
+     */
+    private volatile Cache<List<Object>, Optional<T>> memo;
+
+    /**
+     * The policy of this view's family if this view is {@link View#adaptive() adaptive}, otherwise null.
+     */
+    private volatile AdaptiveViewPolicy policy;
+
+    /**
+     * A value together with the stamp at which its calculation started. Immutable so that readers on other threads
+     * never see a value paired with the wrong stamp.
+     */
+    private static final class Cached<T> {
+        final long stamp;
+        final T value;
+
+        Cached(long stamp, T value) {
+            this.stamp = stamp;
+            this.value = value;
+        }
+    }
+
+    private static final class Computation<T> {
+        final long stamp;
+        final Thread thread = Thread.currentThread();
+        final CountDownLatch done = new CountDownLatch(1);
+        T value;
+        Throwable failure;
+
+        Computation(long stamp) {
+            this.stamp = stamp;
         }
-    };
 
-    private boolean cacheValid = false;
+        T await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            return value;
+        }
+    }
 
     /**
      * Construct a view with the given family and whose value depends on the given boxes
@@ -57,34 +232,319 @@ public abstract class View<T> extends CommonBox<T> {
      * boxes given in the constructor.
      */
     public void addBoxes(PowerBox... boxes) {
+        synchronized (this) {
+            PowerBox[] newBoxes = Arrays.copyOf(this.boxes, this.boxes.length + boxes.length);
+            System.arraycopy(boxes, 0, newBoxes, this.boxes.length, boxes.length);
+            this.boxes = newBoxes;
+        }
         for (PowerBox box : boxes) {
             //noinspection unchecked
             TARGETED_CHANGE_OBSERVER.register(box, this);
+            if (box instanceof View) {
+                raiseRank(((View) box).rank + 1);
+            }
+        }
+    }
+
+    /**
+     * Switch this view to lazy mode, where a change to a box it depends on doesn't calculate a new value even if the
+     * view has {@code ChangeObserver}s. Instead the cache is invalidated, the {@link InvalidationObserver}s are
+     * notified, and views depending on this one are invalidated in turn. The next call to {@link PowerBox#get()}
+     * calculates the value and then notifies the {@code ChangeObserver}s once with the value they last saw and the
+     * new one, however many changes happened in between. This turns one calculation per change into at most one per
+     * read, which suits expensive views over boxes that change more often than the view is read.
+     * <p>
+     * The {@code ChangeObserver}s are therefore notified on the reading thread, after the changes that caused them
+     * have completed, and can't stop those changes by throwing an exception. If one does throw, the exception is
+     * thrown by {@code get} and the view stays invalid, so the next read tries again. A view depending on this one
+     * which is not itself lazy but has {@code ChangeObserver}s still calculates eagerly, reading this view as it
+     * does so.
+     */
+    public View<T> lazy() {
+        lazy = true;
+        return this;
+    }
+
+    /**
+     * Return whether this view is in {@link View#lazy() lazy} mode.
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Make this view depend on the boxes that {@link View#calculate()} actually reads, in addition to any given in the
+     * constructor or {@link View#addBoxes(PowerBox[])}. Every call to {@code get} during a calculation on a box whose
+     * family has {@link BoxFamily#enableDependencyTracking() enabled dependency tracking} subscribes this view to that
+     * box, before the value is read so that no change can be missed, and after each calculation the view unsubscribes
+     * from the boxes it no longer read. Boxes in other families must be given to the view as usual. A view that reads {@code a} or {@code b}
+     * depending on a flag therefore only recalculates when the flag or the box currently in use changes.
+     * <p>
+     * Reads by a view that this view reads belong to that view, so this view depends on it rather than on its boxes.
+     * Boxes read through other means, such as the {@code rawGet} method or a field of an object in a box, are not
+     * tracked, and the rules for {@code calculate} still apply to them.
+     */
+    public synchronized View<T> trackDependencies() {
+        if (memo != null) {
+            throw new IllegalStateException("A memoized view can't track its dependencies");
+        }
+        if (trackedBoxes == null) {
+            trackedBoxes = Collections.newSetFromMap(new IdentityHashMap<PowerBox, Boolean>());
+            // Calculate again so that the boxes read are tracked, in case the value was cached without them
+            STAMP_UPDATER.incrementAndGet(this);
+        }
+        return this;
+    }
+
+    /**
+     * Return whether this view {@link View#trackDependencies() tracks its dependencies}.
+     */
+    public boolean tracksDependencies() {
+        return trackedBoxes != null;
+    }
+
+    /**
+     * Keep up to {@code maximumSize} results of {@link View#calculate()}, keyed by the values of the boxes given to the
+     * constructor or {@link View#addBoxes(PowerBox[])}, so that when the boxes return to a combination of values seen
+     * before, the result is reused instead of being calculated again. When the table is full the least recently used
+     * result is evicted. Use {@link View#getMemoStats()} to see how often results are reused and tune the size.
+     * <p>
+     * Reading the values of the boxes to find a result is not free, so this only pays off for expensive views whose
+     * boxes often revisit old values, such as a mode and a currency. The values must be immutable and have proper
+     * {@code equals} and {@code hashCode} methods, so boxes such as {@code WrapperBox}es whose values are mutated in
+     * place can't be used, and neither can {@link View#trackDependencies() dependency tracking}.
+     */
+    public synchronized View<T> memoize(int maximumSize) {
+        if (trackedBoxes != null) {
+            throw new IllegalStateException("A view tracking its dependencies can't be memoized");
+        }
+        if (memo == null) {
+            // A single segment so that eviction is least recently used across the whole table
+            memo = CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(maximumSize).recordStats().build();
+        }
+        return this;
+    }
+
+    /**
+     * Return whether this view is {@link View#memoize(int) memoized}.
+     */
+    public boolean isMemoized() {
+        return memo != null;
+    }
+
+    /**
+     * Return the hits, misses and evictions of the memo table of this view.
+     *
+     * @throws IllegalStateException if this view isn't {@link View#memoize(int) memoized}
+     */
+    public CacheStats getMemoStats() {
+        Cache<List<Object>, Optional<T>> memo = this.memo;
+        if (memo == null) {
+            throw new IllegalStateException("This view isn't memoized");
+        }
+        return memo.stats();
+    }
+
+    /**
+     * Let the {@link AdaptiveViewPolicy} of this view's family decide whether this view recalculates on every read,
+     * calculates lazily when read after a change, or calculates eagerly when a box changes, based on how long it takes
+     * to calculate and how often it is read and invalidated. The policy measures every adaptive view in the family,
+     * so this is usually called in the constructor of a subclass. {@link View#lazy()} still takes precedence over
+     * eager mode.
+     */
+    public synchronized View<T> adaptive() {
+        if (policy == null) {
+            policy = getFamily().viewPolicy();
+        }
+        return this;
+    }
+
+    /**
+     * Return the {@link AdaptiveViewPolicy} of this view's family, or null if this view isn't
+     * {@link View#adaptive() adaptive}.
+     */
+    public AdaptiveViewPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Subscribe to {@code box}, which is about to be read by a calculation of this view, unless already subscribed.
+     */
+    synchronized void track(PowerBox box) {
+        @SuppressWarnings("unchecked")
+        PowerBox<Object> dependency = box;
+        if (trackedBoxes.contains(box) || TARGETED_CHANGE_OBSERVER.getTargets(dependency).contains(this)) {
+            return;
+        }
+        trackedBoxes.add(box);
+        TARGETED_CHANGE_OBSERVER.register(dependency, this);
+        if (box instanceof View) {
+            raiseRank(((View) box).rank + 1);
+        }
+    }
+
+    /**
+     * Unsubscribe from the tracked boxes that the calculation started at {@code calculationStamp} didn't read, unless
+     * a box has changed since, in which case a newer calculation may be relying on them.
+     */
+    private synchronized void untrackUnread(Set<PowerBox> read, long calculationStamp) {
+        if (stamp != calculationStamp) {
+            return;
+        }
+        for (Iterator<PowerBox> iterator = trackedBoxes.iterator(); iterator.hasNext(); ) {
+            PowerBox box = iterator.next();
+            if (!read.contains(box)) {
+                iterator.remove();
+                //noinspection unchecked
+                TARGETED_CHANGE_OBSERVER.unregister(box, this);
+            }
+        }
+    }
+
+    /**
+     * Add observers to be notified when this view becomes stale in {@link View#lazy() lazy} mode. Unlike other
+     * participants these belong to this view rather than its family.
+     */
+    @SafeVarargs
+    public final View<T> addInvalidationObserver(InvalidationObserver<T>... observers) {
+        for (InvalidationObserver<T> observer : observers) {
+            invalidationObservers.add(observer);
+        }
+        return this;
+    }
+
+    /**
+     * Make sure this view's rank is at least {@code minimum}, raising the ranks of the views depending on it as well
+     * if needed, which only happens when {@link View#addBoxes(PowerBox[])} is called on a view something already
+     * depends on.
+     */
+    private synchronized void raiseRank(int minimum) {
+        if (rank >= minimum) {
+            return;
+        }
+        rank = minimum;
+        @SuppressWarnings("unchecked")
+        PowerBox<Object> self = (PowerBox) this;
+        for (View dependent : TARGETED_CHANGE_OBSERVER.getTargets(self)) {
+            dependent.raiseRank(minimum + 1);
         }
     }
 
     /**
      * Indicate that one of the boxes that this view depends on has changed in value, meaning that this view has likely
-     * changed its value as well. If this view has any {@code ChangeObserver}s they will be notified immediately
-     * with a new value from the {@link View#calculate()} method.
+     * changed its value as well. The cache is invalidated immediately. If this view has any {@code ChangeObserver}s
+     * it is also queued in the current {@link ViewPropagation}, which later calls {@link View#propagate(Object)} to
+     * notify them with a new value from the {@link View#calculate()} method.
      * Since there is no middleware involved, the last two parameters of
      * {@link ChangeObserver#onChange(PowerBox, Object, Object, Object)} will be the same.
-     * If a new value is successfully calculated, the cache will now be valid. Otherwise it will now be invalid.
-     */
-    private void update() {
-        if (!getFamily().getChangeObservers().isEmpty()) {
-            T oldValue = value;
-            calculateAndCache();
-            try {
-                notifyChangeObservers(oldValue, value, value);
-            } catch (BoxParticipantException e) {
-                value = oldValue;
-                cacheValid = false;
-                throw e;
+     * <p>
+     * Inside {@link Boxes#batch(Runnable)}, the caches of this view and the views depending on it are invalidated and
+     * the calculation and notification are put off until the end of the batch, so that they happen once no matter
+     * how many of the boxes changed.
+     */
+    void update() {
+        STAMP_UPDATER.incrementAndGet(this);
+        AdaptiveViewPolicy policy = this.policy;
+        if (policy != null) {
+            policy.recordInvalidation();
+        }
+        // Once a change has been deferred, changes stay deferred until it's delivered, so it's never delivered twice
+        if (lazy || unnotified != NOTIFIED || policy != null && policy.defersCalculation()) {
+            updateLazily();
+            return;
+        }
+        if (getFamily().getChangeObservers().isEmpty()) {
+            return;
+        }
+        T oldValue = lastValue();
+        ChangeBatch batch = ChangeBatch.current();
+        if (batch != null) {
+            batch.addView(this, oldValue);
+            // Views that depend on this one must also stop returning their cached values immediately
+            //noinspection unchecked
+            TARGETED_CHANGE_OBSERVER.onChange((PowerBox) this, oldValue, oldValue, oldValue);
+            return;
+        }
+        ViewPropagation.active().add(this, oldValue);
+    }
+
+    /**
+     * Invalidate this view without calculating anything. Only the first change since the value was last calculated
+     * notifies the {@link InvalidationObserver}s and invalidates the views depending on this one: until this view is
+     * calculated again, nothing depending on it can have calculated a value either.
+     */
+    @SuppressWarnings("unchecked")
+    private void updateLazily() {
+        T oldValue = lastValue();
+        if (!UNNOTIFIED_UPDATER.compareAndSet(this, NOTIFIED, oldValue)) {
+            return;
+        }
+        int i = 0;
+        Object[] observers = invalidationObservers.toArray();
+        try {
+            for (; i < observers.length; i++) {
+                ((InvalidationObserver<T>) observers[i]).onInvalidate(this);
             }
-        } else {
-            cacheValid = false;
+        } catch (Throwable throwable) {
+            throw participantFailure(InvalidationObserver.class, observers, i, throwable,
+                    oldValue, null, oldValue, null);
+        }
+        if (getFamily().pipeline().hasViews) {
+            TARGETED_CHANGE_OBSERVER.onChange((PowerBox) this, oldValue, oldValue, oldValue);
+        }
+    }
+
+    /**
+     * Tell the {@code ChangeObserver}s of a lazy view about the value just calculated. The views depending on this
+     * one were already invalidated by {@link View#updateLazily()}, so the observer that updates them is skipped.
+     */
+    @SuppressWarnings("unchecked")
+    private void notifyLazily(Object oldValue, T newValue) {
+        Object unnotifiedValue = unnotified;
+        if (unnotifiedValue != NOTIFIED) {
+            // A box changed during the calculation, so the next notification should start from the value we're
+            // about to deliver rather than whatever was cached when it changed
+            UNNOTIFIED_UPDATER.compareAndSet(this, unnotifiedValue, newValue);
         }
+        ParticipantPipeline pipeline = getFamily().pipeline();
+        pipeline.recordChange();
+        notifyChangeObservers(pipeline.batchedChangeObservers, (T) oldValue, newValue, newValue);
+    }
+
+    /**
+     * Called by a {@link ViewPropagation} once every view this one depends on has been updated. If a new value is
+     * successfully calculated and the observers accept it, the cache will now be valid.
+     */
+    @SuppressWarnings("unchecked")
+    void propagate(Object oldValue) {
+        T newValue = cachedGet();
+        notifyChangeObservers((T) oldValue, newValue, newValue);
+    }
+
+    /**
+     * Invalidate the cache after a failed propagation, keeping {@code oldValue} as the original value of the next
+     * change, as if the view had never been updated.
+     */
+    @SuppressWarnings("unchecked")
+    void invalidate(Object oldValue) {
+        cache = new Cached<T>(-1, (T) oldValue);
+        STAMP_UPDATER.incrementAndGet(this);
+    }
+
+    private T lastValue() {
+        Cached<T> cached = cache;
+        return cached == null ? null : cached.value;
+    }
+
+    /**
+     * Called by a {@link ChangeBatch} once the boxes this view depends on have been notified. The value is only
+     * calculated if it hasn't been already, e.g. by a view depending on this one that was updated first. Since the
+     * batch is still active the notification is recorded and delivered in the next round.
+     */
+    @SuppressWarnings("unchecked")
+    void updateAfterBatch(Object oldValue) {
+        T newValue = cachedGet();
+        notifyChangeObservers((T) oldValue, newValue, newValue);
     }
 
     // @formatter:off
@@ -113,23 +573,157 @@ public abstract class View<T> extends CommonBox<T> {
      * <p>
      * When {@link PowerBox#get()} is called, {@code calculate()} will be called only if a box has changed its value
      * since the previous call to {@code calculate()}. In addition, if the view has any {@code ChangeObserver}s added,
-     * {@code calculate()} is called every time one of the boxes changes, i.e. the value of view might change.
+     * {@code calculate()} is called every time one of the boxes changes, i.e. the value of view might change,
+     * unless the view is in {@link View#lazy() lazy} mode.
      */
     // @formatter:on
     public abstract T calculate();
 
+    /**
+     * Return the value of this view for a reader, as a cached value from {@link View#cachedGet()} unless the
+     * {@link AdaptiveViewPolicy} of an adaptive view has decided that caching isn't worth it.
+     */
     @Override
     protected T rawGet() {
-        if (cacheValid) {
-            return value;
+        AdaptiveViewPolicy policy = this.policy;
+        if (policy != null) {
+            policy.recordRead();
+            if (policy.getMode() == AdaptiveViewPolicy.Mode.RECOMPUTE && unnotified == NOTIFIED && memo == null) {
+                return calculateMeasured(stamp);
+            }
         }
-        calculateAndCache();
-        return value;
+        return cachedGet();
     }
 
-    private void calculateAndCache() {
-        value = calculate();
-        cacheValid = true;
+    /**
+     * Return the cached value if no box this view depends on has changed since it was calculated, otherwise
+     * calculate it. This is safe to call from many threads: only one of them calls {@link View#calculate()} for a
+     * given state of the boxes, and the others wait for its result. A value is only treated as cached if no box
+     * changed while it was being calculated, so a change is never lost, although the thread that calculated it still
+     * returns it.
+     */
+    @SuppressWarnings("unchecked")
+    private T cachedGet() {
+        while (true) {
+            long currentStamp = stamp;
+            Cached<T> cached = cache;
+            if (cached != null && cached.stamp == currentStamp) {
+                return cached.value;
+            }
+            Computation<T> computation = inFlight;
+            if (computation != null && computation.stamp == currentStamp) {
+                if (computation.thread == Thread.currentThread()) {
+                    // calculate() depends on this view, so there's no point waiting for ourselves
+                    return calculate();
+                }
+                return computation.await();
+            }
+            Computation<T> newComputation = new Computation<T>(currentStamp);
+            if (IN_FLIGHT_UPDATER.compareAndSet(this, computation, newComputation)) {
+                return compute(newComputation);
+            }
+        }
+    }
+
+    private T compute(Computation<T> computation) {
+        // Taken before calculating so that a change during the calculation invalidates the view again
+        Object unnotifiedValue = unnotified == NOTIFIED ? NOTIFIED : UNNOTIFIED_UPDATER.getAndSet(this, NOTIFIED);
+        try {
+            Cache<List<Object>, Optional<T>> memo = this.memo;
+            T result = memo == null ? calculateMeasured(computation.stamp) : calculateMemoized(memo, computation.stamp);
+            computation.value = result;
+            // If the stamp has moved on, this can never be mistaken for a valid value
+            cache = new Cached<T>(computation.stamp, result);
+            if (unnotifiedValue != NOTIFIED) {
+                notifyLazily(unnotifiedValue, result);
+            }
+            return result;
+        } catch (Throwable throwable) {
+            computation.failure = throwable;
+            if (unnotifiedValue != NOTIFIED) {
+                // Stay invalid so that the next read calculates and notifies again
+                UNNOTIFIED_UPDATER.compareAndSet(this, NOTIFIED, unnotifiedValue);
+                STAMP_UPDATER.incrementAndGet(this);
+            }
+            throw throwable;
+        } finally {
+            IN_FLIGHT_UPDATER.compareAndSet(this, computation, null);
+            computation.done.countDown();
+        }
+    }
+
+    /**
+     * Calculate the value, timing the calculation for the {@link AdaptiveViewPolicy} if this view is adaptive.
+     */
+    private T calculateMeasured(long calculationStamp) {
+        AdaptiveViewPolicy policy = this.policy;
+        if (policy == null) {
+            return calculateTracked(calculationStamp);
+        }
+        long start = System.nanoTime();
+        try {
+            return calculateTracked(calculationStamp);
+        } finally {
+            policy.recordCalculation(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Call {@link View#calculate()}, tracking the boxes it reads if this view tracks its dependencies, and otherwise
+     * making sure its reads aren't attributed to a view further out whose calculation reads this one.
+     */
+    private T calculateTracked(long calculationStamp) {
+        boolean tracking = tracksDependencies();
+        DependencyTracker tracker = tracking ? DependencyTracker.begin(this) : DependencyTracker.suspend();
+        if (tracker == null) {
+            return calculate();
+        }
+        T result;
+        Set<PowerBox> read;
+        try {
+            result = calculate();
+        } finally {
+            read = tracker.end();
+        }
+        if (tracking) {
+            untrackUnread(read, calculationStamp);
+        }
+        return result;
+    }
+
+    /**
+     * Return the memoized result for the current values of the boxes, or calculate and memoize it. A result is only
+     * stored if no box changed during the calculation and the values are the same afterwards, so that it can't be
+     * stored under values it wasn't calculated from.
+     */
+    private T calculateMemoized(Cache<List<Object>, Optional<T>> memo, long calculationStamp) {
+        List<Object> key = memoKey();
+        Optional<T> memoized = memo.getIfPresent(key);
+        if (memoized != null) {
+            return memoized.orNull();
+        }
+        T result = calculateMeasured(calculationStamp);
+        if (stamp == calculationStamp && key.equals(memoKey())) {
+            memo.put(key, Optional.fromNullable(result));
+        }
+        return result;
+    }
+
+    private List<Object> memoKey() {
+        PowerBox[] boxes = this.boxes;
+        Object[] values = new Object[boxes.length];
+        // The reads belong to this view, not to a view further out whose calculation reads this one
+        DependencyTracker tracker = DependencyTracker.suspend();
+        try {
+            for (int i = 0; i < boxes.length; i++) {
+                values[i] = boxes[i].get();
+            }
+        } finally {
+            if (tracker != null) {
+                tracker.end();
+            }
+        }
+        return Arrays.asList(values);
     }
 
     @Override
@@ -137,6 +731,38 @@ public abstract class View<T> extends CommonBox<T> {
         throw new UnsupportedOperationException("You cannot set a value on a view. It must be calculated.");
     }
 
+    // The atomic operations of DefaultPowerBox are unsupported for the same reason as set
+
+    @Override
+    public boolean compareAndSet(T expectedValue, T newValue) {
+        throw new UnsupportedOperationException("You cannot set a value on a view. It must be calculated.");
+    }
+
+    @Override
+    public T getAndSet(T newValue) {
+        throw new UnsupportedOperationException("You cannot set a value on a view. It must be calculated.");
+    }
+
+    @Override
+    public T updateAndGet(UnaryOperator<T> function) {
+        throw new UnsupportedOperationException("You cannot set a value on a view. It must be calculated.");
+    }
+
+    @Override
+    public T getAndUpdate(UnaryOperator<T> function) {
+        throw new UnsupportedOperationException("You cannot set a value on a view. It must be calculated.");
+    }
+
+    @Override
+    public T accumulateAndGet(T x, BinaryOperator<T> function) {
+        throw new UnsupportedOperationException("You cannot set a value on a view. It must be calculated.");
+    }
+
+    @Override
+    public T getAndAccumulate(T x, BinaryOperator<T> function) {
+        throw new UnsupportedOperationException("You cannot set a value on a view. It must be calculated.");
+    }
+
     // Specifying the return type for chaining
 
     @Override
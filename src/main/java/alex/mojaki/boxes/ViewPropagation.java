@@ -0,0 +1,110 @@
+package alex.mojaki.boxes;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Updates the {@link View}s affected by a change in topological order, so that each view is recalculated at most
+ * once per change and never sees a mix of old and new values from the views it depends on.
+ * <p>
+ * When a box that views depend on changes, the views are only invalidated and queued. They are then taken off the
+ * queue in order of their {@link View#rank}, which is always greater than the rank of every view they depend on,
+ * recalculated and their observers notified, which queues the views depending on them in turn. By the time a view is
+ * recalculated, every view it depends on that was affected has already been recalculated, and any that weren't
+ * reached yet have been invalidated so they will calculate a fresh value when read.
+ * <p>
+ * There is at most one propagation active on each thread. Changes to other boxes made by observers while it's
+ * running join it rather than starting their own. The instance for each thread is reused to avoid allocating.
+ */
+final class ViewPropagation {
+
+    private static final ThreadLocal<ViewPropagation> CURRENT = new ThreadLocal<ViewPropagation>() {
+        @Override
+        protected ViewPropagation initialValue() {
+            return new ViewPropagation();
+        }
+    };
+
+    private static final Comparator<View> RANK_ORDER = new Comparator<View>() {
+        @Override
+        public int compare(View a, View b) {
+            return Integer.compare(a.rank, b.rank);
+        }
+    };
+
+    private boolean active;
+
+    private final PriorityQueue<View> queue = new PriorityQueue<View>(11, RANK_ORDER);
+
+    /**
+     * The queued views, each with the value it had before it was queued, to notify its observers with.
+     */
+    private final Map<View, Object> pending = new IdentityHashMap<View, Object>();
+
+    /**
+     * Every view queued during this propagation with the value it had before the propagation started,
+     * to restore if the propagation fails.
+     */
+    private final Map<View, Object> originalValues = new IdentityHashMap<View, Object>();
+
+    /**
+     * Return the propagation running on this thread, or null if there isn't one.
+     */
+    static ViewPropagation active() {
+        ViewPropagation propagation = CURRENT.get();
+        return propagation.active ? propagation : null;
+    }
+
+    /**
+     * Start a propagation on this thread, which must not have one active already. Queue views with
+     * {@link ViewPropagation#add(View, Object)} and then call {@link ViewPropagation#run()}, and finally
+     * {@link ViewPropagation#end()} in a {@code finally} block.
+     */
+    static ViewPropagation begin() {
+        ViewPropagation propagation = CURRENT.get();
+        propagation.active = true;
+        return propagation;
+    }
+
+    /**
+     * Queue {@code view}, which has already been invalidated, unless it's already waiting.
+     */
+    void add(View view, Object oldValue) {
+        if (pending.containsKey(view)) {
+            return;
+        }
+        pending.put(view, oldValue);
+        if (!originalValues.containsKey(view)) {
+            originalValues.put(view, oldValue);
+        }
+        queue.add(view);
+    }
+
+    /**
+     * Recalculate the queued views in order of rank until none are left. If one of them or its observers throws,
+     * every view touched by this propagation is invalidated, keeping its original value as the original value of
+     * the next change, and the exception is rethrown.
+     */
+    void run() {
+        try {
+            View view;
+            while ((view = queue.poll()) != null) {
+                view.propagate(pending.remove(view));
+            }
+        } catch (Throwable throwable) {
+            for (Map.Entry<View, Object> entry : originalValues.entrySet()) {
+                entry.getKey().invalidate(entry.getValue());
+            }
+            throw throwable;
+        }
+    }
+
+    void end() {
+        active = false;
+        queue.clear();
+        pending.clear();
+        originalValues.clear();
+    }
+}
@@ -56,12 +56,25 @@ import java.util.Objects;
  */
 public abstract class WrapperBox<T> extends CommonBox<T> {
 
-    protected static final TargetedChangeObserver<?, WrapperBox> TARGETED_CHANGE_OBSERVER = new TargetedChangeObserver<Object, WrapperBox>() {
-        @Override
-        public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue, WrapperBox target) {
-            target.change();
-        }
-    };
+    protected static final TargetedChangeObserver<?, WrapperBox> TARGETED_CHANGE_OBSERVER = internalObserver(
+            new TargetedChangeObserver<Object, WrapperBox>() {
+                @Override
+                public void onChange(PowerBox box, Object originalValue,
+                                     Object finalValue, Object requestedValue, WrapperBox target) {
+                    target.change();
+                }
+            });
+
+    /**
+     * Mark {@code observer} as one that keeps wrapper boxes up to date, like
+     * {@link WrapperBox#TARGETED_CHANGE_OBSERVER}, so that it's still applied while a family bypasses its participants.
+     *
+     * @return the same observer
+     * @see BoxFamily#bypassParticipants()
+     */
+    protected static <O extends ChangeObserver> O internalObserver(O observer) {
+        return BoxFamily.internalObserver(observer);
+    }
 
     public WrapperBox(BoxFamily family) {
         super(family);
@@ -0,0 +1,66 @@
+package alex.mojaki.boxes.bus;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+/**
+ * A slot in the ring of a {@link ChangeEventBus}, holding the details of one change to a box. The same objects are
+ * reused for every lap of the ring, so a {@link ChangeEventHandler} must not keep a reference to an event after
+ * {@link ChangeEventHandler#onEvent(ChangeEvent, boolean)} returns. Copy out the values it needs instead.
+ * <p>
+ * The values are the arguments that the bus received as a {@link ChangeObserver}.
+ */
+public final class ChangeEvent {
+
+    private long sequence = -1;
+    private PowerBox<?> box;
+    private BoxFamily family;
+    private Object originalValue;
+    private Object finalValue;
+    private Object requestedValue;
+
+    ChangeEvent() {
+    }
+
+    void set(long sequence, PowerBox<?> box, Object originalValue, Object finalValue, Object requestedValue) {
+        this.sequence = sequence;
+        this.box = box;
+        this.family = box.getFamily();
+        this.originalValue = originalValue;
+        this.finalValue = finalValue;
+        this.requestedValue = requestedValue;
+    }
+
+    /**
+     * Return the position of this event in the sequence of all events published to the bus, starting from 0.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public PowerBox<?> getBox() {
+        return box;
+    }
+
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+    public Object getOriginalValue() {
+        return originalValue;
+    }
+
+    public Object getFinalValue() {
+        return finalValue;
+    }
+
+    public Object getRequestedValue() {
+        return requestedValue;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent " + sequence + " of " + (family == null ? "nothing" : family.description());
+    }
+}
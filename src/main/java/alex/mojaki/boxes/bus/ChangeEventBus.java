@@ -0,0 +1,288 @@
+package alex.mojaki.boxes.bus;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.observers.change.AsyncChangeObserver;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ChangeObserver} that copies every change it observes into a fixed-size ring of preallocated
+ * {@link ChangeEvent}s, from which any number of {@link Consumer}s read them in batches on their own threads.
+ * Publishing an event doesn't allocate anything, so this is suitable for feeding very high rates of changes from
+ * many families into something like an event log:
+ * <pre>{@code
+ *  ChangeEventBus bus = new ChangeEventBus(1024, WaitStrategies.sleeping(100000));
+ *  ChangeEventBus.Consumer consumer = bus.addConsumer(handler, failureHandler);
+ *  new Thread(consumer).start();
+ *  family1.addChangeObserver(bus);
+ *  family2.addChangeObserver(bus);
+ * }</pre>
+ * Every consumer sees every event, in the order they were published. When the ring is full, producers (the threads
+ * calling {@code set}) wait for the slowest consumer to make room, so consumers must keep up with the overall rate.
+ * A bus without consumers simply overwrites old events.
+ * <p>
+ * For the same reason, a handler must not publish to its own bus, e.g. by setting a box the bus observes: its
+ * consumer can't move on until the handler returns, so once the ring filled up the handler would wait for itself
+ * forever. Instead of deadlocking like that, publishing from a thread that is running one of the bus's handlers
+ * throws an {@link IllegalStateException}, which the box passes on as usual.
+ * <p>
+ * Events in the ring keep references to boxes and values until their slot is reused, so a large ring holding large
+ * values can retain a fair amount of memory. As with {@link AsyncChangeObserver}, the values of a
+ * {@code WrapperBox} are the box itself, so its contents may have changed again by the time a consumer sees them.
+ */
+public class ChangeEventBus implements ChangeObserver<Object> {
+
+    private final int mask;
+    private final ChangeEvent[] events;
+
+    /**
+     * The sequence number of the event stored in each slot once it's fully written, used by consumers to know
+     * that an event is ready. This allows several producers to write to different slots at the same time.
+     */
+    private final AtomicLongArray published;
+
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final WaitStrategy waitStrategy;
+
+    private volatile Consumer[] consumers = new Consumer[0];
+
+    /**
+     * The lowest consumer sequence seen by a producer the last time it had to check, so that producers don't
+     * have to look at every consumer for every event.
+     */
+    private volatile long cachedGatingSequence = -1;
+
+    /**
+     * Construct a bus with a ring of {@code capacity} events.
+     *
+     * @param capacity     a power of 2.
+     * @param waitStrategy what consumers do while there are no events.
+     */
+    public ChangeEventBus(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of 2, not " + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new NullPointerException("waitStrategy");
+        }
+        mask = capacity - 1;
+        events = new ChangeEvent[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new ChangeEvent();
+            published.set(i, -1);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    /**
+     * Return the sequence number of the most recent event claimed by a producer, or -1 if there are none yet.
+     * The event may still be in the process of being written.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Publish a change. Normally this is called by a box after adding the bus to its family, but it can also be
+     * called directly.
+     */
+    @Override
+    public void onChange(PowerBox<Object> box, Object originalValue, Object finalValue, Object requestedValue) {
+        // Checked before claiming a slot, since a claimed slot must be published or the consumers will stop there
+        Thread thread = Thread.currentThread();
+        for (Consumer consumer : consumers) {
+            if (consumer.handlerThread == thread) {
+                throw new IllegalStateException("Publishing to a ChangeEventBus from one of its own handlers " +
+                        "could deadlock, e.g. setting a box observed by the bus from " + consumer);
+            }
+        }
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - events.length;
+        if (wrapPoint > cachedGatingSequence) {
+            long minimum;
+            while (wrapPoint > (minimum = minimumConsumerSequence(sequence - 1))) {
+                LockSupport.parkNanos(1);
+            }
+            cachedGatingSequence = minimum;
+        }
+        int index = (int) sequence & mask;
+        events[index].set(sequence, box, originalValue, finalValue, requestedValue);
+        published.lazySet(index, sequence);
+        waitStrategy.signalAll();
+    }
+
+    private long minimumConsumerSequence(long minimum) {
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Add a consumer that will pass to {@code handler} the events published after this call. Run it on a thread
+     * of its own with {@link Consumer#run()}, or call {@link Consumer#drain()} periodically.
+     *
+     * @param failureHandler receives anything thrown by {@code handler}, together with the box of the event.
+     *                       The consumer then moves on to the next event.
+     */
+    public synchronized Consumer addConsumer(ChangeEventHandler handler, AsyncChangeObserver.FailureHandler failureHandler) {
+        if (handler == null || failureHandler == null) {
+            throw new NullPointerException("A handler and failure handler are required");
+        }
+        Consumer consumer = new Consumer(handler, failureHandler, cursor.get());
+        Consumer[] newConsumers = Arrays.copyOf(consumers, consumers.length + 1);
+        newConsumers[consumers.length] = consumer;
+        consumers = newConsumers;
+        return consumer;
+    }
+
+    /**
+     * Stop {@code consumer} from holding back producers. It should no longer be running.
+     */
+    public synchronized void removeConsumer(Consumer consumer) {
+        Consumer[] newConsumers = new Consumer[consumers.length];
+        int size = 0;
+        for (Consumer existing : consumers) {
+            if (existing != consumer) {
+                newConsumers[size++] = existing;
+            }
+        }
+        consumers = Arrays.copyOf(newConsumers, size);
+    }
+
+    /**
+     * Reads events from the bus in order and passes them to a {@link ChangeEventHandler}.
+     * Each consumer should only be used by one thread at a time.
+     */
+    public final class Consumer implements Runnable {
+
+        private final ChangeEventHandler handler;
+        private final AsyncChangeObserver.FailureHandler failureHandler;
+
+        /**
+         * The sequence number of the last event that has been processed.
+         */
+        private final AtomicLong sequence;
+
+        private volatile boolean running;
+
+        /**
+         * The thread calling the handler during {@link Consumer#drain()}, if any.
+         */
+        private volatile Thread handlerThread;
+
+        private Consumer(ChangeEventHandler handler, AsyncChangeObserver.FailureHandler failureHandler, long sequence) {
+            this.handler = handler;
+            this.failureHandler = failureHandler;
+            this.sequence = new AtomicLong(sequence);
+        }
+
+        /**
+         * Return the sequence number of the last event that this consumer has processed.
+         */
+        public long getSequence() {
+            return sequence.get();
+        }
+
+        /**
+         * Process all the events that are available now as a single batch, without waiting.
+         *
+         * @return the number of events processed.
+         */
+        public int drain() {
+            long current = sequence.get();
+            long available = current;
+            long cursorValue = cursor.get();
+            while (available < cursorValue && isPublished(available + 1)) {
+                available++;
+            }
+            if (available == current) {
+                return 0;
+            }
+            handlerThread = Thread.currentThread();
+            try {
+                for (long next = current + 1; next <= available; next++) {
+                    ChangeEvent event = events[(int) next & mask];
+                    try {
+                        handler.onEvent(event, next == available);
+                    } catch (Throwable throwable) {
+                        failureHandler.onFailure(event.getBox(), throwable);
+                    }
+                }
+            } finally {
+                handlerThread = null;
+            }
+            // Only now can producers reuse the slots
+            sequence.lazySet(available);
+            return (int) (available - current);
+        }
+
+        /**
+         * Process events until {@link Consumer#halt()} is called or the thread is interrupted, using the bus's
+         * {@link WaitStrategy} while there are no events.
+         */
+        @Override
+        public void run() {
+            running = true;
+            int attempts = 0;
+            try {
+                while (running) {
+                    if (drain() > 0) {
+                        attempts = 0;
+                    } else {
+                        waitStrategy.idle(ChangeEventBus.this, sequence.get(), attempts);
+                        if (attempts < Integer.MAX_VALUE) {
+                            attempts++;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running = false;
+            }
+        }
+
+        /**
+         * Make {@link Consumer#run()} return after it finishes the current batch.
+         */
+        public void halt() {
+            running = false;
+            waitStrategy.signalAll();
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public String toString() {
+            return "ChangeEventBus.Consumer at " + sequence.get() + " of " + cursor.get();
+        }
+    }
+
+    /**
+     * Publish changes to every box in {@code families} by adding this bus to them as an observer.
+     */
+    public ChangeEventBus observe(BoxFamily... families) {
+        for (BoxFamily family : families) {
+            family.addChangeObserver(this);
+        }
+        return this;
+    }
+
+}
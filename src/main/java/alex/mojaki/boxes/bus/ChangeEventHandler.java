@@ -0,0 +1,17 @@
+package alex.mojaki.boxes.bus;
+
+/**
+ * Processes the events taken from a {@link ChangeEventBus} by a {@link ChangeEventBus.Consumer}.
+ */
+public interface ChangeEventHandler {
+
+    /**
+     * Process one event. Events are given in the order they were published, in batches of all the events that were
+     * available when the consumer last checked.
+     *
+     * @param event      the event, which is only valid until this method returns.
+     * @param endOfBatch true if this is the last event available for now, which is a good time to flush buffered
+     *                   output or commit a transaction.
+     */
+    void onEvent(ChangeEvent event, boolean endOfBatch) throws Exception;
+}
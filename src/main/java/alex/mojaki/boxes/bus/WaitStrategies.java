@@ -0,0 +1,145 @@
+package alex.mojaki.boxes.bus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Container for static factory methods producing the standard {@link WaitStrategy}s, from the lowest latency and
+ * highest CPU usage to the highest latency and lowest CPU usage.
+ */
+public enum WaitStrategies {
+    ;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    /**
+     * Check for new events continuously. This gives the lowest latency but keeps a core busy for every consumer,
+     * so only use it when consumers have cores to themselves.
+     */
+    public static WaitStrategy busySpin() {
+        return BusySpin.INSTANCE;
+    }
+
+    /**
+     * Spin briefly and then call {@link Thread#yield()} between checks. Latency is still low, and other threads
+     * can run, but an idle consumer still uses a lot of CPU.
+     */
+    public static WaitStrategy yielding() {
+        return Yielding.INSTANCE;
+    }
+
+    /**
+     * Spin, then yield, then sleep for {@code sleepNanos} between checks. A good compromise when events arrive in
+     * bursts and a small delay at the start of a burst is acceptable.
+     */
+    public static WaitStrategy sleeping(long sleepNanos) {
+        return new Sleeping(sleepNanos);
+    }
+
+    /**
+     * Block on a lock until a producer publishes an event. Idle consumers use no CPU, at the cost of producers
+     * taking a lock whenever a consumer is waiting.
+     */
+    public static WaitStrategy blocking() {
+        return new Blocking();
+    }
+
+    private static class BusySpin implements WaitStrategy {
+        static final BusySpin INSTANCE = new BusySpin();
+
+        @Override
+        public void idle(ChangeEventBus bus, long sequence, int attempts) {
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    private static class Yielding implements WaitStrategy {
+        static final Yielding INSTANCE = new Yielding();
+
+        @Override
+        public void idle(ChangeEventBus bus, long sequence, int attempts) {
+            if (attempts >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    private static class Sleeping implements WaitStrategy {
+        private final long sleepNanos;
+
+        Sleeping(long sleepNanos) {
+            if (sleepNanos <= 0) {
+                throw new IllegalArgumentException("sleepNanos must be positive");
+            }
+            this.sleepNanos = sleepNanos;
+        }
+
+        @Override
+        public void idle(ChangeEventBus bus, long sequence, int attempts) {
+            if (attempts >= SPIN_TRIES + YIELD_TRIES) {
+                LockSupport.parkNanos(sleepNanos);
+            } else if (attempts >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    private static class Blocking implements WaitStrategy {
+
+        /**
+         * The longest time to block for. Producers always wake up waiting consumers, so this only matters when a
+         * consumer is halted while waiting.
+         */
+        private static final long MAX_WAIT_MILLIS = 10;
+
+        private final Lock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        @Override
+        public void idle(ChangeEventBus bus, long sequence, int attempts) throws InterruptedException {
+            waiters.incrementAndGet();
+            lock.lock();
+            try {
+                // Checking the cursor after announcing ourselves as a waiter, and under the lock, means a producer
+                // either sees us waiting and signals, or published before this check
+                if (bus.getCursor() <= sequence) {
+                    published.await(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+                waiters.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            if (waiters.get() == 0) {
+                return;
+            }
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+}
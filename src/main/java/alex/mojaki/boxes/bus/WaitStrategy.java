@@ -0,0 +1,23 @@
+package alex.mojaki.boxes.bus;
+
+/**
+ * Decides what a {@link ChangeEventBus.Consumer} does while there are no events for it, trading latency against
+ * CPU usage. See {@link WaitStrategies} for the standard implementations.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called by a consumer that has processed every event up to {@code sequence} and found no more. This should
+     * return soon after the bus's {@link ChangeEventBus#getCursor() cursor} passes {@code sequence}, but may also
+     * return earlier, in which case the consumer simply checks again.
+     *
+     * @param attempts the number of consecutive calls without any new events in between, starting from 0.
+     */
+    void idle(ChangeEventBus bus, long sequence, int attempts) throws InterruptedException;
+
+    /**
+     * Called after every event is published, to wake up any consumers waiting in {@code idle}. This is on the
+     * producers' path so it should be very cheap when nothing is waiting.
+     */
+    void signalAll();
+}
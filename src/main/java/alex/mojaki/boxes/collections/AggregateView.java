@@ -0,0 +1,124 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.WrapperBox;
+
+/**
+ * A {@link View} of an aggregate of the elements of a collection box, such as a sum, which is kept up to date
+ * incrementally by an {@link ElementObserver} as elements are added and removed, so that a change costs time
+ * proportional to the number of elements involved rather than the size of the collection. {@link Aggregates}
+ * provides common aggregates.
+ * <p>
+ * Subclasses implement {@link AggregateView#add(Object)}, {@link AggregateView#remove(Object)} and
+ * {@link AggregateView#clear()} to maintain their state, and {@link AggregateView#result()} to return the aggregate
+ * from it. These are called while holding the lock of this view. The elements are first added when the view is first
+ * calculated, and again the first time it is calculated after the source is reset, e.g. by setting a new collection,
+ * after clearing the state.
+ * <p>
+ * Like the collection boxes themselves, the source must only be modified by one thread at a time.
+ *
+ * @param <E> the type of the elements
+ * @param <R> the type of the aggregate
+ */
+public abstract class AggregateView<E, R> extends View<R> {
+
+    private final ElementSource<? extends E> source;
+
+    /**
+     * Whether the state reflects the elements of the source, so that changes must be applied to it. Guarded by this
+     * view.
+     */
+    private boolean scanned;
+
+    /**
+     * Construct a view with the given family of an aggregate of the elements of {@code source}.
+     */
+    public AggregateView(BoxFamily family, ElementSource<? extends E> source) {
+        super(family, box(source));
+        this.source = source;
+        observe();
+    }
+
+    /**
+     * Construct a view by looking up a family with the given class and name of an aggregate of the elements of
+     * {@code source}.
+     */
+    public AggregateView(Class<?> clazz, String name, ElementSource<? extends E> source) {
+        super(clazz, name, box(source));
+        this.source = source;
+        observe();
+    }
+
+    private static PowerBox box(ElementSource<?> source) {
+        if (!(source instanceof PowerBox)) {
+            throw new IllegalArgumentException("The source of an aggregate must be a box");
+        }
+        return (PowerBox) source;
+    }
+
+    private void observe() {
+        source.addElementObserver(new ElementObserver<E>() {
+            @Override
+            public void onAdd(WrapperBox<?> box, E element) {
+                synchronized (AggregateView.this) {
+                    if (scanned) {
+                        add(element);
+                    }
+                }
+            }
+
+            @Override
+            public void onRemove(WrapperBox<?> box, E element) {
+                synchronized (AggregateView.this) {
+                    if (scanned) {
+                        remove(element);
+                    }
+                }
+            }
+
+            @Override
+            public void onReset(WrapperBox<?> box) {
+                synchronized (AggregateView.this) {
+                    scanned = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Include {@code element} in the aggregate.
+     */
+    protected abstract void add(E element);
+
+    /**
+     * Remove {@code element}, which was previously added, from the aggregate.
+     */
+    protected abstract void remove(E element);
+
+    /**
+     * Reset the aggregate to that of no elements.
+     */
+    protected abstract void clear();
+
+    /**
+     * Return the aggregate of the elements currently added.
+     */
+    protected abstract R result();
+
+    @Override
+    public synchronized R calculate() {
+        if (!scanned) {
+            clear();
+            if (!(source instanceof WrapperBox && ((WrapperBox) source).isNull())) {
+                for (E element : source.elements()) {
+                    add(element);
+                }
+            }
+            scanned = true;
+        }
+        return result();
+    }
+
+}
@@ -0,0 +1,336 @@
+package alex.mojaki.boxes.collections;
+
+import com.google.common.collect.Ordering;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Factory methods for common {@link AggregateView}s of the elements of a {@link ListBox}, {@link SetBox} or the values
+ * of a {@link MapBox}. For example, to keep the total of a list of positions without summing the whole list after
+ * every change:
+ * <pre>{@code
+ * ListBox<Double> positions = new ListBox<Double>(Portfolio.class, "positions").init();
+ * View<Double> total = Aggregates.sum(Portfolio.class, "total", positions);
+ * }</pre>
+ * Sums and averages take O(1) time per element added or removed, and minimums and maximums take O(log n) using an
+ * ordered multiset of the elements. Null elements are counted by {@link Aggregates#count(Class, String, ElementSource)}
+ * and ignored by the other aggregates.
+ */
+public final class Aggregates {
+
+    private Aggregates() {
+    }
+
+    /**
+     * Return a view of the number of elements in {@code source}.
+     */
+    public static AggregateView<Object, Integer> count(Class<?> clazz, String name, ElementSource<?> source) {
+        return new AggregateView<Object, Integer>(clazz, name, source) {
+            private int count;
+
+            @Override
+            protected void add(Object element) {
+                count++;
+            }
+
+            @Override
+            protected void remove(Object element) {
+                count--;
+            }
+
+            @Override
+            protected void clear() {
+                count = 0;
+            }
+
+            @Override
+            protected Integer result() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Return a view of the sum of the numbers in {@code source} as doubles, which is 0 if there are none. The sum is
+     * compensated for rounding errors, so it doesn't drift away from the true sum as numbers are added and removed.
+     */
+    public static AggregateView<Number, Double> sum(Class<?> clazz, String name,
+                                                    ElementSource<? extends Number> source) {
+        return new AggregateView<Number, Double>(clazz, name, source) {
+            private final CompensatedSum sum = new CompensatedSum();
+
+            @Override
+            protected void add(Number element) {
+                sum.add(element);
+            }
+
+            @Override
+            protected void remove(Number element) {
+                sum.remove(element);
+            }
+
+            @Override
+            protected void clear() {
+                sum.clear();
+            }
+
+            @Override
+            protected Double result() {
+                return sum.value();
+            }
+        };
+    }
+
+    /**
+     * Return a view of the mean of the numbers in {@code source} as doubles, or null if there are none.
+     */
+    public static AggregateView<Number, Double> average(Class<?> clazz, String name,
+                                                        ElementSource<? extends Number> source) {
+        return new AggregateView<Number, Double>(clazz, name, source) {
+            private final CompensatedSum sum = new CompensatedSum();
+
+            @Override
+            protected void add(Number element) {
+                sum.add(element);
+            }
+
+            @Override
+            protected void remove(Number element) {
+                sum.remove(element);
+            }
+
+            @Override
+            protected void clear() {
+                sum.clear();
+            }
+
+            @Override
+            protected Double result() {
+                return sum.count == 0 ? null : sum.value() / sum.count;
+            }
+        };
+    }
+
+    /**
+     * Return a view of the least element of {@code source} in its natural ordering, or null if it has no elements.
+     */
+    public static <E extends Comparable<? super E>> AggregateView<E, E> min(Class<?> clazz, String name,
+                                                                           ElementSource<? extends E> source) {
+        return min(clazz, name, source, Ordering.<E>natural());
+    }
+
+    /**
+     * Return a view of the least element of {@code source} according to {@code comparator}, or null if it has no
+     * elements.
+     */
+    public static <E> AggregateView<E, E> min(Class<?> clazz, String name, ElementSource<? extends E> source,
+                                              Comparator<? super E> comparator) {
+        return new Extreme<E>(clazz, name, source, comparator, true);
+    }
+
+    /**
+     * Return a view of the greatest element of {@code source} in its natural ordering, or null if it has no elements.
+     */
+    public static <E extends Comparable<? super E>> AggregateView<E, E> max(Class<?> clazz, String name,
+                                                                           ElementSource<? extends E> source) {
+        return max(clazz, name, source, Ordering.<E>natural());
+    }
+
+    /**
+     * Return a view of the greatest element of {@code source} according to {@code comparator}, or null if it has no
+     * elements.
+     */
+    public static <E> AggregateView<E, E> max(Class<?> clazz, String name, ElementSource<? extends E> source,
+                                              Comparator<? super E> comparator) {
+        return new Extreme<E>(clazz, name, source, comparator, false);
+    }
+
+    /**
+     * A minimum or maximum, kept with a multiset of the elements ordered by the comparator.
+     */
+    private static final class Extreme<E> extends AggregateView<E, E> {
+        private final TreeMap<E, Ties<E>> ties;
+        private final boolean min;
+
+        Extreme(Class<?> clazz, String name, ElementSource<? extends E> source, Comparator<? super E> comparator,
+                boolean min) {
+            super(clazz, name, source);
+            this.ties = new TreeMap<E, Ties<E>>(comparator);
+            this.min = min;
+        }
+
+        @Override
+        protected void add(E element) {
+            if (element != null) {
+                Ties<E> existing = ties.get(element);
+                if (existing == null) {
+                    ties.put(element, new Ties<E>(element));
+                } else {
+                    existing.add(element);
+                }
+            }
+        }
+
+        @Override
+        protected void remove(E element) {
+            if (element != null) {
+                Ties<E> existing = ties.get(element);
+                if (existing != null && existing.remove(element)) {
+                    ties.remove(element);
+                }
+            }
+        }
+
+        @Override
+        protected void clear() {
+            ties.clear();
+        }
+
+        @Override
+        protected E result() {
+            if (ties.isEmpty()) {
+                return null;
+            }
+            return (min ? ties.firstEntry() : ties.lastEntry()).getValue().latest;
+        }
+    }
+
+    /**
+     * The occurrences of elements that the comparator of an {@link Extreme} considers equal, counted by identity so
+     * that the result is always an element that's still in the source. Usually there is only one distinct element, so
+     * the others are only counted in a map once there are more.
+     */
+    private static final class Ties<E> {
+
+        /**
+         * The most recently added element that's still present, and how many times it's present.
+         */
+        E latest;
+        int count = 1;
+
+        private IdentityHashMap<E, Integer> others;
+
+        Ties(E element) {
+            latest = element;
+        }
+
+        void add(E element) {
+            if (element == latest) {
+                count++;
+                return;
+            }
+            if (others == null) {
+                others = new IdentityHashMap<E, Integer>();
+            }
+            others.put(latest, count);
+            Integer previous = others.remove(element);
+            latest = element;
+            count = previous == null ? 1 : previous + 1;
+        }
+
+        /**
+         * Remove one occurrence of {@code element}, or of {@link Ties#latest} if it isn't an element that was added.
+         *
+         * @return true if there are no occurrences left.
+         */
+        boolean remove(E element) {
+            Integer other = element == latest || others == null ? null : others.get(element);
+            if (other != null) {
+                if (other == 1) {
+                    others.remove(element);
+                } else {
+                    others.put(element, other - 1);
+                }
+                return false;
+            }
+            if (--count > 0) {
+                return false;
+            }
+            if (others == null || others.isEmpty()) {
+                return true;
+            }
+            Iterator<Map.Entry<E, Integer>> iterator = others.entrySet().iterator();
+            Map.Entry<E, Integer> next = iterator.next();
+            latest = next.getKey();
+            count = next.getValue();
+            iterator.remove();
+            return false;
+        }
+    }
+
+    /**
+     * A sum of doubles using Neumaier's compensated summation, which also works when removing numbers by adding their
+     * negations. Infinities and NaNs are counted separately since they would make the compensation NaN.
+     */
+    private static final class CompensatedSum {
+        private double sum;
+        private double compensation;
+        private int count;
+        private int positiveInfinities;
+        private int negativeInfinities;
+        private int nans;
+
+        void add(Number number) {
+            if (number != null) {
+                count++;
+                accumulate(number.doubleValue(), 1);
+            }
+        }
+
+        void remove(Number number) {
+            if (number != null) {
+                count--;
+                accumulate(number.doubleValue(), -1);
+            }
+        }
+
+        /**
+         * Add {@code x} if {@code sign} is 1 or remove it if {@code sign} is -1.
+         */
+        private void accumulate(double x, int sign) {
+            if (Double.isNaN(x)) {
+                nans += sign;
+            } else if (x == Double.POSITIVE_INFINITY) {
+                positiveInfinities += sign;
+            } else if (x == Double.NEGATIVE_INFINITY) {
+                negativeInfinities += sign;
+            } else {
+                x *= sign;
+                double t = sum + x;
+                if (Math.abs(sum) >= Math.abs(x)) {
+                    compensation += (sum - t) + x;
+                } else {
+                    compensation += (x - t) + sum;
+                }
+                sum = t;
+            }
+        }
+
+        void clear() {
+            sum = 0;
+            compensation = 0;
+            count = 0;
+            positiveInfinities = 0;
+            negativeInfinities = 0;
+            nans = 0;
+        }
+
+        double value() {
+            if (nans > 0 || positiveInfinities > 0 && negativeInfinities > 0) {
+                return Double.NaN;
+            }
+            if (positiveInfinities > 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            if (negativeInfinities > 0) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            return sum + compensation;
+        }
+    }
+
+}
@@ -4,17 +4,32 @@ import alex.mojaki.boxes.BoxFamily;
 import alex.mojaki.boxes.WrapperBox;
 import com.google.common.collect.ForwardingIterator;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 /**
  * A collection that can watch for changes. This is primarily intended as a base class for {@link ListBox}
  * and {@link SetBox} to reuse code, which necessitates the unusual type parameters.
+ * <p>
+ * Besides the usual {@code ChangeObserver}s, {@link ElementObserver}s can be added to be told which elements were
+ * added or removed by each change, and subclasses have their own delta observers. While there are any, bulk
+ * operations such as {@code addAll} and {@code removeAll} are carried out one element at a time so that the elements
+ * can be reported, and {@code remove(Object)} looks for the element in the collection so that it reports the stored
+ * element rather than the argument. For collections other than lists and sorted sets this means iterating over them.
  *
  * @param <T> the type of the contained value (i.e. the specific type of collection that is being wrapped)
  * @param <E> the type of the collection elements
  */
-public abstract class CollectionBox<T extends Collection<E>, E> extends WrapperBox<T> implements Collection<E> {
+public abstract class CollectionBox<T extends Collection<E>, E> extends WrapperBox<T>
+        implements Collection<E>, ElementSource<E> {
+
+    final ElementObservers<E> elementObservers = new ElementObservers<E>(this);
 
     public CollectionBox(BoxFamily family) {
         super(family);
@@ -24,6 +39,57 @@ public abstract class CollectionBox<T extends Collection<E>, E> extends WrapperB
         super(clazz, name);
     }
 
+    @Override
+    public void addElementObserver(ElementObserver<? super E> observer) {
+        elementObservers.add(observer);
+    }
+
+    @Override
+    public Iterable<E> elements() {
+        return value;
+    }
+
+    /**
+     * Setting a new collection is reported to {@link ElementObserver}s as a reset.
+     */
+    @Override
+    protected void rawSet(T value) {
+        super.rawSet(value);
+        if (reportsChanges()) {
+            reportSet();
+        }
+    }
+
+    // Subclasses override these to also report to their delta observers.
+    // The report methods are only called if reportsChanges() returns true.
+
+    /**
+     * Return whether there are observers that need to know which elements changed.
+     */
+    boolean reportsChanges() {
+        return !elementObservers.isEmpty();
+    }
+
+    void reportAdded(Collection<E> elements) {
+        for (E e : elements) {
+            elementObservers.added(e);
+        }
+    }
+
+    void reportRemoved(Collection<E> elements) {
+        for (E e : elements) {
+            elementObservers.removed(e);
+        }
+    }
+
+    void reportCleared() {
+        elementObservers.reset();
+    }
+
+    void reportSet() {
+        elementObservers.reset();
+    }
+
     @Override
     public int size() {
         return value.size();
@@ -44,14 +110,25 @@ public abstract class CollectionBox<T extends Collection<E>, E> extends WrapperB
         final Iterator<E> valueIterator = value.iterator();
         return new ForwardingIterator<E>() {
 
+            private E last;
+
             @Override
             protected Iterator<E> delegate() {
                 return valueIterator;
             }
 
+            @Override
+            public E next() {
+                last = super.next();
+                return last;
+            }
+
             @Override
             public void remove() {
                 super.remove();
+                if (reportsChanges()) {
+                    reportRemoved(Collections.singletonList(last));
+                }
                 change();
             }
         };
@@ -69,12 +146,43 @@ public abstract class CollectionBox<T extends Collection<E>, E> extends WrapperB
 
     @Override
     public boolean add(E e) {
-        return changeIf(value.add(e));
+        if (!value.add(e)) {
+            return false;
+        }
+        if (reportsChanges()) {
+            reportAdded(Collections.singletonList(e));
+        }
+        change();
+        return true;
     }
 
     @Override
     public boolean remove(Object o) {
-        return changeIf(value.remove(o));
+        if (!reportsChanges()) {
+            return changeIf(value.remove(o));
+        }
+        // Report the element that was actually in the collection, which needn't be o itself if equals is looser
+        // than identity
+        if (value instanceof NavigableSet) {
+            @SuppressWarnings("unchecked")
+            E stored = ((NavigableSet<E>) value).floor((E) o);
+            if (!value.remove(o)) {
+                return false;
+            }
+            reportRemoved(Collections.singletonList(stored));
+            change();
+            return true;
+        }
+        for (Iterator<E> iterator = value.iterator(); iterator.hasNext(); ) {
+            E e = iterator.next();
+            if (Objects.equals(o, e)) {
+                iterator.remove();
+                reportRemoved(Collections.singletonList(e));
+                change();
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -84,22 +192,87 @@ public abstract class CollectionBox<T extends Collection<E>, E> extends WrapperB
 
     @Override
     public boolean addAll(Collection<? extends E> c) {
-        return changeIf(value.addAll(c));
+        if (!reportsChanges()) {
+            return changeIf(value.addAll(c));
+        }
+        List<E> added = new ArrayList<E>();
+        // Copied in case c is this collection
+        for (E e : new ArrayList<E>(c)) {
+            if (value.add(e)) {
+                added.add(e);
+            }
+        }
+        if (added.isEmpty()) {
+            return false;
+        }
+        reportAdded(Collections.unmodifiableList(added));
+        change();
+        return true;
     }
 
     @Override
-    public boolean removeAll(Collection<?> c) {
-        return changeIf(value.removeAll(c));
+    public boolean removeAll(final Collection<?> c) {
+        if (!reportsChanges()) {
+            return changeIf(value.removeAll(c));
+        }
+        return changeIf(removeMatching(new Predicate<E>() {
+            @Override
+            public boolean test(E e) {
+                return c.contains(e);
+            }
+        }));
+    }
+
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        if (!reportsChanges()) {
+            return changeIf(value.retainAll(c));
+        }
+        return changeIf(removeMatching(new Predicate<E>() {
+            @Override
+            public boolean test(E e) {
+                return !c.contains(e);
+            }
+        }));
     }
 
+    /**
+     * Remove the elements that satisfy {@code filter} from the collection directly, rather than one by one through
+     * {@link CollectionBox#iterator()}, so that observers are notified once.
+     */
     @Override
-    public boolean retainAll(Collection<?> c) {
-        return changeIf(value.retainAll(c));
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (!reportsChanges()) {
+            return changeIf(value.removeIf(filter));
+        }
+        return changeIf(removeMatching(filter));
+    }
+
+    /**
+     * Remove the elements that satisfy {@code filter}, reporting them.
+     */
+    boolean removeMatching(Predicate<? super E> filter) {
+        List<E> removed = new ArrayList<E>();
+        for (Iterator<E> iterator = value.iterator(); iterator.hasNext(); ) {
+            E e = iterator.next();
+            if (filter.test(e)) {
+                iterator.remove();
+                removed.add(e);
+            }
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        reportRemoved(Collections.unmodifiableList(removed));
+        return true;
     }
 
     @Override
     public void clear() {
         value.clear();
+        if (reportsChanges()) {
+            reportCleared();
+        }
         change();
     }
 
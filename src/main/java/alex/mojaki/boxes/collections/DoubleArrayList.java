@@ -0,0 +1,270 @@
+package alex.mojaki.boxes.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of {@code double}s stored in a {@code double[]}, which takes a fraction of the memory of a list of
+ * {@code Double}s and keeps the values next to each other in memory. It's a {@code List<Double>} so that it can be
+ * used like any other list, boxing values as needed, and also has methods such as {@link DoubleArrayList#getDouble(int)} that
+ * don't box. It's the usual value of a {@link DoubleListBox}.
+ * <p>
+ * Like {@code ArrayList} it isn't thread safe and its iterators fail fast. Null elements aren't allowed.
+ * <p>
+ * Values are compared like {@code Double.equals}, so {@code NaN} equals itself and {@code 0.0} doesn't equal
+ * {@code -0.0}.
+ */
+public class DoubleArrayList extends AbstractList<Double> implements RandomAccess {
+
+    private static final double[] EMPTY = new double[0];
+
+    private double[] elements;
+    private int size;
+
+    /**
+     * Construct an empty list.
+     */
+    public DoubleArrayList() {
+        elements = EMPTY;
+    }
+
+    /**
+     * Construct an empty list with room for {@code initialCapacity} values before it needs to grow.
+     */
+    public DoubleArrayList(int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity >= 0, "Negative capacity: %s", initialCapacity);
+        elements = initialCapacity == 0 ? EMPTY : new double[initialCapacity];
+    }
+
+    /**
+     * Return a new list containing the given values.
+     */
+    public static DoubleArrayList of(double... values) {
+        DoubleArrayList list = new DoubleArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            int newCapacity = elements.length + (elements.length >> 1) + 10;
+            // Also covers overflow
+            if (newCapacity < capacity) {
+                newCapacity = capacity;
+            }
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+    }
+
+    /**
+     * Reduce the memory used by the list to what its current values need.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    public double getDouble(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return elements[index];
+    }
+
+    /**
+     * Replace the value at {@code index} and return the previous value.
+     */
+    public double setDouble(int index, double value) {
+        Preconditions.checkElementIndex(index, size);
+        double old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void addDouble(double value) {
+        modCount++;
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+    }
+
+    public void addDouble(int index, double value) {
+        Preconditions.checkPositionIndex(index, size);
+        modCount++;
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    /**
+     * Remove the value at {@code index} and return it.
+     */
+    public double removeDouble(int index) {
+        Preconditions.checkElementIndex(index, size);
+        modCount++;
+        double old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    /**
+     * Append all of {@code values}.
+     */
+    public void addAll(double[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Append {@code length} values from {@code values} starting at {@code offset}.
+     */
+    public void addAll(double[] values, int offset, int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, values.length);
+        modCount++;
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
+
+    public int indexOfDouble(double value) {
+        for (int i = 0; i < size; i++) {
+            if (equal(elements[i], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOfDouble(double value) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (equal(elements[i], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsDouble(double value) {
+        return indexOfDouble(value) >= 0;
+    }
+
+    private static boolean equal(double a, double b) {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+
+    /**
+     * Return a new array containing the values of the list.
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    public Double set(int index, Double element) {
+        return setDouble(index, element);
+    }
+
+    @Override
+    public boolean add(Double element) {
+        addDouble(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Double element) {
+        addDouble(index, element);
+    }
+
+    @Override
+    public Double remove(int index) {
+        return removeDouble(index);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Double> c) {
+        ensureCapacity(size + c.size());
+        return super.addAll(c);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Double ? indexOfDouble((Double) o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return o instanceof Double ? lastIndexOfDouble((Double) o) : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Sort the list, without boxing the values if {@code c} is null, meaning natural ordering.
+     */
+    @Override
+    public void sort(Comparator<? super Double> c) {
+        if (c == null) {
+            Arrays.sort(elements, 0, size);
+            modCount++;
+        } else {
+            super.sort(c);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof DoubleArrayList)) {
+            return super.equals(o);
+        }
+        DoubleArrayList other = (DoubleArrayList) o;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!equal(elements[i], other.elements[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int i = 0; i < size; i++) {
+            hashCode = 31 * hashCode + Double.hashCode(elements[i]);
+        }
+        return hashCode;
+    }
+
+}
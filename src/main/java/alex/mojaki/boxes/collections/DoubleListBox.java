@@ -0,0 +1,164 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Doubles;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link ListBox} of {@code double}s whose value is normally a {@link DoubleArrayList}, which stores them without boxing.
+ * As well as being used as a {@code List<Double>}, it has methods such as {@link DoubleListBox#getDouble(int)} and
+ * {@link DoubleListBox#addAll(double[])} which don't box values when the value is a {@code DoubleArrayList}. With other
+ * lists they still work, boxing as usual.
+ * <p>
+ * {@link ListDeltaObserver}s are told about ranges of values, e.g. all the values appended by one call to
+ * {@code addAll} at once, in lists that box each value when it's read.
+ */
+public class DoubleListBox extends ListBox<Double> {
+
+    /**
+     * The value if it's a {@code DoubleArrayList}, otherwise null.
+     */
+    private DoubleArrayList array;
+
+    /**
+     * Construct a {@code DoubleListBox} belonging to the given family.
+     */
+    public DoubleListBox(BoxFamily family) {
+        super(family);
+    }
+
+    /**
+     * Construct a {@code DoubleListBox} belonging to a family identified by the given class a name.
+     */
+    public DoubleListBox(Class<?> clazz, String name) {
+        super(clazz, name);
+    }
+
+    /**
+     * A convenience method that sets the value to an empty {@code DoubleArrayList}.
+     *
+     * @return this object for chaining
+     */
+    @Override
+    public DoubleListBox init() {
+        return set(new DoubleArrayList());
+    }
+
+    @Override
+    protected void rawSet(List<Double> value) {
+        array = value instanceof DoubleArrayList ? (DoubleArrayList) value : null;
+        super.rawSet(value);
+    }
+
+    public double getDouble(int index) {
+        return array != null ? array.getDouble(index) : value.get(index);
+    }
+
+    /**
+     * Replace the value at {@code index} and return the previous value.
+     */
+    public double setDouble(int index, double element) {
+        double old = array != null ? array.setDouble(index, element) : value.set(index, element);
+        if (reportsChanges()) {
+            reportReplaced(index, old, element);
+        }
+        change();
+        return old;
+    }
+
+    public void addDouble(double element) {
+        addDouble(value.size(), element);
+    }
+
+    public void addDouble(int index, double element) {
+        if (array != null) {
+            array.addDouble(index, element);
+        } else {
+            value.add(index, element);
+        }
+        if (reportsChanges()) {
+            reportAdded(index, Collections.<Double>singletonList(element));
+        }
+        change();
+    }
+
+    /**
+     * Remove the value at {@code index} and return it.
+     */
+    public double removeDouble(int index) {
+        double old = array != null ? array.removeDouble(index) : value.remove(index);
+        if (reportsChanges()) {
+            reportRemoved(index, Collections.<Double>singletonList(old));
+        }
+        change();
+        return old;
+    }
+
+    /**
+     * Append all of {@code values}, notifying observers once.
+     */
+    public void addAll(double[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Append {@code length} values from {@code values} starting at {@code offset}, notifying observers once.
+     */
+    public void addAll(double[] values, int offset, int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, values.length);
+        if (length == 0) {
+            return;
+        }
+        int index = value.size();
+        if (array != null) {
+            array.addAll(values, offset, length);
+        } else {
+            value.addAll(Doubles.asList(values).subList(offset, offset + length));
+        }
+        if (reportsChanges()) {
+            reportAdded(index, Collections.unmodifiableList(Doubles.asList(values).subList(offset, offset + length)));
+        }
+        change();
+    }
+
+    public int indexOfDouble(double element) {
+        return array != null ? array.indexOfDouble(element) : value.indexOf(element);
+    }
+
+    public boolean containsDouble(double element) {
+        return indexOfDouble(element) >= 0;
+    }
+
+    /**
+     * Return a new array containing the values of the list.
+     */
+    public double[] toDoubleArray() {
+        return array != null ? array.toDoubleArray() : Doubles.toArray(value);
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public DoubleListBox set(List<Double> value) {
+        super.set(value);
+        return this;
+    }
+
+    @Override
+    public DoubleListBox addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public DoubleListBox addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+}
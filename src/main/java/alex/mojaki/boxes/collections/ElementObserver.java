@@ -0,0 +1,35 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.WrapperBox;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+/**
+ * Receives the individual elements added to and removed from a collection box, so that it can do work proportional
+ * to the size of each change rather than the size of the collection, e.g. keeping an aggregate such as a sum up to
+ * date. For a {@link MapBox} the elements are the values of the map.
+ * <p>
+ * Elements are reported after the collection has changed and before its {@link ChangeObserver}s are notified. When a
+ * change can't be described element by element, such as {@code clear()} or setting a new collection in the box,
+ * {@link ElementObserver#onReset(WrapperBox)} is called instead and the observer should read the contents again.
+ *
+ * @param <E> the type of the elements
+ * @see ElementSource#addElementObserver(ElementObserver)
+ */
+public interface ElementObserver<E> {
+
+    /**
+     * Called when {@code element} has been added to {@code box}. For a list, adding an element already present
+     * calls this again.
+     */
+    void onAdd(WrapperBox<?> box, E element);
+
+    /**
+     * Called when {@code element}, or an element equal to it, has been removed from {@code box}.
+     */
+    void onRemove(WrapperBox<?> box, E element);
+
+    /**
+     * Called when the contents of {@code box} have changed in a way that isn't described by individual elements.
+     */
+    void onReset(WrapperBox<?> box);
+}
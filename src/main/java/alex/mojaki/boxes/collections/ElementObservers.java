@@ -0,0 +1,53 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.WrapperBox;
+
+import java.util.Arrays;
+
+/**
+ * The {@link ElementObserver}s of one box, stored in an array that is replaced when an observer is added so that
+ * notifying them doesn't allocate or lock, and costs a single check when there are none.
+ */
+final class ElementObservers<E> {
+
+    private static final ElementObserver[] NONE = new ElementObserver[0];
+
+    private final WrapperBox<?> box;
+
+    private volatile ElementObserver[] observers = NONE;
+
+    ElementObservers(WrapperBox<?> box) {
+        this.box = box;
+    }
+
+    synchronized void add(ElementObserver<? super E> observer) {
+        ElementObserver[] newObservers = Arrays.copyOf(observers, observers.length + 1);
+        newObservers[observers.length] = observer;
+        observers = newObservers;
+    }
+
+    boolean isEmpty() {
+        return observers.length == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void added(E element) {
+        for (ElementObserver observer : observers) {
+            observer.onAdd(box, element);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void removed(E element) {
+        for (ElementObserver observer : observers) {
+            observer.onRemove(box, element);
+        }
+    }
+
+    void reset() {
+        for (ElementObserver observer : observers) {
+            observer.onReset(box);
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package alex.mojaki.boxes.collections;
+
+/**
+ * A box containing elements whose additions and removals can be observed individually, i.e. a {@link CollectionBox},
+ * or a {@link MapBox} for its values.
+ *
+ * @param <E> the type of the elements
+ */
+public interface ElementSource<E> {
+
+    /**
+     * Add an observer to be told about the elements added to and removed from this box.
+     * Unlike other observers it belongs to this box rather than its family.
+     */
+    void addElementObserver(ElementObserver<? super E> observer);
+
+    /**
+     * Return the current elements, for an {@link ElementObserver} to read after a reset.
+     */
+    Iterable<E> elements();
+}
@@ -0,0 +1,267 @@
+package alex.mojaki.boxes.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of {@code int}s stored in an {@code int[]}, which takes a fraction of the memory of a list of
+ * {@code Integer}s and keeps the values next to each other in memory. It's a {@code List<Integer>} so that it can be
+ * used like any other list, boxing values as needed, and also has methods such as {@link IntArrayList#getInt(int)} that
+ * don't box. It's the usual value of an {@link IntListBox}.
+ * <p>
+ * Like {@code ArrayList} it isn't thread safe and its iterators fail fast. Null elements aren't allowed.
+ */
+public class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] elements;
+    private int size;
+
+    /**
+     * Construct an empty list.
+     */
+    public IntArrayList() {
+        elements = EMPTY;
+    }
+
+    /**
+     * Construct an empty list with room for {@code initialCapacity} values before it needs to grow.
+     */
+    public IntArrayList(int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity >= 0, "Negative capacity: %s", initialCapacity);
+        elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    /**
+     * Return a new list containing the given values.
+     */
+    public static IntArrayList of(int... values) {
+        IntArrayList list = new IntArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            int newCapacity = elements.length + (elements.length >> 1) + 10;
+            // Also covers overflow
+            if (newCapacity < capacity) {
+                newCapacity = capacity;
+            }
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+    }
+
+    /**
+     * Reduce the memory used by the list to what its current values need.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    public int getInt(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return elements[index];
+    }
+
+    /**
+     * Replace the value at {@code index} and return the previous value.
+     */
+    public int setInt(int index, int value) {
+        Preconditions.checkElementIndex(index, size);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void addInt(int value) {
+        modCount++;
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+    }
+
+    public void addInt(int index, int value) {
+        Preconditions.checkPositionIndex(index, size);
+        modCount++;
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    /**
+     * Remove the value at {@code index} and return it.
+     */
+    public int removeInt(int index) {
+        Preconditions.checkElementIndex(index, size);
+        modCount++;
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    /**
+     * Append all of {@code values}.
+     */
+    public void addAll(int[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Append {@code length} values from {@code values} starting at {@code offset}.
+     */
+    public void addAll(int[] values, int offset, int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, values.length);
+        modCount++;
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
+
+    public int indexOfInt(int value) {
+        for (int i = 0; i < size; i++) {
+            if (equal(elements[i], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOfInt(int value) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (equal(elements[i], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsInt(int value) {
+        return indexOfInt(value) >= 0;
+    }
+
+    private static boolean equal(int a, int b) {
+        return a == b;
+    }
+
+    /**
+     * Return a new array containing the values of the list.
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer element) {
+        return setInt(index, element);
+    }
+
+    @Override
+    public boolean add(Integer element) {
+        addInt(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Integer element) {
+        addInt(index, element);
+    }
+
+    @Override
+    public Integer remove(int index) {
+        return removeInt(index);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        ensureCapacity(size + c.size());
+        return super.addAll(c);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Integer ? indexOfInt((Integer) o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return o instanceof Integer ? lastIndexOfInt((Integer) o) : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Sort the list, without boxing the values if {@code c} is null, meaning natural ordering.
+     */
+    @Override
+    public void sort(Comparator<? super Integer> c) {
+        if (c == null) {
+            Arrays.sort(elements, 0, size);
+            modCount++;
+        } else {
+            super.sort(c);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IntArrayList)) {
+            return super.equals(o);
+        }
+        IntArrayList other = (IntArrayList) o;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!equal(elements[i], other.elements[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int i = 0; i < size; i++) {
+            hashCode = 31 * hashCode + Integer.hashCode(elements[i]);
+        }
+        return hashCode;
+    }
+
+}
@@ -0,0 +1,164 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link ListBox} of {@code int}s whose value is normally an {@link IntArrayList}, which stores them without boxing.
+ * As well as being used as a {@code List<Integer>}, it has methods such as {@link IntListBox#getInt(int)} and
+ * {@link IntListBox#addAll(int[])} which don't box values when the value is an {@code IntArrayList}. With other
+ * lists they still work, boxing as usual.
+ * <p>
+ * {@link ListDeltaObserver}s are told about ranges of values, e.g. all the values appended by one call to
+ * {@code addAll} at once, in lists that box each value when it's read.
+ */
+public class IntListBox extends ListBox<Integer> {
+
+    /**
+     * The value if it's an {@code IntArrayList}, otherwise null.
+     */
+    private IntArrayList array;
+
+    /**
+     * Construct an {@code IntListBox} belonging to the given family.
+     */
+    public IntListBox(BoxFamily family) {
+        super(family);
+    }
+
+    /**
+     * Construct an {@code IntListBox} belonging to a family identified by the given class a name.
+     */
+    public IntListBox(Class<?> clazz, String name) {
+        super(clazz, name);
+    }
+
+    /**
+     * A convenience method that sets the value to an empty {@code IntArrayList}.
+     *
+     * @return this object for chaining
+     */
+    @Override
+    public IntListBox init() {
+        return set(new IntArrayList());
+    }
+
+    @Override
+    protected void rawSet(List<Integer> value) {
+        array = value instanceof IntArrayList ? (IntArrayList) value : null;
+        super.rawSet(value);
+    }
+
+    public int getInt(int index) {
+        return array != null ? array.getInt(index) : value.get(index);
+    }
+
+    /**
+     * Replace the value at {@code index} and return the previous value.
+     */
+    public int setInt(int index, int element) {
+        int old = array != null ? array.setInt(index, element) : value.set(index, element);
+        if (reportsChanges()) {
+            reportReplaced(index, old, element);
+        }
+        change();
+        return old;
+    }
+
+    public void addInt(int element) {
+        addInt(value.size(), element);
+    }
+
+    public void addInt(int index, int element) {
+        if (array != null) {
+            array.addInt(index, element);
+        } else {
+            value.add(index, element);
+        }
+        if (reportsChanges()) {
+            reportAdded(index, Collections.<Integer>singletonList(element));
+        }
+        change();
+    }
+
+    /**
+     * Remove the value at {@code index} and return it.
+     */
+    public int removeInt(int index) {
+        int old = array != null ? array.removeInt(index) : value.remove(index);
+        if (reportsChanges()) {
+            reportRemoved(index, Collections.<Integer>singletonList(old));
+        }
+        change();
+        return old;
+    }
+
+    /**
+     * Append all of {@code values}, notifying observers once.
+     */
+    public void addAll(int[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Append {@code length} values from {@code values} starting at {@code offset}, notifying observers once.
+     */
+    public void addAll(int[] values, int offset, int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, values.length);
+        if (length == 0) {
+            return;
+        }
+        int index = value.size();
+        if (array != null) {
+            array.addAll(values, offset, length);
+        } else {
+            value.addAll(Ints.asList(values).subList(offset, offset + length));
+        }
+        if (reportsChanges()) {
+            reportAdded(index, Collections.unmodifiableList(Ints.asList(values).subList(offset, offset + length)));
+        }
+        change();
+    }
+
+    public int indexOfInt(int element) {
+        return array != null ? array.indexOfInt(element) : value.indexOf(element);
+    }
+
+    public boolean containsInt(int element) {
+        return indexOfInt(element) >= 0;
+    }
+
+    /**
+     * Return a new array containing the values of the list.
+     */
+    public int[] toIntArray() {
+        return array != null ? array.toIntArray() : Ints.toArray(value);
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public IntListBox set(List<Integer> value) {
+        super.set(value);
+        return this;
+    }
+
+    @Override
+    public IntListBox addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public IntListBox addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+}
@@ -8,15 +8,24 @@ import alex.mojaki.boxes.observers.change.ChangeObserver;
 import com.google.common.collect.ForwardingListIterator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * A list that can watch for changes. This is both a {@code List} and a {@code PowerBox<List>} and should
  * be declared as this type so that it can use the abilities of both. It is far preferable to creating a
  * {@code PowerBox} in a more usual way, e.g. a {@code CommonBox<List>}, as you can now attach {@code ChangeObserver}s
  * that know when the list is mutated, which also implies you can create {@code View}s around it.
+ * <p>
+ * To know which positions each change affected, add a {@link ListDeltaObserver}.
  *
  * @param <E> the type of the list elements
  * @see WrapperBox
@@ -25,6 +34,9 @@ public class ListBox<E> extends CollectionBox<List<E>, E> implements List<E> {
 
     private static final BoxFamily SUB_LIST_FAMILY = BoxFamily.getInstance(ListBox.class, "subList");
 
+    private final List<ListDeltaObserver<? super E>> deltaObservers =
+            new CopyOnWriteArrayList<ListDeltaObserver<? super E>>();
+
     /**
      * Construct a {@code ListBox} belonging to the given family.
      */
@@ -53,9 +65,220 @@ public class ListBox<E> extends CollectionBox<List<E>, E> implements List<E> {
         return set(new ArrayList<E>());
     }
 
+    /**
+     * Add an observer to be told which positions of this list each change affected.
+     * Like {@link ElementObserver}s it belongs to this box rather than its family.
+     */
+    public void addDeltaObserver(ListDeltaObserver<? super E> observer) {
+        deltaObservers.add(observer);
+    }
+
+    @Override
+    boolean reportsChanges() {
+        return super.reportsChanges() || !deltaObservers.isEmpty();
+    }
+
+    void reportAdded(int index, List<E> elements) {
+        super.reportAdded(elements);
+        for (ListDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onAdded(this, index, elements);
+        }
+    }
+
+    void reportRemoved(int index, List<E> elements) {
+        super.reportRemoved(elements);
+        for (ListDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onRemoved(this, index, elements);
+        }
+    }
+
+    void reportReplaced(int index, E oldElement, E newElement) {
+        elementObservers.removed(oldElement);
+        elementObservers.added(newElement);
+        for (ListDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onReplaced(this, index, oldElement, newElement);
+        }
+    }
+
+    /**
+     * Report that the elements from {@code index}, previously {@code before}, are now {@code after} in a different
+     * order. Element observers don't need to know.
+     */
+    void reportReordered(int index, List<E> before, List<E> after) {
+        for (ListDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onRemoved(this, index, before);
+            observer.onAdded(this, index, after);
+        }
+    }
+
+    @Override
+    void reportCleared() {
+        super.reportCleared();
+        for (ListDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onCleared(this);
+        }
+    }
+
+    @Override
+    void reportSet() {
+        super.reportSet();
+        for (ListDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onCleared(this);
+            if (value != null && !value.isEmpty()) {
+                observer.onAdded(this, 0, Collections.unmodifiableList(value));
+            }
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return listIterator();
+    }
+
+    @Override
+    public boolean add(E e) {
+        if (!reportsChanges()) {
+            return super.add(e);
+        }
+        int index = value.size();
+        if (!value.add(e)) {
+            return false;
+        }
+        reportAdded(index, Collections.singletonList(e));
+        change();
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!reportsChanges()) {
+            return super.remove(o);
+        }
+        int index = value.indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        if (!reportsChanges()) {
+            return super.addAll(c);
+        }
+        return addAll(value.size(), c);
+    }
+
     @Override
     public boolean addAll(int index, Collection<? extends E> c) {
-        return changeIf(value.addAll(index, c));
+        if (!reportsChanges()) {
+            return changeIf(value.addAll(index, c));
+        }
+        List<E> added = new ArrayList<E>(c);
+        if (!value.addAll(index, added)) {
+            return false;
+        }
+        reportAdded(index, Collections.unmodifiableList(added));
+        change();
+        return true;
+    }
+
+    /**
+     * Remove the elements that satisfy {@code filter}, reporting each run of adjacent elements as one removal.
+     * The list removes them itself in one pass with its own {@code removeIf}, which tests the elements in order, and
+     * the runs are reported afterwards at the positions they were removed from.
+     */
+    @Override
+    boolean removeMatching(final Predicate<? super E> filter) {
+        final List<Integer> runIndices = new ArrayList<Integer>();
+        final List<List<E>> runs = new ArrayList<List<E>>();
+        boolean changed = value.removeIf(new Predicate<E>() {
+            int index;
+            int removed;
+            int runEnd = -1;
+
+            @Override
+            public boolean test(E e) {
+                int i = index++;
+                if (!filter.test(e)) {
+                    return false;
+                }
+                // Adjacent elements are all removed from the same position
+                if (i != runEnd) {
+                    runIndices.add(i - removed);
+                    runs.add(new ArrayList<E>());
+                }
+                runs.get(runs.size() - 1).add(e);
+                removed++;
+                runEnd = i + 1;
+                return true;
+            }
+        });
+        for (int i = 0; i < runs.size(); i++) {
+            reportRemoved(runIndices.get(i), Collections.unmodifiableList(runs.get(i)));
+        }
+        return changed;
+    }
+
+    /**
+     * Replace each element with the result of {@code operator} directly in the list, rather than one by one through
+     * {@link ListBox#listIterator()}, so that observers are notified once. Delta observers are told about each
+     * position whose element was replaced by a different object.
+     */
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        if (!reportsChanges()) {
+            value.replaceAll(operator);
+            changeIf(!value.isEmpty());
+            return;
+        }
+        for (ListIterator<E> iterator = value.listIterator(); iterator.hasNext(); ) {
+            int index = iterator.nextIndex();
+            E old = iterator.next();
+            E e = operator.apply(old);
+            iterator.set(e);
+            if (e != old) {
+                reportReplaced(index, old, e);
+            }
+        }
+        changeIf(!value.isEmpty());
+    }
+
+    /**
+     * Sort the list directly, rather than setting each element through {@link ListBox#listIterator()}, so that
+     * observers are notified once. Delta observers are told that the elements were removed and added again in the
+     * new order.
+     */
+    @Override
+    public void sort(Comparator<? super E> c) {
+        List<E> before = reportsChanges() ? new ArrayList<E>(value) : null;
+        value.sort(c);
+        sorted(before);
+    }
+
+    /**
+     * Sort the list like {@link ListBox#sort(Comparator)}, but using {@link Arrays#parallelSort(Object[], Comparator)},
+     * which is faster for large lists on machines with several cores. A null {@code comparator} sorts by the natural
+     * ordering of the elements.
+     */
+    public void parallelSort(Comparator<? super E> comparator) {
+        List<E> before = reportsChanges() ? new ArrayList<E>(value) : null;
+        //noinspection unchecked
+        E[] elements = (E[]) value.toArray();
+        Arrays.parallelSort(elements, comparator);
+        for (ListIterator<E> iterator = value.listIterator(); iterator.hasNext(); ) {
+            iterator.next();
+            iterator.set(elements[iterator.previousIndex()]);
+        }
+        sorted(before);
+    }
+
+    private void sorted(List<E> before) {
+        if (before != null && !before.isEmpty()) {
+            reportReordered(0, Collections.unmodifiableList(before), Collections.unmodifiableList(value));
+        }
+        changeIf(!value.isEmpty());
     }
 
     @Override
@@ -65,18 +288,29 @@ public class ListBox<E> extends CollectionBox<List<E>, E> implements List<E> {
 
     @Override
     public E set(int index, E element) {
-        return change(value.set(index, element));
+        E old = value.set(index, element);
+        if (reportsChanges()) {
+            reportReplaced(index, old, element);
+        }
+        return change(old);
     }
 
     @Override
     public void add(int index, E element) {
         value.add(index, element);
+        if (reportsChanges()) {
+            reportAdded(index, Collections.singletonList(element));
+        }
         change();
     }
 
     @Override
     public E remove(int index) {
-        return change(value.remove(index));
+        E old = value.remove(index);
+        if (reportsChanges()) {
+            reportRemoved(index, Collections.singletonList(old));
+        }
+        return change(old);
     }
 
     @Override
@@ -99,35 +333,116 @@ public class ListBox<E> extends CollectionBox<List<E>, E> implements List<E> {
         final ListIterator<E> delegate = value.listIterator(index);
         return new ForwardingListIterator<E>() {
 
+            private E last;
+
+            /**
+             * Whether last was returned by next rather than previous, which determines its index.
+             */
+            private boolean forward;
+
             @Override
             protected ListIterator<E> delegate() {
                 return delegate;
             }
 
+            @Override
+            public E next() {
+                last = super.next();
+                forward = true;
+                return last;
+            }
+
+            @Override
+            public E previous() {
+                last = super.previous();
+                forward = false;
+                return last;
+            }
+
+            private int lastIndex() {
+                return forward ? delegate.nextIndex() - 1 : delegate.nextIndex();
+            }
+
             @Override
             public void remove() {
+                int index = lastIndex();
                 super.remove();
+                if (reportsChanges()) {
+                    reportRemoved(index, Collections.singletonList(last));
+                }
                 change();
             }
 
             @Override
             public void set(E e) {
+                int index = lastIndex();
                 super.set(e);
+                if (reportsChanges()) {
+                    reportReplaced(index, last, e);
+                }
+                last = e;
                 change();
             }
 
             @Override
             public void add(E e) {
                 super.add(e);
+                if (reportsChanges()) {
+                    reportAdded(delegate.nextIndex() - 1, Collections.singletonList(e));
+                }
                 change();
             }
         };
     }
 
     @Override
-    public List<E> subList(int fromIndex, int toIndex) {
-        ListBox<E> subList = new ListBox<E>(SUB_LIST_FAMILY)
-                .set(value.subList(fromIndex, toIndex));
+    public List<E> subList(final int fromIndex, int toIndex) {
+        // Changes to the sublist are reported by this list at the positions they have in it
+        ListBox<E> subList = new ListBox<E>(SUB_LIST_FAMILY) {
+            @Override
+            boolean reportsChanges() {
+                return ListBox.this.reportsChanges();
+            }
+
+            @Override
+            void reportAdded(int index, List<E> elements) {
+                ListBox.this.reportAdded(fromIndex + index, elements);
+            }
+
+            @Override
+            void reportRemoved(int index, List<E> elements) {
+                ListBox.this.reportRemoved(fromIndex + index, elements);
+            }
+
+            @Override
+            void reportReplaced(int index, E oldElement, E newElement) {
+                ListBox.this.reportReplaced(fromIndex + index, oldElement, newElement);
+            }
+
+            @Override
+            void reportReordered(int index, List<E> before, List<E> after) {
+                ListBox.this.reportReordered(fromIndex + index, before, after);
+            }
+
+            @Override
+            void reportSet() {
+                // Only called when the sublist is created, which doesn't change this list
+            }
+
+            @Override
+            public void clear() {
+                if (!reportsChanges()) {
+                    super.clear();
+                    return;
+                }
+                List<E> removed = new ArrayList<E>(value);
+                value.clear();
+                if (!removed.isEmpty()) {
+                    reportRemoved(0, Collections.unmodifiableList(removed));
+                }
+                change();
+            }
+        }.set(value.subList(fromIndex, toIndex));
         //noinspection unchecked
         TARGETED_CHANGE_OBSERVER.register((PowerBox) subList, this);
         return subList;
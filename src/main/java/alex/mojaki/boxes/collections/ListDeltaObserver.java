@@ -0,0 +1,45 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.List;
+
+/**
+ * Receives a description of each change to a {@link ListBox} in terms of the positions affected, so that something
+ * mirroring, indexing or serialising the list can do work proportional to the size of the change rather than the
+ * size of the list.
+ * <p>
+ * Changes are reported after the list has changed and before its {@link ChangeObserver}s are notified. Applying the
+ * reported changes in order to a copy of the list keeps it equal to the list. Setting a new list in the box is
+ * reported as {@link ListDeltaObserver#onCleared(ListBox)} followed by
+ * {@link ListDeltaObserver#onAdded(ListBox, int, List)} for the whole of the new list, if it isn't empty.
+ * <p>
+ * The lists of elements passed to these methods are unmodifiable and shouldn't be kept after the call, as they may
+ * be views of the box.
+ *
+ * @param <E> the type of the list elements
+ * @see ListBox#addDeltaObserver(ListDeltaObserver)
+ */
+public interface ListDeltaObserver<E> {
+
+    /**
+     * Called when {@code elements} have been inserted into {@code box}, the first at {@code index}.
+     */
+    void onAdded(ListBox<? extends E> box, int index, List<? extends E> elements);
+
+    /**
+     * Called when {@code elements}, the number of which is the number of positions removed, have been removed from
+     * {@code box} starting at {@code index}.
+     */
+    void onRemoved(ListBox<? extends E> box, int index, List<? extends E> elements);
+
+    /**
+     * Called when the element at {@code index} in {@code box} has been replaced.
+     */
+    void onReplaced(ListBox<? extends E> box, int index, E oldElement, E newElement);
+
+    /**
+     * Called when all the elements of {@code box} have been removed.
+     */
+    void onCleared(ListBox<? extends E> box);
+}
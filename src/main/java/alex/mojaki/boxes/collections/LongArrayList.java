@@ -0,0 +1,267 @@
+package alex.mojaki.boxes.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of {@code long}s stored in a {@code long[]}, which takes a fraction of the memory of a list of
+ * {@code Long}s and keeps the values next to each other in memory. It's a {@code List<Long>} so that it can be
+ * used like any other list, boxing values as needed, and also has methods such as {@link LongArrayList#getLong(int)} that
+ * don't box. It's the usual value of a {@link LongListBox}.
+ * <p>
+ * Like {@code ArrayList} it isn't thread safe and its iterators fail fast. Null elements aren't allowed.
+ */
+public class LongArrayList extends AbstractList<Long> implements RandomAccess {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] elements;
+    private int size;
+
+    /**
+     * Construct an empty list.
+     */
+    public LongArrayList() {
+        elements = EMPTY;
+    }
+
+    /**
+     * Construct an empty list with room for {@code initialCapacity} values before it needs to grow.
+     */
+    public LongArrayList(int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity >= 0, "Negative capacity: %s", initialCapacity);
+        elements = initialCapacity == 0 ? EMPTY : new long[initialCapacity];
+    }
+
+    /**
+     * Return a new list containing the given values.
+     */
+    public static LongArrayList of(long... values) {
+        LongArrayList list = new LongArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            int newCapacity = elements.length + (elements.length >> 1) + 10;
+            // Also covers overflow
+            if (newCapacity < capacity) {
+                newCapacity = capacity;
+            }
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+    }
+
+    /**
+     * Reduce the memory used by the list to what its current values need.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    public long getLong(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return elements[index];
+    }
+
+    /**
+     * Replace the value at {@code index} and return the previous value.
+     */
+    public long setLong(int index, long value) {
+        Preconditions.checkElementIndex(index, size);
+        long old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void addLong(long value) {
+        modCount++;
+        ensureCapacity(size + 1);
+        elements[size++] = value;
+    }
+
+    public void addLong(int index, long value) {
+        Preconditions.checkPositionIndex(index, size);
+        modCount++;
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    /**
+     * Remove the value at {@code index} and return it.
+     */
+    public long removeLong(int index) {
+        Preconditions.checkElementIndex(index, size);
+        modCount++;
+        long old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    /**
+     * Append all of {@code values}.
+     */
+    public void addAll(long[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Append {@code length} values from {@code values} starting at {@code offset}.
+     */
+    public void addAll(long[] values, int offset, int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, values.length);
+        modCount++;
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
+
+    public int indexOfLong(long value) {
+        for (int i = 0; i < size; i++) {
+            if (equal(elements[i], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOfLong(long value) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (equal(elements[i], value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsLong(long value) {
+        return indexOfLong(value) >= 0;
+    }
+
+    private static boolean equal(long a, long b) {
+        return a == b;
+    }
+
+    /**
+     * Return a new array containing the values of the list.
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long element) {
+        return setLong(index, element);
+    }
+
+    @Override
+    public boolean add(Long element) {
+        addLong(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Long element) {
+        addLong(index, element);
+    }
+
+    @Override
+    public Long remove(int index) {
+        return removeLong(index);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> c) {
+        ensureCapacity(size + c.size());
+        return super.addAll(c);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Long ? indexOfLong((Long) o) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return o instanceof Long ? lastIndexOfLong((Long) o) : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Sort the list, without boxing the values if {@code c} is null, meaning natural ordering.
+     */
+    @Override
+    public void sort(Comparator<? super Long> c) {
+        if (c == null) {
+            Arrays.sort(elements, 0, size);
+            modCount++;
+        } else {
+            super.sort(c);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LongArrayList)) {
+            return super.equals(o);
+        }
+        LongArrayList other = (LongArrayList) o;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!equal(elements[i], other.elements[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (int i = 0; i < size; i++) {
+            hashCode = 31 * hashCode + Long.hashCode(elements[i]);
+        }
+        return hashCode;
+    }
+
+}
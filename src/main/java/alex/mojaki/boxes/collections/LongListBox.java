@@ -0,0 +1,164 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link ListBox} of {@code long}s whose value is normally a {@link LongArrayList}, which stores them without boxing.
+ * As well as being used as a {@code List<Long>}, it has methods such as {@link LongListBox#getLong(int)} and
+ * {@link LongListBox#addAll(long[])} which don't box values when the value is a {@code LongArrayList}. With other
+ * lists they still work, boxing as usual.
+ * <p>
+ * {@link ListDeltaObserver}s are told about ranges of values, e.g. all the values appended by one call to
+ * {@code addAll} at once, in lists that box each value when it's read.
+ */
+public class LongListBox extends ListBox<Long> {
+
+    /**
+     * The value if it's a {@code LongArrayList}, otherwise null.
+     */
+    private LongArrayList array;
+
+    /**
+     * Construct a {@code LongListBox} belonging to the given family.
+     */
+    public LongListBox(BoxFamily family) {
+        super(family);
+    }
+
+    /**
+     * Construct a {@code LongListBox} belonging to a family identified by the given class a name.
+     */
+    public LongListBox(Class<?> clazz, String name) {
+        super(clazz, name);
+    }
+
+    /**
+     * A convenience method that sets the value to an empty {@code LongArrayList}.
+     *
+     * @return this object for chaining
+     */
+    @Override
+    public LongListBox init() {
+        return set(new LongArrayList());
+    }
+
+    @Override
+    protected void rawSet(List<Long> value) {
+        array = value instanceof LongArrayList ? (LongArrayList) value : null;
+        super.rawSet(value);
+    }
+
+    public long getLong(int index) {
+        return array != null ? array.getLong(index) : value.get(index);
+    }
+
+    /**
+     * Replace the value at {@code index} and return the previous value.
+     */
+    public long setLong(int index, long element) {
+        long old = array != null ? array.setLong(index, element) : value.set(index, element);
+        if (reportsChanges()) {
+            reportReplaced(index, old, element);
+        }
+        change();
+        return old;
+    }
+
+    public void addLong(long element) {
+        addLong(value.size(), element);
+    }
+
+    public void addLong(int index, long element) {
+        if (array != null) {
+            array.addLong(index, element);
+        } else {
+            value.add(index, element);
+        }
+        if (reportsChanges()) {
+            reportAdded(index, Collections.<Long>singletonList(element));
+        }
+        change();
+    }
+
+    /**
+     * Remove the value at {@code index} and return it.
+     */
+    public long removeLong(int index) {
+        long old = array != null ? array.removeLong(index) : value.remove(index);
+        if (reportsChanges()) {
+            reportRemoved(index, Collections.<Long>singletonList(old));
+        }
+        change();
+        return old;
+    }
+
+    /**
+     * Append all of {@code values}, notifying observers once.
+     */
+    public void addAll(long[] values) {
+        addAll(values, 0, values.length);
+    }
+
+    /**
+     * Append {@code length} values from {@code values} starting at {@code offset}, notifying observers once.
+     */
+    public void addAll(long[] values, int offset, int length) {
+        Preconditions.checkPositionIndexes(offset, offset + length, values.length);
+        if (length == 0) {
+            return;
+        }
+        int index = value.size();
+        if (array != null) {
+            array.addAll(values, offset, length);
+        } else {
+            value.addAll(Longs.asList(values).subList(offset, offset + length));
+        }
+        if (reportsChanges()) {
+            reportAdded(index, Collections.unmodifiableList(Longs.asList(values).subList(offset, offset + length)));
+        }
+        change();
+    }
+
+    public int indexOfLong(long element) {
+        return array != null ? array.indexOfLong(element) : value.indexOf(element);
+    }
+
+    public boolean containsLong(long element) {
+        return indexOfLong(element) >= 0;
+    }
+
+    /**
+     * Return a new array containing the values of the list.
+     */
+    public long[] toLongArray() {
+        return array != null ? array.toLongArray() : Longs.toArray(value);
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public LongListBox set(List<Long> value) {
+        super.set(value);
+        return this;
+    }
+
+    @Override
+    public LongListBox addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public LongListBox addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+}
@@ -5,27 +5,56 @@ import alex.mojaki.boxes.PowerBox;
 import alex.mojaki.boxes.WrapperBox;
 import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
 import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.TargetedChangeObserver;
 import com.google.common.collect.ForwardingIterator;
 import com.google.common.collect.ForwardingMapEntry;
 import com.google.common.collect.ForwardingSet;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A map that can watch for changes. This is both a {@code Map} and a {@code PowerBox<Map>} and should
  * be declared as this type so that it can use the abilities of both. It is far preferable to creating a
  * {@code PowerBox} in a more usual way, e.g. a {@code CommonBox<Map>}, as you can now attach {@code ChangeObserver}s
  * that know when the map is mutated, which also implies you can create {@code View}s around it.
+ * <p>
+ * {@link ElementObserver}s added to a map box are told about the values added and removed, e.g. when
+ * {@code put} replaces a value, and {@link MapDeltaObserver}s about the keys added, replaced and removed. Changes made
+ * through {@link MapBox#keySet()} and {@link MapBox#entrySet()} other than {@code Entry.setValue} are reported as
+ * resets.
  *
  * @param <K> the type of the map keys
  * @param <V> the type of the map values
  * @see WrapperBox
  */
-public class MapBox<K, V> extends WrapperBox<Map<K, V>> implements Map<K, V> {
+public class MapBox<K, V> extends WrapperBox<Map<K, V>> implements Map<K, V>, ElementSource<V> {
 
     private static final BoxFamily KEY_SET_FAMILY = BoxFamily.getInstance(MapBox.class, "keySet");
     private static final BoxFamily ENTRY_SET_FAMILY = BoxFamily.getInstance(MapBox.class, "entrySet");
 
+    /**
+     * Notifies a map box of changes made through its key or entry set, which may have removed any of its values.
+     */
+    private static final TargetedChangeObserver<Object, MapBox> VIEW_CHANGE_OBSERVER = internalObserver(
+            new TargetedChangeObserver<Object, MapBox>() {
+                @Override
+                public void onChange(PowerBox box, Object originalValue,
+                                     Object finalValue, Object requestedValue, MapBox target) {
+                    if (target.reportsChanges()) {
+                        target.reportReset();
+                    }
+                    target.change();
+                }
+            });
+
+    private final ElementObservers<V> elementObservers = new ElementObservers<V>(this);
+
+    private final List<MapDeltaObserver<? super K, ? super V>> deltaObservers =
+            new CopyOnWriteArrayList<MapDeltaObserver<? super K, ? super V>>();
+
     /**
      * Construct a {@code MapBox} belonging to the given family.
      */
@@ -55,6 +84,88 @@ public class MapBox<K, V> extends WrapperBox<Map<K, V>> implements Map<K, V> {
         return this;
     }
 
+    @Override
+    public void addElementObserver(ElementObserver<? super V> observer) {
+        elementObservers.add(observer);
+    }
+
+    /**
+     * Add an observer to be told which keys of this map each change affected.
+     * Like {@link ElementObserver}s it belongs to this box rather than its family.
+     */
+    public void addDeltaObserver(MapDeltaObserver<? super K, ? super V> observer) {
+        deltaObservers.add(observer);
+    }
+
+    /**
+     * Return the values of the map.
+     */
+    @Override
+    public Iterable<V> elements() {
+        return value.values();
+    }
+
+    /**
+     * Setting a new map is reported to {@link ElementObserver}s as a reset.
+     */
+    @Override
+    protected void rawSet(Map<K, V> value) {
+        super.rawSet(value);
+        if (reportsChanges()) {
+            reportReset();
+        }
+    }
+
+    // The report methods are only called if reportsChanges() returns true
+
+    private boolean reportsChanges() {
+        return !elementObservers.isEmpty() || !deltaObservers.isEmpty();
+    }
+
+    private void reportAdded(K key, V value) {
+        elementObservers.added(value);
+        for (MapDeltaObserver<? super K, ? super V> observer : deltaObservers) {
+            observer.onAdded(this, key, value);
+        }
+    }
+
+    private void reportReplaced(K key, V oldValue, V newValue) {
+        elementObservers.removed(oldValue);
+        elementObservers.added(newValue);
+        for (MapDeltaObserver<? super K, ? super V> observer : deltaObservers) {
+            observer.onReplaced(this, key, oldValue, newValue);
+        }
+    }
+
+    private void reportRemoved(K key, V value) {
+        elementObservers.removed(value);
+        for (MapDeltaObserver<? super K, ? super V> observer : deltaObservers) {
+            observer.onRemoved(this, key, value);
+        }
+    }
+
+    private void reportCleared() {
+        elementObservers.reset();
+        for (MapDeltaObserver<? super K, ? super V> observer : deltaObservers) {
+            observer.onCleared(this);
+        }
+    }
+
+    /**
+     * Report that the contents may have changed in any way.
+     */
+    private void reportReset() {
+        elementObservers.reset();
+        for (MapDeltaObserver<? super K, ? super V> observer : deltaObservers) {
+            observer.onCleared(this);
+            if (value != null) {
+                for (Entry<K, V> entry : value.entrySet()) {
+                    observer.onAdded(this, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
     @Override
     public int size() {
         return value.size();
@@ -82,23 +193,141 @@ public class MapBox<K, V> extends WrapperBox<Map<K, V>> implements Map<K, V> {
 
     @Override
     public V put(K key, V value) {
-        return change(this.value.put(key, value));
+        return change(putAndReport(key, value));
+    }
+
+    private V putAndReport(K key, V value) {
+        if (!reportsChanges()) {
+            return this.value.put(key, value);
+        }
+        // Null values mean that put's return value can't tell us whether a value was replaced
+        boolean replaced = this.value.containsKey(key);
+        V old = this.value.put(key, value);
+        if (replaced) {
+            reportReplaced(key, old, value);
+        } else {
+            reportAdded(key, value);
+        }
+        return old;
     }
 
     @Override
     public V remove(Object key) {
-        return change(value.remove(key));
+        return change(removeAndReport(key));
+    }
+
+    private V removeAndReport(Object key) {
+        if (!reportsChanges()) {
+            return value.remove(key);
+        }
+        boolean removed = value.containsKey(key);
+        V old = value.remove(key);
+        if (removed) {
+            //noinspection unchecked
+            reportRemoved((K) key, old);
+        }
+        return old;
+    }
+
+    // The following methods are implemented like the default methods of Map, but work on the map directly rather
+    // than calling get, put and remove on this box, and notify observers once.
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V old = value.get(key);
+        if (old == null) {
+            V newValue = mappingFunction.apply(key);
+            if (newValue != null) {
+                putAndReport(key, newValue);
+                change();
+                return newValue;
+            }
+        }
+        return old;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        V old = value.get(key);
+        if (old == null) {
+            return null;
+        }
+        return replaceOrRemove(key, remappingFunction.apply(key, old));
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        V old = value.get(key);
+        V newValue = remappingFunction.apply(key, old);
+        if (newValue == null && old == null && !value.containsKey(key)) {
+            return null;
+        }
+        return replaceOrRemove(key, newValue);
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Objects.requireNonNull(value);
+        V old = this.value.get(key);
+        return replaceOrRemove(key, old == null ? value : remappingFunction.apply(old, value));
+    }
+
+    /**
+     * Put {@code newValue} or, if it's null, remove {@code key}, and notify observers.
+     */
+    private V replaceOrRemove(K key, V newValue) {
+        if (newValue == null) {
+            removeAndReport(key);
+        } else {
+            putAndReport(key, newValue);
+        }
+        change();
+        return newValue;
+    }
+
+    /**
+     * Replace each value with the result of {@code function} directly in the map, rather than one by one through
+     * {@link MapBox#entrySet()}, so that observers are notified once.
+     */
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (!reportsChanges()) {
+            value.replaceAll(function);
+        } else {
+            for (Entry<K, V> entry : value.entrySet()) {
+                V old = entry.getValue();
+                V newValue = function.apply(entry.getKey(), old);
+                entry.setValue(newValue);
+                if (newValue != old) {
+                    reportReplaced(entry.getKey(), old, newValue);
+                }
+            }
+        }
+        changeIf(!value.isEmpty());
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        value.putAll(m);
+        if (!reportsChanges()) {
+            value.putAll(m);
+        } else {
+            for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+                putAndReport(entry.getKey(), entry.getValue());
+            }
+        }
         change();
     }
 
     @Override
     public void clear() {
         value.clear();
+        if (reportsChanges()) {
+            reportCleared();
+        }
         change();
     }
 
@@ -110,7 +339,7 @@ public class MapBox<K, V> extends WrapperBox<Map<K, V>> implements Map<K, V> {
     private <T> Set<T> watchedSet(Set<T> innerSet, BoxFamily family) {
         SetBox<T> setBox = new SetBox<T>(family).set(innerSet);
         //noinspection unchecked
-        TARGETED_CHANGE_OBSERVER.register((PowerBox) setBox, this);
+        VIEW_CHANGE_OBSERVER.register((PowerBox) setBox, this);
         return setBox;
     }
 
@@ -148,7 +377,11 @@ public class MapBox<K, V> extends WrapperBox<Map<K, V>> implements Map<K, V> {
 
                             @Override
                             public V setValue(V value) {
-                                return change(super.setValue(value));
+                                V old = super.setValue(value);
+                                if (reportsChanges()) {
+                                    reportReplaced(getKey(), old, value);
+                                }
+                                return change(old);
                             }
                         };
                     }
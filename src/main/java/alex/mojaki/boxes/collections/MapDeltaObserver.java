@@ -0,0 +1,41 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+/**
+ * Receives a description of each change to a {@link MapBox} in terms of the keys affected, so that something
+ * mirroring, indexing or serialising the map can do work proportional to the size of the change rather than the
+ * size of the map.
+ * <p>
+ * Changes are reported after the map has changed and before its {@link ChangeObserver}s are notified. Setting a new
+ * map in the box is reported as {@link MapDeltaObserver#onCleared(MapBox)} followed by
+ * {@link MapDeltaObserver#onAdded(MapBox, Object, Object)} for each entry of the new map. So are changes made through
+ * {@link MapBox#keySet()} and {@link MapBox#entrySet()} other than {@code Entry.setValue}, since the values they
+ * remove are no longer available.
+ *
+ * @param <K> the type of the map keys
+ * @param <V> the type of the map values
+ * @see MapBox#addDeltaObserver(MapDeltaObserver)
+ */
+public interface MapDeltaObserver<K, V> {
+
+    /**
+     * Called when {@code key}, which wasn't in {@code box}, has been added to it with {@code value}.
+     */
+    void onAdded(MapBox<? extends K, ? extends V> box, K key, V value);
+
+    /**
+     * Called when the value of {@code key} in {@code box} has been replaced.
+     */
+    void onReplaced(MapBox<? extends K, ? extends V> box, K key, V oldValue, V newValue);
+
+    /**
+     * Called when {@code key}, whose value was {@code value}, has been removed from {@code box}.
+     */
+    void onRemoved(MapBox<? extends K, ? extends V> box, K key, V value);
+
+    /**
+     * Called when all the entries of {@code box} have been removed.
+     */
+    void onCleared(MapBox<? extends K, ? extends V> box);
+}
@@ -0,0 +1,444 @@
+package alex.mojaki.boxes.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable map which shares most of its structure with the maps derived from it by
+ * {@link PersistentHashMap#plus(Object, Object)} and {@link PersistentHashMap#minus(Object)}, so that these take close
+ * to constant time rather than copying the map. It's a hash array mapped trie: a tree in which each node uses 5 bits
+ * of the hash codes of the keys to choose between up to 32 children, stored in an array no larger than the number of
+ * children that exist.
+ * <p>
+ * It's the snapshot returned by {@link PersistentMapBox#snapshot()}. The methods of {@code Map} that would modify it
+ * throw {@code UnsupportedOperationException}. Null keys and values are allowed. Iteration order is unspecified.
+ *
+ * @param <K> the type of the map keys
+ * @param <V> the type of the map values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Stands in for the null key, since a null key in a node marks a child node.
+     */
+    private static final Object NULL_KEY = new Object();
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>(0, null);
+
+    private final int size;
+
+    /**
+     * Null if the map is empty.
+     */
+    private final Node root;
+
+    private PersistentHashMap(int size, Node root) {
+        this.size = size;
+        this.root = root;
+    }
+
+    /**
+     * Return the empty map.
+     */
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        //noinspection unchecked
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Return a map of the entries of {@code map}, or {@code map} itself if it's already a {@code PersistentHashMap}.
+     */
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            //noinspection unchecked
+            return (PersistentHashMap<K, V>) map;
+        }
+        PersistentHashMap<K, V> result = empty();
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static Object mask(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static Object unmask(Object key) {
+        return key == NULL_KEY ? null : key;
+    }
+
+    private static int hash(Object maskedKey) {
+        int h = maskedKey.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private Object find(Object key) {
+        if (root == null) {
+            return NOT_FOUND;
+        }
+        Object maskedKey = mask(key);
+        return root.find(0, hash(maskedKey), maskedKey);
+    }
+
+    @Override
+    public V get(Object key) {
+        Object value = find(key);
+        //noinspection unchecked
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return a map like this one but with {@code key} mapped to {@code value}.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Object maskedKey = mask(key);
+        boolean[] added = new boolean[1];
+        Node start = root == null ? BitmapNode.EMPTY : root;
+        Node newRoot = start.plus(0, hash(maskedKey), maskedKey, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<K, V>(added[0] ? size + 1 : size, newRoot);
+    }
+
+    /**
+     * Return a map like this one but without {@code key}, or this map if it doesn't contain the key.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null) {
+            return this;
+        }
+        Object maskedKey = mask(key);
+        Node newRoot = root.minus(0, hash(maskedKey), maskedKey);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<K, V>(size - 1, newRoot);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator<K, V>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Entry)) {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Object value = find(entry.getKey());
+                return value != NOT_FOUND && Objects.equals(value, entry.getValue());
+            }
+        };
+    }
+
+    private abstract static class Node {
+
+        /**
+         * Return the value of {@code key}, or {@code NOT_FOUND}.
+         */
+        abstract Object find(int shift, int hash, Object key);
+
+        /**
+         * Return a node with {@code key} mapped to {@code value}, which is this one if it's already the value,
+         * setting {@code added[0]} if the key is new.
+         */
+        abstract Node plus(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * Return a node without {@code key}, which is this one if it doesn't contain it, or null if that would be
+         * empty.
+         */
+        abstract Node minus(int shift, int hash, Object key);
+
+        /**
+         * Return the array of key value pairs, where a null key means the value is a child node.
+         */
+        abstract Object[] array();
+    }
+
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        /**
+         * Which of the 32 possible children exist, in the same order as the array.
+         */
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int index = index(bit);
+            Object k = array[2 * index];
+            Object v = array[2 * index + 1];
+            if (k == null) {
+                return ((Node) v).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? v : NOT_FOUND;
+        }
+
+        @Override
+        Node plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = index(bit);
+            if ((bitmap & bit) != 0) {
+                Object k = array[2 * index];
+                Object v = array[2 * index + 1];
+                if (k == null) {
+                    Node child = ((Node) v).plus(shift + BITS, hash, key, value, added);
+                    return child == v ? this : new BitmapNode(bitmap, with(array, 2 * index + 1, child));
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : new BitmapNode(bitmap, with(array, 2 * index + 1, value));
+                }
+                added[0] = true;
+                Object[] newArray = with(array, 2 * index, null);
+                newArray[2 * index + 1] = createNode(shift + BITS, k, v, hash, key, value);
+                return new BitmapNode(bitmap, newArray);
+            }
+            added[0] = true;
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            newArray[2 * index] = key;
+            newArray[2 * index + 1] = value;
+            System.arraycopy(array, 2 * index, newArray, 2 * index + 2, array.length - 2 * index);
+            return new BitmapNode(bitmap | bit, newArray);
+        }
+
+        @Override
+        Node minus(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object k = array[2 * index];
+            Object v = array[2 * index + 1];
+            if (k == null) {
+                Node child = ((Node) v).minus(shift + BITS, hash, key);
+                if (child == v) {
+                    return this;
+                }
+                if (child != null) {
+                    return new BitmapNode(bitmap, with(array, 2 * index + 1, child));
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            return new BitmapNode(bitmap ^ bit, withoutPair(array, index));
+        }
+
+        @Override
+        Object[] array() {
+            return array;
+        }
+    }
+
+    /**
+     * Holds keys whose hash codes are all equal.
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            if (hash != this.hash) {
+                return NOT_FOUND;
+            }
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : array[index + 1];
+        }
+
+        @Override
+        Node plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Move this node down a level so that the new key can go beside it
+                Node parent = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[]{null, this});
+                return parent.plus(shift, hash, key, value, added);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                return array[index + 1] == value ? this : new CollisionNode(hash, with(array, index + 1, value));
+            }
+            added[0] = true;
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node minus(int shift, int hash, Object key) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            return new CollisionNode(hash, withoutPair(array, index / 2));
+        }
+
+        @Override
+        Object[] array() {
+            return array;
+        }
+    }
+
+    private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+        }
+        // The hashes differ in at least one of the 32 bits, which are all used by the time shift reaches 35
+        boolean[] ignored = new boolean[1];
+        return BitmapNode.EMPTY
+                .plus(shift, hash1, key1, value1, ignored)
+                .plus(shift, hash2, key2, value2, ignored);
+    }
+
+    private static Object[] with(Object[] array, int index, Object value) {
+        Object[] result = array.clone();
+        result[index] = value;
+        return result;
+    }
+
+    private static Object[] withoutPair(Object[] array, int pairIndex) {
+        Object[] result = new Object[array.length - 2];
+        System.arraycopy(array, 0, result, 0, 2 * pairIndex);
+        System.arraycopy(array, 2 * pairIndex + 2, result, 2 * pairIndex, result.length - 2 * pairIndex);
+        return result;
+    }
+
+    /**
+     * Walks the tree depth first, keeping the arrays of the nodes it's in and its position in each.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        // Deep enough for 32 bit hashes, plus a collision node
+        private final Object[][] arrays = new Object[9][];
+        private final int[] positions = new int[9];
+        private int depth = -1;
+        private Entry<K, V> next;
+
+        EntryIterator(Node root) {
+            if (root != null) {
+                push(root);
+                advance();
+            }
+        }
+
+        private void push(Node node) {
+            depth++;
+            arrays[depth] = node.array();
+            positions[depth] = 0;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position == array.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                Object key = array[position];
+                Object value = array[position + 1];
+                if (key == null) {
+                    push((Node) value);
+                } else {
+                    //noinspection unchecked
+                    next = new SimpleImmutableEntry<K, V>((K) unmask(key), (V) value);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Persistent maps are immutable");
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package alex.mojaki.boxes.collections;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An immutable set which shares most of its structure with the sets derived from it by
+ * {@link PersistentHashSet#plus(Object)} and {@link PersistentHashSet#minus(Object)}, so that these take close to
+ * constant time rather than copying the set. It's the key set of a {@link PersistentHashMap}.
+ * <p>
+ * It's the snapshot returned by {@link PersistentSetBox#snapshot()}. The methods of {@code Set} that would modify it
+ * throw {@code UnsupportedOperationException}. Null elements are allowed. Iteration order is unspecified.
+ *
+ * @param <E> the type of the set elements
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+
+    private static final PersistentHashSet<Object> EMPTY =
+            new PersistentHashSet<Object>(PersistentHashMap.<Object, Boolean>empty());
+
+    private final PersistentHashMap<E, Boolean> map;
+
+    private PersistentHashSet(PersistentHashMap<E, Boolean> map) {
+        this.map = map;
+    }
+
+    /**
+     * Return the empty set.
+     */
+    public static <E> PersistentHashSet<E> empty() {
+        //noinspection unchecked
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * Return a set of the elements of {@code elements}, or {@code elements} itself if it's already a
+     * {@code PersistentHashSet}.
+     */
+    public static <E> PersistentHashSet<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof PersistentHashSet) {
+            //noinspection unchecked
+            return (PersistentHashSet<E>) elements;
+        }
+        PersistentHashSet<E> result = empty();
+        for (E element : elements) {
+            result = result.plus(element);
+        }
+        return result;
+    }
+
+    /**
+     * Return a set with {@code element} added to this one, or this set if it already contains the element.
+     */
+    public PersistentHashSet<E> plus(E element) {
+        PersistentHashMap<E, Boolean> newMap = map.plus(element, Boolean.TRUE);
+        return newMap == map ? this : new PersistentHashSet<E>(newMap);
+    }
+
+    /**
+     * Return a set with {@code element} removed from this one, or this set if it doesn't contain the element.
+     */
+    public PersistentHashSet<E> minus(Object element) {
+        PersistentHashMap<E, Boolean> newMap = map.minus(element);
+        return newMap == map ? this : new PersistentHashSet<E>(newMap);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final Iterator<Map.Entry<E, Boolean>> entries = map.entrySet().iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return entries.next().getKey();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Persistent sets are immutable");
+            }
+        };
+    }
+
+}
@@ -0,0 +1,245 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * A {@link ListBox} whose contents are kept in a {@link PersistentVector}, so that
+ * {@link PersistentListBox#snapshot()} can return an immutable copy of the list in constant time, without copying or
+ * locking. Other threads can take snapshots as often as they like while the list is being modified, which, as with
+ * other list boxes, must only be done by one thread at a time. Changes are observed in the same way as in any
+ * {@code ListBox}.
+ * <p>
+ * Reading, replacing, appending and removing the last element take close to constant time. Inserting or removing
+ * elements elsewhere takes time proportional to the size of the list, as does sorting. Bulk operations such as
+ * {@code removeIf}, {@code removeAll} and {@code addAll} at an index also take time proportional to the size of the
+ * list, however many elements they add or remove. Setting a list copies it into a new {@code PersistentVector}, unless
+ * it already is one, so later changes to the original don't affect the box.
+ *
+ * @param <E> the type of the list elements
+ */
+public class PersistentListBox<E> extends ListBox<E> {
+
+    /**
+     * A mutable list that replaces its vector with a new one on every change.
+     */
+    private static final class Contents<E> extends AbstractList<E> implements RandomAccess {
+
+        volatile PersistentVector<E> vector;
+
+        Contents(PersistentVector<E> vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public E get(int index) {
+            return vector.get(index);
+        }
+
+        @Override
+        public int size() {
+            return vector.size();
+        }
+
+        @Override
+        public E set(int index, E element) {
+            PersistentVector<E> vector = this.vector;
+            E old = vector.get(index);
+            this.vector = vector.with(index, element);
+            return old;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            PersistentVector<E> vector = this.vector;
+            if (index == vector.size()) {
+                this.vector = vector.plus(element);
+            } else {
+                List<E> elements = new ArrayList<E>(vector);
+                elements.add(index, element);
+                this.vector = PersistentVector.copyOf(elements);
+            }
+            modCount++;
+        }
+
+        @Override
+        public E remove(int index) {
+            PersistentVector<E> vector = this.vector;
+            E old = vector.get(index);
+            if (index == vector.size() - 1) {
+                this.vector = vector.minusLast();
+            } else {
+                List<E> elements = new ArrayList<E>(vector);
+                elements.remove(index);
+                this.vector = PersistentVector.copyOf(elements);
+            }
+            modCount++;
+            return old;
+        }
+
+        // The bulk operations below build the new vector once, rather than once per element as AbstractList would
+
+        @Override
+        public boolean addAll(int index, Collection<? extends E> c) {
+            PersistentVector<E> vector = this.vector;
+            if (index == vector.size()) {
+                for (E e : c) {
+                    vector = vector.plus(e);
+                }
+            } else {
+                List<E> elements = new ArrayList<E>(vector);
+                elements.addAll(index, c);
+                vector = PersistentVector.copyOf(elements);
+            }
+            if (vector.size() == size()) {
+                return false;
+            }
+            this.vector = vector;
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super E> filter) {
+            PersistentVector<E> vector = this.vector;
+            List<E> kept = new ArrayList<E>(vector.size());
+            for (E e : vector) {
+                if (!filter.test(e)) {
+                    kept.add(e);
+                }
+            }
+            if (kept.size() == vector.size()) {
+                return false;
+            }
+            this.vector = PersistentVector.copyOf(kept);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public boolean removeAll(final Collection<?> c) {
+            Objects.requireNonNull(c);
+            return removeIf(new Predicate<E>() {
+                @Override
+                public boolean test(E e) {
+                    return c.contains(e);
+                }
+            });
+        }
+
+        @Override
+        public boolean retainAll(final Collection<?> c) {
+            Objects.requireNonNull(c);
+            return removeIf(new Predicate<E>() {
+                @Override
+                public boolean test(E e) {
+                    return !c.contains(e);
+                }
+            });
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            PersistentVector<E> vector = this.vector;
+            if (fromIndex == 0 && toIndex == vector.size()) {
+                this.vector = PersistentVector.empty();
+            } else if (toIndex == vector.size()) {
+                for (int i = fromIndex; i < toIndex; i++) {
+                    vector = vector.minusLast();
+                }
+                this.vector = vector;
+            } else {
+                List<E> elements = new ArrayList<E>(vector);
+                elements.subList(fromIndex, toIndex).clear();
+                this.vector = PersistentVector.copyOf(elements);
+            }
+            modCount++;
+        }
+
+        @Override
+        public void clear() {
+            vector = PersistentVector.empty();
+            modCount++;
+        }
+
+        @Override
+        public void sort(Comparator<? super E> c) {
+            List<E> elements = new ArrayList<E>(vector);
+            elements.sort(c);
+            vector = PersistentVector.copyOf(elements);
+            modCount++;
+        }
+    }
+
+    /**
+     * Construct a {@code PersistentListBox} belonging to the given family.
+     */
+    public PersistentListBox(BoxFamily family) {
+        super(family);
+    }
+
+    /**
+     * Construct a {@code PersistentListBox} belonging to a family identified by the given class a name.
+     */
+    public PersistentListBox(Class<?> clazz, String name) {
+        super(clazz, name);
+    }
+
+    /**
+     * A convenience method that sets the value to an empty list.
+     *
+     * @return this object for chaining
+     */
+    @Override
+    public PersistentListBox<E> init() {
+        return set(PersistentVector.<E>empty());
+    }
+
+    @Override
+    protected void rawSet(List<E> value) {
+        if (value != null && !(value instanceof Contents)) {
+            value = new Contents<E>(PersistentVector.copyOf(value));
+        }
+        super.rawSet(value);
+    }
+
+    /**
+     * Return an immutable copy of the current contents of the list in constant time, or null if the value is null.
+     * This can be called from any thread.
+     */
+    public PersistentVector<E> snapshot() {
+        Contents<E> contents = (Contents<E>) value;
+        return contents == null ? null : contents.vector;
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public PersistentListBox<E> set(List<E> value) {
+        super.set(value);
+        return this;
+    }
+
+    @Override
+    public PersistentListBox<E> addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public PersistentListBox<E> addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+}
@@ -0,0 +1,186 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link MapBox} whose contents are kept in a {@link PersistentHashMap}, so that {@link PersistentMapBox#snapshot()}
+ * can return an immutable copy of the map in constant time, without copying or locking. Other threads can take
+ * snapshots as often as they like while the map is being modified, which, as with other map boxes, must only be done
+ * by one thread at a time. Changes are observed in the same way as in any {@code MapBox}.
+ * <p>
+ * Putting, removing and looking up keys take close to constant time. Setting a map copies it into a new
+ * {@code PersistentHashMap}, unless it already is one, so later changes to the original don't affect the box.
+ * Iterators go through the contents as they were when the iterator was created.
+ *
+ * @param <K> the type of the map keys
+ * @param <V> the type of the map values
+ */
+public class PersistentMapBox<K, V> extends MapBox<K, V> {
+
+    /**
+     * A mutable map that replaces its persistent map with a new one on every change.
+     */
+    private static final class Contents<K, V> extends AbstractMap<K, V> {
+
+        volatile PersistentHashMap<K, V> map;
+
+        Contents(PersistentHashMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override
+        public V get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public V put(K key, V value) {
+            PersistentHashMap<K, V> map = this.map;
+            V old = map.get(key);
+            this.map = map.plus(key, value);
+            return old;
+        }
+
+        @Override
+        public V remove(Object key) {
+            PersistentHashMap<K, V> map = this.map;
+            V old = map.get(key);
+            this.map = map.minus(key);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            map = PersistentHashMap.empty();
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    final Iterator<Entry<K, V>> iterator = map.entrySet().iterator();
+                    return new Iterator<Entry<K, V>>() {
+                        private Entry<K, V> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            last = new SimpleEntry<K, V>(iterator.next()) {
+                                @Override
+                                public V setValue(V value) {
+                                    put(getKey(), value);
+                                    return super.setValue(value);
+                                }
+                            };
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            Contents.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return map.entrySet().contains(o);
+                }
+            };
+        }
+    }
+
+    /**
+     * Construct a {@code PersistentMapBox} belonging to the given family.
+     */
+    public PersistentMapBox(BoxFamily family) {
+        super(family);
+    }
+
+    /**
+     * Construct a {@code PersistentMapBox} belonging to a family identified by the given class a name.
+     */
+    public PersistentMapBox(Class<?> clazz, String name) {
+        super(clazz, name);
+    }
+
+    /**
+     * A convenience method that sets the value to an empty map.
+     *
+     * @return this object for chaining
+     */
+    @Override
+    public PersistentMapBox<K, V> init() {
+        return set(PersistentHashMap.<K, V>empty());
+    }
+
+    @Override
+    protected void rawSet(Map<K, V> value) {
+        if (value != null && !(value instanceof Contents)) {
+            value = new Contents<K, V>(PersistentHashMap.copyOf(value));
+        }
+        super.rawSet(value);
+    }
+
+    /**
+     * Return an immutable copy of the current contents of the map in constant time, or null if the value is null.
+     * This can be called from any thread.
+     */
+    public PersistentHashMap<K, V> snapshot() {
+        Contents<K, V> contents = (Contents<K, V>) value;
+        return contents == null ? null : contents.map;
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public PersistentMapBox<K, V> set(Map<K, V> value) {
+        super.set(value);
+        return this;
+    }
+
+    @Override
+    public PersistentMapBox<K, V> addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public PersistentMapBox<K, V> addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+}
@@ -0,0 +1,157 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A {@link SetBox} whose contents are kept in a {@link PersistentHashSet}, so that {@link PersistentSetBox#snapshot()}
+ * can return an immutable copy of the set in constant time, without copying or locking. Other threads can take
+ * snapshots as often as they like while the set is being modified, which, as with other set boxes, must only be done
+ * by one thread at a time. Changes are observed in the same way as in any {@code SetBox}.
+ * <p>
+ * Adding, removing and looking up elements take close to constant time. Setting a set copies it into a new
+ * {@code PersistentHashSet}, unless it already is one, so later changes to the original don't affect the box.
+ * Iterators go through the contents as they were when the iterator was created.
+ *
+ * @param <E> the type of the set elements
+ */
+public class PersistentSetBox<E> extends SetBox<E> {
+
+    /**
+     * A mutable set that replaces its persistent set with a new one on every change.
+     */
+    private static final class Contents<E> extends AbstractSet<E> {
+
+        volatile PersistentHashSet<E> set;
+
+        Contents(PersistentHashSet<E> set) {
+            this.set = set;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return set.contains(o);
+        }
+
+        @Override
+        public int size() {
+            return set.size();
+        }
+
+        @Override
+        public boolean add(E e) {
+            PersistentHashSet<E> set = this.set;
+            this.set = set.plus(e);
+            return this.set != set;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            PersistentHashSet<E> set = this.set;
+            this.set = set.minus(o);
+            return this.set != set;
+        }
+
+        @Override
+        public void clear() {
+            set = PersistentHashSet.empty();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final Iterator<E> iterator = set.iterator();
+            return new Iterator<E>() {
+                private E last;
+                private boolean removable;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    last = iterator.next();
+                    removable = true;
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (!removable) {
+                        throw new IllegalStateException();
+                    }
+                    Contents.this.remove(last);
+                    removable = false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Construct a {@code PersistentSetBox} belonging to the given family.
+     */
+    public PersistentSetBox(BoxFamily family) {
+        super(family);
+    }
+
+    /**
+     * Construct a {@code PersistentSetBox} belonging to a family identified by the given class a name.
+     */
+    public PersistentSetBox(Class<?> clazz, String name) {
+        super(clazz, name);
+    }
+
+    /**
+     * A convenience method that sets the value to an empty set.
+     *
+     * @return this object for chaining
+     */
+    @Override
+    public PersistentSetBox<E> init() {
+        return set(PersistentHashSet.<E>empty());
+    }
+
+    @Override
+    protected void rawSet(Set<E> value) {
+        if (value != null && !(value instanceof Contents)) {
+            value = new Contents<E>(PersistentHashSet.copyOf(value));
+        }
+        super.rawSet(value);
+    }
+
+    /**
+     * Return an immutable copy of the current contents of the set in constant time, or null if the value is null.
+     * This can be called from any thread.
+     */
+    public PersistentHashSet<E> snapshot() {
+        Contents<E> contents = (Contents<E>) value;
+        return contents == null ? null : contents.set;
+    }
+
+    // Specifying the return type for chaining
+
+    @Override
+    public PersistentSetBox<E> set(Set<E> value) {
+        super.set(value);
+        return this;
+    }
+
+    @Override
+    public PersistentSetBox<E> addChangeMiddleware(ChangeMiddleware... middlewares) {
+        super.addChangeMiddleware(middlewares);
+        return this;
+    }
+
+    @Override
+    public PersistentSetBox<E> addChangeObserver(ChangeObserver... observers) {
+        super.addChangeObserver(observers);
+        return this;
+    }
+
+}
@@ -0,0 +1,262 @@
+package alex.mojaki.boxes.collections;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list which shares most of its structure with the lists derived from it by
+ * {@link PersistentVector#plus(Object)}, {@link PersistentVector#with(int, Object)} and
+ * {@link PersistentVector#minusLast()}, so that these take close to constant time rather than copying the list. This is
+ * the persistent vector of Clojure: a tree of arrays of 32 elements, plus a separate array for the last elements.
+ * <p>
+ * It's the snapshot returned by {@link PersistentListBox#snapshot()}. The methods of {@code List} that would modify it
+ * throw {@code UnsupportedOperationException}. Null elements are allowed.
+ *
+ * @param <E> the type of the list elements
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+
+    private static final PersistentVector<Object> EMPTY =
+            new PersistentVector<Object>(0, BITS, new Object[WIDTH], EMPTY_ARRAY);
+
+    private final int size;
+
+    /**
+     * The number of bits of an index used below the root.
+     */
+    private final int shift;
+
+    /**
+     * Branches have {@link PersistentVector#WIDTH} children and leaves {@code WIDTH} elements. Missing children are
+     * null.
+     */
+    private final Object[] root;
+
+    /**
+     * The last 1 to {@code WIDTH} elements, unless the vector is empty.
+     */
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Return the empty vector.
+     */
+    public static <E> PersistentVector<E> empty() {
+        //noinspection unchecked
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Return a vector of the elements of {@code elements}, in time proportional to their number, or
+     * {@code elements} itself if it's already a {@code PersistentVector}.
+     */
+    public static <E> PersistentVector<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof PersistentVector) {
+            //noinspection unchecked
+            return (PersistentVector<E>) elements;
+        }
+        return fromArray(elements.toArray());
+    }
+
+    /**
+     * Build the tree from the bottom up, rather than adding the elements one at a time.
+     */
+    private static <E> PersistentVector<E> fromArray(Object[] elements) {
+        int size = elements.length;
+        if (size == 0) {
+            return empty();
+        }
+        int tailLength = ((size - 1) & MASK) + 1;
+        Object[] tail = Arrays.copyOfRange(elements, size - tailLength, size);
+        Object[][] nodes = new Object[(size - tailLength) / WIDTH][];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = Arrays.copyOfRange(elements, i * WIDTH, (i + 1) * WIDTH);
+        }
+        int shift = BITS;
+        while ((long) nodes.length > 1L << shift) {
+            shift += BITS;
+        }
+        for (int level = BITS; ; level += BITS) {
+            Object[][] parents = new Object[(nodes.length + MASK) / WIDTH][];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = new Object[WIDTH];
+                System.arraycopy(nodes, i * WIDTH, parents[i], 0, Math.min(WIDTH, nodes.length - i * WIDTH));
+            }
+            if (level == shift) {
+                return new PersistentVector<E>(size, shift, parents.length == 0 ? new Object[WIDTH] : parents[0], tail);
+            }
+            nodes = parents;
+        }
+    }
+
+    /**
+     * Return the index of the first element of the tail.
+     */
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    @Override
+    public E get(int index) {
+        Preconditions.checkElementIndex(index, size);
+        //noinspection unchecked
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return a vector with {@code element} appended to this one.
+     */
+    public PersistentVector<E> plus(E element) {
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector<E>(size + 1, shift, root, newTail);
+        }
+        // The tail is full, so it joins the tree
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<E>(size + 1, newShift, newRoot, new Object[]{element});
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+        Object[] child;
+        if (level == BITS) {
+            child = tailNode;
+        } else {
+            Object[] existing = (Object[]) parent[subIndex];
+            child = existing != null
+                    ? pushTail(level - BITS, existing, tailNode)
+                    : newPath(level - BITS, tailNode);
+        }
+        result[subIndex] = child;
+        return result;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] result = new Object[WIDTH];
+        result[0] = newPath(level - BITS, node);
+        return result;
+    }
+
+    /**
+     * Return a vector like this one but with {@code element} at {@code index}.
+     */
+    public PersistentVector<E> with(int index, E element) {
+        Preconditions.checkElementIndex(index, size);
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentVector<E>(size, shift, root, newTail);
+        }
+        return new PersistentVector<E>(size, shift, with(shift, root, index, element), tail);
+    }
+
+    private static Object[] with(int level, Object[] node, int index, Object element) {
+        Object[] result = node.clone();
+        if (level == 0) {
+            result[index & MASK] = element;
+        } else {
+            int subIndex = (index >>> level) & MASK;
+            result[subIndex] = with(level - BITS, (Object[]) node[subIndex], index, element);
+        }
+        return result;
+    }
+
+    /**
+     * Return a vector with the last element of this one removed.
+     *
+     * @throws NoSuchElementException if this vector is empty
+     */
+    public PersistentVector<E> minusLast() {
+        if (size == 0) {
+            throw new NoSuchElementException("The vector is empty");
+        }
+        if (size == 1) {
+            return empty();
+        }
+        if (size - tailOffset() > 1) {
+            return new PersistentVector<E>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        // The tail becomes empty, so the last leaf of the tree becomes the tail
+        Object[] newTail = leafFor(size - 2);
+        Object[] newRoot = popTail(shift, root);
+        int newShift = shift;
+        if (newRoot == null) {
+            newRoot = new Object[WIDTH];
+        }
+        if (shift > BITS && newRoot[1] == null) {
+            newRoot = (Object[]) newRoot[0];
+            newShift -= BITS;
+        }
+        return new PersistentVector<E>(size - 1, newShift, newRoot, newTail);
+    }
+
+    /**
+     * Return {@code node} without its last leaf, or null if that leaves it empty.
+     */
+    private Object[] popTail(int level, Object[] node) {
+        int subIndex = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Object[] newChild = popTail(level - BITS, (Object[]) node[subIndex]);
+            if (newChild == null && subIndex == 0) {
+                return null;
+            }
+            Object[] result = node.clone();
+            result[subIndex] = newChild;
+            return result;
+        }
+        if (subIndex == 0) {
+            return null;
+        }
+        Object[] result = node.clone();
+        result[subIndex] = null;
+        return result;
+    }
+
+}
@@ -5,20 +5,29 @@ import alex.mojaki.boxes.WrapperBox;
 import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
 import alex.mojaki.boxes.observers.change.ChangeObserver;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A set that can watch for changes. This is both a {@code Set} and a {@code PowerBox<Set>} and should
  * be declared as this type so that it can use the abilities of both. It is far preferable to creating a
  * {@code PowerBox} in a more usual way, e.g. a {@code CommonBox<Set>}, as you can now attach {@code ChangeObserver}s
  * that know when the set is mutated, which also implies you can create {@code View}s around it.
+ * <p>
+ * To know which elements each change added or removed, add a {@link SetDeltaObserver}.
  *
  * @param <E> the type of the set elements
  * @see WrapperBox
  */
 public class SetBox<E> extends CollectionBox<Set<E>, E> implements Set<E> {
 
+    private final List<SetDeltaObserver<? super E>> deltaObservers =
+            new CopyOnWriteArrayList<SetDeltaObserver<? super E>>();
+
     /**
      * Construct a {@code SetBox} belonging to the given family.
      */
@@ -48,6 +57,54 @@ public class SetBox<E> extends CollectionBox<Set<E>, E> implements Set<E> {
         return this;
     }
 
+    /**
+     * Add an observer to be told about the elements added to and removed from this set by each change.
+     * Like {@link ElementObserver}s it belongs to this box rather than its family.
+     */
+    public void addDeltaObserver(SetDeltaObserver<? super E> observer) {
+        deltaObservers.add(observer);
+    }
+
+    @Override
+    boolean reportsChanges() {
+        return super.reportsChanges() || !deltaObservers.isEmpty();
+    }
+
+    @Override
+    void reportAdded(Collection<E> elements) {
+        super.reportAdded(elements);
+        for (SetDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onAdded(this, elements);
+        }
+    }
+
+    @Override
+    void reportRemoved(Collection<E> elements) {
+        super.reportRemoved(elements);
+        for (SetDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onRemoved(this, elements);
+        }
+    }
+
+    @Override
+    void reportCleared() {
+        super.reportCleared();
+        for (SetDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onCleared(this);
+        }
+    }
+
+    @Override
+    void reportSet() {
+        super.reportSet();
+        for (SetDeltaObserver<? super E> observer : deltaObservers) {
+            observer.onCleared(this);
+            if (value != null && !value.isEmpty()) {
+                observer.onAdded(this, Collections.unmodifiableSet(value));
+            }
+        }
+    }
+
     // Specifying the return type for chaining
 
     @Override
@@ -0,0 +1,39 @@
+package alex.mojaki.boxes.collections;
+
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+
+import java.util.Collection;
+
+/**
+ * Receives a description of each change to a {@link SetBox} in terms of the elements added and removed, so that
+ * something mirroring, indexing or serialising the set can do work proportional to the size of the change rather
+ * than the size of the set. A bulk operation such as {@code addAll} is reported once with all the elements it
+ * added.
+ * <p>
+ * Changes are reported after the set has changed and before its {@link ChangeObserver}s are notified. Setting a new
+ * set in the box is reported as {@link SetDeltaObserver#onCleared(SetBox)} followed by
+ * {@link SetDeltaObserver#onAdded(SetBox, Collection)} for the whole of the new set, if it isn't empty.
+ * <p>
+ * The collections of elements passed to these methods are unmodifiable and shouldn't be kept after the call, as they
+ * may be views of the box.
+ *
+ * @param <E> the type of the set elements
+ * @see SetBox#addDeltaObserver(SetDeltaObserver)
+ */
+public interface SetDeltaObserver<E> {
+
+    /**
+     * Called when {@code elements}, none of which were in {@code box}, have been added to it.
+     */
+    void onAdded(SetBox<? extends E> box, Collection<? extends E> elements);
+
+    /**
+     * Called when {@code elements} have been removed from {@code box}.
+     */
+    void onRemoved(SetBox<? extends E> box, Collection<? extends E> elements);
+
+    /**
+     * Called when all the elements of {@code box} have been removed.
+     */
+    void onCleared(SetBox<? extends E> box);
+}
@@ -0,0 +1,82 @@
+package alex.mojaki.boxes.jmx;
+
+import alex.mojaki.boxes.BoxFamily;
+
+/**
+ * The JMX management interface of a {@link BoxFamily}, registered by {@link BoxFamilyRegistry}. It lets operators
+ * inspect a family's participants and metrics in a running JVM, e.g. with JConsole or VisualVM, and switch off its
+ * participants or turn on metrics without a redeploy.
+ */
+public interface BoxFamilyMXBean {
+
+    /**
+     * @see BoxFamily#description()
+     */
+    String getDescription();
+
+    /**
+     * The fully qualified name of the class declaring the boxes.
+     */
+    String getDeclaringClass();
+
+    String getName();
+
+    int getChangeMiddlewareCount();
+
+    int getChangeObserverCount();
+
+    int getGetMiddlewareCount();
+
+    int getGetObserverCount();
+
+    /**
+     * One line for each participant of the family, in the order they are applied, containing its kind, position,
+     * class and string value.
+     */
+    String[] getParticipants();
+
+    /**
+     * @see BoxFamily#bypassesParticipants()
+     */
+    boolean isBypassingParticipants();
+
+    /**
+     * Switch the family between applying its participants and bypassing them.
+     *
+     * @see BoxFamily#bypassParticipants()
+     * @see BoxFamily#restoreParticipants()
+     */
+    void setBypassingParticipants(boolean bypassing);
+
+    /**
+     * @see BoxFamily#metricsEnabled()
+     */
+    boolean isMetricsEnabled();
+
+    /**
+     * @see BoxFamily#enableMetrics()
+     * @see BoxFamily#disableMetrics()
+     */
+    void setMetricsEnabled(boolean enabled);
+
+    /**
+     * The number of gets recorded by the family's metrics, or 0 if they were never enabled.
+     */
+    long getGets();
+
+    /**
+     * The number of changes recorded by the family's metrics, or 0 if they were never enabled.
+     */
+    long getChanges();
+
+    /**
+     * A readable summary of the family's metrics including the latencies of each participant, or a short note if
+     * they were never enabled.
+     */
+    String getMetricsSummary();
+
+    /**
+     * Set the family's metrics back to zero, if there are any.
+     */
+    void resetMetrics();
+}
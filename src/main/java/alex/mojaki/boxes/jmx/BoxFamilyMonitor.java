@@ -0,0 +1,155 @@
+package alex.mojaki.boxes.jmx;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.metrics.FamilyMetrics;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The implementation of {@link BoxFamilyMXBean}, which simply delegates to the family.
+ * <p>
+ * The platform {@code MBeanServer} holds on to registered beans forever, so the monitor only refers to its family
+ * weakly, and doesn't stop the family's declaring class from being unloaded. Once the family is gone the monitor
+ * unregisters itself the next time it's used or {@link BoxFamilyRegistry#registerAll()} is called.
+ */
+class BoxFamilyMonitor implements BoxFamilyMXBean {
+
+    private final WeakReference<BoxFamily> family;
+
+    private final String description;
+    private final String declaringClass;
+    private final String name;
+
+    BoxFamilyMonitor(BoxFamily family) {
+        this.family = new WeakReference<BoxFamily>(family);
+        description = family.description();
+        declaringClass = family.getDeclaringClass().getName();
+        name = family.getName();
+    }
+
+    /**
+     * Return whether the family has been garbage collected along with its declaring class.
+     */
+    boolean isCollected() {
+        return family.get() == null;
+    }
+
+    private BoxFamily family() {
+        BoxFamily result = family.get();
+        if (result == null) {
+            BoxFamilyRegistry.unregisterCollected();
+            throw new IllegalStateException(description + " no longer exists as its class has been unloaded");
+        }
+        return result;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String getDeclaringClass() {
+        return declaringClass;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getChangeMiddlewareCount() {
+        return family().getChangeMiddlewares().size();
+    }
+
+    @Override
+    public int getChangeObserverCount() {
+        return family().getChangeObservers().size();
+    }
+
+    @Override
+    public int getGetMiddlewareCount() {
+        return family().getGetMiddlewares().size();
+    }
+
+    @Override
+    public int getGetObserverCount() {
+        return family().getGetObservers().size();
+    }
+
+    @Override
+    public String[] getParticipants() {
+        BoxFamily family = family();
+        List<String> result = new ArrayList<String>();
+        addParticipants(result, "GetMiddleware", family.getGetMiddlewares());
+        addParticipants(result, "GetObserver", family.getGetObservers());
+        addParticipants(result, "ChangeMiddleware", family.getChangeMiddlewares());
+        addParticipants(result, "ChangeObserver", family.getChangeObservers());
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static void addParticipants(List<String> result, String kind, List<?> participants) {
+        for (int i = 0; i < participants.size(); i++) {
+            Object participant = participants.get(i);
+            result.add(kind + " " + (i + 1) + ": " + participant.getClass().getName() + " " + participant);
+        }
+    }
+
+    @Override
+    public boolean isBypassingParticipants() {
+        return family().bypassesParticipants();
+    }
+
+    @Override
+    public void setBypassingParticipants(boolean bypassing) {
+        if (bypassing) {
+            family().bypassParticipants();
+        } else {
+            family().restoreParticipants();
+        }
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return family().metricsEnabled();
+    }
+
+    @Override
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled) {
+            family().enableMetrics();
+        } else {
+            family().disableMetrics();
+        }
+    }
+
+    @Override
+    public long getGets() {
+        FamilyMetrics metrics = family().getMetrics();
+        return metrics == null ? 0 : metrics.getGets();
+    }
+
+    @Override
+    public long getChanges() {
+        FamilyMetrics metrics = family().getMetrics();
+        return metrics == null ? 0 : metrics.getChanges();
+    }
+
+    @Override
+    public String getMetricsSummary() {
+        FamilyMetrics metrics = family().getMetrics();
+        return metrics == null ? "Metrics have never been enabled for " + description :
+                metrics.snapshot().toString();
+    }
+
+    @Override
+    public void resetMetrics() {
+        FamilyMetrics metrics = family().getMetrics();
+        if (metrics != null) {
+            metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package alex.mojaki.boxes.jmx;
+
+import alex.mojaki.boxes.BoxFamily;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registers {@link BoxFamilyMXBean}s with the platform {@link MBeanServer} so that families can be inspected and
+ * tuned over JMX. Each family gets an object name like:
+ * <pre>{@code
+ * alex.mojaki.boxes:type=BoxFamily,class="com.example.Person",name="age"
+ * }</pre>
+ * Since families are usually created lazily as classes are loaded, call {@link #registerAll()} again (e.g. at the
+ * end of application startup) to pick up families created since the last call. Registering a family twice has no
+ * effect.
+ * <p>
+ * Registered beans only refer to their families weakly, so registering doesn't stop classes from being unloaded, e.g.
+ * when a web application is undeployed. The beans of families that have been collected are unregistered when they're
+ * next used or by the next call to {@code registerAll}. To remove them straight away, call {@link #unregister}.
+ */
+public final class BoxFamilyRegistry {
+
+    /**
+     * The domain of the object names of all registered families.
+     */
+    public static final String DOMAIN = "alex.mojaki.boxes";
+
+    /**
+     * The beans registered by this class, so that those whose families have been collected can be found.
+     */
+    private static final ConcurrentMap<ObjectName, BoxFamilyMonitor> MONITORS =
+            new ConcurrentHashMap<ObjectName, BoxFamilyMonitor>();
+
+    private BoxFamilyRegistry() {
+    }
+
+    /**
+     * Register every family that exists so far which isn't already registered.
+     *
+     * @return the number of families newly registered.
+     */
+    public static int registerAll() {
+        unregisterCollected();
+        int count = 0;
+        for (BoxFamily family : BoxFamily.getAllFamilies()) {
+            if (register(family)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Register the given family.
+     *
+     * @return false if it was already registered.
+     */
+    public static boolean register(BoxFamily family) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName(family);
+        BoxFamilyMonitor monitor = new BoxFamilyMonitor(family);
+        try {
+            server.registerMBean(monitor, name);
+            MONITORS.put(name, monitor);
+            return true;
+        } catch (InstanceAlreadyExistsException e) {
+            // The name may belong to a family of an unloaded class of the same name, e.g. after a redeployment
+            BoxFamilyMonitor existing = MONITORS.get(name);
+            if (existing != null && existing.isCollected()) {
+                unregisterCollected();
+                return register(family);
+            }
+            return false;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + family + " with JMX", e);
+        }
+    }
+
+    /**
+     * Unregister the given family.
+     *
+     * @return false if it wasn't registered.
+     */
+    public static boolean unregister(BoxFamily family) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName(family);
+        MONITORS.remove(name);
+        try {
+            server.unregisterMBean(name);
+            return true;
+        } catch (InstanceNotFoundException e) {
+            return false;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister " + family + " from JMX", e);
+        }
+    }
+
+    /**
+     * Unregister the beans of families that have been garbage collected.
+     */
+    static void unregisterCollected() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<ObjectName, BoxFamilyMonitor> entry : MONITORS.entrySet()) {
+            if (entry.getValue().isCollected() && MONITORS.remove(entry.getKey(), entry.getValue())) {
+                try {
+                    server.unregisterMBean(entry.getKey());
+                } catch (InstanceNotFoundException e) {
+                    // Already unregistered by someone else
+                } catch (JMException e) {
+                    throw new IllegalStateException("Failed to unregister " + entry.getKey() + " from JMX", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the name that the given family is registered under.
+     */
+    public static ObjectName objectName(BoxFamily family) {
+        try {
+            return new ObjectName(DOMAIN + ":type=BoxFamily" +
+                    ",class=" + ObjectName.quote(family.getDeclaringClass().getName()) +
+                    ",name=" + ObjectName.quote(family.getName()));
+        } catch (MalformedObjectNameException e) {
+            // Quoting means this can't happen
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package alex.mojaki.boxes.metrics;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.get.GetObserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Performance metrics of the boxes in a {@link BoxFamily}: how many times they were read and changed, and how long
+ * each of the family's participants took. Obtain it with {@link BoxFamily#getMetrics()} after calling
+ * {@link BoxFamily#enableMetrics()}, and read it with {@link FamilyMetrics#snapshot()}.
+ * <p>
+ * All the counters are striped ({@link LongAdder}s), so recording from many threads doesn't cause contention.
+ * While metrics are enabled, boxes take their slower path for every call even if the family has no participants,
+ * and every participant call is timed with two calls to {@link System#nanoTime()}. While they are disabled nothing
+ * is recorded and boxes are exactly as fast as before.
+ */
+public final class FamilyMetrics {
+
+    private final BoxFamily family;
+    private final LongAdder gets = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+
+    private final ConcurrentMap<Object, LatencyHistogram> changeMiddlewares = new ConcurrentHashMap<Object, LatencyHistogram>();
+    private final ConcurrentMap<Object, LatencyHistogram> changeObservers = new ConcurrentHashMap<Object, LatencyHistogram>();
+    private final ConcurrentMap<Object, LatencyHistogram> getMiddlewares = new ConcurrentHashMap<Object, LatencyHistogram>();
+    private final ConcurrentMap<Object, LatencyHistogram> getObservers = new ConcurrentHashMap<Object, LatencyHistogram>();
+
+    /**
+     * Construct metrics for the given family. Normally you should let the family do this in
+     * {@link BoxFamily#enableMetrics()}, as nothing is recorded otherwise.
+     */
+    public FamilyMetrics(BoxFamily family) {
+        this.family = family;
+    }
+
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+    /**
+     * Return the number of calls to {@link PowerBox#get()} (or a primitive equivalent) on boxes in the family.
+     */
+    public long getGets() {
+        return gets.sum();
+    }
+
+    /**
+     * Return the number of changes to boxes in the family: calls to {@link PowerBox#set(Object)} (or a primitive
+     * equivalent) and successful atomic updates, mutations of {@code WrapperBox}es, and recalculations of
+     * {@code View}s that have observers.
+     */
+    public long getChanges() {
+        return changes.sum();
+    }
+
+    public void recordGet() {
+        gets.increment();
+    }
+
+    public void recordChange() {
+        changes.increment();
+    }
+
+    /**
+     * Return the histogram recording the latencies of {@code participant}, creating it if needed.
+     *
+     * @param participantType the interface {@code participant} is being used as, i.e. one of the {@code Class}
+     *                        objects of {@code ChangeMiddleware}, {@code ChangeObserver}, {@code GetMiddleware},
+     *                        or {@code GetObserver}.
+     */
+    public LatencyHistogram histogram(Class<?> participantType, Object participant) {
+        ConcurrentMap<Object, LatencyHistogram> histograms = histograms(participantType);
+        LatencyHistogram histogram = histograms.get(participant);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(participant, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        return histogram;
+    }
+
+    private ConcurrentMap<Object, LatencyHistogram> histograms(Class<?> participantType) {
+        if (participantType == ChangeMiddleware.class) {
+            return changeMiddlewares;
+        }
+        if (participantType == ChangeObserver.class) {
+            return changeObservers;
+        }
+        if (participantType == GetMiddleware.class) {
+            return getMiddlewares;
+        }
+        if (participantType == GetObserver.class) {
+            return getObservers;
+        }
+        throw new IllegalArgumentException("Not a participant type: " + participantType);
+    }
+
+    /**
+     * Return a snapshot of the current values, including the latencies of the participants currently in the family.
+     * The values are read one by one while boxes may still be recording, so they may be very slightly inconsistent
+     * with each other.
+     */
+    public MetricsSnapshot snapshot() {
+        List<ParticipantLatency> participants = new ArrayList<ParticipantLatency>();
+        addLatencies(participants, GetMiddleware.class, family.getGetMiddlewares());
+        addLatencies(participants, GetObserver.class, family.getGetObservers());
+        addLatencies(participants, ChangeMiddleware.class, family.getChangeMiddlewares());
+        addLatencies(participants, ChangeObserver.class, family.getChangeObservers());
+        return new MetricsSnapshot(family, getGets(), getChanges(), Collections.unmodifiableList(participants));
+    }
+
+    private void addLatencies(List<ParticipantLatency> result, Class<?> participantType, List<?> participants) {
+        for (int i = 0; i < participants.size(); i++) {
+            Object participant = participants.get(i);
+            result.add(new ParticipantLatency(participantType, i, participant, histogram(participantType, participant)));
+        }
+    }
+
+    /**
+     * Set all the counters and histograms back to zero.
+     */
+    public void reset() {
+        gets.reset();
+        changes.reset();
+        for (Class<?> participantType : new Class<?>[]{
+                ChangeMiddleware.class, ChangeObserver.class, GetMiddleware.class, GetObserver.class}) {
+            for (LatencyHistogram histogram : histograms(participantType).values()) {
+                histogram.reset();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FamilyMetrics of " + family.description();
+    }
+}
@@ -0,0 +1,60 @@
+package alex.mojaki.boxes.metrics;
+
+import alex.mojaki.boxes.BoxFamily;
+
+import java.util.List;
+
+/**
+ * An immutable snapshot of the {@link FamilyMetrics} of a family, taken by {@link FamilyMetrics#snapshot()}.
+ */
+public final class MetricsSnapshot {
+
+    private final BoxFamily family;
+    private final long gets;
+    private final long changes;
+    private final List<ParticipantLatency> participants;
+
+    MetricsSnapshot(BoxFamily family, long gets, long changes, List<ParticipantLatency> participants) {
+        this.family = family;
+        this.gets = gets;
+        this.changes = changes;
+        this.participants = participants;
+    }
+
+    public BoxFamily getFamily() {
+        return family;
+    }
+
+    /**
+     * @see FamilyMetrics#getGets()
+     */
+    public long getGets() {
+        return gets;
+    }
+
+    /**
+     * @see FamilyMetrics#getChanges()
+     */
+    public long getChanges() {
+        return changes;
+    }
+
+    /**
+     * Return the latencies of every participant of the family, in the order middleware and observers are applied:
+     * {@code GetMiddleware}, {@code GetObserver}, {@code ChangeMiddleware}, {@code ChangeObserver}.
+     */
+    public List<ParticipantLatency> getParticipants() {
+        return participants;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append("Metrics of ").append(family.description())
+                .append(": ").append(gets).append(" gets, ").append(changes).append(" changes");
+        for (ParticipantLatency participant : participants) {
+            builder.append("\n  ").append(participant);
+        }
+        return builder.toString();
+    }
+}
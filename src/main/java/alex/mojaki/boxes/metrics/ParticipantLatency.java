@@ -0,0 +1,99 @@
+package alex.mojaki.boxes.metrics;
+
+/**
+ * An immutable snapshot of the latencies recorded for one participant of a family, as part of a
+ * {@link MetricsSnapshot}.
+ */
+public final class ParticipantLatency {
+
+    private final Class<?> participantType;
+    private final int participantIndex;
+    private final Object participant;
+    private final long[] bucketCounts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    ParticipantLatency(Class<?> participantType, int participantIndex, Object participant, LatencyHistogram histogram) {
+        this.participantType = participantType;
+        this.participantIndex = participantIndex;
+        this.participant = participant;
+        bucketCounts = histogram.bucketCounts();
+        long sum = 0;
+        for (long bucketCount : bucketCounts) {
+            sum += bucketCount;
+        }
+        count = sum;
+        totalNanos = histogram.totalNanos();
+        maxNanos = histogram.maxNanos();
+    }
+
+    /**
+     * Return the interface of the participant, i.e. one of the {@code Class} objects of {@code ChangeMiddleware},
+     * {@code ChangeObserver}, {@code GetMiddleware}, or {@code GetObserver}.
+     */
+    public Class<?> getParticipantType() {
+        return participantType;
+    }
+
+    /**
+     * Return the index of the participant in the family's list of participants of its type.
+     */
+    public int getParticipantIndex() {
+        return participantIndex;
+    }
+
+    public Object getParticipant() {
+        return participant;
+    }
+
+    /**
+     * Return the number of times the participant was called.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Return an upper bound for the given percentile of the latencies, accurate to within a factor of 2.
+     *
+     * @param percentile between 0 and 100.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100, not " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank && seen > 0) {
+                // Bucket i holds latencies below 2^i
+                return Math.min(maxNanos, i == 0 ? 0 : (1L << i) - 1);
+            }
+        }
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return participantType.getSimpleName() + " " + (participantIndex + 1) + " (" + participant + "): " +
+                count + " calls, mean " + Math.round(getMeanNanos()) + "ns, p99 " + getPercentileNanos(99) +
+                "ns, max " + maxNanos + "ns";
+    }
+}
@@ -0,0 +1,31 @@
+package alex.mojaki.boxes.middleware.change;
+
+import alex.mojaki.boxes.BooleanPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeMiddleware} of {@code boolean} values. A {@link BooleanPowerBox} calls
+ * {@link BooleanChangeMiddleware#onChange(PowerBox, boolean, boolean, boolean)} directly so that the values are never
+ * boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Boolean>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and any other null values are passed as false.
+ */
+public interface BooleanChangeMiddleware extends ChangeMiddleware<Boolean> {
+
+    /**
+     * The primitive version of {@link ChangeMiddleware#onChange(PowerBox, Object, Object, Object)}.
+     */
+    boolean onChange(PowerBox<Boolean> box, boolean originalValue, boolean currentValue, boolean requestedValue);
+
+    @Override
+    default Boolean onChange(PowerBox<Boolean> box, Boolean originalValue, Boolean currentValue, Boolean requestedValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onChange(box,
+                originalValue == null ? false : originalValue,
+                (boolean) currentValue,
+                requestedValue == null ? false : requestedValue);
+    }
+}
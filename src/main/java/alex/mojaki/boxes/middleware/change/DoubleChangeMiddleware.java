@@ -0,0 +1,31 @@
+package alex.mojaki.boxes.middleware.change;
+
+import alex.mojaki.boxes.DoublePowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeMiddleware} of {@code double} values. A {@link DoublePowerBox} calls
+ * {@link DoubleChangeMiddleware#onChange(PowerBox, double, double, double)} directly so that the values are never
+ * boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Double>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and any other null values are passed as 0.0.
+ */
+public interface DoubleChangeMiddleware extends ChangeMiddleware<Double> {
+
+    /**
+     * The primitive version of {@link ChangeMiddleware#onChange(PowerBox, Object, Object, Object)}.
+     */
+    double onChange(PowerBox<Double> box, double originalValue, double currentValue, double requestedValue);
+
+    @Override
+    default Double onChange(PowerBox<Double> box, Double originalValue, Double currentValue, Double requestedValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onChange(box,
+                originalValue == null ? 0.0 : originalValue,
+                (double) currentValue,
+                requestedValue == null ? 0.0 : requestedValue);
+    }
+}
@@ -0,0 +1,30 @@
+package alex.mojaki.boxes.middleware.change;
+
+import alex.mojaki.boxes.IntPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeMiddleware} of {@code int} values. An {@link IntPowerBox} calls
+ * {@link IntChangeMiddleware#onChange(PowerBox, int, int, int)} directly so that the values are never boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Integer>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and any other null values are passed as 0.
+ */
+public interface IntChangeMiddleware extends ChangeMiddleware<Integer> {
+
+    /**
+     * The primitive version of {@link ChangeMiddleware#onChange(PowerBox, Object, Object, Object)}.
+     */
+    int onChange(PowerBox<Integer> box, int originalValue, int currentValue, int requestedValue);
+
+    @Override
+    default Integer onChange(PowerBox<Integer> box, Integer originalValue, Integer currentValue, Integer requestedValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onChange(box,
+                originalValue == null ? 0 : originalValue,
+                (int) currentValue,
+                requestedValue == null ? 0 : requestedValue);
+    }
+}
@@ -0,0 +1,30 @@
+package alex.mojaki.boxes.middleware.change;
+
+import alex.mojaki.boxes.LongPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeMiddleware} of {@code long} values. A {@link LongPowerBox} calls
+ * {@link LongChangeMiddleware#onChange(PowerBox, long, long, long)} directly so that the values are never boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Long>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and any other null values are passed as 0L.
+ */
+public interface LongChangeMiddleware extends ChangeMiddleware<Long> {
+
+    /**
+     * The primitive version of {@link ChangeMiddleware#onChange(PowerBox, Object, Object, Object)}.
+     */
+    long onChange(PowerBox<Long> box, long originalValue, long currentValue, long requestedValue);
+
+    @Override
+    default Long onChange(PowerBox<Long> box, Long originalValue, Long currentValue, Long requestedValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onChange(box,
+                originalValue == null ? 0L : originalValue,
+                (long) currentValue,
+                requestedValue == null ? 0L : requestedValue);
+    }
+}
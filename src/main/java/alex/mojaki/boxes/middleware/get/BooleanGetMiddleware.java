@@ -0,0 +1,28 @@
+package alex.mojaki.boxes.middleware.get;
+
+import alex.mojaki.boxes.BooleanPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetMiddleware} of {@code boolean} values. A {@link BooleanPowerBox} calls
+ * {@link BooleanGetMiddleware#onGet(PowerBox, boolean, boolean)} directly so that the values are never boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Boolean>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and a null {@code originalValue} is passed
+ * as 0.
+ */
+public interface BooleanGetMiddleware extends GetMiddleware<Boolean> {
+
+    /**
+     * The primitive version of {@link GetMiddleware#onGet(PowerBox, Object, Object)}.
+     */
+    boolean onGet(PowerBox<Boolean> box, boolean originalValue, boolean currentValue);
+
+    @Override
+    default Boolean onGet(PowerBox<Boolean> box, Boolean originalValue, Boolean currentValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onGet(box, originalValue == null ? false : originalValue, (boolean) currentValue);
+    }
+}
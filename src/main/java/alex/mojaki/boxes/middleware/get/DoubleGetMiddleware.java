@@ -0,0 +1,28 @@
+package alex.mojaki.boxes.middleware.get;
+
+import alex.mojaki.boxes.DoublePowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetMiddleware} of {@code double} values. A {@link DoublePowerBox} calls
+ * {@link DoubleGetMiddleware#onGet(PowerBox, double, double)} directly so that the values are never boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Double>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and a null {@code originalValue} is passed
+ * as 0.
+ */
+public interface DoubleGetMiddleware extends GetMiddleware<Double> {
+
+    /**
+     * The primitive version of {@link GetMiddleware#onGet(PowerBox, Object, Object)}.
+     */
+    double onGet(PowerBox<Double> box, double originalValue, double currentValue);
+
+    @Override
+    default Double onGet(PowerBox<Double> box, Double originalValue, Double currentValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onGet(box, originalValue == null ? 0.0 : originalValue, (double) currentValue);
+    }
+}
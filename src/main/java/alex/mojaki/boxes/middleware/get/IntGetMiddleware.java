@@ -0,0 +1,28 @@
+package alex.mojaki.boxes.middleware.get;
+
+import alex.mojaki.boxes.IntPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetMiddleware} of {@code int} values. An {@link IntPowerBox} calls
+ * {@link IntGetMiddleware#onGet(PowerBox, int, int)} directly so that the values are never boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Integer>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and a null {@code originalValue} is passed
+ * as 0.
+ */
+public interface IntGetMiddleware extends GetMiddleware<Integer> {
+
+    /**
+     * The primitive version of {@link GetMiddleware#onGet(PowerBox, Object, Object)}.
+     */
+    int onGet(PowerBox<Integer> box, int originalValue, int currentValue);
+
+    @Override
+    default Integer onGet(PowerBox<Integer> box, Integer originalValue, Integer currentValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onGet(box, originalValue == null ? 0 : originalValue, (int) currentValue);
+    }
+}
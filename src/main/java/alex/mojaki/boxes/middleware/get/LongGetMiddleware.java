@@ -0,0 +1,28 @@
+package alex.mojaki.boxes.middleware.get;
+
+import alex.mojaki.boxes.LongPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetMiddleware} of {@code long} values. A {@link LongPowerBox} calls
+ * {@link LongGetMiddleware#onGet(PowerBox, long, long)} directly so that the values are never boxed.
+ * <p>
+ * The middleware can still be added to any other {@code PowerBox<Long>}, in which case the generic method unboxes
+ * the values. If {@code currentValue} is null it is returned unchanged, and a null {@code originalValue} is passed
+ * as 0.
+ */
+public interface LongGetMiddleware extends GetMiddleware<Long> {
+
+    /**
+     * The primitive version of {@link GetMiddleware#onGet(PowerBox, Object, Object)}.
+     */
+    long onGet(PowerBox<Long> box, long originalValue, long currentValue);
+
+    @Override
+    default Long onGet(PowerBox<Long> box, Long originalValue, Long currentValue) {
+        if (currentValue == null) {
+            return null;
+        }
+        return onGet(box, originalValue == null ? 0L : originalValue, (long) currentValue);
+    }
+}
@@ -0,0 +1,36 @@
+package alex.mojaki.boxes.middleware.symmetric;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.middleware.change.BooleanChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.BooleanGetMiddleware;
+
+/**
+ * The {@code boolean} version of {@link SymmetricMiddleware}.
+ */
+public abstract class BooleanSymmetricMiddleware implements BooleanChangeMiddleware, BooleanGetMiddleware {
+
+    /**
+     * Call {@code apply(box, requestedValue, currentValue);}.
+     */
+    @Override
+    public boolean onChange(PowerBox<Boolean> box, boolean originalValue, boolean currentValue, boolean requestedValue) {
+        return apply(box, requestedValue, currentValue);
+    }
+
+    /**
+     * Call {@link BooleanSymmetricMiddleware#apply(PowerBox, boolean, boolean)} with the same parameters.
+     */
+    @Override
+    public boolean onGet(PowerBox<Boolean> box, boolean originalValue, boolean currentValue) {
+        return apply(box, originalValue, currentValue);
+    }
+
+    /**
+     * Return the given {@code currentValue} or some transformation of it.
+     *
+     * @param box          the {@code PowerBox} whose value is being {@code set} or obtained.
+     * @param firstValue   the {@code currentValue} of the first middleware in the sequence.
+     * @param currentValue the value after transformations by previous middleware.
+     */
+    public abstract boolean apply(PowerBox<Boolean> box, boolean firstValue, boolean currentValue);
+}
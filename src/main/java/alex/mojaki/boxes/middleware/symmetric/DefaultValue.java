@@ -18,7 +18,7 @@ import alex.mojaki.boxes.utils.InstanceStore;
 // @formatter:on
 public class DefaultValue extends SymmetricMiddleware {
 
-    private static final InstanceStore<DefaultValue> INSTANCE_STORE = new InstanceStore<DefaultValue>() {
+    private static final InstanceStore<DefaultValue> INSTANCE_STORE = new InstanceStore<DefaultValue>(true) {
         @Override
         public DefaultValue getNew(Object... args) {
             return new DefaultValue(args[0]);
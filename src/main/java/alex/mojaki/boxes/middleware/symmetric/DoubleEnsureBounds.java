@@ -0,0 +1,77 @@
+package alex.mojaki.boxes.middleware.symmetric;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.utils.InstanceStore;
+import alex.mojaki.boxes.utils.PrimitiveInstanceCache;
+
+// @formatter:off
+/**
+ * The {@code double} version of {@link EnsureBounds}. If the current value is beyond the given bounds, replace it with
+ * the bound it is above/below. For example:
+ *
+ * <pre>{@code
+ * DoublePowerBox percentage = new CommonDoubleBox(Example.class, "percentage")
+ *         .addGetMiddleware(DoubleEnsureBounds.between(0, 100));
+ * percentage.setDouble(200);
+ * percentage.getDouble();  // returns 100
+ * }</pre>
+ *
+ * You can specify two bounds with {@code between}, or a single bound with {@code minimum} or {@code maximum}.
+ * Values are compared with {@link Double#compare(double, double)} to match the generic version, so {@code NaN} is
+ * treated as greater than any other value.
+ */
+// @formatter:on
+public class DoubleEnsureBounds extends DoubleSymmetricMiddleware {
+
+    private static final InstanceStore<DoubleEnsureBounds> INSTANCE_STORE = new InstanceStore<DoubleEnsureBounds>(true) {
+        @Override
+        public DoubleEnsureBounds getNew(Object... args) {
+            double min = (Double) args[0];
+            double max = (Double) args[1];
+            if (Double.compare(max, min) < 0) {
+                throw new IllegalArgumentException("The maximum (" + max + ") was set to less than the minimum (" + min + ")");
+            }
+            return new DoubleEnsureBounds(min, max);
+        }
+    };
+
+    private static final PrimitiveInstanceCache<DoubleEnsureBounds> CACHE =
+            new PrimitiveInstanceCache<DoubleEnsureBounds>() {
+                @Override
+                public DoubleEnsureBounds getNew(long min, long max, int flags) {
+                    return INSTANCE_STORE.get(Double.longBitsToDouble(min), Double.longBitsToDouble(max));
+                }
+            };
+
+    private final double min;
+    private final double max;
+
+    private DoubleEnsureBounds(double min, double max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public static DoubleEnsureBounds maximum(double max) {
+        return between(Double.NEGATIVE_INFINITY, max);
+    }
+
+    public static DoubleEnsureBounds minimum(double min) {
+        return between(min, Double.NaN);
+    }
+
+    public static DoubleEnsureBounds between(double min, double max) {
+        return CACHE.get(Double.doubleToLongBits(min), Double.doubleToLongBits(max), 0);
+    }
+
+    @Override
+    public double apply(PowerBox<Double> box, double firstValue, double currentValue) {
+        if (Double.compare(currentValue, min) < 0) {
+            return min;
+        }
+        if (Double.compare(max, currentValue) < 0) {
+            return max;
+        }
+        return currentValue;
+    }
+
+}
@@ -0,0 +1,36 @@
+package alex.mojaki.boxes.middleware.symmetric;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.middleware.change.DoubleChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.DoubleGetMiddleware;
+
+/**
+ * The {@code double} version of {@link SymmetricMiddleware}.
+ */
+public abstract class DoubleSymmetricMiddleware implements DoubleChangeMiddleware, DoubleGetMiddleware {
+
+    /**
+     * Call {@code apply(box, requestedValue, currentValue);}.
+     */
+    @Override
+    public double onChange(PowerBox<Double> box, double originalValue, double currentValue, double requestedValue) {
+        return apply(box, requestedValue, currentValue);
+    }
+
+    /**
+     * Call {@link DoubleSymmetricMiddleware#apply(PowerBox, double, double)} with the same parameters.
+     */
+    @Override
+    public double onGet(PowerBox<Double> box, double originalValue, double currentValue) {
+        return apply(box, originalValue, currentValue);
+    }
+
+    /**
+     * Return the given {@code currentValue} or some transformation of it.
+     *
+     * @param box          the {@code PowerBox} whose value is being {@code set} or obtained.
+     * @param firstValue   the {@code currentValue} of the first middleware in the sequence.
+     * @param currentValue the value after transformations by previous middleware.
+     */
+    public abstract double apply(PowerBox<Double> box, double firstValue, double currentValue);
+}
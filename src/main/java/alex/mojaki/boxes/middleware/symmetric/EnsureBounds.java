@@ -22,7 +22,7 @@ import static alex.mojaki.boxes.utils.Utils.lessThan;
 // @formatter:on
 public class EnsureBounds<T> extends SymmetricMiddleware<Comparable<T>> {
 
-    private static final InstanceStore<EnsureBounds> INSTANCE_STORE = new InstanceStore<EnsureBounds>() {
+    private static final InstanceStore<EnsureBounds> INSTANCE_STORE = new InstanceStore<EnsureBounds>(true) {
         @Override
         public EnsureBounds getNew(Object... args) {
             Comparable min = (Comparable) args[0];
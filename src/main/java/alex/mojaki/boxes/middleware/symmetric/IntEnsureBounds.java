@@ -0,0 +1,75 @@
+package alex.mojaki.boxes.middleware.symmetric;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.utils.InstanceStore;
+import alex.mojaki.boxes.utils.PrimitiveInstanceCache;
+
+// @formatter:off
+/**
+ * The {@code int} version of {@link EnsureBounds}. If the current value is beyond the given bounds, replace it with
+ * the bound it is above/below. For example:
+ *
+ * <pre>{@code
+ * IntPowerBox percentage = new CommonIntBox(Example.class, "percentage")
+ *         .addGetMiddleware(IntEnsureBounds.between(0, 100));
+ * percentage.setInt(200);
+ * percentage.getInt();  // returns 100
+ * }</pre>
+ *
+ * You can specify two bounds with {@code between}, or a single bound with {@code minimum} or {@code maximum}.
+ */
+// @formatter:on
+public class IntEnsureBounds extends IntSymmetricMiddleware {
+
+    private static final InstanceStore<IntEnsureBounds> INSTANCE_STORE = new InstanceStore<IntEnsureBounds>(true) {
+        @Override
+        public IntEnsureBounds getNew(Object... args) {
+            int min = (Integer) args[0];
+            int max = (Integer) args[1];
+            if (max < min) {
+                throw new IllegalArgumentException("The maximum (" + max + ") was set to less than the minimum (" + min + ")");
+            }
+            return new IntEnsureBounds(min, max);
+        }
+    };
+
+    private static final PrimitiveInstanceCache<IntEnsureBounds> CACHE =
+            new PrimitiveInstanceCache<IntEnsureBounds>() {
+                @Override
+                public IntEnsureBounds getNew(long min, long max, int flags) {
+                    return INSTANCE_STORE.get((int) min, (int) max);
+                }
+            };
+
+    private final int min;
+    private final int max;
+
+    private IntEnsureBounds(int min, int max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public static IntEnsureBounds maximum(int max) {
+        return between(Integer.MIN_VALUE, max);
+    }
+
+    public static IntEnsureBounds minimum(int min) {
+        return between(min, Integer.MAX_VALUE);
+    }
+
+    public static IntEnsureBounds between(int min, int max) {
+        return CACHE.get(min, max, 0);
+    }
+
+    @Override
+    public int apply(PowerBox<Integer> box, int firstValue, int currentValue) {
+        if (currentValue < min) {
+            return min;
+        }
+        if (max < currentValue) {
+            return max;
+        }
+        return currentValue;
+    }
+
+}
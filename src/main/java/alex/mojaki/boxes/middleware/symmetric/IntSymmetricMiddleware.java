@@ -0,0 +1,36 @@
+package alex.mojaki.boxes.middleware.symmetric;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.middleware.change.IntChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.IntGetMiddleware;
+
+/**
+ * The {@code int} version of {@link SymmetricMiddleware}.
+ */
+public abstract class IntSymmetricMiddleware implements IntChangeMiddleware, IntGetMiddleware {
+
+    /**
+     * Call {@code apply(box, requestedValue, currentValue);}.
+     */
+    @Override
+    public int onChange(PowerBox<Integer> box, int originalValue, int currentValue, int requestedValue) {
+        return apply(box, requestedValue, currentValue);
+    }
+
+    /**
+     * Call {@link IntSymmetricMiddleware#apply(PowerBox, int, int)} with the same parameters.
+     */
+    @Override
+    public int onGet(PowerBox<Integer> box, int originalValue, int currentValue) {
+        return apply(box, originalValue, currentValue);
+    }
+
+    /**
+     * Return the given {@code currentValue} or some transformation of it.
+     *
+     * @param box          the {@code PowerBox} whose value is being {@code set} or obtained.
+     * @param firstValue   the {@code currentValue} of the first middleware in the sequence.
+     * @param currentValue the value after transformations by previous middleware.
+     */
+    public abstract int apply(PowerBox<Integer> box, int firstValue, int currentValue);
+}
@@ -0,0 +1,75 @@
+package alex.mojaki.boxes.middleware.symmetric;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.utils.InstanceStore;
+import alex.mojaki.boxes.utils.PrimitiveInstanceCache;
+
+// @formatter:off
+/**
+ * The {@code long} version of {@link EnsureBounds}. If the current value is beyond the given bounds, replace it with
+ * the bound it is above/below. For example:
+ *
+ * <pre>{@code
+ * LongPowerBox percentage = new CommonLongBox(Example.class, "percentage")
+ *         .addGetMiddleware(LongEnsureBounds.between(0, 100));
+ * percentage.setLong(200);
+ * percentage.getLong();  // returns 100
+ * }</pre>
+ *
+ * You can specify two bounds with {@code between}, or a single bound with {@code minimum} or {@code maximum}.
+ */
+// @formatter:on
+public class LongEnsureBounds extends LongSymmetricMiddleware {
+
+    private static final InstanceStore<LongEnsureBounds> INSTANCE_STORE = new InstanceStore<LongEnsureBounds>(true) {
+        @Override
+        public LongEnsureBounds getNew(Object... args) {
+            long min = (Long) args[0];
+            long max = (Long) args[1];
+            if (max < min) {
+                throw new IllegalArgumentException("The maximum (" + max + ") was set to less than the minimum (" + min + ")");
+            }
+            return new LongEnsureBounds(min, max);
+        }
+    };
+
+    private static final PrimitiveInstanceCache<LongEnsureBounds> CACHE =
+            new PrimitiveInstanceCache<LongEnsureBounds>() {
+                @Override
+                public LongEnsureBounds getNew(long min, long max, int flags) {
+                    return CACHE.get(min, max, 0);
+                }
+            };
+
+    private final long min;
+    private final long max;
+
+    private LongEnsureBounds(long min, long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public static LongEnsureBounds maximum(long max) {
+        return between(Long.MIN_VALUE, max);
+    }
+
+    public static LongEnsureBounds minimum(long min) {
+        return between(min, Long.MAX_VALUE);
+    }
+
+    public static LongEnsureBounds between(long min, long max) {
+        return CACHE.get(min, max, 0);
+    }
+
+    @Override
+    public long apply(PowerBox<Long> box, long firstValue, long currentValue) {
+        if (currentValue < min) {
+            return min;
+        }
+        if (max < currentValue) {
+            return max;
+        }
+        return currentValue;
+    }
+
+}
@@ -0,0 +1,36 @@
+package alex.mojaki.boxes.middleware.symmetric;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.middleware.change.LongChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.LongGetMiddleware;
+
+/**
+ * The {@code long} version of {@link SymmetricMiddleware}.
+ */
+public abstract class LongSymmetricMiddleware implements LongChangeMiddleware, LongGetMiddleware {
+
+    /**
+     * Call {@code apply(box, requestedValue, currentValue);}.
+     */
+    @Override
+    public long onChange(PowerBox<Long> box, long originalValue, long currentValue, long requestedValue) {
+        return apply(box, requestedValue, currentValue);
+    }
+
+    /**
+     * Call {@link LongSymmetricMiddleware#apply(PowerBox, long, long)} with the same parameters.
+     */
+    @Override
+    public long onGet(PowerBox<Long> box, long originalValue, long currentValue) {
+        return apply(box, originalValue, currentValue);
+    }
+
+    /**
+     * Return the given {@code currentValue} or some transformation of it.
+     *
+     * @param box          the {@code PowerBox} whose value is being {@code set} or obtained.
+     * @param firstValue   the {@code currentValue} of the first middleware in the sequence.
+     * @param currentValue the value after transformations by previous middleware.
+     */
+    public abstract long apply(PowerBox<Long> box, long firstValue, long currentValue);
+}
@@ -0,0 +1,196 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.WrapperBox;
+import alex.mojaki.boxes.exceptions.BoxParticipantError;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.exceptions.ParticipationDetails;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link ChangeObserver} that passes changes on to other observers asynchronously using an {@link Executor},
+ * so that slow observers such as ones doing I/O don't delay the thread calling {@code set}. For example:
+ * <pre>{@code
+ *  family.addChangeObserver(new AsyncChangeObserver(executor, handler, auditObserver, metricsObserver));
+ * }</pre>
+ * Any executor can be used, e.g. a fixed thread pool, or a virtual thread per task executor on Java 21 and later.
+ * <p>
+ * Changes to the same box are delivered in the order they happened, one at a time, and each change is delivered to
+ * the wrapped observers in the order they were given. Changes to different boxes may be delivered concurrently.
+ * <p>
+ * Since the box has already moved on by the time the observers run, exceptions thrown by them can't prevent or roll
+ * back the change. Instead they are wrapped in a {@link BoxParticipantException} or {@link BoxParticipantError} with
+ * the usual details and passed to the {@link FailureHandler}, and the remaining observers still receive the change.
+ * The handler is also given any exception thrown by the executor when it refuses a task, in which case the pending
+ * changes are delivered the next time the box changes.
+ * If the handler itself throws, the rest of that change's observers are skipped and the exception is left to the
+ * executor, but later changes to the box are still delivered by a new task.
+ * <p>
+ * Note that the observers receive the values from the time of the change, but for a {@link WrapperBox} the values
+ * are the box itself, so its contents may have changed again by the time the observers see it.
+ *
+ * @param <T> the type parameter of the {@code PowerBox}es
+ */
+public class AsyncChangeObserver<T> implements ChangeObserver<T> {
+
+    /**
+     * Receives failures that happen while delivering changes asynchronously.
+     */
+    public interface FailureHandler {
+
+        /**
+         * Called on the executor's thread when an observer throws, with the wrapped exception or error, or on the
+         * thread that changed {@code box} when the executor refuses to run the delivery.
+         */
+        void onFailure(PowerBox box, Throwable failure);
+    }
+
+    private final Executor executor;
+    private final FailureHandler failureHandler;
+    private final List<ChangeObserver<T>> observers;
+
+    // The queues don't refer to their boxes except through undelivered changes, so that boxes can be collected
+    private final LoadingCache<PowerBox<T>, BoxQueue> queues = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<PowerBox<T>, BoxQueue>() {
+                @Override
+                public BoxQueue load(PowerBox<T> box) {
+                    return new BoxQueue();
+                }
+            });
+
+    /**
+     * Construct an observer that delivers changes to {@code observers} using {@code executor}.
+     */
+    @SafeVarargs
+    public AsyncChangeObserver(Executor executor, FailureHandler failureHandler, ChangeObserver<T>... observers) {
+        if (executor == null || failureHandler == null) {
+            throw new NullPointerException("An executor and failure handler are required");
+        }
+        this.executor = executor;
+        this.failureHandler = failureHandler;
+        List<ChangeObserver<T>> list = new ArrayList<ChangeObserver<T>>(observers.length);
+        for (ChangeObserver<T> observer : observers) {
+            list.add(observer);
+        }
+        this.observers = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Return the observers that changes are passed on to.
+     */
+    public List<ChangeObserver<T>> getObservers() {
+        return observers;
+    }
+
+    @Override
+    public void onChange(PowerBox<T> box, T originalValue, T finalValue, T requestedValue) {
+        queues.getUnchecked(box).add(new Change<T>(box, originalValue, finalValue, requestedValue));
+    }
+
+    private static final class Change<T> {
+        final PowerBox<T> box;
+        final T originalValue;
+        final T finalValue;
+        final T requestedValue;
+
+        Change(PowerBox<T> box, T originalValue, T finalValue, T requestedValue) {
+            this.box = box;
+            this.originalValue = originalValue;
+            this.finalValue = finalValue;
+            this.requestedValue = requestedValue;
+        }
+    }
+
+    /**
+     * The changes to one box that haven't been delivered yet. At most one task per box is submitted to the executor
+     * at a time, and it delivers changes until the queue is empty, which keeps them in order.
+     */
+    private final class BoxQueue implements Runnable {
+        private final Queue<Change<T>> changes = new ConcurrentLinkedQueue<Change<T>>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void add(Change<T> change) {
+            changes.add(change);
+            schedule(change.box);
+        }
+
+        private void schedule(PowerBox<T> box) {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
+                failureHandler.onFailure(box, e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Change<T> change;
+                while ((change = changes.poll()) != null) {
+                    deliver(change);
+                }
+            } finally {
+                // Also reached if the failure handler throws, which would otherwise stop the box's changes forever
+                scheduled.set(false);
+                // A change may have been added after the last poll but before the flag was cleared
+                Change<T> next = changes.peek();
+                if (next != null) {
+                    schedule(next.box);
+                }
+            }
+        }
+
+        private void deliver(Change<T> change) {
+            PowerBox<T> box = change.box;
+            for (int i = 0; i < observers.size(); i++) {
+                try {
+                    observers.get(i).onChange(box, change.originalValue, change.finalValue, change.requestedValue);
+                } catch (Throwable throwable) {
+                    failureHandler.onFailure(box, wrapFailure(box, observers, i, throwable,
+                            change.originalValue, change.finalValue, change.requestedValue));
+                }
+            }
+        }
+    }
+
+    /**
+     * Wrap the {@code throwable} thrown by observer {@code i} in {@code observers} when it was delivered a change
+     * asynchronously, in the same way that boxes wrap failures of observers called synchronously.
+     */
+    static Throwable wrapFailure(PowerBox box, List<?> observers, int i, Throwable throwable,
+                                 Object originalValue, Object finalValue, Object requestedValue) {
+        BoxFamily family = box.getFamily();
+        String message = "Error in asynchronous ChangeObserver " + (i + 1) + " out of " + observers.size() +
+                " of " + family.description() + ". ";
+        if (!family.showsValueStrings()) {
+            message += "Values hidden.";
+        } else if (box instanceof WrapperBox) {
+            message += "Value = " + ((WrapperBox) box).revealedToString();
+        } else {
+            message += "Original value = " + originalValue + ". Final value = " + finalValue +
+                    ". Requested value = " + requestedValue + ".";
+        }
+        ParticipationDetails details = new ParticipationDetails(box, i, observers, ChangeObserver.class);
+        if (throwable instanceof Error) {
+            return new BoxParticipantError(message, (Error) throwable).withDetails(details);
+        }
+        return new BoxParticipantException(message, (Exception) throwable).withDetails(details);
+    }
+
+}
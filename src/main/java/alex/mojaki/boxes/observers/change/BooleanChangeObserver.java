@@ -0,0 +1,30 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.BooleanPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeObserver} of {@code boolean} values. A {@link BooleanPowerBox} calls
+ * {@link BooleanChangeObserver#onChange(PowerBox, boolean, boolean, boolean)} directly so that the values are never
+ * boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Boolean>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and any other null values are passed as false.
+ */
+public interface BooleanChangeObserver extends ChangeObserver<Boolean> {
+
+    /**
+     * The primitive version of {@link ChangeObserver#onChange(PowerBox, Object, Object, Object)}.
+     */
+    void onChange(PowerBox<Boolean> box, boolean originalValue, boolean finalValue, boolean requestedValue);
+
+    @Override
+    default void onChange(PowerBox<Boolean> box, Boolean originalValue, Boolean finalValue, Boolean requestedValue) {
+        if (finalValue != null) {
+            onChange(box,
+                    originalValue == null ? false : originalValue,
+                    (boolean) finalValue,
+                    requestedValue == null ? false : requestedValue);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.PowerBox;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ChangeObserver} that collapses rapid changes to a box into a single change before passing it on to other
+ * observers, for observers that only need the latest value now and then, such as ones pushing values to clients.
+ * The collapsed change has the value from before the first of the changes as {@code originalValue} and the final and
+ * requested values of the last one.
+ * <p>
+ * Changes to each box are collapsed separately, but all boxes share the {@link ScheduledExecutorService} given to the
+ * factory method, so there is no timer per box. The three factory methods decide when a change is passed on:
+ * <ul>
+ *     <li>{@link ConflatingChangeObserver#debounce debounce}: once the box hasn't changed for the whole interval.</li>
+ *     <li>{@link ConflatingChangeObserver#throttle throttle}: as soon as possible, but at most once per interval for
+ *     each box.</li>
+ *     <li>{@link ConflatingChangeObserver#conflate conflate}: at the next tick of a single timer running every
+ *     interval for all boxes.</li>
+ * </ul>
+ * The wrapped observers run on the scheduler's threads, so as with {@link AsyncChangeObserver} exceptions can't roll
+ * back changes and are passed to a {@link AsyncChangeObserver.FailureHandler} instead.
+ *
+ * @param <T> the type parameter of the {@code PowerBox}es
+ */
+public class ConflatingChangeObserver<T> implements ChangeObserver<T> {
+
+    private enum Mode {
+        DEBOUNCE, THROTTLE, CONFLATE
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long intervalNanos;
+    private final Mode mode;
+    private final AsyncChangeObserver.FailureHandler failureHandler;
+    private final List<ChangeObserver<T>> observers;
+
+    // A Pending only refers to its box while it has a change to pass on, so that boxes can be collected
+    private final LoadingCache<PowerBox<T>, Pending> pending = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<PowerBox<T>, Pending>() {
+                @Override
+                public Pending load(PowerBox<T> box) {
+                    return new Pending();
+                }
+            });
+
+    /**
+     * The boxes with changes waiting for the next tick, in {@code CONFLATE} mode.
+     */
+    private final Queue<Pending> dirty = new ConcurrentLinkedQueue<Pending>();
+
+    private ScheduledFuture<?> timer;
+
+    private ConflatingChangeObserver(ScheduledExecutorService scheduler, long interval, TimeUnit unit, Mode mode,
+                                     AsyncChangeObserver.FailureHandler failureHandler, List<ChangeObserver<T>> observers) {
+        if (scheduler == null || unit == null || failureHandler == null) {
+            throw new NullPointerException("A scheduler, time unit and failure handler are required");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive, not " + interval);
+        }
+        this.scheduler = scheduler;
+        this.intervalNanos = unit.toNanos(interval);
+        this.mode = mode;
+        this.failureHandler = failureHandler;
+        this.observers = Collections.unmodifiableList(observers);
+    }
+
+    /**
+     * Return an observer that passes on a change to a box once the box has gone {@code interval} without changing.
+     * A box that never stops changing never notifies the observers, so consider {@code throttle} in that case.
+     */
+    @SafeVarargs
+    public static <T> ConflatingChangeObserver<T> debounce(ScheduledExecutorService scheduler, long interval, TimeUnit unit,
+                                                           AsyncChangeObserver.FailureHandler failureHandler,
+                                                           ChangeObserver<T>... observers) {
+        return new ConflatingChangeObserver<T>(scheduler, interval, unit, Mode.DEBOUNCE, failureHandler, list(observers));
+    }
+
+    /**
+     * Return an observer that passes on changes to each box at most once every {@code interval}. A change to a box
+     * that hasn't notified the observers recently is passed on immediately (on the scheduler), while later changes
+     * are collected until the interval is over.
+     */
+    @SafeVarargs
+    public static <T> ConflatingChangeObserver<T> throttle(ScheduledExecutorService scheduler, long interval, TimeUnit unit,
+                                                           AsyncChangeObserver.FailureHandler failureHandler,
+                                                           ChangeObserver<T>... observers) {
+        return new ConflatingChangeObserver<T>(scheduler, interval, unit, Mode.THROTTLE, failureHandler, list(observers));
+    }
+
+    /**
+     * Return an observer that passes on the changes to all boxes that changed since the last tick of a timer that
+     * runs every {@code interval}. The timer starts with the first change and runs until {@link #close()}.
+     */
+    @SafeVarargs
+    public static <T> ConflatingChangeObserver<T> conflate(ScheduledExecutorService scheduler, long interval, TimeUnit unit,
+                                                           AsyncChangeObserver.FailureHandler failureHandler,
+                                                           ChangeObserver<T>... observers) {
+        return new ConflatingChangeObserver<T>(scheduler, interval, unit, Mode.CONFLATE, failureHandler, list(observers));
+    }
+
+    // Copies the varargs into a list without passing on the generic array, which would need @SafeVarargs here too
+    private static <T> List<ChangeObserver<T>> list(ChangeObserver<T>[] observers) {
+        List<ChangeObserver<T>> list = new ArrayList<ChangeObserver<T>>(observers.length);
+        for (ChangeObserver<T> observer : observers) {
+            list.add(observer);
+        }
+        return list;
+    }
+
+    /**
+     * Return the observers that changes are passed on to.
+     */
+    public List<ChangeObserver<T>> getObservers() {
+        return observers;
+    }
+
+    @Override
+    public void onChange(PowerBox<T> box, T originalValue, T finalValue, T requestedValue) {
+        pending.getUnchecked(box).add(box, originalValue, finalValue, requestedValue);
+    }
+
+    /**
+     * Immediately pass on all the changes that are waiting, on the calling thread. This is mainly useful before
+     * shutting down. Changes being passed on by the scheduler at the same time may be delivered concurrently.
+     */
+    public void flush() {
+        for (Pending p : pending.asMap().values()) {
+            p.deliver();
+        }
+    }
+
+    /**
+     * Stop the timer of an observer created by {@code conflate} and {@link #flush()} any remaining changes.
+     * A later change will start the timer again.
+     */
+    public void close() {
+        synchronized (this) {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+        flush();
+    }
+
+    private synchronized void startTimer() {
+        if (timer != null) {
+            return;
+        }
+        timer = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                Pending p;
+                while ((p = dirty.poll()) != null) {
+                    p.deliver();
+                }
+            }
+        }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The collapsed change of one box that hasn't been passed on yet.
+     */
+    private final class Pending implements Runnable {
+
+        // All guarded by this
+        private PowerBox<T> box;
+        private boolean hasChange;
+        private T originalValue;
+        private T finalValue;
+        private T requestedValue;
+        private boolean scheduled;
+        private long lastChange;
+        private long lastDelivery = System.nanoTime() - intervalNanos;
+
+        void add(PowerBox<T> box, T originalValue, T finalValue, T requestedValue) {
+            long delay;
+            synchronized (this) {
+                if (!hasChange) {
+                    hasChange = true;
+                    this.box = box;
+                    this.originalValue = originalValue;
+                }
+                this.finalValue = finalValue;
+                this.requestedValue = requestedValue;
+                lastChange = System.nanoTime();
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+                delay = mode == Mode.DEBOUNCE ? intervalNanos :
+                        mode == Mode.THROTTLE ? Math.max(0, lastDelivery + intervalNanos - lastChange) :
+                                -1;
+            }
+            try {
+                if (mode == Mode.CONFLATE) {
+                    dirty.add(this);
+                    startTimer();
+                } else {
+                    scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                failureHandler.onFailure(box, e);
+            }
+        }
+
+        /**
+         * Called by the scheduler when the delay for this box is over.
+         */
+        @Override
+        public void run() {
+            if (mode == Mode.DEBOUNCE) {
+                long remaining;
+                synchronized (this) {
+                    remaining = lastChange + intervalNanos - System.nanoTime();
+                }
+                // The box changed again since this was scheduled, so wait for the rest of the quiet interval
+                if (remaining > 0) {
+                    try {
+                        scheduler.schedule(this, remaining, TimeUnit.NANOSECONDS);
+                    } catch (RuntimeException e) {
+                        // Otherwise the next change would think it's still scheduled and never schedule it again
+                        synchronized (this) {
+                            scheduled = false;
+                        }
+                        throw e;
+                    }
+                    return;
+                }
+            }
+            deliver();
+        }
+
+        void deliver() {
+            PowerBox<T> box;
+            T original;
+            T last;
+            T requested;
+            synchronized (this) {
+                scheduled = false;
+                if (!hasChange) {
+                    return;
+                }
+                box = this.box;
+                original = originalValue;
+                last = finalValue;
+                requested = requestedValue;
+                hasChange = false;
+                this.box = null;
+                originalValue = finalValue = requestedValue = null;
+                lastDelivery = System.nanoTime();
+            }
+            for (int i = 0; i < observers.size(); i++) {
+                try {
+                    observers.get(i).onChange(box, original, last, requested);
+                } catch (Throwable throwable) {
+                    failureHandler.onFailure(box, AsyncChangeObserver.wrapFailure(box, observers, i, throwable,
+                            original, last, requested));
+                }
+            }
+        }
+    }
+
+}
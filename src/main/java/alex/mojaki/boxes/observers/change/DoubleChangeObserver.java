@@ -0,0 +1,29 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.DoublePowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeObserver} of {@code double} values. A {@link DoublePowerBox} calls
+ * {@link DoubleChangeObserver#onChange(PowerBox, double, double, double)} directly so that the values are never boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Double>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and any other null values are passed as 0.0.
+ */
+public interface DoubleChangeObserver extends ChangeObserver<Double> {
+
+    /**
+     * The primitive version of {@link ChangeObserver#onChange(PowerBox, Object, Object, Object)}.
+     */
+    void onChange(PowerBox<Double> box, double originalValue, double finalValue, double requestedValue);
+
+    @Override
+    default void onChange(PowerBox<Double> box, Double originalValue, Double finalValue, Double requestedValue) {
+        if (finalValue != null) {
+            onChange(box,
+                    originalValue == null ? 0.0 : originalValue,
+                    (double) finalValue,
+                    requestedValue == null ? 0.0 : requestedValue);
+        }
+    }
+}
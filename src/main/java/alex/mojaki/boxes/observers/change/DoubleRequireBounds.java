@@ -0,0 +1,122 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.utils.InstanceStore;
+import alex.mojaki.boxes.utils.PrimitiveInstanceCache;
+
+/**
+ * The {@code double} version of {@link RequireBounds}. If the value is beyond the given bounds, or if it is equal to a
+ * bound that is not inclusive, throw an {@code IllegalArgumentException}.
+ * For example:
+ * <p>
+ * <pre>{@code
+ * DoublePowerBox count = new CommonDoubleBox(Example.class, "count")
+ *         .addChangeObserver(DoubleRequireBounds.between(0, true, 10, false));
+ * count.setDouble(9);   // valid
+ * count.setDouble(10);  // invalid, the upper bound is exclusive
+ * }</pre>
+ * <p>
+ * You can specify two bounds with {@code between}, or a single bound with {@code minimum} or {@code maximum}.
+ * Values are compared with {@link Double#compare(double, double)} to match the generic version, so {@code NaN} is
+ * treated as greater than any other value.
+ */
+public class DoubleRequireBounds implements DoubleChangeObserver {
+
+    private static final InstanceStore<DoubleRequireBounds> INSTANCE_STORE = new InstanceStore<DoubleRequireBounds>(true) {
+        @Override
+        public DoubleRequireBounds getNew(Object... args) {
+            return new DoubleRequireBounds(
+                    (Boolean) args[0], (Double) args[1], (Boolean) args[2],
+                    (Boolean) args[3], (Double) args[4], (Boolean) args[5]);
+        }
+    };
+
+    private static final int HAS_MIN = 1;
+    private static final int MIN_INCLUSIVE = 2;
+    private static final int HAS_MAX = 4;
+    private static final int MAX_INCLUSIVE = 8;
+
+    private static final PrimitiveInstanceCache<DoubleRequireBounds> CACHE =
+            new PrimitiveInstanceCache<DoubleRequireBounds>() {
+                @Override
+                public DoubleRequireBounds getNew(long min, long max, int flags) {
+                    return INSTANCE_STORE.get(
+                            (flags & HAS_MIN) != 0, Double.longBitsToDouble(min), (flags & MIN_INCLUSIVE) != 0,
+                            (flags & HAS_MAX) != 0, Double.longBitsToDouble(max), (flags & MAX_INCLUSIVE) != 0);
+                }
+            };
+
+    private final boolean hasMin;
+    private final double min;
+    private final boolean minInclusive;
+    private final boolean hasMax;
+    private final double max;
+    private final boolean maxInclusive;
+
+    private DoubleRequireBounds(boolean hasMin, double min, boolean minInclusive,
+                                boolean hasMax, double max, boolean maxInclusive) {
+        if (hasMin && hasMax) {
+            if (Double.compare(max, min) < 0) {
+                throw new IllegalArgumentException("The maximum (" + max + ") " +
+                        "was set to less than the minimum (" + min + ").");
+            } else if (Double.compare(min, max) == 0 && !(minInclusive && maxInclusive)) {
+                throw new IllegalArgumentException("The minimum and maximum are both " + min +
+                        " and they are not both inclusive, which is impossible to satisfy.");
+            }
+        }
+        this.hasMin = hasMin;
+        this.min = min;
+        this.minInclusive = minInclusive;
+        this.hasMax = hasMax;
+        this.max = max;
+        this.maxInclusive = maxInclusive;
+    }
+
+    public static DoubleRequireBounds maximum(double max, boolean inclusive) {
+        return get(false, 0.0, false, true, max, inclusive);
+    }
+
+    public static DoubleRequireBounds minimum(double min, boolean inclusive) {
+        return get(true, min, inclusive, false, 0.0, false);
+    }
+
+    public static DoubleRequireBounds between(double min, boolean minInclusive, double max, boolean maxInclusive) {
+        return get(true, min, minInclusive, true, max, maxInclusive);
+    }
+
+    private static DoubleRequireBounds get(boolean hasMin, double min, boolean minInclusive,
+                                         boolean hasMax, double max, boolean maxInclusive) {
+        int flags = (hasMin ? HAS_MIN : 0) | (minInclusive ? MIN_INCLUSIVE : 0) |
+                (hasMax ? HAS_MAX : 0) | (maxInclusive ? MAX_INCLUSIVE : 0);
+        return CACHE.get(Double.doubleToLongBits(min), Double.doubleToLongBits(max), flags);
+    }
+
+    @Override
+    public void onChange(PowerBox<Double> box, double originalValue, double finalValue, double requestedValue) {
+        if (hasMin) {
+            if (Double.compare(finalValue, min) < 0) {
+                throw outOfBounds(box, finalValue, "less than " + min);
+            }
+            if (!minInclusive && Double.compare(finalValue, min) == 0) {
+                throw outOfBounds(box, finalValue, "the exclusive minimum");
+            }
+        }
+        if (hasMax) {
+            if (Double.compare(max, finalValue) < 0) {
+                throw outOfBounds(box, finalValue, "more than " + max);
+            }
+            if (!maxInclusive && Double.compare(finalValue, max) == 0) {
+                throw outOfBounds(box, finalValue, "the exclusive maximum");
+            }
+        }
+    }
+
+    private static IllegalArgumentException outOfBounds(PowerBox box, double finalValue, String problem) {
+        BoxFamily family = box.getFamily();
+        return new IllegalArgumentException(
+                family.showsValueStrings() ?
+                        ("Tried setting " + family.description() + " to " + finalValue + " which is " + problem)
+                        : "");
+    }
+}
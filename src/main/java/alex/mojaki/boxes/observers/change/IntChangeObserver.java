@@ -0,0 +1,29 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.IntPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeObserver} of {@code int} values. An {@link IntPowerBox} calls
+ * {@link IntChangeObserver#onChange(PowerBox, int, int, int)} directly so that the values are never boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Integer>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and any other null values are passed as 0.
+ */
+public interface IntChangeObserver extends ChangeObserver<Integer> {
+
+    /**
+     * The primitive version of {@link ChangeObserver#onChange(PowerBox, Object, Object, Object)}.
+     */
+    void onChange(PowerBox<Integer> box, int originalValue, int finalValue, int requestedValue);
+
+    @Override
+    default void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+        if (finalValue != null) {
+            onChange(box,
+                    originalValue == null ? 0 : originalValue,
+                    (int) finalValue,
+                    requestedValue == null ? 0 : requestedValue);
+        }
+    }
+}
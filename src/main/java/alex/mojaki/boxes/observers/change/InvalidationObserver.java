@@ -0,0 +1,22 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.View;
+
+/**
+ * A {@link View} in lazy mode notifies these objects when its value becomes stale instead of calculating the new
+ * value, so that they can decide when, if ever, to get it.
+ *
+ * @see View#lazy()
+ * @see View#addInvalidationObserver(InvalidationObserver[])
+ */
+public interface InvalidationObserver<T> {
+
+    /**
+     * Take some action now that {@code view} may have a different value, such as scheduling a call to
+     * {@link View#get()}. Called once when one of the boxes the view depends on changes, and not again until the
+     * value has been calculated, no matter how many more changes happen in between.
+     *
+     * @param view the {@code View} whose cached value was just invalidated.
+     */
+    void onInvalidate(View<T> view);
+}
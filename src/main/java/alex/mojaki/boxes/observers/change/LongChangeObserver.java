@@ -0,0 +1,29 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.LongPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link ChangeObserver} of {@code long} values. A {@link LongPowerBox} calls
+ * {@link LongChangeObserver#onChange(PowerBox, long, long, long)} directly so that the values are never boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Long>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and any other null values are passed as 0L.
+ */
+public interface LongChangeObserver extends ChangeObserver<Long> {
+
+    /**
+     * The primitive version of {@link ChangeObserver#onChange(PowerBox, Object, Object, Object)}.
+     */
+    void onChange(PowerBox<Long> box, long originalValue, long finalValue, long requestedValue);
+
+    @Override
+    default void onChange(PowerBox<Long> box, Long originalValue, Long finalValue, Long requestedValue) {
+        if (finalValue != null) {
+            onChange(box,
+                    originalValue == null ? 0L : originalValue,
+                    (long) finalValue,
+                    requestedValue == null ? 0L : requestedValue);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package alex.mojaki.boxes.observers.change;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.utils.InstanceStore;
+import alex.mojaki.boxes.utils.PrimitiveInstanceCache;
+
+/**
+ * The {@code long} version of {@link RequireBounds}. If the value is beyond the given bounds, or if it is equal to a
+ * bound that is not inclusive, throw an {@code IllegalArgumentException}.
+ * For example:
+ * <p>
+ * <pre>{@code
+ * LongPowerBox count = new CommonLongBox(Example.class, "count")
+ *         .addChangeObserver(LongRequireBounds.between(0, true, 10, false));
+ * count.setLong(9);   // valid
+ * count.setLong(10);  // invalid, the upper bound is exclusive
+ * }</pre>
+ * <p>
+ * You can specify two bounds with {@code between}, or a single bound with {@code minimum} or {@code maximum}.
+ */
+public class LongRequireBounds implements LongChangeObserver {
+
+    private static final InstanceStore<LongRequireBounds> INSTANCE_STORE = new InstanceStore<LongRequireBounds>(true) {
+        @Override
+        public LongRequireBounds getNew(Object... args) {
+            return new LongRequireBounds(
+                    (Boolean) args[0], (Long) args[1], (Boolean) args[2],
+                    (Boolean) args[3], (Long) args[4], (Boolean) args[5]);
+        }
+    };
+
+    private static final int HAS_MIN = 1;
+    private static final int MIN_INCLUSIVE = 2;
+    private static final int HAS_MAX = 4;
+    private static final int MAX_INCLUSIVE = 8;
+
+    private static final PrimitiveInstanceCache<LongRequireBounds> CACHE =
+            new PrimitiveInstanceCache<LongRequireBounds>() {
+                @Override
+                public LongRequireBounds getNew(long min, long max, int flags) {
+                    return INSTANCE_STORE.get(
+                            (flags & HAS_MIN) != 0, min, (flags & MIN_INCLUSIVE) != 0,
+                            (flags & HAS_MAX) != 0, max, (flags & MAX_INCLUSIVE) != 0);
+                }
+            };
+
+    private final boolean hasMin;
+    private final long min;
+    private final boolean minInclusive;
+    private final boolean hasMax;
+    private final long max;
+    private final boolean maxInclusive;
+
+    private LongRequireBounds(boolean hasMin, long min, boolean minInclusive,
+                              boolean hasMax, long max, boolean maxInclusive) {
+        if (hasMin && hasMax) {
+            if (max < min) {
+                throw new IllegalArgumentException("The maximum (" + max + ") " +
+                        "was set to less than the minimum (" + min + ").");
+            } else if (min == max && !(minInclusive && maxInclusive)) {
+                throw new IllegalArgumentException("The minimum and maximum are both " + min +
+                        " and they are not both inclusive, which is impossible to satisfy.");
+            }
+        }
+        this.hasMin = hasMin;
+        this.min = min;
+        this.minInclusive = minInclusive;
+        this.hasMax = hasMax;
+        this.max = max;
+        this.maxInclusive = maxInclusive;
+    }
+
+    public static LongRequireBounds maximum(long max, boolean inclusive) {
+        return get(false, 0L, false, true, max, inclusive);
+    }
+
+    public static LongRequireBounds minimum(long min, boolean inclusive) {
+        return get(true, min, inclusive, false, 0L, false);
+    }
+
+    public static LongRequireBounds between(long min, boolean minInclusive, long max, boolean maxInclusive) {
+        return get(true, min, minInclusive, true, max, maxInclusive);
+    }
+
+    private static LongRequireBounds get(boolean hasMin, long min, boolean minInclusive,
+                                         boolean hasMax, long max, boolean maxInclusive) {
+        int flags = (hasMin ? HAS_MIN : 0) | (minInclusive ? MIN_INCLUSIVE : 0) |
+                (hasMax ? HAS_MAX : 0) | (maxInclusive ? MAX_INCLUSIVE : 0);
+        return CACHE.get(min, max, flags);
+    }
+
+    @Override
+    public void onChange(PowerBox<Long> box, long originalValue, long finalValue, long requestedValue) {
+        if (hasMin) {
+            if (finalValue < min) {
+                throw outOfBounds(box, finalValue, "less than " + min);
+            }
+            if (!minInclusive && finalValue == min) {
+                throw outOfBounds(box, finalValue, "the exclusive minimum");
+            }
+        }
+        if (hasMax) {
+            if (max < finalValue) {
+                throw outOfBounds(box, finalValue, "more than " + max);
+            }
+            if (!maxInclusive && finalValue == max) {
+                throw outOfBounds(box, finalValue, "the exclusive maximum");
+            }
+        }
+    }
+
+    private static IllegalArgumentException outOfBounds(PowerBox box, long finalValue, String problem) {
+        BoxFamily family = box.getFamily();
+        return new IllegalArgumentException(
+                family.showsValueStrings() ?
+                        ("Tried setting " + family.description() + " to " + finalValue + " which is " + problem)
+                        : "");
+    }
+}
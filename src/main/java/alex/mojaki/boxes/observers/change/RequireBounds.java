@@ -30,7 +30,7 @@ import static alex.mojaki.boxes.utils.Utils.lessThan;
  */
 public class RequireBounds<T> implements ChangeObserver<Comparable<T>> {
 
-    private static final InstanceStore<RequireBounds> INSTANCE_STORE = new InstanceStore<RequireBounds>() {
+    private static final InstanceStore<RequireBounds> INSTANCE_STORE = new InstanceStore<RequireBounds>(true) {
         @Override
         public RequireBounds getNew(Object... args) {
             //noinspection unchecked
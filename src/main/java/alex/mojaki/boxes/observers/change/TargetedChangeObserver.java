@@ -3,6 +3,7 @@ package alex.mojaki.boxes.observers.change;
 import alex.mojaki.boxes.PowerBox;
 import alex.mojaki.boxes.utils.WeakConcurrentMultiMap;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -39,6 +40,22 @@ public abstract class TargetedChangeObserver<T, V> implements ChangeObserver<T>
         box.addChangeObserver(this);
     }
 
+    /**
+     * Remove an association created by {@link TargetedChangeObserver#register(PowerBox, Object)}. This observer stays
+     * in the family of {@code box}, since other boxes in the family may still have targets.
+     */
+    public void unregister(PowerBox<T> box, V target) {
+        map.remove(box, target);
+    }
+
+    /**
+     * Return the targets currently associated with {@code box} via
+     * {@link TargetedChangeObserver#register(PowerBox, Object)}.
+     */
+    public List<V> getTargets(PowerBox<T> box) {
+        return Collections.unmodifiableList(map.get(box));
+    }
+
     /**
      * Similar to the normal {@link ChangeObserver#onChange(PowerBox, Object, Object, Object)} method, except that
      * when {@code box} changes, this method is called once for every value of {@code target} that was associated
@@ -0,0 +1,27 @@
+package alex.mojaki.boxes.observers.get;
+
+import alex.mojaki.boxes.BooleanPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetObserver} of {@code boolean} values. A {@link BooleanPowerBox} calls
+ * {@link BooleanGetObserver#onGet(PowerBox, boolean, boolean)} directly so that the values are never boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Boolean>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and a null {@code originalValue} is passed as
+ * false.
+ */
+public interface BooleanGetObserver extends GetObserver<Boolean> {
+
+    /**
+     * The primitive version of {@link GetObserver#onGet(PowerBox, Object, Object)}.
+     */
+    void onGet(PowerBox<Boolean> box, boolean originalValue, boolean finalValue);
+
+    @Override
+    default void onGet(PowerBox<Boolean> box, Boolean originalValue, Boolean finalValue) {
+        if (finalValue != null) {
+            onGet(box, originalValue == null ? false : originalValue, (boolean) finalValue);
+        }
+    }
+}
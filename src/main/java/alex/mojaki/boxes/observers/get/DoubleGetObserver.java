@@ -0,0 +1,26 @@
+package alex.mojaki.boxes.observers.get;
+
+import alex.mojaki.boxes.DoublePowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetObserver} of {@code double} values. A {@link DoublePowerBox} calls
+ * {@link DoubleGetObserver#onGet(PowerBox, double, double)} directly so that the values are never boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Double>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and a null {@code originalValue} is passed as 0.0.
+ */
+public interface DoubleGetObserver extends GetObserver<Double> {
+
+    /**
+     * The primitive version of {@link GetObserver#onGet(PowerBox, Object, Object)}.
+     */
+    void onGet(PowerBox<Double> box, double originalValue, double finalValue);
+
+    @Override
+    default void onGet(PowerBox<Double> box, Double originalValue, Double finalValue) {
+        if (finalValue != null) {
+            onGet(box, originalValue == null ? 0.0 : originalValue, (double) finalValue);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package alex.mojaki.boxes.observers.get;
+
+import alex.mojaki.boxes.IntPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetObserver} of {@code int} values. An {@link IntPowerBox} calls
+ * {@link IntGetObserver#onGet(PowerBox, int, int)} directly so that the values are never boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Integer>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and a null {@code originalValue} is passed as 0.
+ */
+public interface IntGetObserver extends GetObserver<Integer> {
+
+    /**
+     * The primitive version of {@link GetObserver#onGet(PowerBox, Object, Object)}.
+     */
+    void onGet(PowerBox<Integer> box, int originalValue, int finalValue);
+
+    @Override
+    default void onGet(PowerBox<Integer> box, Integer originalValue, Integer finalValue) {
+        if (finalValue != null) {
+            onGet(box, originalValue == null ? 0 : originalValue, (int) finalValue);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package alex.mojaki.boxes.observers.get;
+
+import alex.mojaki.boxes.LongPowerBox;
+import alex.mojaki.boxes.PowerBox;
+
+/**
+ * A {@link GetObserver} of {@code long} values. A {@link LongPowerBox} calls
+ * {@link LongGetObserver#onGet(PowerBox, long, long)} directly so that the values are never boxed.
+ * <p>
+ * The observer can still be added to any other {@code PowerBox<Long>}, in which case the generic method unboxes
+ * the values. If {@code finalValue} is null the observer is skipped, and a null {@code originalValue} is passed as 0L.
+ */
+public interface LongGetObserver extends GetObserver<Long> {
+
+    /**
+     * The primitive version of {@link GetObserver#onGet(PowerBox, Object, Object)}.
+     */
+    void onGet(PowerBox<Long> box, long originalValue, long finalValue);
+
+    @Override
+    default void onGet(PowerBox<Long> box, Long originalValue, Long finalValue) {
+        if (finalValue != null) {
+            onGet(box, originalValue == null ? 0L : originalValue, (long) finalValue);
+        }
+    }
+}
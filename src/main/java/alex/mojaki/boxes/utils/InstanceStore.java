@@ -1,9 +1,12 @@
 package alex.mojaki.boxes.utils;
 
-import java.util.Arrays;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * A helper class for caching instances of objects based on constructor arguments in a thread-safe manner.
@@ -32,12 +35,91 @@ import java.util.concurrent.ConcurrentMap;
  *     }
  * }
  * }</pre>
+ * Instances are stored in a tree of concurrent maps with one level per argument, so looking up an existing instance
+ * only hashes each argument and doesn't allocate a key, and the one and two argument forms of {@code get} don't even
+ * allocate a varargs array. Storing a new instance doesn't take any lock shared by the whole store. If several threads
+ * ask for the same new arguments at the same time, {@code getNew} may be called more than once but only one of the
+ * results is ever returned, so {@code getNew} should not have side effects.
+ * <p>
+ * By default the store keeps every instance, and therefore every argument, forever. A store constructed with
+ * {@code weakValues} set to true only keeps instances while they are in use elsewhere, e.g. added to a
+ * {@code BoxFamily}, and creates a new one the next time the same arguments are used after an instance has been
+ * garbage collected. The entries of collected instances are expunged along with any levels of the tree left empty,
+ * so arguments such as classes loaded by a plugin's class loader aren't kept reachable by the store.
  *
  * @param <T> the type of class being stored
  */
 public abstract class InstanceStore<T> {
 
-    private final ConcurrentMap<List<Object>, T> map = new ConcurrentHashMap<List<Object>, T>();
+    /**
+     * Stands in for null arguments, which concurrent maps don't allow as keys.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * One level of the tree: a map from one argument to the next level or, at the last argument, the instance or a
+     * {@link WeakInstance} of it. In weak mode, modifications that could make a level empty or add to a level that
+     * might be empty are synchronized on the level, and a level is marked dead when it's removed from its parent so
+     * that nothing is added to it afterwards.
+     */
+    private static final class Level extends ConcurrentHashMap<Object, Object> {
+        final Level parent;
+        final Object keyInParent;
+        boolean dead;
+
+        Level(Level parent, Object keyInParent) {
+            this.parent = parent;
+            this.keyInParent = keyInParent;
+        }
+
+        // Levels are only ever compared by identity, e.g. when removing one from its parent
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    private static final class WeakInstance<T> extends WeakReference<T> {
+        final Level level;
+        final Object key;
+
+        WeakInstance(T instance, Level level, Object key, ReferenceQueue<T> queue) {
+            super(instance, queue);
+            this.level = level;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Maps the first argument to the instance if there is only one argument, otherwise to another map for the
+     * second argument, and so on. The number of arguments is part of the key so that calls with different numbers
+     * of arguments can't collide.
+     */
+    private final Level root = new Level(null, null);
+
+    private final boolean weakValues;
+
+    private final ReferenceQueue<T> queue;
+
+    /**
+     * Construct a store that keeps all instances forever.
+     */
+    public InstanceStore() {
+        this(false);
+    }
+
+    /**
+     * Construct a store which, if {@code weakValues} is true, only keeps instances that are reachable elsewhere.
+     */
+    public InstanceStore(boolean weakValues) {
+        this.weakValues = weakValues;
+        queue = weakValues ? new ReferenceQueue<T>() : null;
+    }
 
     /**
      * Override this method to return a new instance of the class of interest using the given arguments. This usually
@@ -50,19 +132,160 @@ public abstract class InstanceStore<T> {
      * will be returned via {@link InstanceStore#getNew(Object...)}. Otherwise a cached instance will be returned.
      */
     public T get(Object... args) {
-        List<Object> key = Arrays.asList(args);
-        T result = map.get(key);
+        while (true) {
+            Level level = levels(args.length);
+            for (int i = 0; i < args.length - 1 && level != null; i++) {
+                level = next(level, args[i]);
+            }
+            if (level != null) {
+                T result = leaf(level, args.length == 0 ? null : args[args.length - 1], args);
+                if (result != null) {
+                    return result;
+                }
+            }
+            // A level was removed by expunging while we were using it, so start again
+        }
+    }
+
+    /**
+     * Equivalent to {@link InstanceStore#get(Object...)} with a single argument, without allocating an array when
+     * the instance already exists.
+     */
+    public T get(Object arg) {
+        T result = find(levels(1), arg);
+        return result != null ? result : get(new Object[]{arg});
+    }
+
+    /**
+     * Equivalent to {@link InstanceStore#get(Object...)} with two arguments, without allocating an array when
+     * the instance already exists.
+     */
+    public T get(Object arg1, Object arg2) {
+        Level level = next(levels(2), arg1);
+        T result = level == null ? null : find(level, arg2);
+        return result != null ? result : get(new Object[]{arg1, arg2});
+    }
+
+    /**
+     * Return a snapshot of all the instances currently in the store.
+     */
+    public Collection<T> values() {
+        List<T> result = new ArrayList<T>();
+        collect(root, result);
+        return Collections.unmodifiableList(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(Object node, List<T> result) {
+        if (node instanceof Level) {
+            for (Object child : ((Level) node).values()) {
+                collect(child, result);
+            }
+        } else {
+            T instance = node instanceof WeakInstance ? ((WeakInstance<T>) node).get() : (T) node;
+            if (instance != null) {
+                result.add(instance);
+            }
+        }
+    }
+
+    private Level levels(int numArgs) {
+        if (weakValues) {
+            expunge();
+        }
+        // Small Integers are cached, so this doesn't allocate in practice
+        return next(root, numArgs);
+    }
+
+    /**
+     * Return the level below {@code level} for {@code arg}, creating it if needed, or null if {@code level} has
+     * been removed from the tree.
+     */
+    private Level next(Level level, Object arg) {
+        Object key = key(arg);
+        Level result = (Level) level.get(key);
         if (result != null) {
             return result;
         }
-        synchronized (map) {
-            result = map.get(key);
-            if (result == null) {
-                result = getNew(args);
-                map.put(key, result);
+        Level newLevel = new Level(level, key);
+        if (!weakValues) {
+            result = (Level) level.putIfAbsent(key, newLevel);
+        } else {
+            synchronized (level) {
+                if (level.dead) {
+                    return null;
+                }
+                result = (Level) level.putIfAbsent(key, newLevel);
             }
+        }
+        return result == null ? newLevel : result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T find(Level level, Object arg) {
+        Object value = level.get(key(arg));
+        return weakValues && value != null ? ((WeakInstance<T>) value).get() : (T) value;
+    }
+
+    /**
+     * Return the instance for the last argument in {@code level}, creating it if needed, or null if {@code level}
+     * has been removed from the tree.
+     */
+    @SuppressWarnings("unchecked")
+    private T leaf(Level level, Object last, Object[] args) {
+        T result = find(level, last);
+        if (result != null) {
             return result;
         }
+        T newInstance = getNew(args);
+        Object key = key(last);
+        if (!weakValues) {
+            result = (T) level.putIfAbsent(key, newInstance);
+            return result == null ? newInstance : result;
+        }
+        synchronized (level) {
+            if (level.dead) {
+                return null;
+            }
+            result = find(level, last);
+            if (result != null) {
+                return result;
+            }
+            // Replaces any entry whose instance was collected but hasn't been expunged yet
+            level.put(key, new WeakInstance<T>(newInstance, level, key, queue));
+        }
+        return newInstance;
+    }
+
+    /**
+     * Remove the entries of instances that have been garbage collected, and then any levels left empty.
+     * Locks are always taken on a parent before its child.
+     */
+    private void expunge() {
+        WeakInstance<?> ref;
+        while ((ref = (WeakInstance<?>) queue.poll()) != null) {
+            Level level = ref.level;
+            synchronized (level) {
+                level.remove(ref.key, ref);
+            }
+            while (level.parent != null) {
+                Level parent = level.parent;
+                synchronized (parent) {
+                    synchronized (level) {
+                        if (level.dead || !level.isEmpty()) {
+                            break;
+                        }
+                        level.dead = true;
+                    }
+                    parent.remove(level.keyInParent, level);
+                }
+                level = parent;
+            }
+        }
+    }
+
+    private static Object key(Object arg) {
+        return arg == null ? NULL : arg;
     }
 
 }
@@ -0,0 +1,68 @@
+package alex.mojaki.boxes.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small cache of recently used instances identified by two {@code long}s and some flags, to put in front of an
+ * {@link InstanceStore} for classes whose factory methods take primitive arguments. Finding an instance in the cache
+ * doesn't box the arguments or allocate a varargs array, as {@link InstanceStore#get(Object...)} would.
+ * <p>
+ * Override {@link PrimitiveInstanceCache#getNew(long, long, int)} to get the instance from the store, converting the
+ * arguments back as needed, so that the cache always returns the same instances as the store. For example, an
+ * {@code int} bound can be passed as a {@code long} and a {@code double} with {@link Double#doubleToLongBits(double)},
+ * which also matches how {@code Double.equals} compares the boxed keys of the store.
+ * <p>
+ * The cache has {@value #SIZE} slots, and an instance replaces whatever was in its slot, so arguments used together
+ * with many others may miss. Each slot keeps its instance reachable until it's replaced, so the cache keeps at most
+ * that many instances of a store with weak values alive.
+ *
+ * @param <T> the type of class being stored
+ */
+public abstract class PrimitiveInstanceCache<T> {
+
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;
+
+    private static final class Entry<T> {
+        final long key1;
+        final long key2;
+        final int flags;
+        final T instance;
+
+        Entry(long key1, long key2, int flags, T instance) {
+            this.key1 = key1;
+            this.key2 = key2;
+            this.flags = flags;
+            this.instance = instance;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry<T>> entries = new AtomicReferenceArray<Entry<T>>(SIZE);
+
+    /**
+     * Override this method to return the instance for the given arguments, usually from an {@link InstanceStore}.
+     */
+    public abstract T getNew(long key1, long key2, int flags);
+
+    /**
+     * Return the instance for the given arguments, from the cache if it was used recently and otherwise from
+     * {@link PrimitiveInstanceCache#getNew(long, long, int)}.
+     */
+    public T get(long key1, long key2, int flags) {
+        int index = index(key1, key2, flags);
+        Entry<T> entry = entries.get(index);
+        if (entry != null && entry.key1 == key1 && entry.key2 == key2 && entry.flags == flags) {
+            return entry.instance;
+        }
+        T instance = getNew(key1, key2, flags);
+        entries.set(index, new Entry<T>(key1, key2, flags, instance));
+        return instance;
+    }
+
+    private static int index(long key1, long key2, int flags) {
+        // Fibonacci hashing: the top bits of the product depend on all the bits of the keys
+        long hash = ((key1 * 0x9E3779B97F4A7C15L + key2) * 0x9E3779B97F4A7C15L + flags) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> (64 - BITS));
+    }
+
+}
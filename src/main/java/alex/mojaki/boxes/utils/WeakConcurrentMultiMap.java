@@ -32,6 +32,16 @@ public class WeakConcurrentMultiMap<K, V> {
         cache.getUnchecked(key).add(value);
     }
 
+    /**
+     * Remove one association between the given key and value, if there is one.
+     */
+    public void remove(K key, V value) {
+        List<V> values = cache.getIfPresent(key);
+        if (values != null) {
+            values.remove(value);
+        }
+    }
+
     /**
      * Return the list of objects associated with this key.
      */
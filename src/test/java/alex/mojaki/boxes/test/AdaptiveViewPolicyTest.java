@@ -0,0 +1,112 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.AdaptiveViewPolicy;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveViewPolicyTest {
+
+    private final AtomicInteger calculations = new AtomicInteger();
+    private final List<Integer> changes = new ArrayList<Integer>();
+
+    private final ChangeObserver<Integer> changeObserver = new ChangeObserver<Integer>() {
+        @Override
+        public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+            changes.add(finalValue);
+        }
+    };
+
+    private View<Integer> view(String name, final PowerBox<Integer> box, final long nanos) {
+        return new View<Integer>(AdaptiveViewPolicyTest.class, name, box) {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                long start = System.nanoTime();
+                //noinspection StatementWithEmptyBody
+                while (System.nanoTime() - start < nanos) {
+                }
+                return box.get() + 1;
+            }
+        }.adaptive();
+    }
+
+    @Test
+    public void testCheapViewsRecompute() {
+        PowerBox<Integer> box = new CommonBox<Integer>(AdaptiveViewPolicyTest.class, "cheapBox").set(1);
+        View<Integer> view = view("cheapView", box, 0);
+        AdaptiveViewPolicy policy = view.getPolicy();
+        assertEquals(AdaptiveViewPolicy.Mode.EAGER, policy.getMode());
+        // Generous so that the test doesn't depend on the speed of the machine
+        policy.setCheapNanos(1000000);
+        for (int i = 0; i < 1000; i++) {
+            box.set(i);
+            assertEquals(i + 1, view.get().intValue());
+        }
+        assertEquals(AdaptiveViewPolicy.Mode.RECOMPUTE, policy.getMode());
+        assertEquals(1000, policy.getReads());
+        assertEquals(1000, policy.getInvalidations());
+        assertEquals(calculations.get(), policy.getCalculations());
+        assertTrue(policy.getDecisions() > 0);
+
+        int before = calculations.get();
+        view.get();
+        view.get();
+        assertEquals(before + 2, calculations.get());
+    }
+
+    @Test
+    public void testCheapViewsReadOftenAreCached() {
+        PowerBox<Integer> box = new CommonBox<Integer>(AdaptiveViewPolicyTest.class, "cachedBox").set(1);
+        View<Integer> view = view("cachedView", box, 0);
+        view.getPolicy().setCheapNanos(1000000);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(2, view.get().intValue());
+        }
+        assertEquals(1, calculations.get());
+        assertNotEquals(AdaptiveViewPolicy.Mode.RECOMPUTE, view.getPolicy().getMode());
+    }
+
+    @Test
+    public void testFrequentlyChangedViewsAreLazy() {
+        PowerBox<Integer> box = new CommonBox<Integer>(AdaptiveViewPolicyTest.class, "writtenBox").set(0);
+        View<Integer> view = view("writtenView", box, 10000).addChangeObserver(changeObserver);
+        view.get();
+        for (int i = 1; i <= 1000; i++) {
+            box.set(i);
+            if (i % 10 == 0) {
+                assertEquals(i + 1, view.get().intValue());
+            }
+        }
+        AdaptiveViewPolicy policy = view.getPolicy();
+        assertEquals(AdaptiveViewPolicy.Mode.LAZY, policy.getMode());
+        assertTrue(policy.getMeanCalculationNanos() >= 10000);
+        assertTrue(calculations.get() < 500);
+        assertEquals(1001, changes.get(changes.size() - 1).intValue());
+        assertTrue(policy.toString().contains("LAZY"));
+    }
+
+    @Test
+    public void testFrequentlyReadViewsAreEager() {
+        PowerBox<Integer> box = new CommonBox<Integer>(AdaptiveViewPolicyTest.class, "readBox").set(0);
+        View<Integer> view = view("readView", box, 10000).addChangeObserver(changeObserver);
+        for (int i = 1; i <= 100; i++) {
+            box.set(i);
+            for (int j = 0; j < 10; j++) {
+                assertEquals(i + 1, view.get().intValue());
+            }
+        }
+        assertEquals(AdaptiveViewPolicy.Mode.EAGER, view.getPolicy().getMode());
+        assertEquals(100, changes.size());
+        assertEquals(100, calculations.get());
+    }
+
+}
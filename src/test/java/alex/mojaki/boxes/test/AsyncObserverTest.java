@@ -0,0 +1,195 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.observers.change.AsyncChangeObserver;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncObserverTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+    private final AsyncChangeObserver.FailureHandler handler = new AsyncChangeObserver.FailureHandler() {
+        @Override
+        public void onFailure(PowerBox box, Throwable failure) {
+            failures.add(failure);
+        }
+    };
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void awaitExecutor() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOrderPerBox() throws InterruptedException {
+        final List<List<Integer>> received = new ArrayList<List<Integer>>();
+        List<PowerBox<Integer>> boxes = new ArrayList<PowerBox<Integer>>();
+        for (int i = 0; i < 5; i++) {
+            boxes.add(new CommonBox<Integer>(AsyncObserverTest.class, "ordered"));
+            received.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        final List<PowerBox<Integer>> finalBoxes = boxes;
+        boxes.get(0).addChangeObserver(new AsyncChangeObserver<Integer>(executor, handler, new ChangeObserver<Integer>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                received.get(finalBoxes.indexOf(box)).add(finalValue);
+            }
+        }));
+        for (int value = 0; value < 1000; value++) {
+            for (PowerBox<Integer> box : boxes) {
+                box.set(value);
+            }
+        }
+        awaitExecutor();
+        for (List<Integer> values : received) {
+            assertEquals(1000, values.size());
+            for (int value = 0; value < 1000; value++) {
+                assertEquals(value, (int) values.get(value));
+            }
+        }
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void testWriterDoesNotWait() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        PowerBox<String> box = new CommonBox<String>(AsyncObserverTest.class, "slow");
+        box.addChangeObserver(new AsyncChangeObserver<String>(executor, handler, new ChangeObserver<String>() {
+            @Override
+            public void onChange(PowerBox<String> box, String originalValue, String finalValue, String requestedValue) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                done.countDown();
+            }
+        }));
+        box.set("a");
+        assertEquals(1, done.getCount());
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testThrowingHandlerDoesNotStopDelivery() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        AsyncChangeObserver.FailureHandler throwingHandler = new AsyncChangeObserver.FailureHandler() {
+            @Override
+            public void onFailure(PowerBox box, Throwable failure) {
+                failed.countDown();
+                throw new IllegalStateException("Handler failed");
+            }
+        };
+        PowerBox<Integer> box = new CommonBox<Integer>(AsyncObserverTest.class, "throwingHandler");
+        box.addChangeObserver(new AsyncChangeObserver<Integer>(executor, throwingHandler, new ChangeObserver<Integer>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                if (finalValue == 1) {
+                    throw new IllegalArgumentException();
+                }
+                delivered.countDown();
+            }
+        }));
+        box.set(1);
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        box.set(2);
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailures() throws InterruptedException {
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+        PowerBox<Integer> box = new CommonBox<Integer>(AsyncObserverTest.class, "failing");
+        box.addChangeObserver(new AsyncChangeObserver<Integer>(executor, handler,
+                new ChangeObserver<Integer>() {
+                    @Override
+                    public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                        throw new IllegalStateException();
+                    }
+                },
+                new ChangeObserver<Integer>() {
+                    @Override
+                    public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                        delivered.add(originalValue + " " + finalValue);
+                    }
+                }));
+        box.set(1);
+        box.set(2);
+        awaitExecutor();
+        // No rollback, and the second observer still sees both changes
+        assertEquals(2, (int) box.get());
+        assertEquals(2, delivered.size());
+        assertEquals("1 2", delivered.get(1));
+        assertEquals(2, failures.size());
+        BoxParticipantException e = (BoxParticipantException) failures.get(0);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals("Error in asynchronous ChangeObserver 1 out of 2 of AsyncObserverTest.failing. " +
+                "Original value = null. Final value = 1. Requested value = 1.", e.getMessage());
+        assertSame(box, e.details.get().getBox());
+        assertEquals(0, e.details.get().getParticipantIndex());
+    }
+
+    @Test
+    public void testRejection() {
+        executor.shutdown();
+        PowerBox<Integer> box = new CommonBox<Integer>(AsyncObserverTest.class, "rejected");
+        box.addChangeObserver(new AsyncChangeObserver<Integer>(executor, handler));
+        box.set(1);
+        assertEquals(1, (int) box.get());
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0) instanceof RejectedExecutionException);
+    }
+
+    private WeakReference<PowerBox<Integer>> changedBox(AsyncChangeObserver<Integer> observer) {
+        PowerBox<Integer> box = new CommonBox<Integer>(AsyncObserverTest.class, "collected");
+        box.addChangeObserver(observer);
+        box.set(1);
+        return new WeakReference<PowerBox<Integer>>(box);
+    }
+
+    @Test
+    public void testBoxesCanBeCollected() throws InterruptedException {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        AsyncChangeObserver<Integer> observer = new AsyncChangeObserver<Integer>(executor, handler,
+                new ChangeObserver<Integer>() {
+                    @Override
+                    public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                        delivered.countDown();
+                    }
+                });
+        WeakReference<PowerBox<Integer>> ref = changedBox(observer);
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+
+}
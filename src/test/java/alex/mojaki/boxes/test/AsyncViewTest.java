@@ -0,0 +1,123 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.AsyncView;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncViewTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger calculations = new AtomicInteger();
+
+    /**
+     * Each calculation after the first takes a permit, so the test decides when they finish.
+     */
+    private final Semaphore permits = new Semaphore(0);
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    private AsyncView<Integer> doubled(String name, final PowerBox<Integer> box) {
+        return new AsyncView<Integer>(AsyncViewTest.class, name, executor, box) {
+            @Override
+            public Integer calculate() {
+                int value = box.get();
+                if (calculations.getAndIncrement() > 0) {
+                    permits.acquireUninterruptibly();
+                }
+                return value * 2;
+            }
+        };
+    }
+
+    @Test
+    public void testReturnsStaleValueWhileRecalculating() throws Exception {
+        PowerBox<Integer> box = new CommonBox<Integer>(AsyncViewTest.class, "staleBox").set(1);
+        AsyncView<Integer> view = doubled("staleView", box);
+        assertEquals(2, view.get().intValue());
+        assertTrue(view.refresh().isDone());
+
+        box.set(2);
+        assertEquals(2, view.get().intValue());
+        permits.release();
+        assertEquals(4, view.refresh().get(1, TimeUnit.SECONDS).intValue());
+        assertEquals(4, view.get().intValue());
+        assertEquals(2, calculations.get());
+    }
+
+    @Test
+    public void testCoalescesChangesDuringCalculation() throws Exception {
+        PowerBox<Integer> box = new CommonBox<Integer>(AsyncViewTest.class, "coalesceBox").set(1);
+        AsyncView<Integer> view = doubled("coalesceView", box);
+        final List<String> changes = new CopyOnWriteArrayList<String>();
+        view.addChangeObserver(new ChangeObserver<Integer>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                changes.add(originalValue + " -> " + finalValue);
+            }
+        });
+        view.get();
+
+        box.set(2);
+        while (!permits.hasQueuedThreads()) {
+            Thread.sleep(1);
+        }
+        for (int i = 3; i <= 10; i++) {
+            box.set(i);
+        }
+        permits.release(2);
+        assertEquals(20, view.refresh().get(1, TimeUnit.SECONDS).intValue());
+        assertEquals(3, calculations.get());
+        assertEquals("[2 -> 4, 4 -> 20]", changes.toString());
+    }
+
+    @Test
+    public void testFailureKeepsLastValue() throws Exception {
+        final PowerBox<Integer> box = new CommonBox<Integer>(AsyncViewTest.class, "failBox").set(1);
+        View<Integer> view = new AsyncView<Integer>(AsyncViewTest.class, "failView", executor, box) {
+            @Override
+            public Integer calculate() {
+                if (box.get() < 0) {
+                    throw new IllegalArgumentException();
+                }
+                return box.get();
+            }
+        };
+        assertEquals(1, view.get().intValue());
+        box.set(-1);
+        assertEquals(1, view.get().intValue());
+        try {
+            ((AsyncView<Integer>) view).refresh().join();
+            fail();
+        } catch (Exception e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(1, view.get().intValue());
+
+        thrown.expect(UnsupportedOperationException.class);
+        view.lazy();
+    }
+
+}
@@ -0,0 +1,205 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.CommonIntBox;
+import alex.mojaki.boxes.CommonLongBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.middleware.symmetric.EnsureBounds;
+import alex.mojaki.boxes.middleware.symmetric.IntEnsureBounds;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.IntChangeObserver;
+import alex.mojaki.boxes.observers.change.RequireBounds;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+public class AtomicTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static final UnaryOperator<Integer> INCREMENT = new UnaryOperator<Integer>() {
+        @Override
+        public Integer apply(Integer x) {
+            return x + 1;
+        }
+    };
+
+    private static void runConcurrently(int threads, final Runnable runnable) throws InterruptedException {
+        List<Thread> list = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            list.add(new Thread(runnable));
+        }
+        for (Thread thread : list) {
+            thread.start();
+        }
+        for (Thread thread : list) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final AtomicInteger notifications = new AtomicInteger();
+        final CommonBox<Integer> box = new CommonBox<Integer>(AtomicTest.class, "concurrent");
+        box.set(0);
+        box.addChangeObserver(new ChangeObserver<Integer>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                assertEquals(originalValue + 1, (int) finalValue);
+                notifications.incrementAndGet();
+            }
+        });
+        runConcurrently(4, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    box.updateAndGet(INCREMENT);
+                }
+            }
+        });
+        assertEquals(40000, (int) box.get());
+        assertEquals(40000, notifications.get());
+    }
+
+    @Test
+    public void testConcurrentIntCounter() throws InterruptedException {
+        final AtomicInteger notifications = new AtomicInteger();
+        final CommonIntBox plain = new CommonIntBox(AtomicTest.class, "plainCounter");
+        final CommonIntBox observed = new CommonIntBox(AtomicTest.class, "observedCounter");
+        observed.addChangeObserver(new IntChangeObserver() {
+            @Override
+            public void onChange(PowerBox<Integer> box, int originalValue, int finalValue, int requestedValue) {
+                notifications.incrementAndGet();
+            }
+        });
+        runConcurrently(4, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    plain.addAndGet(1);
+                    observed.getAndAdd(2);
+                }
+            }
+        });
+        assertEquals(40000, plain.getInt());
+        assertEquals(80000, observed.getInt());
+        assertEquals(40000, notifications.get());
+    }
+
+    @Test
+    public void testCompareAndSet() {
+        CommonBox<String> box = new CommonBox<String>(AtomicTest.class, "cas");
+        assertTrue(box.compareAndSet(null, "a"));
+        assertFalse(box.compareAndSet(null, "b"));
+        assertEquals("a", box.get());
+        // Equal but not identical values still match
+        assertTrue(box.compareAndSet(new String("a"), "b"));
+        assertEquals("b", box.get());
+
+        CommonLongBox longBox = new CommonLongBox(AtomicTest.class, "longCas");
+        assertTrue(longBox.compareAndSet(0, 5));
+        assertFalse(longBox.compareAndSet(0, 6));
+        assertEquals(5, longBox.getLong());
+    }
+
+    @Test
+    public void testMiddlewareAndReturnValues() {
+        CommonBox<Integer> box = new CommonBox<Integer>(AtomicTest.class, "middleware");
+        box.addChangeMiddleware(EnsureBounds.maximum(10));
+        box.set(8);
+        BinaryOperator<Integer> sum = new BinaryOperator<Integer>() {
+            @Override
+            public Integer apply(Integer x, Integer y) {
+                return x + y;
+            }
+        };
+        assertEquals(8, (int) box.getAndAccumulate(1, sum));
+        assertEquals(10, (int) box.accumulateAndGet(5, sum));
+        assertEquals(10, (int) box.getAndUpdate(INCREMENT));
+        assertEquals(10, (int) box.getAndSet(3));
+        assertEquals(3, (int) box.get());
+
+        CommonIntBox intBox = new CommonIntBox(AtomicTest.class, "intMiddleware");
+        intBox.addChangeMiddleware(IntEnsureBounds.maximum(10));
+        assertEquals(10, intBox.addAndGet(20));
+        assertEquals(10, intBox.getAndAdd(-3));
+        assertEquals(7, intBox.getInt());
+    }
+
+    @Test
+    public void testNullFunctions() {
+        CommonBox<Integer> box = new CommonBox<Integer>(AtomicTest.class, "nullFunctions");
+        box.set(5);
+        CommonIntBox intBox = new CommonIntBox(AtomicTest.class, "nullIntFunctions");
+        intBox.setInt(5);
+        CommonLongBox longBox = new CommonLongBox(AtomicTest.class, "nullLongFunctions");
+        longBox.setLong(5);
+        for (int i = 0; i < 12; i++) {
+            try {
+                updateWithNull(i, box, intBox, longBox);
+                fail("No exception from operation " + i);
+            } catch (NullPointerException e) {
+                // Nothing should have been set, as with the atomic classes
+                assertEquals(5, (int) box.get());
+                assertEquals(5, intBox.getInt());
+                assertEquals(5, longBox.getLong());
+            }
+        }
+    }
+
+    private static void updateWithNull(int operation, CommonBox<Integer> box, CommonIntBox intBox,
+                                       CommonLongBox longBox) {
+        switch (operation) {
+            case 0: box.updateAndGet(null); break;
+            case 1: box.getAndUpdate(null); break;
+            case 2: box.accumulateAndGet(1, null); break;
+            case 3: box.getAndAccumulate(1, null); break;
+            case 4: intBox.updateAndGet(null); break;
+            case 5: intBox.getAndUpdate(null); break;
+            case 6: intBox.accumulateAndGet(1, null); break;
+            case 7: intBox.getAndAccumulate(1, null); break;
+            case 8: longBox.updateAndGet(null); break;
+            case 9: longBox.getAndUpdate(null); break;
+            case 10: longBox.accumulateAndGet(1, null); break;
+            case 11: longBox.getAndAccumulate(1, null); break;
+            default: throw new IllegalArgumentException();
+        }
+    }
+
+    @Test
+    public void testRollback() {
+        CommonBox<Integer> box = new CommonBox<Integer>(AtomicTest.class, "rollback");
+        box.set(5);
+        box.addChangeObserver(RequireBounds.maximum(5, true));
+        try {
+            box.updateAndGet(INCREMENT);
+            fail();
+        } catch (BoxParticipantException e) {
+            assertEquals(5, (int) box.get());
+        }
+    }
+
+    @Test
+    public void testView() {
+        View<Integer> view = new View<Integer>(AtomicTest.class, "view") {
+            @Override
+            public Integer calculate() {
+                return 1;
+            }
+        };
+        exception.expect(UnsupportedOperationException.class);
+        view.updateAndGet(INCREMENT);
+    }
+
+}
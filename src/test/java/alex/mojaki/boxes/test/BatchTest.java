@@ -0,0 +1,256 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.CommonIntBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.IntChangeObserver;
+import alex.mojaki.boxes.observers.change.RequireBounds;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static alex.mojaki.boxes.Boxes.batch;
+import static org.junit.Assert.*;
+
+public class BatchTest {
+
+    private static class Recorder implements ChangeObserver<Object> {
+        final List<String> changes = new ArrayList<String>();
+
+        @Override
+        public void onChange(PowerBox<Object> box, Object originalValue, Object finalValue, Object requestedValue) {
+            changes.add(originalValue + " " + finalValue + " " + requestedValue);
+        }
+    }
+
+    @Test
+    public void testCoalescing() {
+        final Recorder recorder = new Recorder();
+        final CommonBox<Integer> box = new CommonBox<Integer>(BatchTest.class, "coalesced");
+        box.set(1);
+        box.addChangeObserver(recorder);
+        batch(new Runnable() {
+            @Override
+            public void run() {
+                box.set(2);
+                box.set(3);
+                assertEquals(3, (int) box.get());
+                box.set(4);
+                assertTrue(recorder.changes.isEmpty());
+            }
+        });
+        assertEquals(Arrays.asList("1 4 4"), recorder.changes);
+
+        box.set(5);
+        assertEquals(Arrays.asList("1 4 4", "4 5 5"), recorder.changes);
+    }
+
+    @Test
+    public void testPrimitiveAndAtomic() {
+        final AtomicInteger notifications = new AtomicInteger();
+        final CommonIntBox box = new CommonIntBox(BatchTest.class, "counter");
+        box.addChangeObserver(new IntChangeObserver() {
+            @Override
+            public void onChange(PowerBox<Integer> box, int originalValue, int finalValue, int requestedValue) {
+                assertEquals(0, originalValue);
+                assertEquals(30, finalValue);
+                notifications.incrementAndGet();
+            }
+        });
+        batch(new Runnable() {
+            @Override
+            public void run() {
+                box.setInt(10);
+                box.addAndGet(10);
+                box.getAndAdd(10);
+            }
+        });
+        assertEquals(1, notifications.get());
+    }
+
+    @Test
+    public void testViewCalculatedOnce() {
+        final AtomicInteger calculations = new AtomicInteger();
+        final Recorder recorder = new Recorder();
+        final PowerBox<Integer> width = new CommonBox<Integer>(BatchTest.class, "width").set(1);
+        final PowerBox<Integer> height = new CommonBox<Integer>(BatchTest.class, "height").set(1);
+        final View<Integer> area = new View<Integer>(BatchTest.class, "area", width, height) {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                return width.get() * height.get();
+            }
+        };
+        area.addChangeObserver(recorder);
+        // Diamond: both views depend on area, and total depends on both
+        final View<Integer> doubled = new View<Integer>(BatchTest.class, "doubled", area) {
+            @Override
+            public Integer calculate() {
+                return area.get() * 2;
+            }
+        };
+        final View<Integer> tripled = new View<Integer>(BatchTest.class, "tripled", area) {
+            @Override
+            public Integer calculate() {
+                return area.get() * 3;
+            }
+        };
+        final Recorder totalRecorder = new Recorder();
+        View<Integer> total = new View<Integer>(BatchTest.class, "total", doubled, tripled) {
+            @Override
+            public Integer calculate() {
+                return doubled.get() + tripled.get();
+            }
+        };
+        doubled.addChangeObserver(new Recorder());
+        tripled.addChangeObserver(new Recorder());
+        total.addChangeObserver(totalRecorder);
+        total.get();
+        calculations.set(0);
+
+        batch(new Runnable() {
+            @Override
+            public void run() {
+                width.set(2);
+                height.set(3);
+                width.set(4);
+            }
+        });
+        assertEquals(1, calculations.get());
+        assertEquals(Arrays.asList("1 12 12"), recorder.changes);
+        assertEquals(Arrays.asList("5 60 60"), totalRecorder.changes);
+    }
+
+    @Test
+    public void testViewReadInsideBatch() {
+        final PowerBox<Integer> x = new CommonBox<Integer>(BatchTest.class, "x").set(1);
+        final View<Integer> view = new View<Integer>(BatchTest.class, "plusOne", x) {
+            @Override
+            public Integer calculate() {
+                return x.get() + 1;
+            }
+        };
+        view.addChangeObserver(new Recorder());
+        view.get();
+        batch(new Runnable() {
+            @Override
+            public void run() {
+                x.set(5);
+                assertEquals(6, (int) view.get());
+            }
+        });
+        assertEquals(6, (int) view.get());
+    }
+
+    @Test
+    public void testCollections() {
+        final Recorder recorder = new Recorder();
+        final ListBox<Integer> list = new ListBox<Integer>(BatchTest.class, "list").init();
+        list.addChangeObserver(recorder);
+        batch(new Runnable() {
+            @Override
+            public void run() {
+                list.add(1);
+                list.add(2);
+                list.remove(0);
+            }
+        });
+        assertEquals(1, recorder.changes.size());
+        assertEquals(Arrays.asList(2), list);
+    }
+
+    @Test
+    public void testObserverChangesOtherBox() {
+        final Recorder recorder = new Recorder();
+        final PowerBox<Integer> source = new CommonBox<Integer>(BatchTest.class, "source");
+        final PowerBox<Integer> copy = new CommonBox<Integer>(BatchTest.class, "copy");
+        source.addChangeObserver(new ChangeObserver<Integer>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                copy.set(finalValue);
+                copy.set(finalValue * 10);
+            }
+        });
+        copy.addChangeObserver(recorder);
+        batch(new Runnable() {
+            @Override
+            public void run() {
+                source.set(1);
+                source.set(2);
+            }
+        });
+        assertEquals(Arrays.asList("null 20 20"), recorder.changes);
+    }
+
+    @Test
+    public void testNestedBatches() {
+        final Recorder recorder = new Recorder();
+        final PowerBox<Integer> box = new CommonBox<Integer>(BatchTest.class, "nested");
+        box.addChangeObserver(recorder);
+        batch(new Runnable() {
+            @Override
+            public void run() {
+                box.set(1);
+                batch(new Runnable() {
+                    @Override
+                    public void run() {
+                        box.set(2);
+                    }
+                });
+                assertTrue(recorder.changes.isEmpty());
+                box.set(3);
+            }
+        });
+        assertEquals(Arrays.asList("null 3 3"), recorder.changes);
+    }
+
+    @Test
+    public void testExceptions() {
+        final Recorder recorder = new Recorder();
+        final PowerBox<Integer> bounded = new CommonBox<Integer>(BatchTest.class, "bounded")
+                .addChangeObserver(RequireBounds.maximum(10, true));
+        final PowerBox<Integer> other = new CommonBox<Integer>(BatchTest.class, "other");
+        other.addChangeObserver(recorder);
+        try {
+            batch(new Runnable() {
+                @Override
+                public void run() {
+                    bounded.set(100);
+                    other.set(1);
+                }
+            });
+            fail();
+        } catch (BoxParticipantException e) {
+            // No rollback, but the other box is still notified
+            assertEquals(100, (int) bounded.get());
+            assertEquals(Arrays.asList("null 1 1"), recorder.changes);
+        }
+
+        final IllegalStateException thrown = new IllegalStateException();
+        try {
+            batch(new Runnable() {
+                @Override
+                public void run() {
+                    other.set(2);
+                    throw thrown;
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(thrown, e);
+            assertEquals(Arrays.asList("null 1 1", "1 2 2"), recorder.changes);
+        }
+
+        // The batch has ended, so observers are notified immediately again
+        other.set(3);
+        assertEquals(3, recorder.changes.size());
+    }
+
+}
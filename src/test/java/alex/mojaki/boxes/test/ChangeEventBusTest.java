@@ -0,0 +1,235 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.bus.ChangeEvent;
+import alex.mojaki.boxes.bus.ChangeEventBus;
+import alex.mojaki.boxes.bus.ChangeEventHandler;
+import alex.mojaki.boxes.bus.WaitStrategies;
+import alex.mojaki.boxes.bus.WaitStrategy;
+import alex.mojaki.boxes.observers.change.AsyncChangeObserver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChangeEventBusTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+    private final AsyncChangeObserver.FailureHandler failureHandler = new AsyncChangeObserver.FailureHandler() {
+        @Override
+        public void onFailure(PowerBox box, Throwable failure) {
+            failures.add(failure);
+        }
+    };
+
+    private static class Recorder implements ChangeEventHandler {
+        final List<String> events = new ArrayList<String>();
+        int batches = 0;
+
+        @Override
+        public void onEvent(ChangeEvent event, boolean endOfBatch) {
+            events.add(event.getSequence() + " " + event.getFamily().description() + " " +
+                    event.getOriginalValue() + " " + event.getFinalValue() + " " + event.getRequestedValue());
+            if (endOfBatch) {
+                batches++;
+            }
+        }
+    }
+
+    @Test
+    public void testDrain() {
+        ChangeEventBus bus = new ChangeEventBus(8, WaitStrategies.busySpin());
+        Recorder recorder = new Recorder();
+        ChangeEventBus.Consumer consumer = bus.addConsumer(recorder, failureHandler);
+        assertEquals(0, consumer.drain());
+
+        BoxFamily family = BoxFamily.getInstance(ChangeEventBusTest.class, "drained");
+        bus.observe(family);
+        PowerBox<Integer> box = new CommonBox<Integer>(family);
+        box.set(1);
+        box.set(2);
+        assertEquals(2, consumer.drain());
+        box.set(3);
+        assertEquals(1, consumer.drain());
+
+        assertEquals(Arrays.asList(
+                "0 ChangeEventBusTest.drained null 1 1",
+                "1 ChangeEventBusTest.drained 1 2 2",
+                "2 ChangeEventBusTest.drained 2 3 3"), recorder.events);
+        assertEquals(2, recorder.batches);
+        assertEquals(2, consumer.getSequence());
+    }
+
+    @Test
+    public void testHandlerCannotPublishToItsOwnBus() {
+        ChangeEventBus bus = new ChangeEventBus(2, WaitStrategies.busySpin());
+        BoxFamily family = BoxFamily.getInstance(ChangeEventBusTest.class, "republished");
+        bus.observe(family);
+        final PowerBox<Integer> box = new CommonBox<Integer>(family);
+        final List<Integer> seen = new ArrayList<Integer>();
+        ChangeEventBus.Consumer consumer = bus.addConsumer(new ChangeEventHandler() {
+            @Override
+            public void onEvent(ChangeEvent event, boolean endOfBatch) {
+                seen.add((Integer) event.getFinalValue());
+                // With a ring of 2 this would wait for this consumer forever if it were allowed
+                box.set((Integer) event.getFinalValue() + 10);
+            }
+        }, failureHandler);
+        box.set(1);
+        box.set(2);
+        assertEquals(2, consumer.drain());
+        assertEquals(Arrays.asList(1, 2), seen);
+        assertEquals(2, failures.size());
+        assertTrue(failures.get(0).getCause() instanceof IllegalStateException);
+        // Nothing was claimed, so the bus still works
+        assertEquals(1, bus.getCursor());
+        assertEquals(2, (int) box.get());
+        box.set(3);
+        assertEquals(1, consumer.drain());
+        assertEquals(3, failures.size());
+    }
+
+    private void testConcurrent(String name, WaitStrategy waitStrategy) throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 20000;
+        // Much smaller than the number of events, so producers have to wait for consumers
+        ChangeEventBus bus = new ChangeEventBus(64, waitStrategy);
+        final List<List<PowerBox<Integer>>> consumerBoxes = new ArrayList<List<PowerBox<Integer>>>();
+        final List<List<Integer>> consumerValues = new ArrayList<List<Integer>>();
+        List<ChangeEventBus.Consumer> consumers = new ArrayList<ChangeEventBus.Consumer>();
+        List<Thread> consumerThreads = new ArrayList<Thread>();
+        for (int c = 0; c < 2; c++) {
+            final List<PowerBox<Integer>> boxes = new ArrayList<PowerBox<Integer>>();
+            final List<Integer> values = new ArrayList<Integer>();
+            consumerBoxes.add(boxes);
+            consumerValues.add(values);
+            ChangeEventBus.Consumer consumer = bus.addConsumer(new ChangeEventHandler() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public void onEvent(ChangeEvent event, boolean endOfBatch) {
+                    boxes.add((PowerBox<Integer>) event.getBox());
+                    values.add((Integer) event.getFinalValue());
+                }
+            }, failureHandler);
+            consumers.add(consumer);
+            Thread thread = new Thread(consumer);
+            consumerThreads.add(thread);
+            thread.start();
+        }
+
+        BoxFamily family = BoxFamily.getInstance(ChangeEventBusTest.class, name);
+        family.addChangeObserver(bus);
+        final List<PowerBox<Integer>> producerBoxes = new ArrayList<PowerBox<Integer>>();
+        List<Thread> producerThreads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final PowerBox<Integer> box = new CommonBox<Integer>(family);
+            producerBoxes.add(box);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        box.set(i);
+                    }
+                }
+            });
+            producerThreads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producerThreads) {
+            thread.join();
+        }
+        while (consumers.get(0).getSequence() < bus.getCursor() || consumers.get(1).getSequence() < bus.getCursor()) {
+            Thread.yield();
+        }
+        for (ChangeEventBus.Consumer consumer : consumers) {
+            consumer.halt();
+        }
+        for (Thread thread : consumerThreads) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+
+        for (int c = 0; c < 2; c++) {
+            List<PowerBox<Integer>> boxes = consumerBoxes.get(c);
+            List<Integer> values = consumerValues.get(c);
+            assertEquals(producers * perProducer, values.size());
+            // Each producer's changes arrive in order
+            for (PowerBox<Integer> box : producerBoxes) {
+                int expected = 0;
+                for (int i = 0; i < values.size(); i++) {
+                    if (boxes.get(i) == box) {
+                        assertEquals(expected++, (int) values.get(i));
+                    }
+                }
+                assertEquals(perProducer, expected);
+            }
+        }
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void testYielding() throws InterruptedException {
+        testConcurrent("yielding", WaitStrategies.yielding());
+    }
+
+    @Test
+    public void testSleeping() throws InterruptedException {
+        testConcurrent("sleeping", WaitStrategies.sleeping(1000));
+    }
+
+    @Test
+    public void testBlocking() throws InterruptedException {
+        testConcurrent("blocking", WaitStrategies.blocking());
+    }
+
+    @Test
+    public void testFailures() {
+        ChangeEventBus bus = new ChangeEventBus(4, WaitStrategies.busySpin());
+        final List<Object> seen = new ArrayList<Object>();
+        ChangeEventBus.Consumer consumer = bus.addConsumer(new ChangeEventHandler() {
+            @Override
+            public void onEvent(ChangeEvent event, boolean endOfBatch) {
+                seen.add(event.getFinalValue());
+                if (event.getSequence() == 0) {
+                    throw new IllegalStateException();
+                }
+            }
+        }, failureHandler);
+        PowerBox<String> box = new CommonBox<String>(ChangeEventBusTest.class, "failing").addChangeObserver(bus);
+        box.set("a");
+        box.set("b");
+        assertEquals(2, consumer.drain());
+        assertEquals(Arrays.<Object>asList("a", "b"), seen);
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testNoConsumers() {
+        ChangeEventBus bus = new ChangeEventBus(2, WaitStrategies.busySpin());
+        PowerBox<Integer> box = new CommonBox<Integer>(ChangeEventBusTest.class, "unconsumed").addChangeObserver(bus);
+        for (int i = 0; i < 10; i++) {
+            box.set(i);
+        }
+        assertEquals(9, bus.getCursor());
+    }
+
+    @Test
+    public void testCapacity() {
+        exception.expect(IllegalArgumentException.class);
+        new ChangeEventBus(100, WaitStrategies.busySpin());
+    }
+
+}
@@ -0,0 +1,134 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentViewTest {
+
+    @Test
+    public void testSharedComputation() throws Exception {
+        final AtomicInteger calculations = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final PowerBox<Integer> box = new CommonBox<Integer>(ConcurrentViewTest.class, "shared").set(3);
+        final View<Integer> view = new View<Integer>(ConcurrentViewTest.class, "sharedView", box) {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return box.get() * 2;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return view.get();
+                    }
+                }));
+            }
+            // Give the readers time to pile up behind the first calculation
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(6, (int) result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, calculations.get());
+        view.get();
+        assertEquals(1, calculations.get());
+    }
+
+    @Test
+    public void testNoLostInvalidations() throws Exception {
+        final PowerBox<Integer> box = new CommonBox<Integer>(ConcurrentViewTest.class, "invalidated").set(0);
+        final View<Integer> view = new View<Integer>(ConcurrentViewTest.class, "invalidatedView", box) {
+            @Override
+            public Integer calculate() {
+                return box.get() * 2;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final CountDownLatch writerDone = new CountDownLatch(1);
+        try {
+            List<Future<?>> readers = new ArrayList<Future<?>>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (writerDone.getCount() > 0) {
+                            int value = view.get();
+                            assertEquals(0, value % 2);
+                        }
+                    }
+                }));
+            }
+            for (int i = 1; i <= 20000; i++) {
+                box.set(i);
+            }
+            writerDone.countDown();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(40000, (int) view.get());
+    }
+
+    @Test
+    public void testChangeDuringCalculation() throws Exception {
+        final PowerBox<Integer> box = new CommonBox<Integer>(ConcurrentViewTest.class, "racing").set(1);
+        final AtomicInteger calculations = new AtomicInteger();
+        View<Integer> view = new View<Integer>(ConcurrentViewTest.class, "racingView", box) {
+            @Override
+            public Integer calculate() {
+                int result = box.get();
+                if (calculations.incrementAndGet() == 1) {
+                    // Another thread changes the box after it was read
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            box.set(2);
+                        }
+                    });
+                    thread.start();
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return result;
+            }
+        };
+        assertEquals(1, (int) view.get());
+        // The first result was never cached because the box changed during the calculation
+        assertEquals(2, (int) view.get());
+        assertEquals(2, (int) view.get());
+        assertEquals(2, calculations.get());
+    }
+
+}
@@ -0,0 +1,210 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.observers.change.AsyncChangeObserver;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.ConflatingChangeObserver;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConflatingObserverTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    private final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+    private final AsyncChangeObserver.FailureHandler handler = new AsyncChangeObserver.FailureHandler() {
+        @Override
+        public void onFailure(PowerBox box, Throwable failure) {
+            failures.add(failure);
+        }
+    };
+
+    private static class Recorder implements ChangeObserver<Integer> {
+        final List<String> changes = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch;
+
+        Recorder(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+            changes.add(box.getFamily().description() + " " + originalValue + " " + finalValue);
+            latch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @After
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static void setMany(PowerBox<Integer> box, int times) {
+        for (int i = 1; i <= times; i++) {
+            box.set(i);
+        }
+    }
+
+    @Test
+    public void testDebounce() throws InterruptedException {
+        Recorder recorder = new Recorder(1);
+        PowerBox<Integer> box = new CommonBox<Integer>(ConflatingObserverTest.class, "debounced")
+                .addChangeObserver(ConflatingChangeObserver.debounce(scheduler, 200, TimeUnit.MILLISECONDS, handler, recorder));
+        setMany(box, 1000);
+        recorder.await();
+        assertEquals(Arrays.asList("ConflatingObserverTest.debounced null 1000"), recorder.changes);
+    }
+
+    @Test
+    public void testThrottle() throws InterruptedException {
+        Recorder recorder = new Recorder(1);
+        ConflatingChangeObserver<Integer> observer =
+                ConflatingChangeObserver.throttle(scheduler, 1, TimeUnit.HOURS, handler, recorder);
+        PowerBox<Integer> box = new CommonBox<Integer>(ConflatingObserverTest.class, "throttled").addChangeObserver(observer);
+        box.set(1);
+        // The first change goes through straight away
+        recorder.await();
+        setMany(box, 100);
+        assertEquals(1, recorder.changes.size());
+        observer.flush();
+        assertEquals(Arrays.asList(
+                "ConflatingObserverTest.throttled null 1",
+                "ConflatingObserverTest.throttled 1 100"), recorder.changes);
+    }
+
+    @Test
+    public void testConflatePerBox() throws InterruptedException {
+        Recorder recorder = new Recorder(2);
+        ConflatingChangeObserver<Integer> observer =
+                ConflatingChangeObserver.conflate(scheduler, 200, TimeUnit.MILLISECONDS, handler, recorder);
+        PowerBox<Integer> box1 = new CommonBox<Integer>(ConflatingObserverTest.class, "conflated1").addChangeObserver(observer);
+        PowerBox<Integer> box2 = new CommonBox<Integer>(ConflatingObserverTest.class, "conflated2").addChangeObserver(observer);
+        setMany(box1, 500);
+        setMany(box2, 300);
+        recorder.await();
+        observer.close();
+        List<String> changes = new ArrayList<String>(recorder.changes);
+        Collections.sort(changes);
+        assertEquals(Arrays.asList(
+                "ConflatingObserverTest.conflated1 null 500",
+                "ConflatingObserverTest.conflated2 null 300"), changes);
+    }
+
+    @Test
+    public void testCloseFlushes() {
+        Recorder recorder = new Recorder(1);
+        ConflatingChangeObserver<Integer> observer =
+                ConflatingChangeObserver.conflate(scheduler, 1, TimeUnit.HOURS, handler, recorder);
+        PowerBox<Integer> box = new CommonBox<Integer>(ConflatingObserverTest.class, "closed").addChangeObserver(observer);
+        setMany(box, 10);
+        assertTrue(recorder.changes.isEmpty());
+        observer.close();
+        assertEquals(Arrays.asList("ConflatingObserverTest.closed null 10"), recorder.changes);
+    }
+
+    @Test
+    public void testFailures() {
+        ConflatingChangeObserver<Integer> observer = ConflatingChangeObserver.conflate(scheduler, 1, TimeUnit.HOURS, handler,
+                new ChangeObserver<Integer>() {
+                    @Override
+                    public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                        throw new IllegalStateException();
+                    }
+                });
+        PowerBox<Integer> box = new CommonBox<Integer>(ConflatingObserverTest.class, "failing").addChangeObserver(observer);
+        setMany(box, 3);
+        observer.flush();
+        assertEquals(3, (int) box.get());
+        assertEquals(1, failures.size());
+        assertEquals("Error in asynchronous ChangeObserver 1 out of 1 of ConflatingObserverTest.failing. " +
+                "Original value = null. Final value = 3. Requested value = 3.", failures.get(0).getMessage());
+        assertTrue(failures.get(0) instanceof BoxParticipantException);
+    }
+
+    @Test
+    public void testRejectedRescheduleDoesNotStopScheduling() throws InterruptedException {
+        final CountDownLatch rejected = new CountDownLatch(1);
+        // Accepts the first task and rejects everything after it, e.g. as if it had been shut down
+        ScheduledThreadPoolExecutor rejecting = new ScheduledThreadPoolExecutor(1) {
+            private final AtomicInteger calls = new AtomicInteger();
+
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                if (calls.incrementAndGet() > 1) {
+                    rejected.countDown();
+                    throw new RejectedExecutionException();
+                }
+                return super.schedule(command, delay, unit);
+            }
+        };
+        try {
+            Recorder recorder = new Recorder(1);
+            PowerBox<Integer> box = new CommonBox<Integer>(ConflatingObserverTest.class, "rejected")
+                    .addChangeObserver(ConflatingChangeObserver.debounce(rejecting, 200, TimeUnit.MILLISECONDS, handler,
+                            recorder));
+            box.set(1);
+            Thread.sleep(50);
+            // The debounce task finds this change and tries to wait longer, which is rejected
+            box.set(2);
+            assertTrue(rejected.await(10, TimeUnit.SECONDS));
+            assertTrue(failures.isEmpty());
+
+            // Later changes try to schedule again rather than waiting forever for a task that will never run.
+            // The flag is cleared just after the rejection, so the first of these may still see it set.
+            for (int i = 0; i < 1000 && failures.isEmpty(); i++) {
+                box.set(3);
+                Thread.sleep(10);
+            }
+            assertFalse(failures.isEmpty());
+            assertTrue(failures.get(0) instanceof RejectedExecutionException);
+        } finally {
+            rejecting.shutdownNow();
+        }
+    }
+
+    private static WeakReference<PowerBox<Integer>> changedBox(ConflatingChangeObserver<Integer> observer) {
+        PowerBox<Integer> box = new CommonBox<Integer>(ConflatingObserverTest.class, "collected");
+        box.addChangeObserver(observer);
+        setMany(box, 3);
+        return new WeakReference<PowerBox<Integer>>(box);
+    }
+
+    @Test
+    public void testBoxesCanBeCollected() throws InterruptedException {
+        Recorder recorder = new Recorder(1);
+        ConflatingChangeObserver<Integer> observer =
+                ConflatingChangeObserver.debounce(scheduler, 10, TimeUnit.MILLISECONDS, handler, recorder);
+        WeakReference<PowerBox<Integer>> ref = changedBox(observer);
+        recorder.await();
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        assertEquals(Arrays.asList("ConflatingObserverTest.collected null 3"), recorder.changes);
+    }
+
+}
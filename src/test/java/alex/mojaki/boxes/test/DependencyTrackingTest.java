@@ -0,0 +1,136 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.CommonIntBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DependencyTrackingTest {
+
+    private final AtomicInteger calculations = new AtomicInteger();
+    private final List<Integer> changes = new ArrayList<Integer>();
+
+    private final ChangeObserver<Integer> changeObserver = new ChangeObserver<Integer>() {
+        @Override
+        public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+            changes.add(finalValue);
+        }
+    };
+
+    @BeforeClass
+    public static void enableTracking() {
+        for (String name : Arrays.asList("flag", "a", "b", "declared", "undeclared", "inner", "count")) {
+            BoxFamily.getInstance(DependencyTrackingTest.class, name).enableDependencyTracking();
+        }
+    }
+
+    @Test
+    public void testSwitchesDependencies() {
+        final PowerBox<Boolean> flag = new CommonBox<Boolean>(DependencyTrackingTest.class, "flag").set(true);
+        final PowerBox<Integer> a = new CommonBox<Integer>(DependencyTrackingTest.class, "a").set(1);
+        final PowerBox<Integer> b = new CommonBox<Integer>(DependencyTrackingTest.class, "b").set(2);
+        View<Integer> view = new View<Integer>(DependencyTrackingTest.class, "aOrB") {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                return flag.get() ? a.get() : b.get();
+            }
+        }.trackDependencies().addChangeObserver(changeObserver);
+        assertTrue(view.tracksDependencies());
+        assertEquals(1, view.get().intValue());
+        assertEquals(1, calculations.get());
+
+        b.set(20);
+        assertEquals(1, calculations.get());
+        a.set(10);
+        assertEquals(2, calculations.get());
+        assertEquals(Arrays.asList(10), changes);
+
+        flag.set(false);
+        assertEquals(3, calculations.get());
+        a.set(100);
+        assertEquals(3, calculations.get());
+        b.set(200);
+        assertEquals(4, calculations.get());
+        assertEquals(Arrays.asList(10, 20, 200), changes);
+        assertEquals(200, view.get().intValue());
+        assertEquals(4, calculations.get());
+    }
+
+    @Test
+    public void testNestedViewsOwnTheirReads() {
+        final PowerBox<Integer> declared = new CommonBox<Integer>(DependencyTrackingTest.class, "declared").set(1);
+        // Not declared by the inner view, so only tracking it by mistake would make the outer view recalculate
+        final PowerBox<Integer> undeclared = new CommonBox<Integer>(DependencyTrackingTest.class, "undeclared").set(2);
+        final View<Integer> inner = new View<Integer>(DependencyTrackingTest.class, "inner", declared) {
+            @Override
+            public Integer calculate() {
+                return declared.get() + undeclared.get();
+            }
+        };
+        View<Integer> outer = new View<Integer>(DependencyTrackingTest.class, "outer") {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                return inner.get() * 10;
+            }
+        }.trackDependencies().addChangeObserver(changeObserver);
+        assertEquals(30, outer.get().intValue());
+
+        undeclared.set(3);
+        assertEquals(1, calculations.get());
+        declared.set(2);
+        assertEquals(2, calculations.get());
+        assertEquals(Arrays.asList(50), changes);
+    }
+
+    @Test
+    public void testPrimitiveBoxes() {
+        final CommonIntBox count = new CommonIntBox(DependencyTrackingTest.class, "count");
+        View<Integer> view = new View<Integer>(DependencyTrackingTest.class, "countPlusOne") {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                return count.getInt() + 1;
+            }
+        }.trackDependencies();
+        assertEquals(1, view.get().intValue());
+        count.setInt(5);
+        assertEquals(6, view.get().intValue());
+        assertEquals(6, view.get().intValue());
+        assertEquals(2, calculations.get());
+    }
+
+    @Test
+    public void testOnlyTrackingFamiliesAreTracked() {
+        final PowerBox<Integer> tracked = new CommonBox<Integer>(DependencyTrackingTest.class, "a").set(1);
+        final PowerBox<Integer> untracked = new CommonBox<Integer>(DependencyTrackingTest.class, "untracked").set(2);
+        assertTrue(tracked.getFamily().dependencyTrackingEnabled());
+        assertFalse(untracked.getFamily().dependencyTrackingEnabled());
+        View<Integer> view = new View<Integer>(DependencyTrackingTest.class, "sum") {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                return tracked.get() + untracked.get();
+            }
+        }.trackDependencies();
+        assertEquals(3, view.get().intValue());
+        untracked.set(3);
+        assertEquals(3, view.get().intValue());
+        tracked.set(2);
+        assertEquals(5, view.get().intValue());
+        assertEquals(2, calculations.get());
+    }
+
+}
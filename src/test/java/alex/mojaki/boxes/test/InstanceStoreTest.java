@@ -0,0 +1,178 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.middleware.symmetric.DoubleEnsureBounds;
+import alex.mojaki.boxes.middleware.symmetric.IntEnsureBounds;
+import alex.mojaki.boxes.observers.change.IntRequireBounds;
+import alex.mojaki.boxes.utils.InstanceStore;
+import alex.mojaki.boxes.utils.PrimitiveInstanceCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InstanceStoreTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final InstanceStore<List<Object>> store = new InstanceStore<List<Object>>() {
+        @Override
+        public List<Object> getNew(Object... args) {
+            created.incrementAndGet();
+            return Arrays.asList(args);
+        }
+    };
+
+    @Test
+    public void testInterning() {
+        List<Object> ab = store.get("a", "b");
+        assertEquals(Arrays.<Object>asList("a", "b"), ab);
+        assertSame(ab, store.get("a", "b"));
+        assertSame(ab, store.get(new Object[]{"a", "b"}));
+        assertNotSame(ab, store.get("a", "c"));
+        assertSame(store.get("a"), store.get(new Object[]{"a"}));
+        assertSame(store.get("a", "b", "c"), store.get("a", "b", "c"));
+        assertSame(store.get(), store.get());
+        assertEquals(5, created.get());
+        assertEquals(5, store.values().size());
+    }
+
+    @Test
+    public void testArityAndNulls() {
+        List<Object> a = store.get("a");
+        List<Object> aNull = store.get("a", null);
+        List<Object> nullA = store.get(null, "a");
+        List<Object> nullNull = store.get(null, null);
+        assertNotSame(a, aNull);
+        assertNotSame(aNull, nullA);
+        assertEquals(Arrays.asList(null, null), nullNull);
+        assertSame(aNull, store.get("a", null));
+        assertSame(nullNull, store.get(null, null));
+        assertEquals(4, created.get());
+    }
+
+    @Test
+    public void testConcurrentCreation() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Callable<Object> task = new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return store.get("x", 1);
+                }
+            };
+            List<Future<Object>> results = executor.invokeAll(Arrays.asList(task, task, task, task, task, task, task, task));
+            Object first = results.get(0).get();
+            for (Future<Object> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, store.values().size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWeakValues() throws InterruptedException {
+        InstanceStore<List<Object>> weakStore = new InstanceStore<List<Object>>(true) {
+            @Override
+            public List<Object> getNew(Object... args) {
+                return Arrays.asList(args);
+            }
+        };
+        List<Object> kept = weakStore.get("kept", 1);
+        Object arg = new Object();
+        WeakReference<Object> argRef = new WeakReference<Object>(arg);
+        WeakReference<List<Object>> instanceRef = new WeakReference<List<Object>>(weakStore.get(arg, 2));
+        assertSame(instanceRef.get(), weakStore.get(arg, 2));
+        //noinspection UnusedAssignment
+        arg = null;
+        for (int i = 0; i < 100 && argRef.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+            // Expunging happens during lookups
+            weakStore.get("other");
+        }
+        assertNull(instanceRef.get());
+        assertNull(argRef.get());
+        assertSame(kept, weakStore.get("kept", 1));
+        assertEquals(2, weakStore.values().size());
+    }
+
+    @Test
+    public void testPrimitiveCache() {
+        PrimitiveInstanceCache<List<Object>> cache = new PrimitiveInstanceCache<List<Object>>() {
+            @Override
+            public List<Object> getNew(long key1, long key2, int flags) {
+                return store.get(key1, key2, flags);
+            }
+        };
+        List<Object> first = cache.get(1, 2, 0);
+        assertSame(first, cache.get(1, 2, 0));
+        assertSame(first, store.get(1L, 2L, 0));
+        assertEquals(1, created.get());
+        assertNotSame(first, cache.get(2, 1, 0));
+        assertNotSame(first, cache.get(1, 2, 1));
+
+        // More keys than slots, so some share a slot and replace each other, but the instances are still the store's
+        for (int i = 0; i < 1000; i++) {
+            assertSame(store.get((long) i, (long) -i, i % 3), cache.get(i, -i, i % 3));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertSame(store.get((long) i, (long) -i, i % 3), cache.get(i, -i, i % 3));
+        }
+        assertEquals(1003, created.get());
+    }
+
+    @Test
+    public void testPrimitiveBoundsInterning() {
+        assertSame(IntEnsureBounds.between(1, 5), IntEnsureBounds.between(1, 5));
+        assertNotSame(IntEnsureBounds.between(1, 5), IntEnsureBounds.between(1, 6));
+        assertSame(DoubleEnsureBounds.between(0.0, 1.0), DoubleEnsureBounds.between(0.0, 1.0));
+        assertNotSame(DoubleEnsureBounds.between(0.0, 1.0), DoubleEnsureBounds.between(-0.0, 1.0));
+        assertSame(IntRequireBounds.between(1, true, 5, false), IntRequireBounds.between(1, true, 5, false));
+        assertNotSame(IntRequireBounds.between(1, true, 5, false), IntRequireBounds.between(1, false, 5, false));
+        assertNotSame(IntRequireBounds.minimum(1, true), IntRequireBounds.maximum(1, true));
+    }
+
+    @Test
+    public void testCachedBoundsStillValidate() {
+        exception.expect(IllegalArgumentException.class);
+        try {
+            IntEnsureBounds.between(5, 1);
+        } catch (IllegalArgumentException e) {
+            // A failed lookup mustn't leave anything in the cache
+        }
+        IntEnsureBounds.between(5, 1);
+    }
+
+    @Test
+    public void testFamilies() {
+        BoxFamily family = BoxFamily.getInstance(InstanceStoreTest.class, "family");
+        assertSame(family, BoxFamily.getInstance(InstanceStoreTest.class, new String("family")));
+        assertNotSame(family, BoxFamily.getInstance(InstanceStoreTest.class, "other"));
+        assertNotSame(family, BoxFamily.getInstance(BoxFamily.class, "family"));
+        assertTrue(BoxFamily.getAllFamilies().contains(family));
+    }
+
+    @Test
+    public void testNullName() {
+        exception.expect(NullPointerException.class);
+        exception.expectMessage("Name must not be null");
+        BoxFamily.getInstance(InstanceStoreTest.class, null);
+    }
+
+}
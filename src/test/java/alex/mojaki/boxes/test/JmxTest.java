@@ -0,0 +1,204 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.collections.MapBox;
+import alex.mojaki.boxes.jmx.BoxFamilyMXBean;
+import alex.mojaki.boxes.jmx.BoxFamilyRegistry;
+import alex.mojaki.boxes.middleware.symmetric.EnsureBounds;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.ThrowOnNull;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import javax.management.Attribute;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+public class JmxTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    public void testBypass() {
+        BoxFamily family = BoxFamily.getInstance(JmxTest.class, "bypassed")
+                .addChangeMiddleware(EnsureBounds.maximum(5))
+                .notNull();
+        PowerBox<Integer> box = new CommonBox<Integer>(family);
+        box.set(10);
+        assertEquals(5, (int) box.get());
+
+        family.bypassParticipants();
+        assertTrue(family.bypassesParticipants());
+        box.set(10);
+        assertEquals(10, (int) box.get());
+        box.set(null);
+        assertNull(box.get());
+
+        family.restoreParticipants();
+        box.set(10);
+        assertEquals(5, (int) box.get());
+    }
+
+    @Test
+    public void testBypassKeepsViewsUpdated() {
+        final PowerBox<Integer> box = new CommonBox<Integer>(JmxTest.class, "viewed").set(1);
+        View<Integer> view = new View<Integer>(JmxTest.class, "view", box) {
+            @Override
+            public Integer calculate() {
+                return box.get() * 2;
+            }
+        };
+        box.getFamily().bypassParticipants();
+        box.set(4);
+        assertEquals(8, (int) view.get());
+        box.getFamily().restoreParticipants();
+    }
+
+    @Test
+    public void testBypassKeepsMapBoxesUpdated() {
+        MapBox<String, Integer> map = new MapBox<String, Integer>(JmxTest.class, "map").init();
+        final int[] changes = new int[1];
+        map.addChangeObserver(new ChangeObserver() {
+            @Override
+            public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+                changes[0]++;
+            }
+        });
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        map.put("d", 4);
+        assertEquals(4, changes[0]);
+
+        BoxFamily keySetFamily = BoxFamily.getInstance(MapBox.class, "keySet").bypassParticipants();
+        BoxFamily entrySetFamily = BoxFamily.getInstance(MapBox.class, "entrySet").bypassParticipants();
+        try {
+            map.keySet().remove("a");
+            assertEquals(5, changes[0]);
+            map.entrySet().clear();
+            assertEquals(6, changes[0]);
+            assertTrue(map.isEmpty());
+        } finally {
+            keySetFamily.restoreParticipants();
+            entrySetFamily.restoreParticipants();
+        }
+    }
+
+    @Test
+    public void testMXBean() throws Exception {
+        BoxFamily family = BoxFamily.getInstance(JmxTest.class, "managed")
+                .addChangeObserver(ThrowOnNull.I)
+                .addGetMiddleware(EnsureBounds.maximum(5));
+        PowerBox<Integer> box = new CommonBox<Integer>(family);
+        assertTrue(BoxFamilyRegistry.registerAll() > 0);
+        assertFalse(BoxFamilyRegistry.register(family));
+
+        ObjectName name = BoxFamilyRegistry.objectName(family);
+        assertEquals("\"" + JmxTest.class.getName() + "\"", name.getKeyProperty("class"));
+        assertEquals("\"managed\"", name.getKeyProperty("name"));
+        BoxFamilyMXBean bean = JMX.newMXBeanProxy(server, name, BoxFamilyMXBean.class);
+        assertEquals("JmxTest.managed", bean.getDescription());
+        assertEquals(1, bean.getChangeObserverCount());
+        assertEquals(1, bean.getGetMiddlewareCount());
+        assertEquals(0, bean.getGetObserverCount());
+        String[] participants = bean.getParticipants();
+        assertEquals(2, participants.length);
+        assertTrue(participants[0], participants[0].startsWith("GetMiddleware 1: " + EnsureBounds.class.getName()));
+        assertTrue(participants[1], participants[1].startsWith("ChangeObserver 1: " + ThrowOnNull.class.getName()));
+
+        assertEquals(0, bean.getChanges());
+        server.setAttribute(name, new Attribute("MetricsEnabled", true));
+        assertTrue(family.metricsEnabled());
+        box.set(1);
+        box.set(2);
+        assertEquals(2, bean.getChanges());
+        assertTrue(bean.getMetricsSummary().contains("JmxTest.managed"));
+        bean.resetMetrics();
+        assertEquals(0, bean.getChanges());
+
+        bean.setBypassingParticipants(true);
+        assertTrue(family.bypassesParticipants());
+        box.set(null);
+        bean.setBypassingParticipants(false);
+        assertFalse(family.bypassesParticipants());
+
+        assertTrue(BoxFamilyRegistry.unregister(family));
+        assertFalse(server.isRegistered(name));
+        assertFalse(BoxFamilyRegistry.unregister(family));
+    }
+
+    @Test
+    public void testAllFamilies() {
+        BoxFamily family = BoxFamily.getInstance(JmxTest.class, "listed");
+        assertTrue(BoxFamily.getAllFamilies().contains(family));
+    }
+
+    private static class IsolatingClassLoader extends ClassLoader {
+
+        IsolatingClassLoader() {
+            super(JmxTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(UnloadableDeclarer.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded != null) {
+                    return loaded;
+                }
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    byte[] bytes = ByteStreams.toByteArray(in);
+                    return defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        }
+    }
+
+    private ObjectName unloadableName;
+
+    private WeakReference<BoxFamily> registerUnloadableFamily() throws ClassNotFoundException {
+        Class<?> clazz = new IsolatingClassLoader().loadClass(UnloadableDeclarer.class.getName());
+        assertNotSame(UnloadableDeclarer.class, clazz);
+        BoxFamily family = BoxFamily.getInstance(clazz, "unloadable");
+        assertTrue(BoxFamilyRegistry.register(family));
+        unloadableName = BoxFamilyRegistry.objectName(family);
+        assertTrue(server.isRegistered(unloadableName));
+        return new WeakReference<BoxFamily>(family);
+    }
+
+    @Test
+    public void testUnloadedFamiliesAreUnregistered() throws Exception {
+        WeakReference<BoxFamily> ref = registerUnloadableFamily();
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+        assertTrue(server.isRegistered(unloadableName));
+        BoxFamilyRegistry.registerAll();
+        assertFalse(server.isRegistered(unloadableName));
+    }
+
+}
+
+/**
+ * Declares a family in {@link JmxTest#testUnloadedFamiliesAreUnregistered()}, loaded by its own class loader so that
+ * it can be unloaded. It's not nested so that the class loaders don't disagree about its outer class.
+ */
+class UnloadableDeclarer {
+}
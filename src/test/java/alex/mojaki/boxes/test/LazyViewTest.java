@@ -0,0 +1,119 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.InvalidationObserver;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LazyViewTest {
+
+    private final AtomicInteger calculations = new AtomicInteger();
+    private final List<String> changes = new ArrayList<String>();
+    private final List<View<Integer>> invalidations = new ArrayList<View<Integer>>();
+
+    private final ChangeObserver<Integer> changeObserver = new ChangeObserver<Integer>() {
+        @Override
+        public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+            changes.add(originalValue + " -> " + finalValue);
+        }
+    };
+
+    private final InvalidationObserver<Integer> invalidationObserver = new InvalidationObserver<Integer>() {
+        @Override
+        public void onInvalidate(View<Integer> view) {
+            invalidations.add(view);
+        }
+    };
+
+    private View<Integer> doubled(String name, final PowerBox<Integer> box) {
+        return new View<Integer>(LazyViewTest.class, name, box) {
+            @Override
+            public Integer calculate() {
+                calculations.incrementAndGet();
+                return box.get() * 2;
+            }
+        };
+    }
+
+    @Test
+    public void testCalculatesOncePerRead() {
+        PowerBox<Integer> box = new CommonBox<Integer>(LazyViewTest.class, "box").set(1);
+        View<Integer> view = doubled("view", box).lazy().addChangeObserver(changeObserver)
+                .addInvalidationObserver(invalidationObserver);
+        assertTrue(view.isLazy());
+        assertEquals(2, view.get().intValue());
+        assertEquals(1, calculations.get());
+
+        for (int i = 2; i <= 6; i++) {
+            box.set(i);
+        }
+        assertEquals(1, calculations.get());
+        assertEquals(Arrays.asList(view), invalidations);
+        assertTrue(changes.isEmpty());
+
+        assertEquals(12, view.get().intValue());
+        assertEquals(12, view.get().intValue());
+        assertEquals(2, calculations.get());
+        assertEquals(Arrays.asList("2 -> 12"), changes);
+
+        box.set(7);
+        assertEquals(2, invalidations.size());
+        assertEquals(14, view.get().intValue());
+        assertEquals(Arrays.asList("2 -> 12", "12 -> 14"), changes);
+    }
+
+    @Test
+    public void testInvalidatesDependentViews() {
+        PowerBox<Integer> box = new CommonBox<Integer>(LazyViewTest.class, "chainBox").set(1);
+        View<Integer> first = doubled("chainFirst", box).lazy();
+        View<Integer> second = doubled("chainSecond", first).lazy().addInvalidationObserver(invalidationObserver);
+        assertEquals(4, second.get().intValue());
+        assertEquals(2, calculations.get());
+
+        box.set(2);
+        box.set(3);
+        assertEquals(Arrays.asList(second), invalidations);
+        assertEquals(2, calculations.get());
+        assertEquals(12, second.get().intValue());
+        assertEquals(4, calculations.get());
+    }
+
+    @Test
+    public void testObserverFailureKeepsViewInvalid() {
+        PowerBox<Integer> box = new CommonBox<Integer>(LazyViewTest.class, "failBox").set(1);
+        final AtomicInteger failures = new AtomicInteger(1);
+        View<Integer> view = doubled("failView", box).lazy().addChangeObserver(new ChangeObserver<Integer>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException();
+                }
+            }
+        }).addChangeObserver(changeObserver);
+        view.get();
+
+        box.set(2);
+        try {
+            view.get();
+            fail();
+        } catch (BoxParticipantException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(changes.isEmpty());
+
+        assertEquals(4, view.get().intValue());
+        assertEquals(Arrays.asList("2 -> 4"), changes);
+        assertEquals(3, calculations.get());
+    }
+
+}
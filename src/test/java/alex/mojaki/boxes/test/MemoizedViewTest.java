@@ -0,0 +1,98 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import com.google.common.cache.CacheStats;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MemoizedViewTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AtomicInteger calculations = new AtomicInteger();
+
+    private enum Mode {
+        BUY, SELL
+    }
+
+    private View<String> quote(String name, final PowerBox<Mode> mode, final PowerBox<String> currency) {
+        return new View<String>(MemoizedViewTest.class, name, mode, currency) {
+            @Override
+            public String calculate() {
+                calculations.incrementAndGet();
+                return mode.get() == null ? null : mode.get() + " in " + currency.get();
+            }
+        };
+    }
+
+    @Test
+    public void testReusesResults() {
+        PowerBox<Mode> mode = new CommonBox<Mode>(MemoizedViewTest.class, "mode").set(Mode.BUY);
+        PowerBox<String> currency = new CommonBox<String>(MemoizedViewTest.class, "currency").set("USD");
+        View<String> view = quote("quote", mode, currency).memoize(2);
+        assertTrue(view.isMemoized());
+
+        assertEquals("BUY in USD", view.get());
+        mode.set(Mode.SELL);
+        assertEquals("SELL in USD", view.get());
+        mode.set(Mode.BUY);
+        assertEquals("BUY in USD", view.get());
+        mode.set(Mode.SELL);
+        assertEquals("SELL in USD", view.get());
+        assertEquals(2, calculations.get());
+
+        // Evicts BUY in USD, the least recently used
+        currency.set("EUR");
+        assertEquals("SELL in EUR", view.get());
+        currency.set("USD");
+        mode.set(Mode.BUY);
+        assertEquals("BUY in USD", view.get());
+        assertEquals(4, calculations.get());
+
+        CacheStats stats = view.getMemoStats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(4, stats.missCount());
+        assertEquals(2, stats.evictionCount());
+    }
+
+    @Test
+    public void testNullResults() {
+        PowerBox<Mode> mode = new CommonBox<Mode>(MemoizedViewTest.class, "nullMode");
+        PowerBox<String> currency = new CommonBox<String>(MemoizedViewTest.class, "nullCurrency").set("USD");
+        View<String> view = quote("nullQuote", mode, currency).memoize(10);
+        assertNull(view.get());
+        mode.set(Mode.BUY);
+        assertEquals("BUY in USD", view.get());
+        mode.set(null);
+        assertNull(view.get());
+        assertEquals(2, calculations.get());
+    }
+
+    @Test
+    public void testNotMemoized() {
+        PowerBox<Mode> mode = new CommonBox<Mode>(MemoizedViewTest.class, "plainMode");
+        PowerBox<String> currency = new CommonBox<String>(MemoizedViewTest.class, "plainCurrency");
+        View<String> view = quote("plainQuote", mode, currency);
+        assertFalse(view.isMemoized());
+        thrown.expect(IllegalStateException.class);
+        view.getMemoStats();
+    }
+
+    @Test
+    public void testNotWithTracking() {
+        PowerBox<Mode> mode = new CommonBox<Mode>(MemoizedViewTest.class, "trackedMode");
+        PowerBox<String> currency = new CommonBox<String>(MemoizedViewTest.class, "trackedCurrency");
+        View<String> view = quote("trackedQuote", mode, currency).trackDependencies();
+        thrown.expect(IllegalStateException.class);
+        view.memoize(10);
+    }
+
+}
@@ -0,0 +1,185 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.CommonIntBox;
+import alex.mojaki.boxes.CommonLongBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.metrics.FamilyMetrics;
+import alex.mojaki.boxes.metrics.MetricsSnapshot;
+import alex.mojaki.boxes.metrics.ParticipantLatency;
+import alex.mojaki.boxes.middleware.change.ChangeMiddleware;
+import alex.mojaki.boxes.middleware.change.IntChangeMiddleware;
+import alex.mojaki.boxes.middleware.get.GetMiddleware;
+import alex.mojaki.boxes.middleware.get.LongGetMiddleware;
+import alex.mojaki.boxes.middleware.symmetric.EnsureBounds;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.IntChangeObserver;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    private static class Sleeper implements ChangeObserver<Integer> {
+        @Override
+        public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Test
+    public void testCounts() {
+        BoxFamily family = BoxFamily.getInstance(MetricsTest.class, "counts");
+        assertNull(family.getMetrics());
+        family.enableMetrics();
+        assertTrue(family.metricsEnabled());
+        PowerBox<Integer> box = new CommonBox<Integer>(family);
+        for (int i = 0; i < 10; i++) {
+            box.set(i);
+        }
+        for (int i = 0; i < 5; i++) {
+            box.get();
+        }
+        FamilyMetrics metrics = family.getMetrics();
+        assertEquals(10, metrics.getChanges());
+        assertEquals(5, metrics.getGets());
+
+        family.disableMetrics();
+        box.set(3);
+        box.get();
+        assertEquals(10, metrics.getChanges());
+        assertEquals(5, metrics.getGets());
+        assertSame(metrics, family.getMetrics());
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getChanges());
+    }
+
+    @Test
+    public void testLatencies() {
+        Sleeper sleeper = new Sleeper();
+        EnsureBounds bounds = EnsureBounds.maximum(5);
+        BoxFamily family = BoxFamily.getInstance(MetricsTest.class, "latencies")
+                .addChangeObserver(sleeper)
+                .addGetMiddleware(bounds)
+                .enableMetrics();
+        PowerBox<Integer> box = new CommonBox<Integer>(family);
+        for (int i = 0; i < 5; i++) {
+            box.set(i * 10);
+            assertEquals(Math.min(i * 10, 5), (int) box.get());
+        }
+
+        MetricsSnapshot snapshot = family.getMetrics().snapshot();
+        assertEquals(2, snapshot.getParticipants().size());
+        ParticipantLatency middleware = snapshot.getParticipants().get(0);
+        assertSame(bounds, middleware.getParticipant());
+        assertEquals(GetMiddleware.class, middleware.getParticipantType());
+        assertEquals(5, middleware.getCount());
+
+        ParticipantLatency observer = snapshot.getParticipants().get(1);
+        assertSame(sleeper, observer.getParticipant());
+        assertEquals(ChangeObserver.class, observer.getParticipantType());
+        assertEquals(0, observer.getParticipantIndex());
+        assertEquals(5, observer.getCount());
+        assertTrue(observer.getMaxNanos() >= 2000000);
+        assertTrue(observer.getMeanNanos() >= 2000000);
+        assertTrue(observer.getPercentileNanos(50) >= 2000000);
+        assertTrue(observer.getTotalNanos() >= 10000000);
+        assertTrue(snapshot.toString().contains("MetricsTest.latencies"));
+    }
+
+    @Test
+    public void testPrimitive() {
+        final AtomicInteger last = new AtomicInteger();
+        CommonIntBox box = new CommonIntBox(MetricsTest.class, "primitive");
+        box.addChangeObserver(new IntChangeObserver() {
+            @Override
+            public void onChange(PowerBox<Integer> box, int originalValue, int finalValue, int requestedValue) {
+                last.set(finalValue);
+            }
+        });
+        box.getFamily().enableMetrics();
+        box.setInt(7);
+        box.getInt();
+        assertEquals(7, last.get());
+        MetricsSnapshot snapshot = box.getFamily().getMetrics().snapshot();
+        assertEquals(1, snapshot.getChanges());
+        assertEquals(1, snapshot.getGets());
+        assertEquals(1, snapshot.getParticipants().get(0).getCount());
+    }
+
+    @Test
+    public void testPrimitiveParticipantsAreNotBoxed() {
+        final AtomicInteger boxedCalls = new AtomicInteger();
+        CommonIntBox ints = new CommonIntBox(MetricsTest.class, "unboxedInts");
+        ints.addChangeMiddleware(new IntChangeMiddleware() {
+            @Override
+            public int onChange(PowerBox<Integer> box, int originalValue, int currentValue, int requestedValue) {
+                return currentValue * 2;
+            }
+
+            @Override
+            public Integer onChange(PowerBox<Integer> box, Integer originalValue, Integer currentValue, Integer requestedValue) {
+                boxedCalls.incrementAndGet();
+                return currentValue;
+            }
+        });
+        CommonLongBox longs = new CommonLongBox(MetricsTest.class, "unboxedLongs");
+        longs.addGetMiddleware(new LongGetMiddleware() {
+            @Override
+            public long onGet(PowerBox<Long> box, long originalValue, long currentValue) {
+                return currentValue + 1;
+            }
+
+            @Override
+            public Long onGet(PowerBox<Long> box, Long originalValue, Long currentValue) {
+                boxedCalls.incrementAndGet();
+                return currentValue;
+            }
+        });
+        ints.getFamily().enableMetrics();
+        longs.getFamily().enableMetrics();
+        ints.setInt(3);
+        longs.setLong(3);
+        assertEquals(6, ints.getInt());
+        assertEquals(4, longs.getLong());
+        assertEquals(0, boxedCalls.get());
+        assertEquals(1, ints.getFamily().getMetrics().snapshot().getParticipants().get(0).getCount());
+        assertEquals(1, longs.getFamily().getMetrics().snapshot().getParticipants().get(0).getCount());
+
+        // Other boxes of the family still use the generic methods
+        new CommonBox<Integer>(ints.getFamily()).set(3);
+        assertEquals(1, boxedCalls.get());
+        assertEquals(2, ints.getFamily().getMetrics().snapshot().getParticipants().get(0).getCount());
+    }
+
+    @Test
+    public void testFailureShowsOriginalParticipant() {
+        ChangeMiddleware<Integer> failing = new ChangeMiddleware<Integer>() {
+            @Override
+            public Integer onChange(PowerBox<Integer> box, Integer originalValue, Integer currentValue, Integer requestedValue) {
+                throw new IllegalStateException();
+            }
+        };
+        BoxFamily family = BoxFamily.getInstance(MetricsTest.class, "failing")
+                .addChangeMiddleware(failing)
+                .enableMetrics();
+        PowerBox<Integer> box = new CommonBox<Integer>(family);
+        try {
+            box.set(1);
+            fail();
+        } catch (BoxParticipantException e) {
+            assertSame(failing, e.details.get().getParticipant());
+        }
+        assertEquals(1, family.getMetrics().snapshot().getParticipants().get(0).getCount());
+    }
+
+}
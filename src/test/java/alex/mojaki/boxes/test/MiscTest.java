@@ -70,6 +70,26 @@ public class MiscTest {
         family.addChangeObserver(ThrowOnNull.I);
     }
 
+    @Test
+    public void testParticipantsAddedAfterUse() {
+        BoxFamily family = BoxFamily.getInstance(MiscTest.class, "addedAfterUse");
+        PowerBox<Integer> box = box(family);
+        box.set(null);
+        assertEquals(null, box.get());
+
+        family.addGetMiddleware(DefaultValue.getInstance(1));
+        assertEquals(1, (int) box.get());
+
+        family.addChangeMiddleware(DefaultValue.getInstance(2));
+        box.set(null);
+        assertEquals(2, (int) box.get());
+
+        family.getChangeMiddlewares().disable();
+        family.getGetMiddlewares().disable();
+        box.set(null);
+        assertEquals(null, box.get());
+    }
+
     @Test
     public void hiddenToStringNormal() {
         PowerBox<Integer> hiddenBox = box(MiscTest.class, "hidden");
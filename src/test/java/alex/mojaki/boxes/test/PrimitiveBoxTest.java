@@ -0,0 +1,196 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.BooleanPowerBox;
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.CommonIntBox;
+import alex.mojaki.boxes.DoublePowerBox;
+import alex.mojaki.boxes.IntPowerBox;
+import alex.mojaki.boxes.LongPowerBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.middleware.change.BooleanChangeMiddleware;
+import alex.mojaki.boxes.middleware.symmetric.DoubleEnsureBounds;
+import alex.mojaki.boxes.middleware.symmetric.IntEnsureBounds;
+import alex.mojaki.boxes.middleware.symmetric.SymmetricMiddleware;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.IntChangeObserver;
+import alex.mojaki.boxes.observers.change.IntRequireBounds;
+import alex.mojaki.boxes.observers.change.LongRequireBounds;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static alex.mojaki.boxes.Boxes.booleanBox;
+import static alex.mojaki.boxes.Boxes.doubleBox;
+import static alex.mojaki.boxes.Boxes.intBox;
+import static alex.mojaki.boxes.Boxes.longBox;
+import static junit.framework.TestCase.assertSame;
+import static org.junit.Assert.*;
+
+public class PrimitiveBoxTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void testPlainValues() {
+        IntPowerBox i = intBox(PrimitiveBoxTest.class, "plainInt");
+        LongPowerBox l = longBox(PrimitiveBoxTest.class, "plainLong");
+        DoublePowerBox d = doubleBox(PrimitiveBoxTest.class, "plainDouble");
+        BooleanPowerBox b = booleanBox(PrimitiveBoxTest.class, "plainBoolean");
+
+        assertEquals(0, i.getInt());
+        assertEquals(0L, l.getLong());
+        assertEquals(0.0, d.getDouble(), 0);
+        assertFalse(b.getBoolean());
+
+        i.setInt(3);
+        l.setLong(4L);
+        d.setDouble(5.5);
+        b.setBoolean(true);
+
+        assertEquals(Integer.valueOf(3), i.get());
+        assertEquals(Long.valueOf(4), l.get());
+        assertEquals(Double.valueOf(5.5), d.get());
+        assertEquals(Boolean.TRUE, b.get());
+        assertEquals("3", i.toString());
+
+        i.set(7);
+        assertEquals(7, i.getInt());
+    }
+
+    @Test
+    public void testPrimitiveParticipants() {
+        final List<String> changes = new ArrayList<String>();
+        IntPowerBox box = new CommonIntBox(PrimitiveBoxTest.class, "participants")
+                .addChangeMiddleware(IntEnsureBounds.maximum(10))
+                .addChangeObserver(new IntChangeObserver() {
+                    @Override
+                    public void onChange(PowerBox<Integer> box, int originalValue, int finalValue, int requestedValue) {
+                        changes.add(originalValue + " " + finalValue + " " + requestedValue);
+                    }
+                });
+        box.setInt(5);
+        box.setInt(20);
+        assertEquals(10, box.getInt());
+        assertEquals(Arrays.asList("0 5 5", "5 10 20"), changes);
+    }
+
+    @Test
+    public void testMixedParticipants() {
+        final List<Object> finalValues = new ArrayList<Object>();
+        IntPowerBox box = intBox(PrimitiveBoxTest.class, "mixed");
+        box.addChangeMiddleware(new SymmetricMiddleware<Integer>() {
+            @Override
+            public Integer apply(PowerBox<Integer> box, Integer firstValue, Integer currentValue) {
+                return currentValue * 2;
+            }
+        }).addChangeMiddleware(IntEnsureBounds.minimum(0)).addChangeObserver(new ChangeObserver<Integer>() {
+            @Override
+            public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                finalValues.add(finalValue);
+            }
+        });
+        box.setInt(3);
+        box.setInt(-3);
+        assertEquals(Arrays.<Object>asList(6, 0), finalValues);
+    }
+
+    @Test
+    public void testPrimitiveParticipantsOnGenericBox() {
+        PowerBox<Integer> box = new CommonBox<Integer>(PrimitiveBoxTest.class, "generic")
+                .addGetMiddleware(IntEnsureBounds.between(0, 10))
+                .addChangeObserver(IntRequireBounds.maximum(100, true));
+        assertNull(box.get());
+        box.set(50);
+        assertEquals(10, (int) box.get());
+        box.set(null);
+        try {
+            box.set(101);
+            fail();
+        } catch (BoxParticipantException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertNull(box.get());
+    }
+
+    @Test
+    public void testRollback() {
+        LongPowerBox box = longBox(PrimitiveBoxTest.class, "rollback")
+                .addChangeObserver(LongRequireBounds.between(0, true, 10, false));
+        box.setLong(5);
+        try {
+            box.setLong(10);
+            fail();
+        } catch (BoxParticipantException e) {
+            assertEquals("Error in ChangeObserver 1 out of 1 of PrimitiveBoxTest.rollback. " +
+                    "Original value = 5. Final value = 10. Requested value = 10.", e.getMessage());
+        }
+        assertEquals(5, box.getLong());
+    }
+
+    @Test
+    public void testDoubleBoundsMatchGeneric() {
+        DoublePowerBox box = doubleBox(PrimitiveBoxTest.class, "doubleBounds")
+                .addChangeMiddleware(DoubleEnsureBounds.maximum(5.0));
+        box.setDouble(Double.NaN);
+        assertEquals(5.0, box.getDouble(), 0);
+        box.setDouble(Double.NEGATIVE_INFINITY);
+        assertEquals(Double.NEGATIVE_INFINITY, box.getDouble(), 0);
+    }
+
+    @Test
+    public void testBooleanMiddleware() {
+        BooleanPowerBox box = booleanBox(PrimitiveBoxTest.class, "negated")
+                .addChangeMiddleware(new BooleanChangeMiddleware() {
+                    @Override
+                    public boolean onChange(PowerBox<Boolean> box, boolean originalValue, boolean currentValue, boolean requestedValue) {
+                        return !currentValue;
+                    }
+                });
+        box.setBoolean(false);
+        assertTrue(box.getBoolean());
+    }
+
+    @Test
+    public void testView() {
+        final IntPowerBox x = intBox(PrimitiveBoxTest.class, "viewX");
+        View<Integer> doubled = new View<Integer>(PrimitiveBoxTest.class, "doubled", x) {
+            @Override
+            public Integer calculate() {
+                return x.getInt() * 2;
+            }
+        };
+        x.setInt(4);
+        assertEquals(8, (int) doubled.get());
+        x.setInt(5);
+        assertEquals(10, (int) doubled.get());
+    }
+
+    @Test
+    public void testInterning() {
+        assertSame(IntEnsureBounds.between(1, 2), IntEnsureBounds.between(1, 2));
+        assertSame(IntRequireBounds.minimum(1, true), IntRequireBounds.minimum(1, true));
+        assertNotEquals(IntRequireBounds.minimum(1, true), IntRequireBounds.maximum(1, true));
+    }
+
+    @Test
+    public void testSetNull() {
+        IntPowerBox box = new CommonIntBox(BoxFamily.getInstance(PrimitiveBoxTest.class, "setNull"));
+        exception.expect(NullPointerException.class);
+        box.set(null);
+    }
+
+    @Test
+    public void testImpossibleBounds() {
+        exception.expect(IllegalArgumentException.class);
+        IntRequireBounds.between(5, true, 5, false);
+    }
+
+}
@@ -0,0 +1,109 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.CommonIntBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.middleware.symmetric.EnsureBounds;
+import alex.mojaki.boxes.observers.get.GetObserver;
+import alex.mojaki.boxes.observers.get.IntGetObserver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SampledGetTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static class Counter implements GetObserver<Object> {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void onGet(PowerBox<Object> box, Object originalValue, Object finalValue) {
+            count.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testOneIn() {
+        Counter counter = new Counter();
+        BoxFamily family = BoxFamily.getInstance(SampledGetTest.class, "oneIn")
+                .addGetObserver(counter)
+                .addGetMiddleware(EnsureBounds.maximum(5))
+                .sampleGetObservers(10);
+        PowerBox<Integer> box = new CommonBox<Integer>(family).set(100);
+        for (int i = 0; i < 1000; i++) {
+            // Middleware is still applied every time
+            assertEquals(5, (int) box.get());
+        }
+        assertEquals(100, counter.count.get());
+
+        family.sampleGetObservers(1);
+        box.get();
+        assertEquals(101, counter.count.get());
+    }
+
+    @Test
+    public void testPrimitive() {
+        final AtomicInteger count = new AtomicInteger();
+        CommonIntBox box = new CommonIntBox(SampledGetTest.class, "primitive");
+        box.addGetObserver(new IntGetObserver() {
+            @Override
+            public void onGet(PowerBox<Integer> box, int originalValue, int finalValue) {
+                count.incrementAndGet();
+            }
+        });
+        box.getFamily().sampleGetObservers(4);
+        for (int i = 0; i < 400; i++) {
+            box.getInt();
+        }
+        assertEquals(100, count.get());
+    }
+
+    @Test
+    public void testPerThread() throws InterruptedException {
+        final Counter counter = new Counter();
+        final PowerBox<Integer> box = new CommonBox<Integer>(SampledGetTest.class, "threads").addGetObserver(counter);
+        box.getFamily().sampleGetObservers(100);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        box.get();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400, counter.count.get());
+    }
+
+    @Test
+    public void testPerSecond() {
+        Counter counter = new Counter();
+        PowerBox<Integer> box = new CommonBox<Integer>(SampledGetTest.class, "perSecond").addGetObserver(counter);
+        box.getFamily().sampleGetObserversPerSecond(0.001);
+        for (int i = 0; i < 1000; i++) {
+            box.get();
+        }
+        // The first get on a thread is sampled, then no more for 1000 seconds
+        assertEquals(1, counter.count.get());
+    }
+
+    @Test
+    public void testInvalidPeriod() {
+        exception.expect(IllegalArgumentException.class);
+        BoxFamily.getInstance(SampledGetTest.class, "invalid").sampleGetObservers(0);
+    }
+
+}
@@ -0,0 +1,135 @@
+package alex.mojaki.boxes.test;
+
+import alex.mojaki.boxes.CommonBox;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.exceptions.BoxParticipantException;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import alex.mojaki.boxes.observers.change.RequireBounds;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ViewPropagationTest {
+
+    private static class Diamond {
+        final AtomicInteger dCalculations = new AtomicInteger();
+        final List<String> dInputs = new ArrayList<String>();
+        final List<Integer> dChanges = new ArrayList<Integer>();
+
+        final PowerBox<Integer> a;
+        final View<Integer> b;
+        final View<Integer> c;
+        final View<Integer> d;
+
+        Diamond(String name) {
+            a = new CommonBox<Integer>(ViewPropagationTest.class, name + "A").set(1);
+            b = new View<Integer>(ViewPropagationTest.class, name + "B", a) {
+                @Override
+                public Integer calculate() {
+                    return a.get() + 1;
+                }
+            };
+            c = new View<Integer>(ViewPropagationTest.class, name + "C", a) {
+                @Override
+                public Integer calculate() {
+                    return a.get() * 10;
+                }
+            };
+            d = new View<Integer>(ViewPropagationTest.class, name + "D", b, c) {
+                @Override
+                public Integer calculate() {
+                    dCalculations.incrementAndGet();
+                    dInputs.add(b.get() + " " + c.get());
+                    return b.get() + c.get();
+                }
+            };
+            d.addChangeObserver(new ChangeObserver<Integer>() {
+                @Override
+                public void onChange(PowerBox<Integer> box, Integer originalValue, Integer finalValue, Integer requestedValue) {
+                    dChanges.add(finalValue);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testDiamond() {
+        Diamond diamond = new Diamond("diamond");
+        assertEquals(12, (int) diamond.d.get());
+        diamond.dInputs.clear();
+        diamond.dCalculations.set(0);
+
+        diamond.a.set(2);
+        diamond.a.set(3);
+        // Calculated once per change, and only ever with both inputs from the same value of a
+        assertEquals(2, diamond.dCalculations.get());
+        assertEquals(Arrays.asList("3 20", "4 30"), diamond.dInputs);
+        assertEquals(Arrays.asList(23, 34), diamond.dChanges);
+        assertEquals(34, (int) diamond.d.get());
+        assertEquals(2, diamond.dCalculations.get());
+    }
+
+    @Test
+    public void testFailureInvalidatesViews() {
+        Diamond diamond = new Diamond("failing");
+        diamond.d.addChangeObserver(RequireBounds.maximum(30, true));
+        diamond.a.set(2);
+        try {
+            diamond.a.set(5);
+            fail();
+        } catch (BoxParticipantException ignored) {
+        }
+        assertEquals(2, (int) diamond.a.get());
+        assertEquals(3, (int) diamond.b.get());
+        assertEquals(20, (int) diamond.c.get());
+        assertEquals(23, (int) diamond.d.get());
+        diamond.dChanges.clear();
+        diamond.a.set(1);
+        assertEquals(Arrays.asList(12), diamond.dChanges);
+    }
+
+    @Test
+    public void testRankRaisedLater() {
+        final PowerBox<Integer> a = new CommonBox<Integer>(ViewPropagationTest.class, "lateA").set(1);
+        final PowerBox<Integer> other = new CommonBox<Integer>(ViewPropagationTest.class, "lateOther").set(0);
+        final View<Integer> b = new View<Integer>(ViewPropagationTest.class, "lateB", other) {
+            @Override
+            public Integer calculate() {
+                return a.get() * 2;
+            }
+        };
+        final List<String> inputs = new ArrayList<String>();
+        final View<Integer> d = new View<Integer>(ViewPropagationTest.class, "lateD", a, b) {
+            @Override
+            public Integer calculate() {
+                inputs.add(a.get() + " " + b.get());
+                return a.get() + b.get();
+            }
+        };
+        d.addChangeObserver(RequireBounds.maximum(100, true));
+        final View<Integer> first = new View<Integer>(ViewPropagationTest.class, "lateFirst", a) {
+            @Override
+            public Integer calculate() {
+                return a.get();
+            }
+        };
+        final View<Integer> second = new View<Integer>(ViewPropagationTest.class, "lateSecond", first) {
+            @Override
+            public Integer calculate() {
+                return first.get();
+            }
+        };
+        // b now depends on a chain of views, so it and d must be ranked above them
+        b.addBoxes(second);
+        inputs.clear();
+        a.set(5);
+        assertEquals(Arrays.asList("5 10"), inputs);
+    }
+
+}
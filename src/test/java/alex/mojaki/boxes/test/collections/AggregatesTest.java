@@ -0,0 +1,244 @@
+package alex.mojaki.boxes.test.collections;
+
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.collections.AggregateView;
+import alex.mojaki.boxes.collections.Aggregates;
+import alex.mojaki.boxes.collections.ElementObserver;
+import alex.mojaki.boxes.collections.ElementSource;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.collections.MapBox;
+import alex.mojaki.boxes.collections.SetBox;
+import com.google.common.collect.Ordering;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ListIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AggregatesTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private ListBox<Double> numbers(String name, Double... values) {
+        return new ListBox<Double>(AggregatesTest.class, name).set(new ArrayList<Double>(Arrays.asList(values)));
+    }
+
+    @Test
+    public void testListAggregates() {
+        ListBox<Double> list = numbers("list", 1.0, 2.0, 3.0);
+        View<Double> sum = Aggregates.sum(AggregatesTest.class, "listSum", list);
+        View<Integer> count = Aggregates.count(AggregatesTest.class, "listCount", list);
+        View<Double> average = Aggregates.average(AggregatesTest.class, "listAverage", list);
+        View<Double> min = Aggregates.min(AggregatesTest.class, "listMin", list);
+        View<Double> max = Aggregates.max(AggregatesTest.class, "listMax", list);
+        assertEquals(6.0, sum.get(), 0);
+        assertEquals(3, count.get().intValue());
+        assertEquals(2.0, average.get(), 0);
+        assertEquals(1.0, min.get(), 0);
+        assertEquals(3.0, max.get(), 0);
+
+        list.add(10.0);
+        list.remove(1.0);
+        list.set(0, -5.0);
+        assertEquals(8.0, sum.get(), 0);
+        assertEquals(3, count.get().intValue());
+        assertEquals(-5.0, min.get(), 0);
+        assertEquals(10.0, max.get(), 0);
+
+        list.subList(1, 3).clear();
+        assertEquals(-5.0, sum.get(), 0);
+        assertEquals(-5.0, max.get(), 0);
+
+        ListIterator<Double> iterator = list.listIterator();
+        iterator.next();
+        iterator.set(7.0);
+        iterator.add(7.0);
+        assertEquals(14.0, sum.get(), 0);
+        assertEquals(7.0, average.get(), 0);
+
+        list.clear();
+        assertEquals(0.0, sum.get(), 0);
+        assertNull(average.get());
+        assertNull(min.get());
+
+        list.set(new ArrayList<Double>(Arrays.asList(4.0, 4.0)));
+        assertEquals(8.0, sum.get(), 0);
+        assertEquals(4.0, max.get(), 0);
+        list.remove(4.0);
+        assertEquals(4.0, max.get(), 0);
+    }
+
+    @Test
+    public void testComparatorEqualElements() {
+        // Equal to each other, but only the ones still in the list should be returned
+        String a1 = new String("a");
+        String a2 = new String("a");
+        ListBox<String> list = new ListBox<String>(AggregatesTest.class, "letters")
+                .set(new ArrayList<String>(Arrays.asList("b", a1, "A", a2)));
+        View<String> min = Aggregates.min(AggregatesTest.class, "lettersMin", list, String.CASE_INSENSITIVE_ORDER);
+        View<String> max = Aggregates.max(AggregatesTest.class, "lettersMax", list, String.CASE_INSENSITIVE_ORDER);
+        assertEquals("b", max.get());
+        assertSame(a2, min.get());
+
+        list.remove(1);
+        assertSame(a2, min.get());
+        list.remove(2);
+        assertEquals("A", min.get());
+        list.add(a1);
+        assertSame(a1, min.get());
+        list.remove(1);
+        assertSame(a1, min.get());
+        list.remove(1);
+        assertEquals("b", min.get());
+
+        list.add("B");
+        assertEquals("B", max.get());
+        list.remove(0);
+        assertEquals("B", max.get());
+        list.clear();
+        assertNull(max.get());
+    }
+
+    @Test
+    public void testDoesWorkProportionalToChange() {
+        final AtomicInteger added = new AtomicInteger();
+        ListBox<Double> list = numbers("work");
+        for (int i = 0; i < 1000; i++) {
+            list.add((double) i);
+        }
+        View<Integer> view = new AggregateView<Double, Integer>(AggregatesTest.class, "workCount", list) {
+            private int count;
+
+            @Override
+            protected void add(Double element) {
+                added.incrementAndGet();
+                count++;
+            }
+
+            @Override
+            protected void remove(Double element) {
+                count--;
+            }
+
+            @Override
+            protected void clear() {
+                count = 0;
+            }
+
+            @Override
+            protected Integer result() {
+                return count;
+            }
+        };
+        assertEquals(1000, view.get().intValue());
+        assertEquals(1000, added.get());
+        list.add(1.0);
+        list.addAll(Arrays.asList(2.0, 3.0));
+        assertEquals(1003, view.get().intValue());
+        assertEquals(1003, added.get());
+    }
+
+    @Test
+    public void testCompensatedSum() {
+        ListBox<Double> list = numbers("precise", 1e16, 1.0, -1e16);
+        View<Double> sum = Aggregates.sum(AggregatesTest.class, "preciseSum", list);
+        assertEquals(1.0, sum.get(), 0);
+        for (int i = 0; i < 1000; i++) {
+            list.add(0.1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            list.remove(0.1);
+        }
+        list.remove(1e16);
+        list.remove(-1e16);
+        assertEquals(1.0, sum.get(), 1e-12);
+    }
+
+    @Test
+    public void testSpecialValues() {
+        ListBox<Double> list = numbers("special", 1.0);
+        View<Double> sum = Aggregates.sum(AggregatesTest.class, "specialSum", list);
+        list.add(Double.POSITIVE_INFINITY);
+        assertEquals(Double.POSITIVE_INFINITY, sum.get(), 0);
+        list.add(Double.NEGATIVE_INFINITY);
+        assertTrue(sum.get().isNaN());
+        list.remove(Double.POSITIVE_INFINITY);
+        assertEquals(Double.NEGATIVE_INFINITY, sum.get(), 0);
+        list.remove(Double.NEGATIVE_INFINITY);
+        list.add(Double.NaN);
+        assertTrue(sum.get().isNaN());
+        list.remove(Double.NaN);
+        assertEquals(1.0, sum.get(), 0);
+    }
+
+    @Test
+    public void testSetAndMapAggregates() {
+        SetBox<String> set = new SetBox<String>(AggregatesTest.class, "set").set(new HashSet<String>());
+        View<String> longest = Aggregates.max(AggregatesTest.class, "longest", set, new Ordering<String>() {
+            @Override
+            public int compare(String left, String right) {
+                return left.length() - right.length();
+            }
+        });
+        View<Integer> count = Aggregates.count(AggregatesTest.class, "setCount", set);
+        assertNull(longest.get());
+        set.addAll(Arrays.asList("a", "bbb", "cc"));
+        set.add("a");
+        assertEquals("bbb", longest.get());
+        assertEquals(3, count.get().intValue());
+        set.retainAll(Arrays.asList("a", "cc"));
+        assertEquals("cc", longest.get());
+        assertEquals(2, count.get().intValue());
+
+        MapBox<String, Integer> map = new MapBox<String, Integer>(AggregatesTest.class, "map")
+                .set(new HashMap<String, Integer>());
+        View<Double> total = Aggregates.sum(AggregatesTest.class, "mapSum", map);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("a", 5);
+        assertEquals(7.0, total.get(), 0);
+        map.keySet().remove("b");
+        assertEquals(5.0, total.get(), 0);
+        map.remove("a");
+        assertEquals(0.0, total.get(), 0);
+    }
+
+    @Test
+    public void testViewsOfAggregates() {
+        ListBox<Double> list = numbers("dependency", 1.0, 2.0);
+        final View<Double> sum = Aggregates.sum(AggregatesTest.class, "dependencySum", list);
+        View<String> description = new View<String>(AggregatesTest.class, "description", sum) {
+            @Override
+            public String calculate() {
+                return "Total: " + sum.get();
+            }
+        };
+        assertEquals("Total: 3.0", description.get());
+        list.add(4.0);
+        assertEquals("Total: 7.0", description.get());
+    }
+
+    @Test
+    public void testSourceMustBeBox() {
+        thrown.expect(IllegalArgumentException.class);
+        Aggregates.count(AggregatesTest.class, "notBox", new ElementSource<Object>() {
+            @Override
+            public void addElementObserver(ElementObserver<? super Object> observer) {
+            }
+
+            @Override
+            public Iterable<Object> elements() {
+                return new ArrayList<Object>();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,289 @@
+package alex.mojaki.boxes.test.collections;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.View;
+import alex.mojaki.boxes.collections.Aggregates;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.collections.ListDeltaObserver;
+import alex.mojaki.boxes.collections.MapBox;
+import alex.mojaki.boxes.collections.SetBox;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.collect.Ordering;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+public class BulkOperationsTest {
+
+    private int changes;
+
+    private final ChangeObserver changeCounter = new ChangeObserver() {
+        @Override
+        public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+            changes++;
+        }
+    };
+
+    private ListBox<Integer> list(String name, int size) {
+        List<Integer> elements = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            elements.add((i * 7919) % size);
+        }
+        return new ListBox<Integer>(BulkOperationsTest.class, name).set(elements).addChangeObserver(changeCounter);
+    }
+
+    private static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+        @Override
+        public boolean test(Integer integer) {
+            return integer % 2 == 0;
+        }
+    };
+
+    private static final UnaryOperator<Integer> DOUBLE = new UnaryOperator<Integer>() {
+        @Override
+        public Integer apply(Integer integer) {
+            return integer * 2;
+        }
+    };
+
+    private void assertSorted(List<Integer> list) {
+        assertTrue(Ordering.<Integer>natural().isOrdered(list));
+    }
+
+    @Test
+    public void testListOperationsNotifyOnce() {
+        ListBox<Integer> list = list("list", 10000);
+        list.sort(null);
+        assertSorted(list);
+        assertEquals(1, changes);
+
+        list.replaceAll(DOUBLE);
+        assertEquals(2, changes);
+        assertEquals(19998, list.get(9999).intValue());
+
+        list.parallelSort(Collections.<Integer>reverseOrder());
+        assertEquals(19998, list.get(0).intValue());
+        assertEquals(3, changes);
+
+        list.parallelSort(null);
+        assertSorted(list);
+        assertEquals(4, changes);
+
+        assertTrue(list.removeIf(new Predicate<Integer>() {
+            @Override
+            public boolean test(Integer integer) {
+                return integer % 4 == 0;
+            }
+        }));
+        assertEquals(5000, list.size());
+        assertEquals(5, changes);
+        assertFalse(list.removeIf(new Predicate<Integer>() {
+            @Override
+            public boolean test(Integer integer) {
+                return integer < 0;
+            }
+        }));
+        assertEquals(5, changes);
+    }
+
+    @Test
+    public void testViewRecalculatesOnce() {
+        final ListBox<Integer> list = list("viewed", 1000);
+        final int[] calculations = {0};
+        View<Integer> first = new View<Integer>(BulkOperationsTest.class, "first", list) {
+            @Override
+            public Integer calculate() {
+                calculations[0]++;
+                return list.isEmpty() ? null : list.get(0);
+            }
+        };
+        first.addChangeObserver(changeCounter);
+        assertEquals(0, first.get().intValue());
+        assertEquals(1, calculations[0]);
+        list.sort(Collections.<Integer>reverseOrder());
+        assertEquals(999, first.get().intValue());
+        assertEquals(2, calculations[0]);
+    }
+
+    @Test
+    public void testReportsDeltas() {
+        ListBox<Integer> list = new ListBox<Integer>(BulkOperationsTest.class, "deltas")
+                .set(new ArrayList<Integer>(Arrays.asList(3, 1, 2, 4)));
+        final List<String> events = new ArrayList<String>();
+        list.addDeltaObserver(new ListDeltaObserver<Integer>() {
+            @Override
+            public void onAdded(ListBox<? extends Integer> box, int index, List<? extends Integer> elements) {
+                events.add("added " + index + " " + elements);
+            }
+
+            @Override
+            public void onRemoved(ListBox<? extends Integer> box, int index, List<? extends Integer> elements) {
+                events.add("removed " + index + " " + elements);
+            }
+
+            @Override
+            public void onReplaced(ListBox<? extends Integer> box, int index, Integer oldElement, Integer newElement) {
+                events.add("replaced " + index + " " + oldElement + " " + newElement);
+            }
+
+            @Override
+            public void onCleared(ListBox<? extends Integer> box) {
+                events.add("cleared");
+            }
+        });
+        View<Double> sum = Aggregates.sum(BulkOperationsTest.class, "deltasSum", list);
+        assertEquals(10, sum.get(), 0);
+
+        list.subList(0, 3).sort(null);
+        list.removeIf(EVEN);
+        list.replaceAll(DOUBLE);
+        assertEquals(Arrays.asList(
+                "removed 0 [3, 1, 2]",
+                "added 0 [1, 2, 3]",
+                "removed 1 [2]",
+                "removed 2 [4]",
+                "replaced 0 1 2",
+                "replaced 1 3 6"
+        ), events);
+        assertEquals(8, sum.get(), 0);
+    }
+
+    @Test(timeout = 10000)
+    public void testLargeRemoveIfWithDeltaObserver() {
+        List<Integer> elements = new ArrayList<Integer>();
+        for (int i = 0; i < 200000; i++) {
+            elements.add(i);
+        }
+        ListBox<Integer> list = new ListBox<Integer>(BulkOperationsTest.class, "largeDeltas").set(elements);
+        final List<Integer> indices = new ArrayList<Integer>();
+        final List<List<? extends Integer>> runs = new ArrayList<List<? extends Integer>>();
+        list.addDeltaObserver(new ListDeltaObserver<Integer>() {
+            @Override
+            public void onAdded(ListBox<? extends Integer> box, int index, List<? extends Integer> elements) {
+                fail();
+            }
+
+            @Override
+            public void onRemoved(ListBox<? extends Integer> box, int index, List<? extends Integer> elements) {
+                // The list has already been compacted
+                assertEquals(100000, box.size());
+                indices.add(index);
+                runs.add(elements);
+            }
+
+            @Override
+            public void onReplaced(ListBox<? extends Integer> box, int index, Integer oldElement, Integer newElement) {
+                fail();
+            }
+
+            @Override
+            public void onCleared(ListBox<? extends Integer> box) {
+                fail();
+            }
+        });
+
+        // Removes runs of two adjacent elements out of every four, in one pass rather than shifting the rest each time
+        assertTrue(list.removeIf(new Predicate<Integer>() {
+            @Override
+            public boolean test(Integer integer) {
+                return integer % 4 < 2;
+            }
+        }));
+        assertEquals(100000, list.size());
+        assertEquals(Arrays.asList(2, 3, 6, 7), list.subList(0, 4));
+        assertEquals(50000, runs.size());
+        for (int j = 0; j < runs.size(); j++) {
+            assertEquals(2 * j, indices.get(j).intValue());
+            assertEquals(Arrays.asList(4 * j, 4 * j + 1), runs.get(j));
+        }
+    }
+
+    @Test
+    public void testSetRemoveIf() {
+        SetBox<Integer> set = new SetBox<Integer>(BulkOperationsTest.class, "set")
+                .set(new HashSet<Integer>(Arrays.asList(1, 2, 3, 4)))
+                .addChangeObserver(changeCounter);
+        View<Integer> count = Aggregates.count(BulkOperationsTest.class, "setCount", set);
+        assertTrue(set.removeIf(EVEN));
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 3)), set);
+        assertEquals(2, count.get().intValue());
+        assertEquals(1, changes);
+    }
+
+    @Test
+    public void testMapOperations() {
+        MapBox<String, Integer> map = new MapBox<String, Integer>(BulkOperationsTest.class, "map")
+                .set(new HashMap<String, Integer>())
+                .addChangeObserver(changeCounter);
+        for (int i = 0; i < 100; i++) {
+            map.put("k" + i, i);
+        }
+        View<Double> sum = Aggregates.sum(BulkOperationsTest.class, "mapSum", map);
+        assertEquals(4950, sum.get(), 0);
+        changes = 0;
+
+        map.replaceAll(new BiFunction<String, Integer, Integer>() {
+            @Override
+            public Integer apply(String key, Integer value) {
+                return value + 1;
+            }
+        });
+        assertEquals(1, changes);
+        assertEquals(5050, sum.get(), 0);
+
+        BiFunction<Integer, Integer, Integer> add = new BiFunction<Integer, Integer, Integer>() {
+            @Override
+            public Integer apply(Integer a, Integer b) {
+                return a + b;
+            }
+        };
+        assertEquals(11, map.merge("k0", 10, add).intValue());
+        assertEquals(5, map.merge("new", 5, add).intValue());
+        assertEquals(3, changes);
+
+        Function<String, Integer> length = new Function<String, Integer>() {
+            @Override
+            public Integer apply(String key) {
+                return key.length();
+            }
+        };
+        assertEquals(5, map.computeIfAbsent("new", length).intValue());
+        assertEquals(3, changes);
+        assertEquals(7, map.computeIfAbsent("absent!", length).intValue());
+        assertEquals(4, changes);
+
+        BiFunction<String, Integer, Integer> remove = new BiFunction<String, Integer, Integer>() {
+            @Override
+            public Integer apply(String key, Integer value) {
+                return null;
+            }
+        };
+        assertNull(map.computeIfPresent("absent!", remove));
+        assertNull(map.compute("new", remove));
+        assertNull(map.compute("missing", remove));
+        assertFalse(map.containsKey("absent!"));
+        assertFalse(map.containsKey("new"));
+        assertEquals(6, changes);
+        assertEquals(5060, sum.get(), 0);
+
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (int i = 0; i < 100; i++) {
+            expected.put("k" + i, i + 1);
+        }
+        expected.put("k0", 11);
+        assertEquals(expected, map);
+    }
+
+}
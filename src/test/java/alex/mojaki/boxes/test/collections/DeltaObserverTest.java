@@ -0,0 +1,411 @@
+package alex.mojaki.boxes.test.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.collections.ListDeltaObserver;
+import alex.mojaki.boxes.collections.MapBox;
+import alex.mojaki.boxes.collections.MapDeltaObserver;
+import alex.mojaki.boxes.collections.SetBox;
+import alex.mojaki.boxes.collections.SetDeltaObserver;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.SetTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringListGenerator;
+import com.google.common.collect.testing.TestStringSetGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.ListFeature;
+import com.google.common.collect.testing.features.SetFeature;
+import junit.framework.TestSuite;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.*;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+        DeltaObserverTest.ListBoxSuite.class,
+        DeltaObserverTest.SetBoxSuite.class,
+        DeltaObserverTest.Deltas.class
+})
+public class DeltaObserverTest {
+
+    /**
+     * Applies the changes reported to it to a copy of a box.
+     */
+    private interface Mirror {
+        void verify();
+    }
+
+    private static class ListMirror<E> implements ListDeltaObserver<E>, Mirror {
+        private final ListBox<E> box;
+        private final List<E> copy;
+        private final List<String> events = new ArrayList<String>();
+
+        ListMirror(ListBox<E> box) {
+            this.box = box;
+            copy = new ArrayList<E>(box);
+            box.addDeltaObserver(this);
+        }
+
+        @Override
+        public void onAdded(ListBox<? extends E> box, int index, List<? extends E> elements) {
+            assertSame(this.box, box);
+            copy.addAll(index, elements);
+            events.add("added " + index + " " + elements);
+        }
+
+        @Override
+        public void onRemoved(ListBox<? extends E> box, int index, List<? extends E> elements) {
+            assertSame(this.box, box);
+            List<E> removed = copy.subList(index, index + elements.size());
+            assertEquals(elements, removed);
+            removed.clear();
+            events.add("removed " + index + " " + elements);
+        }
+
+        @Override
+        public void onReplaced(ListBox<? extends E> box, int index, E oldElement, E newElement) {
+            assertSame(this.box, box);
+            assertEquals(oldElement, copy.set(index, newElement));
+            events.add("replaced " + index + " " + oldElement + " " + newElement);
+        }
+
+        @Override
+        public void onCleared(ListBox<? extends E> box) {
+            assertSame(this.box, box);
+            copy.clear();
+            events.add("cleared");
+        }
+
+        @Override
+        public void verify() {
+            assertEquals(box, copy);
+        }
+    }
+
+    private static class SetMirror<E> implements SetDeltaObserver<E>, Mirror {
+        private final SetBox<E> box;
+        private final Set<E> copy;
+
+        SetMirror(SetBox<E> box) {
+            this.box = box;
+            copy = new HashSet<E>(box);
+            box.addDeltaObserver(this);
+        }
+
+        @Override
+        public void onAdded(SetBox<? extends E> box, Collection<? extends E> elements) {
+            assertSame(this.box, box);
+            for (E element : elements) {
+                assertTrue(copy.add(element));
+            }
+        }
+
+        @Override
+        public void onRemoved(SetBox<? extends E> box, Collection<? extends E> elements) {
+            assertSame(this.box, box);
+            for (E element : elements) {
+                assertTrue(copy.remove(element));
+            }
+        }
+
+        @Override
+        public void onCleared(SetBox<? extends E> box) {
+            assertSame(this.box, box);
+            copy.clear();
+        }
+
+        @Override
+        public void verify() {
+            assertEquals(box, copy);
+        }
+    }
+
+    private static class MapMirror<K, V> implements MapDeltaObserver<K, V>, Mirror {
+        private final MapBox<K, V> box;
+        private final Map<K, V> copy;
+        private final List<String> events = new ArrayList<String>();
+
+        MapMirror(MapBox<K, V> box) {
+            this.box = box;
+            copy = new HashMap<K, V>(box);
+            box.addDeltaObserver(this);
+        }
+
+        @Override
+        public void onAdded(MapBox<? extends K, ? extends V> box, K key, V value) {
+            assertFalse(copy.containsKey(key));
+            copy.put(key, value);
+            events.add("added " + key + "=" + value);
+        }
+
+        @Override
+        public void onReplaced(MapBox<? extends K, ? extends V> box, K key, V oldValue, V newValue) {
+            assertEquals(oldValue, copy.put(key, newValue));
+            events.add("replaced " + key + "=" + oldValue + " " + newValue);
+        }
+
+        @Override
+        public void onRemoved(MapBox<? extends K, ? extends V> box, K key, V value) {
+            assertEquals(value, copy.remove(key));
+            events.add("removed " + key + "=" + value);
+        }
+
+        @Override
+        public void onCleared(MapBox<? extends K, ? extends V> box) {
+            copy.clear();
+            events.add("cleared");
+        }
+
+        @Override
+        public void verify() {
+            assertEquals(box, copy);
+        }
+    }
+
+    private static final ConcurrentMap<PowerBox, Mirror> MIRRORS = new MapMaker().weakKeys().makeMap();
+
+    private static final ChangeObserver VERIFIER = new ChangeObserver() {
+        @Override
+        public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+            Mirror mirror = MIRRORS.get(box);
+            if (mirror != null) {
+                mirror.verify();
+            }
+        }
+    };
+
+    public static class ListBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            final BoxFamily family = BoxFamily.getInstance(DeltaObserverTest.class, "list").addChangeObserver(VERIFIER);
+            return ListTestSuiteBuilder
+                    .using(new TestStringListGenerator() {
+                        @Override
+                        protected List<String> create(String[] elements) {
+                            ListBox<String> inner = new ListBox<String>(DeltaObserverTest.class, "innerList");
+                            inner.set(new ArrayList<String>(Arrays.asList(elements)));
+                            ListBox<String> outer = new ListBox<String>(family);
+                            outer.set(inner);
+                            MIRRORS.put(outer, new ListMirror<String>(outer));
+                            return outer;
+                        }
+                    })
+                    .named("ListBox with delta observer")
+                    .withFeatures(
+                            CollectionFeature.ALLOWS_NULL_QUERIES,
+                            CollectionFeature.ALLOWS_NULL_VALUES,
+                            CollectionFeature.GENERAL_PURPOSE,
+                            CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                            CollectionFeature.SUPPORTS_ADD,
+                            CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                            CollectionFeature.SUPPORTS_REMOVE,
+                            CollectionSize.ANY,
+                            ListFeature.GENERAL_PURPOSE
+                    ).createTestSuite();
+        }
+    }
+
+    public static class SetBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            final BoxFamily family = BoxFamily.getInstance(DeltaObserverTest.class, "set").addChangeObserver(VERIFIER);
+            return SetTestSuiteBuilder
+                    .using(new TestStringSetGenerator() {
+                        @Override
+                        protected Set<String> create(String[] elements) {
+                            SetBox<String> inner = new SetBox<String>(DeltaObserverTest.class, "innerSet");
+                            inner.set(new HashSet<String>(Arrays.asList(elements)));
+                            SetBox<String> outer = new SetBox<String>(family);
+                            outer.set(inner);
+                            MIRRORS.put(outer, new SetMirror<String>(outer));
+                            return outer;
+                        }
+                    })
+                    .named("SetBox with delta observer")
+                    .withFeatures(
+                            CollectionFeature.ALLOWS_NULL_QUERIES,
+                            CollectionFeature.ALLOWS_NULL_VALUES,
+                            CollectionFeature.GENERAL_PURPOSE,
+                            CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                            CollectionFeature.SUPPORTS_ADD,
+                            CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                            CollectionFeature.SUPPORTS_REMOVE,
+                            CollectionSize.ANY,
+                            SetFeature.GENERAL_PURPOSE
+                    ).createTestSuite();
+        }
+    }
+
+    public static class Deltas {
+
+        @Test
+        public void testListDeltas() {
+            ListBox<String> list = new ListBox<String>(DeltaObserverTest.class, "deltaList").init();
+            ListMirror<String> mirror = new ListMirror<String>(list);
+            list.addAll(Arrays.asList("a", "b", "c", "d", "e"));
+            list.add(1, "x");
+            list.set(0, "y");
+            list.removeAll(Arrays.asList("x", "b", "d"));
+            list.subList(1, 3).clear();
+            ListIterator<String> iterator = list.listIterator(1);
+            iterator.previous();
+            iterator.remove();
+            list.set(new ArrayList<String>(Arrays.asList("p", "q")));
+            list.clear();
+            assertEquals(Arrays.asList(
+                    "added 0 [a, b, c, d, e]",
+                    "added 1 [x]",
+                    "replaced 0 a y",
+                    "removed 1 [x, b]",
+                    "removed 2 [d]",
+                    "removed 1 [c, e]",
+                    "removed 0 [y]",
+                    "cleared",
+                    "added 0 [p, q]",
+                    "cleared"
+            ), mirror.events);
+            assertTrue(list.isEmpty());
+            mirror.verify();
+        }
+
+        @Test
+        public void testSetRemoveReportsStoredElement() {
+            final List<Object> removed = new ArrayList<Object>();
+            SetDeltaObserver<String> observer = new SetDeltaObserver<String>() {
+                @Override
+                public void onAdded(SetBox<? extends String> box, Collection<? extends String> elements) {
+                }
+
+                @Override
+                public void onRemoved(SetBox<? extends String> box, Collection<? extends String> elements) {
+                    removed.addAll(elements);
+                }
+
+                @Override
+                public void onCleared(SetBox<? extends String> box) {
+                }
+            };
+
+            String stored = new String("a");
+            SetBox<String> hashSet = new SetBox<String>(DeltaObserverTest.class, "storedHashSet")
+                    .set(new HashSet<String>(Arrays.asList(stored, "b")));
+            hashSet.addDeltaObserver(observer);
+            assertTrue(hashSet.remove(new String("a")));
+            assertFalse(hashSet.remove("missing"));
+            assertSame(stored, removed.get(0));
+
+            // Equal according to the comparator but not equals
+            TreeSet<String> treeSet = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+            treeSet.addAll(Arrays.asList("A", "b"));
+            SetBox<String> sortedSet = new SetBox<String>(DeltaObserverTest.class, "storedSortedSet").set(treeSet);
+            sortedSet.addDeltaObserver(observer);
+            assertTrue(sortedSet.remove("a"));
+            assertFalse(sortedSet.remove("a"));
+            assertEquals(Arrays.<Object>asList(stored, "A"), removed);
+            assertEquals(Collections.singleton("b"), sortedSet);
+        }
+
+        @Test
+        public void testNestedSubLists() {
+            ListBox<Integer> list = new ListBox<Integer>(DeltaObserverTest.class, "nestedList")
+                    .set(new ArrayList<Integer>(Arrays.asList(0, 1, 2, 3, 4, 5, 6)));
+            ListMirror<Integer> mirror = new ListMirror<Integer>(list);
+            List<Integer> subList = list.subList(2, 6).subList(1, 3);
+            subList.set(0, 30);
+            subList.add(1, 35);
+            subList.remove(Integer.valueOf(4));
+            assertEquals(Arrays.asList(
+                    "replaced 3 3 30",
+                    "added 4 [35]",
+                    "removed 5 [4]"
+            ), mirror.events);
+            mirror.verify();
+        }
+
+        @Test
+        public void testMapDeltas() {
+            MapBox<String, Integer> map = new MapBox<String, Integer>(DeltaObserverTest.class, "deltaMap").init();
+            MapMirror<String, Integer> mirror = new MapMirror<String, Integer>(map);
+            map.put("a", 1);
+            map.put("a", 2);
+            map.put("b", null);
+            map.put("b", 3);
+            map.remove("a");
+            map.remove("missing");
+            for (Map.Entry<String, Integer> entry : map.entrySet()) {
+                entry.setValue(4);
+            }
+            map.clear();
+            assertEquals(Arrays.asList(
+                    "added a=1",
+                    "replaced a=1 2",
+                    "added b=null",
+                    "replaced b=null 3",
+                    "removed a=2",
+                    "replaced b=3 4",
+                    "cleared"
+            ), mirror.events);
+
+            map.put("c", 5);
+            map.keySet().remove("c");
+            mirror.verify();
+            assertTrue(mirror.copy.isEmpty());
+        }
+
+        @Test
+        public void testSetDeltas() {
+            SetBox<String> set = new SetBox<String>(DeltaObserverTest.class, "deltaSet").init();
+            final List<Integer> sizes = new ArrayList<Integer>();
+            set.addDeltaObserver(new SetDeltaObserver<Object>() {
+                @Override
+                public void onAdded(SetBox<?> box, Collection<?> elements) {
+                    sizes.add(elements.size());
+                }
+
+                @Override
+                public void onRemoved(SetBox<?> box, Collection<?> elements) {
+                    sizes.add(-elements.size());
+                }
+
+                @Override
+                public void onCleared(SetBox<?> box) {
+                    sizes.add(0);
+                }
+            });
+            set.addAll(Arrays.asList("a", "b", "c"));
+            set.addAll(Arrays.asList("a", "b"));
+            set.retainAll(Arrays.asList("a"));
+            set.clear();
+            assertEquals(Arrays.asList(3, -2, 0), sizes);
+        }
+    }
+
+}
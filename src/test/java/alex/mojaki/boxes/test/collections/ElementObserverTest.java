@@ -0,0 +1,243 @@
+package alex.mojaki.boxes.test.collections;
+
+import alex.mojaki.boxes.BoxFamily;
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.WrapperBox;
+import alex.mojaki.boxes.collections.ElementObserver;
+import alex.mojaki.boxes.collections.ElementSource;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.collections.MapBox;
+import alex.mojaki.boxes.collections.SetBox;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.SetTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringListGenerator;
+import com.google.common.collect.testing.TestStringSetGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.ListFeature;
+import com.google.common.collect.testing.features.SetFeature;
+import junit.framework.TestSuite;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.*;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+        ElementObserverTest.ListBoxSuite.class,
+        ElementObserverTest.SetBoxSuite.class,
+        ElementObserverTest.MapBoxElements.class
+})
+public class ElementObserverTest {
+
+    /**
+     * Keeps a copy of the elements of a box using only the elements reported to it.
+     */
+    private static class Mirror<E> implements ElementObserver<E> {
+        private final ElementSource<E> source;
+        private final Multiset<E> elements = HashMultiset.create();
+        private int resets;
+
+        Mirror(ElementSource<E> source) {
+            this.source = source;
+            reset();
+            source.addElementObserver(this);
+        }
+
+        private void reset() {
+            elements.clear();
+            if (!((WrapperBox) source).isNull()) {
+                for (E element : source.elements()) {
+                    elements.add(element);
+                }
+            }
+        }
+
+        @Override
+        public void onAdd(WrapperBox<?> box, E element) {
+            assertSame(source, box);
+            elements.add(element);
+        }
+
+        @Override
+        public void onRemove(WrapperBox<?> box, E element) {
+            assertSame(source, box);
+            assertTrue("Removed an element that wasn't there: " + element, elements.remove(element));
+        }
+
+        @Override
+        public void onReset(WrapperBox<?> box) {
+            assertSame(source, box);
+            resets++;
+            reset();
+        }
+
+        void verify() {
+            assertEquals(HashMultiset.create(source.elements()), elements);
+        }
+    }
+
+    private static final ConcurrentMap<PowerBox, Mirror> MIRRORS = new MapMaker().weakKeys().makeMap();
+
+    private static final ChangeObserver VERIFIER = new ChangeObserver() {
+        @Override
+        public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+            Mirror mirror = MIRRORS.get(box);
+            if (mirror != null) {
+                mirror.verify();
+            }
+        }
+    };
+
+    private static <E> Mirror<E> mirror(ElementSource<E> source) {
+        Mirror<E> mirror = new Mirror<E>(source);
+        MIRRORS.put((PowerBox) source, mirror);
+        return mirror;
+    }
+
+    public static class ListBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            final BoxFamily family = BoxFamily.getInstance(ElementObserverTest.class, "list").addChangeObserver(VERIFIER);
+            return ListTestSuiteBuilder
+                    .using(new TestStringListGenerator() {
+                        @Override
+                        protected List<String> create(String[] elements) {
+                            ListBox<String> inner = new ListBox<String>(ElementObserverTest.class, "innerList");
+                            inner.set(new ArrayList<String>(Arrays.asList(elements)));
+                            ListBox<String> outer = new ListBox<String>(family);
+                            outer.set(inner);
+                            mirror(outer);
+                            return outer;
+                        }
+                    })
+                    .named("ListBox with element observer")
+                    .withFeatures(
+                            CollectionFeature.ALLOWS_NULL_QUERIES,
+                            CollectionFeature.ALLOWS_NULL_VALUES,
+                            CollectionFeature.GENERAL_PURPOSE,
+                            CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                            CollectionFeature.SUPPORTS_ADD,
+                            CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                            CollectionFeature.SUPPORTS_REMOVE,
+                            CollectionSize.ANY,
+                            ListFeature.GENERAL_PURPOSE
+                    ).createTestSuite();
+        }
+    }
+
+    public static class SetBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            final BoxFamily family = BoxFamily.getInstance(ElementObserverTest.class, "set").addChangeObserver(VERIFIER);
+            return SetTestSuiteBuilder
+                    .using(new TestStringSetGenerator() {
+                        @Override
+                        protected Set<String> create(String[] elements) {
+                            SetBox<String> inner = new SetBox<String>(ElementObserverTest.class, "innerSet");
+                            inner.set(new HashSet<String>(Arrays.asList(elements)));
+                            SetBox<String> outer = new SetBox<String>(family);
+                            outer.set(inner);
+                            mirror(outer);
+                            return outer;
+                        }
+                    })
+                    .named("SetBox with element observer")
+                    .withFeatures(
+                            CollectionFeature.ALLOWS_NULL_QUERIES,
+                            CollectionFeature.ALLOWS_NULL_VALUES,
+                            CollectionFeature.GENERAL_PURPOSE,
+                            CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                            CollectionFeature.SUPPORTS_ADD,
+                            CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                            CollectionFeature.SUPPORTS_REMOVE,
+                            CollectionSize.ANY,
+                            SetFeature.GENERAL_PURPOSE
+                    ).createTestSuite();
+        }
+    }
+
+    public static class MapBoxElements {
+
+        private final MapBox<String, Integer> box = new MapBox<String, Integer>(ElementObserverTest.class, "map")
+                .set(new HashMap<String, Integer>());
+        private final Mirror<Integer> mirror = mirror(box);
+
+        @Test
+        public void testPutAndRemove() {
+            box.put("a", 1);
+            box.put("b", 2);
+            box.put("a", 3);
+            box.putAll(new HashMap<String, Integer>() {{
+                put("b", 2);
+                put("c", 4);
+            }});
+            mirror.verify();
+            assertEquals(0, mirror.resets);
+
+            box.remove("b");
+            box.remove("missing");
+            mirror.verify();
+            assertEquals(ImmutableMultiset.of(3, 4), mirror.elements);
+        }
+
+        @Test
+        public void testEntryViews() {
+            box.put("a", 1);
+            box.put("b", 2);
+            for (Map.Entry<String, Integer> entry : box.entrySet()) {
+                entry.setValue(entry.getValue() * 10);
+            }
+            mirror.verify();
+            assertEquals(0, mirror.resets);
+
+            Iterator<String> keys = box.keySet().iterator();
+            keys.next();
+            keys.remove();
+            mirror.verify();
+            assertEquals(1, mirror.resets);
+            assertEquals(1, mirror.elements.size());
+        }
+
+        @Test
+        public void testReset() {
+            box.put("a", 1);
+            box.clear();
+            assertEquals(1, mirror.resets);
+            assertTrue(mirror.elements.isEmpty());
+
+            box.set(new HashMap<String, Integer>() {{
+                put("x", 5);
+            }});
+            assertEquals(2, mirror.resets);
+            assertEquals(ImmutableMultiset.of(5), mirror.elements);
+        }
+    }
+
+}
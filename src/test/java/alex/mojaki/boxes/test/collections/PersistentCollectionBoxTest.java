@@ -0,0 +1,413 @@
+package alex.mojaki.boxes.test.collections;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.collections.ListDeltaObserver;
+import alex.mojaki.boxes.collections.MapBox;
+import alex.mojaki.boxes.collections.MapDeltaObserver;
+import alex.mojaki.boxes.collections.PersistentHashMap;
+import alex.mojaki.boxes.collections.PersistentHashSet;
+import alex.mojaki.boxes.collections.PersistentListBox;
+import alex.mojaki.boxes.collections.PersistentMapBox;
+import alex.mojaki.boxes.collections.PersistentSetBox;
+import alex.mojaki.boxes.collections.PersistentVector;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.MapTestSuiteBuilder;
+import com.google.common.collect.testing.SetTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringListGenerator;
+import com.google.common.collect.testing.TestStringMapGenerator;
+import com.google.common.collect.testing.TestStringSetGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.ListFeature;
+import com.google.common.collect.testing.features.MapFeature;
+import com.google.common.collect.testing.features.SetFeature;
+import junit.framework.TestSuite;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+        PersistentCollectionBoxTest.PersistentListBoxSuite.class,
+        PersistentCollectionBoxTest.PersistentMapBoxSuite.class,
+        PersistentCollectionBoxTest.PersistentSetBoxSuite.class,
+        PersistentCollectionBoxTest.PersistentOperations.class
+})
+public class PersistentCollectionBoxTest {
+
+    public static class PersistentListBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            return ListTestSuiteBuilder
+                    .using(new TestStringListGenerator() {
+
+                        @Override
+                        protected List<String> create(String[] elements) {
+                            return new PersistentListBox<String>(PersistentCollectionBoxTest.class, "list")
+                                    .set(Arrays.asList(elements));
+                        }
+                    })
+                    .named("PersistentListBox")
+                    .withFeatures(
+                            CollectionFeature.ALLOWS_NULL_VALUES,
+                            CollectionFeature.GENERAL_PURPOSE,
+                            CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                            CollectionFeature.SUPPORTS_ADD,
+                            CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                            CollectionFeature.SUPPORTS_REMOVE,
+                            CollectionSize.ANY,
+                            ListFeature.GENERAL_PURPOSE
+                    ).createTestSuite();
+        }
+    }
+
+    public static class PersistentMapBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            return MapTestSuiteBuilder
+                    .using(new TestStringMapGenerator() {
+
+                        @Override
+                        protected Map<String, String> create(Map.Entry<String, String>[] entries) {
+                            PersistentMapBox<String, String> box =
+                                    new PersistentMapBox<String, String>(PersistentCollectionBoxTest.class, "map")
+                                            .init();
+                            for (Map.Entry<String, String> entry : entries) {
+                                box.put(entry.getKey(), entry.getValue());
+                            }
+                            return box;
+                        }
+                    })
+                    .named("PersistentMapBox")
+                    // Iterators go through a snapshot, so they don't fail fast
+                    .withFeatures(
+                            CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                            CollectionFeature.SUPPORTS_REMOVE,
+                            CollectionSize.ANY,
+                            MapFeature.ALLOWS_ANY_NULL_QUERIES,
+                            MapFeature.ALLOWS_NULL_KEYS,
+                            MapFeature.ALLOWS_NULL_VALUES,
+                            MapFeature.GENERAL_PURPOSE,
+                            MapFeature.SUPPORTS_PUT,
+                            MapFeature.SUPPORTS_REMOVE
+                    ).createTestSuite();
+        }
+    }
+
+    public static class PersistentSetBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            return SetTestSuiteBuilder
+                    .using(new TestStringSetGenerator() {
+
+                        @Override
+                        protected Set<String> create(String[] elements) {
+                            return new PersistentSetBox<String>(PersistentCollectionBoxTest.class, "set")
+                                    .set(new HashSet<String>(Arrays.asList(elements)));
+                        }
+                    })
+                    .named("PersistentSetBox")
+                    .withFeatures(
+                            CollectionFeature.ALLOWS_NULL_VALUES,
+                            CollectionFeature.GENERAL_PURPOSE,
+                            CollectionFeature.SUPPORTS_ADD,
+                            CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                            CollectionFeature.SUPPORTS_REMOVE,
+                            CollectionSize.ANY,
+                            SetFeature.GENERAL_PURPOSE
+                    ).createTestSuite();
+        }
+    }
+
+    /**
+     * A key whose hash code is chosen by the test, to force collisions.
+     */
+    private static final class Key {
+        private final String name;
+        private final int hash;
+
+        Key(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static class PersistentOperations {
+
+        @Rule
+        public ExpectedException thrown = ExpectedException.none();
+
+        @Test
+        public void testVectorAcrossLevels() {
+            List<Integer> expected = new ArrayList<Integer>();
+            PersistentVector<Integer> vector = PersistentVector.empty();
+            List<PersistentVector<Integer>> versions = new ArrayList<PersistentVector<Integer>>();
+            for (int i = 0; i < 40000; i++) {
+                vector = vector.plus(i);
+                expected.add(i);
+                if (i == 31 || i == 1055 || i == 33823) {
+                    versions.add(vector);
+                }
+            }
+            assertEquals(expected, vector);
+            assertEquals(expected, PersistentVector.copyOf(expected));
+            assertEquals(32, versions.get(0).size());
+            assertEquals(expected.subList(0, 1056), versions.get(1));
+
+            for (int i = 0; i < expected.size(); i += 997) {
+                vector = vector.with(i, -i);
+                expected.set(i, -i);
+            }
+            assertEquals(expected, vector);
+            // Older versions don't see the changes
+            PersistentVector<Integer> old = versions.get(2);
+            assertEquals(33824, old.size());
+            for (int i = 0; i < old.size(); i++) {
+                assertEquals(i, old.get(i).intValue());
+            }
+
+            while (!vector.isEmpty()) {
+                vector = vector.minusLast();
+                expected.remove(expected.size() - 1);
+                if (expected.size() % 1000 == 0 || expected.size() < 40) {
+                    assertEquals(expected, vector);
+                }
+            }
+            assertSame(PersistentVector.empty(), vector);
+            assertEquals(expected.subList(0, 0), vector);
+            thrown.expect(NoSuchElementException.class);
+            vector.minusLast();
+        }
+
+        @Test
+        public void testMapCollisions() {
+            Map<Key, Integer> expected = new HashMap<Key, Integer>();
+            PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+            for (int i = 0; i < 2000; i++) {
+                Key key = new Key("k" + i, i % 7);
+                map = map.plus(key, i);
+                expected.put(key, i);
+            }
+            map = map.plus(null, -1);
+            expected.put(null, -1);
+            PersistentHashMap<Key, Integer> full = map;
+            assertEquals(expected, map);
+            assertEquals(expected.hashCode(), map.hashCode());
+            assertSame(map, map.plus(new Key("k3", 3), 3));
+            assertSame(map, map.minus(new Key("missing", 3)));
+
+            for (int i = 0; i < 2000; i += 2) {
+                Key key = new Key("k" + i, i % 7);
+                map = map.minus(key);
+                expected.remove(key);
+            }
+            map = map.minus(null);
+            expected.remove(null);
+            assertEquals(expected, map);
+            assertEquals(2001, full.size());
+            assertEquals(-1, full.get(null).intValue());
+            assertEquals(4, full.get(new Key("k4", 4)).intValue());
+            assertEquals(PersistentHashMap.copyOf(expected), map);
+        }
+
+        @Test
+        public void testSnapshots() {
+            PersistentListBox<String> list = new PersistentListBox<String>(PersistentCollectionBoxTest.class,
+                    "snapshotList").set(new ArrayList<String>(Arrays.asList("a", "b")));
+            PersistentVector<String> listSnapshot = list.snapshot();
+            list.add("c");
+            list.add(0, "z");
+            list.set(1, "y");
+            list.remove("b");
+            assertEquals(Arrays.asList("a", "b"), listSnapshot);
+            assertEquals(Arrays.asList("z", "y", "c"), list.snapshot());
+            assertNotSame(listSnapshot, list.snapshot());
+
+            PersistentMapBox<String, Integer> map = new PersistentMapBox<String, Integer>(
+                    PersistentCollectionBoxTest.class, "snapshotMap").init();
+            map.put("a", 1);
+            PersistentHashMap<String, Integer> mapSnapshot = map.snapshot();
+            map.put("a", 2);
+            map.put("b", 3);
+            assertEquals(1, mapSnapshot.size());
+            assertEquals(1, mapSnapshot.get("a").intValue());
+            assertEquals(2, map.snapshot().get("a").intValue());
+
+            PersistentSetBox<String> set = new PersistentSetBox<String>(PersistentCollectionBoxTest.class,
+                    "snapshotSet").init();
+            set.add("a");
+            PersistentHashSet<String> setSnapshot = set.snapshot();
+            set.add("b");
+            set.remove("a");
+            assertEquals(new HashSet<String>(Arrays.asList("a")), setSnapshot);
+            assertEquals(new HashSet<String>(Arrays.asList("b")), set.snapshot());
+            assertSame(set.snapshot(), set.snapshot());
+
+            thrown.expect(UnsupportedOperationException.class);
+            listSnapshot.add("d");
+        }
+
+        @Test(timeout = 10000)
+        public void testLargeBulkOperations() {
+            // Each of these rebuilds the vector once, so they finish quickly rather than copying it per element
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < 100000; i++) {
+                expected.add(i);
+            }
+            PersistentListBox<Integer> list = new PersistentListBox<Integer>(PersistentCollectionBoxTest.class,
+                    "largeList").set(expected);
+            PersistentVector<Integer> snapshot = list.snapshot();
+
+            assertTrue(list.removeIf(new Predicate<Integer>() {
+                @Override
+                public boolean test(Integer i) {
+                    return i % 2 == 0;
+                }
+            }));
+            assertEquals(50000, list.size());
+            assertEquals(1, list.get(0).intValue());
+            assertEquals(99999, list.get(49999).intValue());
+
+            assertTrue(list.addAll(1, expected.subList(0, 50000)));
+            assertEquals(100000, list.size());
+            assertEquals(Arrays.asList(1, 0, 1), list.subList(0, 3));
+            assertEquals(3, list.get(50001).intValue());
+
+            assertTrue(list.removeAll(new HashSet<Integer>(expected.subList(0, 50000))));
+            assertEquals(25000, list.size());
+            assertEquals(50001, list.get(0).intValue());
+
+            assertTrue(list.retainAll(new HashSet<Integer>(expected.subList(75000, 100000))));
+            assertEquals(12500, list.size());
+            assertEquals(75001, list.get(0).intValue());
+            assertFalse(list.retainAll(new HashSet<Integer>(list)));
+
+            assertEquals(expected, snapshot);
+        }
+
+        @Test
+        public void testObserversStillHearChanges() {
+            final List<String> events = new ArrayList<String>();
+            final int[] changes = new int[1];
+            PersistentListBox<Integer> list = new PersistentListBox<Integer>(PersistentCollectionBoxTest.class,
+                    "observedList").init();
+            list.addChangeObserver(new ChangeObserver() {
+                @Override
+                public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+                    changes[0]++;
+                }
+            });
+            list.addDeltaObserver(new ListDeltaObserver<Object>() {
+                @Override
+                public void onAdded(ListBox<?> box, int index, List<?> elements) {
+                    events.add("added " + index + " " + elements);
+                }
+
+                @Override
+                public void onRemoved(ListBox<?> box, int index, List<?> elements) {
+                    events.add("removed " + index + " " + elements);
+                }
+
+                @Override
+                public void onReplaced(ListBox<?> box, int index, Object oldElement, Object newElement) {
+                    events.add("replaced " + index + " " + oldElement + " " + newElement);
+                }
+
+                @Override
+                public void onCleared(ListBox<?> box) {
+                    events.add("cleared");
+                }
+            });
+            list.addAll(Arrays.asList(3, 1, 2));
+            list.set(0, 4);
+            list.remove(1);
+            list.subList(0, 1).clear();
+            assertEquals(Arrays.asList(2), list.snapshot());
+            assertEquals(Arrays.asList(
+                    "added 0 [3, 1, 2]",
+                    "replaced 0 3 4",
+                    "removed 1 [1]",
+                    "removed 0 [4]"
+            ), events);
+            assertEquals(4, changes[0]);
+
+            final List<String> mapEvents = new ArrayList<String>();
+            PersistentMapBox<String, Integer> map = new PersistentMapBox<String, Integer>(
+                    PersistentCollectionBoxTest.class, "observedMap").init();
+            map.addDeltaObserver(new MapDeltaObserver<String, Integer>() {
+                @Override
+                public void onAdded(MapBox<? extends String, ? extends Integer> box, String key, Integer value) {
+                    mapEvents.add("added " + key + " " + value);
+                }
+
+                @Override
+                public void onReplaced(MapBox<? extends String, ? extends Integer> box, String key,
+                                       Integer oldValue, Integer newValue) {
+                    mapEvents.add("replaced " + key + " " + oldValue + " " + newValue);
+                }
+
+                @Override
+                public void onRemoved(MapBox<? extends String, ? extends Integer> box, String key, Integer value) {
+                    mapEvents.add("removed " + key + " " + value);
+                }
+
+                @Override
+                public void onCleared(MapBox<? extends String, ? extends Integer> box) {
+                    mapEvents.add("cleared");
+                }
+            });
+            map.put("a", 1);
+            map.put("a", 2);
+            map.remove("a");
+            assertEquals(Arrays.asList("added a 1", "replaced a 1 2", "removed a 2"), mapEvents);
+            assertTrue(map.snapshot().isEmpty());
+        }
+    }
+
+}
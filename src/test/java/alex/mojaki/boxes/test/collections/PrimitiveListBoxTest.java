@@ -0,0 +1,266 @@
+package alex.mojaki.boxes.test.collections;
+
+import alex.mojaki.boxes.PowerBox;
+import alex.mojaki.boxes.collections.DoubleArrayList;
+import alex.mojaki.boxes.collections.DoubleListBox;
+import alex.mojaki.boxes.collections.IntArrayList;
+import alex.mojaki.boxes.collections.IntListBox;
+import alex.mojaki.boxes.collections.ListBox;
+import alex.mojaki.boxes.collections.ListDeltaObserver;
+import alex.mojaki.boxes.collections.LongArrayList;
+import alex.mojaki.boxes.collections.LongListBox;
+import alex.mojaki.boxes.observers.change.ChangeObserver;
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.SampleElements;
+import com.google.common.collect.testing.TestListGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.ListFeature;
+import junit.framework.TestSuite;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+        PrimitiveListBoxTest.IntListBoxSuite.class,
+        PrimitiveListBoxTest.LongListBoxSuite.class,
+        PrimitiveListBoxTest.DoubleListBoxSuite.class,
+        PrimitiveListBoxTest.PrimitiveOperations.class
+})
+public class PrimitiveListBoxTest {
+
+    private abstract static class Generator<E> implements TestListGenerator<E> {
+        private final SampleElements<E> samples;
+
+        Generator(SampleElements<E> samples) {
+            this.samples = samples;
+        }
+
+        @Override
+        public SampleElements<E> samples() {
+            return samples;
+        }
+
+        @Override
+        public List<E> create(Object... elements) {
+            ListBox<E> box = box();
+            for (Object element : elements) {
+                //noinspection unchecked
+                box.add((E) element);
+            }
+            return box;
+        }
+
+        abstract ListBox<E> box();
+
+        @Override
+        public E[] createArray(int length) {
+            //noinspection unchecked
+            return (E[]) new Object[length];
+        }
+
+        @Override
+        public Iterable<E> order(List<E> insertionOrder) {
+            return insertionOrder;
+        }
+    }
+
+    private static TestSuite suite(String name, Generator<?> generator) {
+        return ListTestSuiteBuilder
+                .using(generator)
+                .named(name)
+                .withFeatures(
+                        CollectionFeature.ALLOWS_NULL_QUERIES,
+                        CollectionFeature.GENERAL_PURPOSE,
+                        CollectionFeature.FAILS_FAST_ON_CONCURRENT_MODIFICATION,
+                        CollectionFeature.SUPPORTS_ADD,
+                        CollectionFeature.SUPPORTS_ITERATOR_REMOVE,
+                        CollectionFeature.SUPPORTS_REMOVE,
+                        CollectionSize.ANY,
+                        ListFeature.GENERAL_PURPOSE
+                ).createTestSuite();
+    }
+
+    public static class IntListBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            return PrimitiveListBoxTest.suite("IntListBox", new Generator<Integer>(new SampleElements.Ints()) {
+                @Override
+                ListBox<Integer> box() {
+                    return new IntListBox(PrimitiveListBoxTest.class, "ints").init();
+                }
+            });
+        }
+    }
+
+    public static class LongListBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            return PrimitiveListBoxTest.suite("LongListBox",
+                    new Generator<Long>(new SampleElements<Long>(0L, 1L, 2L, 3L, 4L)) {
+                        @Override
+                        ListBox<Long> box() {
+                            return new LongListBox(PrimitiveListBoxTest.class, "longs").init();
+                        }
+                    });
+        }
+    }
+
+    public static class DoubleListBoxSuite {
+
+        @Test
+        public void stub() {
+            // I don't understand JUnit suites. I'm just making it shut up about 'No runnable methods'.
+        }
+
+        public static TestSuite suite() {
+            return PrimitiveListBoxTest.suite("DoubleListBox",
+                    new Generator<Double>(new SampleElements<Double>(0.0, 1.5, -2.0, 3e10, Double.NaN)) {
+                        @Override
+                        ListBox<Double> box() {
+                            return new DoubleListBox(PrimitiveListBoxTest.class, "doubles").init();
+                        }
+                    });
+        }
+    }
+
+    public static class PrimitiveOperations {
+
+        @Rule
+        public ExpectedException thrown = ExpectedException.none();
+
+        private final List<String> events = new ArrayList<String>();
+        private int changes;
+
+        private <E> void observe(ListBox<E> box) {
+            box.addChangeObserver(new ChangeObserver() {
+                @Override
+                public void onChange(PowerBox box, Object originalValue, Object finalValue, Object requestedValue) {
+                    changes++;
+                }
+            });
+            box.addDeltaObserver(new ListDeltaObserver<Object>() {
+                @Override
+                public void onAdded(ListBox<?> box, int index, List<?> elements) {
+                    events.add("added " + index + " " + elements);
+                }
+
+                @Override
+                public void onRemoved(ListBox<?> box, int index, List<?> elements) {
+                    events.add("removed " + index + " " + elements);
+                }
+
+                @Override
+                public void onReplaced(ListBox<?> box, int index, Object oldElement, Object newElement) {
+                    events.add("replaced " + index + " " + oldElement + " " + newElement);
+                }
+
+                @Override
+                public void onCleared(ListBox<?> box) {
+                    events.add("cleared");
+                }
+            });
+        }
+
+        @Test
+        public void testIntListBox() {
+            IntListBox box = new IntListBox(PrimitiveListBoxTest.class, "intOperations").init();
+            observe(box);
+            box.addAll(new int[]{5, 3, 8, 1, 9}, 1, 3);
+            box.addInt(7);
+            box.addInt(0, 2);
+            assertEquals(8, box.setInt(2, 4));
+            assertEquals(2, box.removeInt(0));
+            assertEquals(1, box.getInt(2));
+            assertEquals(3, box.indexOfInt(7));
+            assertTrue(box.containsInt(4));
+            assertArrayEquals(new int[]{3, 4, 1, 7}, box.toIntArray());
+            box.sort(null);
+            assertEquals(Arrays.asList(1, 3, 4, 7), box);
+            assertEquals(Arrays.asList(
+                    "added 0 [3, 8, 1]",
+                    "added 3 [7]",
+                    "added 0 [2]",
+                    "replaced 2 8 4",
+                    "removed 0 [2]",
+                    "removed 0 [3, 4, 1, 7]",
+                    "added 0 [1, 3, 4, 7]"
+            ), events);
+            assertEquals(6, changes);
+
+            box.addAll(new int[0]);
+            assertEquals(6, changes);
+            thrown.expect(IndexOutOfBoundsException.class);
+            box.addAll(new int[3], 2, 2);
+        }
+
+        @Test
+        public void testOtherLists() {
+            LongListBox box = new LongListBox(PrimitiveListBoxTest.class, "boxedLongs")
+                    .set(new ArrayList<Long>(Arrays.asList(1L, 2L)));
+            observe(box);
+            box.addAll(new long[]{3, 4});
+            box.addLong(5);
+            assertEquals(2, box.removeLong(1));
+            assertEquals(4, box.getLong(2));
+            assertArrayEquals(new long[]{1, 3, 4, 5}, box.toLongArray());
+            assertEquals(Arrays.asList(1L, 3L, 4L, 5L), box);
+            assertEquals(3, changes);
+
+            box.set(LongArrayList.of(6, 7));
+            assertEquals(7, box.getLong(1));
+            assertEquals("added 0 [6, 7]", events.get(events.size() - 1));
+        }
+
+        @Test
+        public void testDoubles() {
+            DoubleListBox box = new DoubleListBox(PrimitiveListBoxTest.class, "doubleOperations")
+                    .set(DoubleArrayList.of(0.0, -0.0, Double.NaN));
+            assertEquals(1, box.indexOfDouble(-0.0));
+            assertEquals(2, box.indexOfDouble(Double.NaN));
+            assertEquals(2, box.indexOf(Double.NaN));
+            assertEquals(Arrays.asList(0.0, -0.0, Double.NaN), box);
+            assertEquals(new ArrayList<Double>(box).hashCode(), box.hashCode());
+            box.sort(null);
+            assertArrayEquals(new double[]{-0.0, 0.0, Double.NaN}, box.toDoubleArray(), 0);
+        }
+
+        @Test
+        public void testArrayList() {
+            IntArrayList list = new IntArrayList(0);
+            for (int i = 0; i < 1000; i++) {
+                list.addInt(i);
+            }
+            list.subList(10, 990).clear();
+            list.trimToSize();
+            assertEquals(20, list.size());
+            assertEquals(995, list.getInt(15));
+            assertEquals(list, new ArrayList<Integer>(list));
+            assertEquals(list.hashCode(), new ArrayList<Integer>(list).hashCode());
+            assertEquals(IntArrayList.of(1, 2), Arrays.asList(1, 2));
+            assertFalse(list.contains(5L));
+            thrown.expect(NullPointerException.class);
+            list.add(null);
+        }
+    }
+
+}